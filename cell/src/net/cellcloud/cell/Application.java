@@ -57,6 +57,7 @@ import net.cellcloud.core.Nucleus;
 import net.cellcloud.core.NucleusConfig;
 import net.cellcloud.core.Role;
 import net.cellcloud.exception.SingletonException;
+import net.cellcloud.talk.dialect.ActionOverflowPolicy;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -324,6 +325,20 @@ public final class Application {
 						Logger.i(this.getClass(), "[-] nucleus.httpd = " + config.httpd);
 					}
 
+					// connectors
+					nl = el.getElementsByTagName("connectors");
+					if (nl.getLength() > 0) {
+						try {
+							config.numConnectorThreads = Integer.parseInt(nl.item(0).getTextContent().trim());
+							Logger.i(this.getClass(), "[*] nucleus.numConnectorThreads = " + config.numConnectorThreads);
+						} catch (NumberFormatException e) {
+							Logger.log(this.getClass(), e, LogLevel.WARNING);
+						}
+					}
+					else {
+						Logger.i(this.getClass(), "[-] nucleus.numConnectorThreads = " + config.numConnectorThreads);
+					}
+
 					// talk config
 					NodeList nlTalk = el.getElementsByTagName("talk");
 					if (nlTalk.getLength() > 0) {
@@ -385,6 +400,20 @@ public final class Application {
 							Logger.i(this.getClass(), "[-] nucleus.talk.numWorkerThreads = " + config.talk.numWorkerThreads);
 						}
 
+						// reactors
+						nl = elTalk.getElementsByTagName("reactors");
+						if (nl.getLength() > 0) {
+							try {
+								config.talk.numReactorThreads = Integer.parseInt(nl.item(0).getTextContent().trim());
+								Logger.i(this.getClass(), "[*] nucleus.talk.numReactorThreads = " + config.talk.numReactorThreads);
+							} catch (NumberFormatException e) {
+								Logger.log(this.getClass(), e, LogLevel.WARNING);
+							}
+						}
+						else {
+							Logger.i(this.getClass(), "[-] nucleus.talk.numReactorThreads = " + config.talk.numReactorThreads);
+						}
+
 						// bandwidth
 						nl = elTalk.getElementsByTagName("bandwidth");
 						if (nl.getLength() > 0) {
@@ -490,9 +519,39 @@ public final class Application {
 							else {
 								Logger.i(this.getClass(), "[-] nucleus.talk.action.max-thread = " + config.talk.actionMaxThread);
 							}
+
+							// max-pending
+							nl = elAction.getElementsByTagName("max-pending");
+							if (nl.getLength() > 0) {
+								try {
+									config.talk.actionMaxPending = Integer.parseInt(nl.item(0).getTextContent().trim());
+									Logger.i(this.getClass(), "[*] nucleus.talk.action.max-pending = " + config.talk.actionMaxPending);
+								} catch (NumberFormatException e) {
+									Logger.log(this.getClass(), e, LogLevel.WARNING);
+								}
+							}
+							else {
+								Logger.i(this.getClass(), "[-] nucleus.talk.action.max-pending = " + config.talk.actionMaxPending);
+							}
+
+							// overflow
+							nl = elAction.getElementsByTagName("overflow");
+							if (nl.getLength() > 0) {
+								try {
+									config.talk.actionOverflowPolicy = ActionOverflowPolicy.valueOf(nl.item(0).getTextContent().trim().toUpperCase());
+									Logger.i(this.getClass(), "[*] nucleus.talk.action.overflow = " + config.talk.actionOverflowPolicy);
+								} catch (IllegalArgumentException e) {
+									Logger.log(this.getClass(), e, LogLevel.WARNING);
+								}
+							}
+							else {
+								Logger.i(this.getClass(), "[-] nucleus.talk.action.overflow = " + config.talk.actionOverflowPolicy);
+							}
 						}
 						else {
 							Logger.i(this.getClass(), "[-] nucleus.talk.action.max-thread = " + config.talk.actionMaxThread);
+							Logger.i(this.getClass(), "[-] nucleus.talk.action.max-pending = " + config.talk.actionMaxPending);
+							Logger.i(this.getClass(), "[-] nucleus.talk.action.overflow = " + config.talk.actionOverflowPolicy);
 						}
 
 						// chunk
@@ -535,11 +594,39 @@ public final class Application {
 							else {
 								Logger.i(this.getClass(), "[-] nucleus.talk.chunk.max-disk = " + config.talk.maxChunkFileSize);
 							}
+							// window
+							nl = elChunk.getElementsByTagName("window");
+							if (nl.getLength() > 0) {
+								try {
+									config.talk.chunkWindowSize = Integer.parseInt(nl.item(0).getTextContent().trim());
+									Logger.i(this.getClass(), "[*] nucleus.talk.chunk.window = " + config.talk.chunkWindowSize);
+								} catch (NumberFormatException e) {
+									Logger.log(this.getClass(), e, LogLevel.WARNING);
+								}
+							}
+							else {
+								Logger.i(this.getClass(), "[-] nucleus.talk.chunk.window = " + config.talk.chunkWindowSize);
+							}
+							// chunk-size
+							nl = elChunk.getElementsByTagName("chunk-size");
+							if (nl.getLength() > 0) {
+								try {
+									config.talk.chunkSize = Integer.parseInt(nl.item(0).getTextContent().trim());
+									Logger.i(this.getClass(), "[*] nucleus.talk.chunk.chunk-size = " + config.talk.chunkSize);
+								} catch (NumberFormatException e) {
+									Logger.log(this.getClass(), e, LogLevel.WARNING);
+								}
+							}
+							else {
+								Logger.i(this.getClass(), "[-] nucleus.talk.chunk.chunk-size = " + config.talk.chunkSize);
+							}
 						}
 						else {
 							Logger.i(this.getClass(), "[-] nucleus.talk.chunk.cache-path = " + config.talk.chunkFilePath);
 							Logger.i(this.getClass(), "[-] nucleus.talk.chunk.max-memory = " + config.talk.maxChunkMemorySize);
 							Logger.i(this.getClass(), "[-] nucleus.talk.chunk.max-disk = " + config.talk.maxChunkFileSize);
+							Logger.i(this.getClass(), "[-] nucleus.talk.chunk.window = " + config.talk.chunkWindowSize);
+							Logger.i(this.getClass(), "[-] nucleus.talk.chunk.chunk-size = " + config.talk.chunkSize);
 						}
 					} // #end talk config
 
@@ -0,0 +1,165 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+package net.cellcloud.talk.dialect;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.cellcloud.core.Cellet;
+import net.cellcloud.core.CelletFeature;
+import net.cellcloud.core.CelletVersion;
+import net.cellcloud.core.Nucleus;
+import net.cellcloud.core.NucleusConfig;
+import net.cellcloud.talk.Primitive;
+import net.cellcloud.talk.TalkListener;
+import net.cellcloud.talk.TalkService;
+import net.cellcloud.talk.TalkServiceFailure;
+
+/**
+ * 检查接收方窗口小于发送方窗口时区块传输不会等待确认超时。
+ * 
+ * 发送列表按发送方窗口创建之后缩小本地窗口，接收方按较小的窗口回送确认，
+ * 发送方收到确认后缩小窗口。发送方等待确认超时会使相邻两个区块的到达间隔接近超时时间，
+ * 因此检查最大到达间隔。在 nucleus 目录下使用 {@code ant bench} 运行。
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+public final class ChunkWindowCheck {
+
+	/** 区块数量。 */
+	private final static int CHUNK_NUM = 400;
+	/** 区块大小。 */
+	private final static int CHUNK_SIZE = 2048;
+	/** 发送方窗口。 */
+	private final static int SENDER_WINDOW = 32;
+	/** 接收方窗口。 */
+	private final static int RECEIVER_WINDOW = 8;
+	/** 确认超时时间，与 ChunkDialectFactory 的默认值一致。 */
+	private final static long ACK_TIMEOUT = 5000L;
+
+	private ChunkWindowCheck() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		final CountDownLatch received = new CountDownLatch(CHUNK_NUM);
+		final AtomicLong lastTime = new AtomicLong(0);
+		final AtomicLong maxGap = new AtomicLong(0);
+
+		NucleusConfig config = new NucleusConfig();
+		config.httpd = false;
+		config.talk.port = 17510;
+		Nucleus nucleus = Nucleus.createInstance(config);
+		nucleus.registerCellet(new Cellet(new CelletFeature("ChunkWindow", new CelletVersion(1, 0, 0))) {
+			@Override
+			public void activate() {
+			}
+
+			@Override
+			public void deactivate() {
+			}
+
+			@Override
+			public void dialogue(String tag, Primitive primitive) {
+				if (primitive.getDialect() instanceof ChunkDialect) {
+					long now = System.currentTimeMillis();
+					long last = lastTime.getAndSet(now);
+					if (last > 0 && now - last > maxGap.get()) {
+						maxGap.set(now - last);
+					}
+					received.countDown();
+				}
+			}
+		});
+		nucleus.startup();
+
+		final CountDownLatch contacted = new CountDownLatch(1);
+		TalkService.getInstance().addListener(new TalkListener() {
+			@Override
+			public void dialogue(String identifier, Primitive primitive) {
+			}
+
+			@Override
+			public void contacted(String identifier, String tag) {
+				contacted.countDown();
+			}
+
+			@Override
+			public void quitted(String identifier, String tag) {
+			}
+
+			@Override
+			public void failed(String tag, TalkServiceFailure failure) {
+			}
+		});
+
+		boolean passed = false;
+		long elapsed = 0;
+		try {
+			TalkService.getInstance().call(new String[] { "ChunkWindow" }, new InetSocketAddress("127.0.0.1", config.talk.port));
+			if (!contacted.await(20, TimeUnit.SECONDS)) {
+				throw new IllegalStateException("Can not contact cellet");
+			}
+
+			ChunkDialectFactory factory = (ChunkDialectFactory) DialectEnumerator.getInstance().getFactory(ChunkDialect.DIALECT_NAME);
+			factory.setWindowSize(SENDER_WINDOW);
+
+			byte[] data = new byte[CHUNK_SIZE];
+			long start = System.currentTimeMillis();
+			for (int i = 0; i < CHUNK_NUM; ++i) {
+				ChunkDialect chunk = new ChunkDialect("window", (long) CHUNK_NUM * CHUNK_SIZE, i, CHUNK_NUM, data, CHUNK_SIZE);
+				chunk.setSpeed(2048);
+				TalkService.getInstance().talk("ChunkWindow", chunk);
+
+				if (0 == i) {
+					// 发送列表已按发送方窗口创建，之后按接收方窗口回送确认
+					factory.setWindowSize(RECEIVER_WINDOW);
+				}
+			}
+
+			passed = received.await(ACK_TIMEOUT * 6, TimeUnit.MILLISECONDS);
+			elapsed = System.currentTimeMillis() - start;
+			passed = passed && maxGap.get() < ACK_TIMEOUT / 2;
+		} finally {
+			TalkService.getInstance().hangUp(new String[] { "ChunkWindow" });
+			nucleus.shutdown();
+		}
+
+		System.out.println("Chunk window " + SENDER_WINDOW + " -> " + RECEIVER_WINDOW + ": "
+				+ (CHUNK_NUM - received.getCount()) + "/" + CHUNK_NUM + " chunks in " + elapsed + " ms, max gap "
+				+ maxGap.get() + " ms");
+
+		if (!passed) {
+			System.out.println("FAILED: transfer waited for the acknowledgement timeout");
+			System.exit(1);
+		}
+
+		System.exit(0);
+	}
+
+}
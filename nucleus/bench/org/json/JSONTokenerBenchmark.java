@@ -0,0 +1,86 @@
+package org.json;
+
+import java.io.StringReader;
+import java.nio.charset.Charset;
+
+/**
+ * Compares the character-by-character Reader tokenizer with the in-place
+ * String and UTF-8 byte tokenizers on talk packets.
+ * <p>
+ * Run from the nucleus directory with {@code ant bench}. The classes are
+ * compiled into build/bin/bench and never enter the release jar.
+ */
+public class JSONTokenerBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String DIALOGUE =
+        "{\"tpt\":\"dialogue\",\"packet\":{\"tag\":\"1a2b3c4d-5e6f-7a8b-9c0d-1e2f3a4b5c6d\","
+        + "\"identifier\":\"Dummy\",\"primitive\":{\"version\":4,\"stuffs\":["
+        + "{\"type\":\"sub\",\"value\":\"hello world\",\"literal\":\"string\"},"
+        + "{\"type\":\"pre\",\"value\":1234567,\"literal\":\"int\"},"
+        + "{\"type\":\"obj\",\"value\":1416032890123,\"literal\":\"long\"},"
+        + "{\"type\":\"att\",\"value\":3.25,\"literal\":\"float\"},"
+        + "{\"type\":\"adv\",\"value\":true,\"literal\":\"bool\"},"
+        + "{\"type\":\"com\",\"value\":\"\\u4e2d\\u6587 \\\"quoted\\\"\",\"literal\":\"string\"}],"
+        + "\"dialect\":{\"name\":\"ActionDialect\",\"tracker\":\"tracker\"}}}}";
+
+    private static final String REQUEST =
+        "{\"tag\":\"1a2b3c4d-5e6f-7a8b-9c0d-1e2f3a4b5c6d\",\"identifier\":\"Dummy\"}";
+
+    private static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+
+        JSONTokener.internKeys("tpt", "packet", "tag", "identifier", "primitive", "version",
+                "stuffs", "type", "value", "literal", "dialect", "name", "tracker");
+
+        run("dialogue", DIALOGUE, iterations);
+        run("request", REQUEST, iterations);
+    }
+
+    private static void run(String name, String json, int iterations) throws Exception {
+        byte[] utf8 = json.getBytes(UTF8);
+
+        // Both paths must produce the same object.
+        String expected = new JSONObject(new JSONTokener(new StringReader(json))).toString();
+        if (!expected.equals(new JSONObject(json).toString())
+                || !expected.equals(new JSONObject(new JSONTokener(utf8, 0, utf8.length)).toString())) {
+            throw new IllegalStateException("Tokenizer results differ for " + name);
+        }
+
+        for (int round = 0; round < 3; round += 1) {
+            long reader = 0;
+            long string = 0;
+            long bytes = 0;
+
+            long begin = System.nanoTime();
+            for (int i = 0; i < iterations; i += 1) {
+                sink = new JSONObject(new JSONTokener(new StringReader(json)));
+            }
+            reader = System.nanoTime() - begin;
+
+            begin = System.nanoTime();
+            for (int i = 0; i < iterations; i += 1) {
+                sink = new JSONObject(json);
+            }
+            string = System.nanoTime() - begin;
+
+            begin = System.nanoTime();
+            for (int i = 0; i < iterations; i += 1) {
+                sink = new JSONObject(new JSONTokener(utf8, 0, utf8.length));
+            }
+            bytes = System.nanoTime() - begin;
+
+            System.out.println(name + " round " + round
+                + ": reader " + perOp(reader, iterations)
+                + " ns/op, string " + perOp(string, iterations)
+                + " ns/op, utf-8 " + perOp(bytes, iterations) + " ns/op");
+        }
+    }
+
+    private static long perOp(long nanos, int iterations) {
+        return nanos / iterations;
+    }
+}
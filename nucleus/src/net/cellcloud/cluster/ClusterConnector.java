@@ -48,6 +48,7 @@ import net.cellcloud.common.Message;
 import net.cellcloud.common.MessageHandler;
 import net.cellcloud.common.NonblockingConnector;
 import net.cellcloud.common.Session;
+import net.cellcloud.core.Nucleus;
 import net.cellcloud.util.Utils;
 
 /**
@@ -92,7 +93,8 @@ public final class ClusterConnector extends Observable implements MessageHandler
 		this.remoteHashCode = hashCode;
 		this.executor = executor;
 		this.numTask = new AtomicInteger(0);
-		this.connector = new NonblockingConnector();
+		Nucleus nucleus = Nucleus.getInstance();
+		this.connector = new NonblockingConnector((null != nucleus) ? nucleus.getConnectorGroup() : null);
 		this.buffer = ByteBuffer.allocate(this.bufferSize);
 		this.connector.setHandler(this);
 		this.protocolQueue = new ConcurrentLinkedQueue<ClusterProtocol>();
@@ -0,0 +1,169 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.common;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 固定容量的直接缓存池。
+ *
+ * 缓存池里的所有缓存块容量相同，借出的缓存在使用完毕后必须归还。
+ *
+ * @author Ambrose Xu
+ *
+ */
+public final class ByteBufferPool {
+
+	/** 每个缓存块的容量。 */
+	private final int capacity;
+	/** 池内最多保留的空闲缓存块数量。 */
+	private final int maxIdle;
+
+	/** 空闲缓存块。 */
+	private ConcurrentLinkedQueue<ByteBuffer> idleBuffers;
+	/** 空闲缓存块数量。 */
+	private AtomicInteger numIdle;
+
+	/** 命中次数。 */
+	private AtomicLong hits;
+	/** 未命中次数。 */
+	private AtomicLong misses;
+	/** 当前借出未归还的数量。 */
+	private AtomicInteger leases;
+
+	/**
+	 * 构造函数。
+	 *
+	 * @param capacity 指定每个缓存块的容量。
+	 * @param maxIdle 指定池内最多保留的空闲缓存块数量。
+	 */
+	public ByteBufferPool(int capacity, int maxIdle) {
+		this.capacity = capacity;
+		this.maxIdle = maxIdle;
+		this.idleBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+		this.numIdle = new AtomicInteger(0);
+		this.hits = new AtomicLong(0);
+		this.misses = new AtomicLong(0);
+		this.leases = new AtomicInteger(0);
+	}
+
+	/**
+	 * 借出缓存块。借出的缓存块处于清空状态。
+	 *
+	 * @return 返回缓存块。
+	 */
+	public ByteBuffer lease() {
+		ByteBuffer buffer = this.idleBuffers.poll();
+		if (null != buffer) {
+			this.numIdle.decrementAndGet();
+			this.hits.incrementAndGet();
+		}
+		else {
+			buffer = ByteBuffer.allocateDirect(this.capacity);
+			this.misses.incrementAndGet();
+		}
+
+		this.leases.incrementAndGet();
+		return buffer;
+	}
+
+	/**
+	 * 归还缓存块。
+	 *
+	 * @param buffer 指定借出的缓存块。
+	 */
+	public void release(ByteBuffer buffer) {
+		this.leases.decrementAndGet();
+
+		if (buffer.capacity() != this.capacity) {
+			return;
+		}
+
+		if (this.numIdle.get() < this.maxIdle) {
+			buffer.clear();
+			this.idleBuffers.offer(buffer);
+			this.numIdle.incrementAndGet();
+		}
+	}
+
+	/**
+	 * 清空池内所有空闲的缓存块。
+	 */
+	public void clear() {
+		this.idleBuffers.clear();
+		this.numIdle.set(0);
+	}
+
+	/**
+	 * 获得每个缓存块的容量。
+	 *
+	 * @return 返回每个缓存块的容量。
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * 获得命中次数。
+	 *
+	 * @return 返回命中次数。
+	 */
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	/**
+	 * 获得未命中次数。
+	 *
+	 * @return 返回未命中次数。
+	 */
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * 获得当前借出未归还的缓存块数量。
+	 *
+	 * @return 返回当前借出未归还的缓存块数量。
+	 */
+	public int numLeases() {
+		return this.leases.get();
+	}
+
+	/**
+	 * 获得池内空闲缓存块数量。
+	 *
+	 * @return 返回池内空闲缓存块数量。
+	 */
+	public int numIdle() {
+		return this.numIdle.get();
+	}
+
+}
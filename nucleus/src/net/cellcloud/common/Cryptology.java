@@ -27,6 +27,7 @@ THE SOFTWARE.
 package net.cellcloud.common;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -97,6 +98,43 @@ public final class Cryptology {
 		return out;
 	}
 
+	/**
+	 * 在缓存的指定区间上直接进行简单加密操作。密钥长度为 8 位。
+	 * 
+	 * 加密结果与 {@link #simpleEncrypt(byte[], byte[])} 相同，密文覆盖明文。
+	 * 
+	 * @param buffer 指定存储明文的缓存。
+	 * @param offset 指定明文在缓存里的位置。
+	 * @param length 指定明文长度。
+	 * @param key 指定密钥。
+	 * @return 如果密钥有效返回 <code>true</code> 。
+	 */
+	public boolean simpleEncrypt(ByteBuffer buffer, int offset, int length, byte[] key) {
+		if (key.length != 8)
+			return false;
+
+		// 运算密钥
+		int keyCode = 11 + key[0];
+		keyCode -= key[1];
+		keyCode += key[2];
+		keyCode -= key[3];
+		keyCode += key[4];
+		keyCode -= key[5];
+		keyCode += key[6];
+		keyCode -= key[7];
+
+		// 评价
+		byte cc = (byte) (keyCode % 8);
+		byte parity = (byte) (((keyCode % 2) == 0) ? 2 : 1);
+		byte mask = (byte) (parity ^ cc);
+
+		for (int i = offset, end = offset + length; i < end; ++i) {
+			buffer.put(i, (byte) (buffer.get(i) ^ mask));
+		}
+
+		return true;
+	}
+
 	/**
 	 * 简单解密操作。密钥长度为 8 位。
 	 * 
@@ -0,0 +1,273 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.common;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 续传帧编解码器。
+ *
+ * 数据长度超过写限制的消息被拆分为多个分片，除最后一个分片外的分片都使用续传帧发送，
+ * 最后一个分片使用普通帧发送。第一个分片的数据前附加 4 字节大端序的消息总长度，
+ * 接收端据此一次性分配消息数据，依次复制各分片。
+ *
+ * 数据标记方式下续传帧使用续传标记代替头标记，长度帧方式下续传帧在帧头长度的最高位置位。
+ *
+ * @author Ambrose Xu
+ *
+ */
+public final class FragmentCodec {
+
+	/** 第一个分片里消息总长度的字节数。 */
+	public static final int PREFIX_LENGTH = 4;
+
+	/** 长度帧帧头里的续传标志位。 */
+	public static final int CONTINUATION_FLAG = 0x80000000;
+
+	/** 丢弃当前分片消息时使用的占位数据。 */
+	private static final byte[] DISCARD = new byte[0];
+
+	private FragmentCodec() {
+	}
+
+	/**
+	 * 指定的消息服务是否支持分片传输。
+	 *
+	 * @param service 指定消息服务。
+	 * @return 使用数据标记或长度帧时返回 <code>true</code> 。
+	 */
+	public static boolean isSupported(MessageService service) {
+		return service.hasDataMark() || service.hasLengthFraming();
+	}
+
+	/**
+	 * 将消息数据编码为待写入的缓存。
+	 *
+	 * 缓存直接引用消息数据，不复制数据。
+	 *
+	 * @param service 指定消息服务。
+	 * @param data 指定消息数据。
+	 * @param fragmentSize 指定分片的最大数据长度。
+	 * @param output 指定编码后的缓存的输出列表。
+	 */
+	public static void encode(MessageService service, byte[] data, int fragmentSize, List<ByteBuffer> output) {
+		if (data.length <= fragmentSize || !isSupported(service)) {
+			frame(service, data, 0, data.length, false, null, output);
+			return;
+		}
+
+		byte[] prefix = new byte[PREFIX_LENGTH];
+		prefix[0] = (byte) (data.length >>> 24);
+		prefix[1] = (byte) (data.length >>> 16);
+		prefix[2] = (byte) (data.length >>> 8);
+		prefix[3] = (byte) data.length;
+
+		int offset = 0;
+		while (offset < data.length) {
+			int length = Math.min(fragmentSize, data.length - offset);
+			boolean more = offset + length < data.length;
+			frame(service, data, offset, length, more, (0 == offset) ? prefix : null, output);
+			offset += length;
+		}
+	}
+
+	/**
+	 * 获得不分片发送时帧头的长度。
+	 *
+	 * @param service 指定消息服务。
+	 * @return 返回帧头长度，即长度帧帧头或者头标记的长度。
+	 */
+	public static int headLength(MessageService service) {
+		if (service.hasLengthFraming()) {
+			return LengthFrameCodec.HEADER_LENGTH;
+		}
+		else if (service.hasDataMark()) {
+			return service.getHeadMark().length;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * 获得不分片发送时帧尾的长度。
+	 *
+	 * @param service 指定消息服务。
+	 * @return 返回帧尾长度，即尾标记的长度。
+	 */
+	public static int tailLength(MessageService service) {
+		if (!service.hasLengthFraming() && service.hasDataMark()) {
+			return service.getTailMark().length;
+		}
+
+		return 0;
+	}
+
+	/**
+	 * 将不分片发送的帧头直接写入缓存。
+	 *
+	 * @param service 指定消息服务。
+	 * @param length 指定帧数据长度。
+	 * @param buffer 指定写入的缓存。
+	 */
+	public static void putHead(MessageService service, int length, ByteBuffer buffer) {
+		if (service.hasLengthFraming()) {
+			buffer.put((byte) (length >>> 24));
+			buffer.put((byte) (length >>> 16));
+			buffer.put((byte) (length >>> 8));
+			buffer.put((byte) length);
+		}
+		else if (service.hasDataMark()) {
+			buffer.put(service.getHeadMark());
+		}
+	}
+
+	/**
+	 * 将不分片发送的帧尾直接写入缓存。
+	 *
+	 * @param service 指定消息服务。
+	 * @param buffer 指定写入的缓存。
+	 */
+	public static void putTail(MessageService service, ByteBuffer buffer) {
+		if (!service.hasLengthFraming() && service.hasDataMark()) {
+			buffer.put(service.getTailMark());
+		}
+	}
+
+	/**
+	 * 重组接收到的帧数据。
+	 *
+	 * 普通帧且没有正在重组的消息时直接输出帧数据。
+	 *
+	 * @param session 指定数据所属的会话。
+	 * @param data 指定帧数据所在的数组。
+	 * @param offset 指定帧数据的起始位置。
+	 * @param length 指定帧数据的长度。
+	 * @param more 指定是否是续传帧。
+	 * @param maxLength 指定允许的最大消息长度。
+	 * @param output 指定完整消息数据的输出列表。
+	 * @return 如果分片数据非法返回 <code>false</code> ，此时当前正在重组的消息被丢弃。
+	 */
+	public static boolean assemble(Session session, byte[] data, int offset, int length, boolean more, int maxLength,
+			List<byte[]> output) {
+		if (null == session.fragment) {
+			if (!more) {
+				output.add((0 == offset && length == data.length) ? data : Arrays.copyOfRange(data, offset, offset + length));
+				return true;
+			}
+
+			// 第一个分片
+			int total = -1;
+			if (length >= PREFIX_LENGTH) {
+				total = ((data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+						| ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+			}
+
+			if (total <= 0 || total > maxLength) {
+				// 丢弃后续分片
+				session.fragment = DISCARD;
+				session.fragmentCursor = 0;
+				return false;
+			}
+
+			session.fragment = new byte[total];
+			session.fragmentCursor = 0;
+			offset += PREFIX_LENGTH;
+			length -= PREFIX_LENGTH;
+		}
+		else if (DISCARD == session.fragment) {
+			if (!more) {
+				reset(session);
+			}
+			return true;
+		}
+
+		if (session.fragmentCursor + length > session.fragment.length) {
+			session.fragment = more ? DISCARD : null;
+			session.fragmentCursor = 0;
+			return false;
+		}
+
+		System.arraycopy(data, offset, session.fragment, session.fragmentCursor, length);
+		session.fragmentCursor += length;
+
+		if (!more) {
+			byte[] message = session.fragment;
+			boolean complete = (session.fragmentCursor == message.length);
+			reset(session);
+
+			if (!complete) {
+				return false;
+			}
+
+			output.add(message);
+		}
+
+		return true;
+	}
+
+	/**
+	 * 重置会话的分片重组状态。
+	 *
+	 * @param session 指定会话。
+	 */
+	public static void reset(Session session) {
+		session.fragment = null;
+		session.fragmentCursor = 0;
+	}
+
+	/**
+	 * 为一个分片生成帧缓存。
+	 */
+	private static void frame(MessageService service, byte[] data, int offset, int length, boolean more, byte[] prefix,
+			List<ByteBuffer> output) {
+		int prefixLength = (null != prefix) ? prefix.length : 0;
+
+		if (service.hasLengthFraming()) {
+			int header = prefixLength + length;
+			if (more) {
+				header |= CONTINUATION_FLAG;
+			}
+			output.add(ByteBuffer.wrap(LengthFrameCodec.encodeHeader(header)));
+		}
+		else if (service.hasDataMark()) {
+			output.add(ByteBuffer.wrap(more ? service.getContinuationMark() : service.getHeadMark()));
+		}
+
+		if (null != prefix) {
+			output.add(ByteBuffer.wrap(prefix));
+		}
+
+		output.add(ByteBuffer.wrap(data, offset, length));
+
+		if (!service.hasLengthFraming() && service.hasDataMark()) {
+			output.add(ByteBuffer.wrap(service.getTailMark()));
+		}
+	}
+
+}
@@ -0,0 +1,158 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.common;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 长度帧编解码器。
+ *
+ * 每个数据帧由 4 字节大端序的数据长度和紧随其后的数据组成，长度的最高位是续传标志。
+ * 解码时对接收缓存进行一次遍历，数据直接复制到帧数据数组，不产生中间副本。
+ *
+ * @author Ambrose Xu
+ *
+ */
+public final class LengthFrameCodec {
+
+	/** 帧头长度。 */
+	public static final int HEADER_LENGTH = 4;
+
+	private LengthFrameCodec() {
+	}
+
+	/**
+	 * 生成指定数据长度的帧头。
+	 *
+	 * @param length 指定数据长度。
+	 * @return 返回帧头数据。
+	 */
+	public static byte[] encodeHeader(int length) {
+		byte[] header = new byte[HEADER_LENGTH];
+		header[0] = (byte) (length >>> 24);
+		header[1] = (byte) (length >>> 16);
+		header[2] = (byte) (length >>> 8);
+		header[3] = (byte) length;
+		return header;
+	}
+
+	/**
+	 * 从接收缓存中解码数据帧。
+	 *
+	 * 不完整的帧头或帧数据记录在会话里，在下一次解码时继续。续传帧交给 {@link FragmentCodec} 重组。
+	 *
+	 * @param service 指定使用长度帧的消息服务。
+	 * @param session 指定数据所属的会话。
+	 * @param buffer 指定已就绪的接收缓存。
+	 * @param output 指定解码出的完整消息数据的输出列表。
+	 * @return 如果帧头记录的长度非法或者分片数据非法返回 <code>false</code> ，
+	 * 帧头长度非法时会话的解码状态被重置。
+	 */
+	public static boolean decode(MessageService service, Session session, ByteBuffer buffer, List<byte[]> output) {
+		final int maxLength = service.getMaxFrameLength();
+		final int maxMessageLength = service.getMaxMessageLength();
+		boolean valid = true;
+
+		while (buffer.hasRemaining()) {
+			if (null == session.frame) {
+				int header = 0;
+
+				if (0 == session.cacheCursor && buffer.remaining() >= HEADER_LENGTH) {
+					header = buffer.getInt();
+				}
+				else {
+					// 帧头不完整，使用会话缓存记录帧头
+					while (session.cacheCursor < HEADER_LENGTH && buffer.hasRemaining()) {
+						session.cache[session.cacheCursor++] = buffer.get();
+					}
+
+					if (session.cacheCursor < HEADER_LENGTH) {
+						return valid;
+					}
+
+					byte[] cache = session.cache;
+					header = ((cache[0] & 0xFF) << 24) | ((cache[1] & 0xFF) << 16)
+							| ((cache[2] & 0xFF) << 8) | (cache[3] & 0xFF);
+					session.cacheCursor = 0;
+				}
+
+				boolean more = (header & FragmentCodec.CONTINUATION_FLAG) != 0;
+				int length = header & ~FragmentCodec.CONTINUATION_FLAG;
+
+				if (length > maxLength) {
+					reset(session);
+					return false;
+				}
+
+				if (buffer.remaining() >= length) {
+					// 完整的帧
+					byte[] data = new byte[length];
+					buffer.get(data);
+					if (!FragmentCodec.assemble(session, data, 0, length, more, maxMessageLength, output)) {
+						valid = false;
+					}
+					continue;
+				}
+
+				session.frame = new byte[length];
+				session.frameCursor = 0;
+				session.frameMore = more;
+			}
+
+			int num = Math.min(buffer.remaining(), session.frame.length - session.frameCursor);
+			buffer.get(session.frame, session.frameCursor, num);
+			session.frameCursor += num;
+
+			if (session.frameCursor == session.frame.length) {
+				byte[] data = session.frame;
+				session.frame = null;
+				session.frameCursor = 0;
+
+				if (!FragmentCodec.assemble(session, data, 0, data.length, session.frameMore, maxMessageLength, output)) {
+					valid = false;
+				}
+			}
+		}
+
+		return valid;
+	}
+
+	/**
+	 * 重置会话的解码状态。
+	 *
+	 * @param session 指定会话。
+	 */
+	public static void reset(Session session) {
+		session.frame = null;
+		session.frameCursor = 0;
+		session.frameMore = false;
+		session.cacheCursor = 0;
+		FragmentCodec.reset(session);
+	}
+
+}
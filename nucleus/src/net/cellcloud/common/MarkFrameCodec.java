@@ -0,0 +1,157 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.common;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 数据标记帧解码器。
+ *
+ * 每个数据帧由头标记（或续传标记）、数据和尾标记组成。
+ * 接收的数据追加到会话缓存后一次遍历提取所有完整的帧，不完整的帧保留在会话缓存里。
+ *
+ * @author Ambrose Xu
+ *
+ */
+public final class MarkFrameCodec {
+
+	private MarkFrameCodec() {
+	}
+
+	/**
+	 * 从接收缓存中解码数据帧。
+	 *
+	 * @param service 指定定义了数据标记的消息服务。
+	 * @param session 指定数据所属的会话。
+	 * @param buffer 指定已就绪的接收缓存。
+	 * @param cacheLimit 指定会话缓存清空后保留的最大容量，超过该容量的缓存被释放。
+	 * @param output 指定解码出的完整消息数据的输出列表。
+	 * @return 如果有非法的分片数据返回 <code>false</code> 。
+	 */
+	public static boolean decode(MessageService service, Session session, ByteBuffer buffer, int cacheLimit,
+			List<byte[]> output) {
+		final byte[] headMark = service.getHeadMark();
+		final byte[] tailMark = service.getTailMark();
+		final byte[] continuationMark = service.getContinuationMark();
+		final int maxLength = service.getMaxMessageLength();
+
+		final int length = buffer.remaining();
+		if (session.cacheCursor + length > session.getCacheSize()) {
+			// 缓存扩容
+			session.resetCacheSize(session.cacheCursor + length);
+		}
+
+		final byte[] cache = session.cache;
+		buffer.get(cache, session.cacheCursor, length);
+		final int end = session.cacheCursor + length;
+
+		boolean valid = true;
+
+		// 已处理的数据位置
+		int consumed = 0;
+		int index = 0;
+
+		while (index < end) {
+			int headPos = indexOf(cache, index, end, headMark, continuationMark);
+			if (headPos < 0) {
+				// 没有找到头标签，保留可能是头标签的尾部数据
+				consumed = Math.max(index, end - (headMark.length - 1));
+				break;
+			}
+
+			int dataPos = headPos + headMark.length;
+			int tailPos = indexOf(cache, dataPos, end, tailMark, null);
+			if (tailPos < 0) {
+				// 没有尾标签，从头标签开始缓存
+				consumed = headPos;
+				break;
+			}
+
+			boolean more = (null != continuationMark) && matches(cache, headPos, continuationMark);
+			if (!FragmentCodec.assemble(session, cache, dataPos, tailPos - dataPos, more, maxLength, output)) {
+				valid = false;
+			}
+
+			index = tailPos + tailMark.length;
+			consumed = index;
+		}
+
+		// 移动剩余数据
+		int remain = end - consumed;
+		if (remain > 0 && consumed > 0) {
+			System.arraycopy(cache, consumed, cache, 0, remain);
+		}
+		session.cacheCursor = remain;
+
+		if (0 == remain && session.getCacheSize() > cacheLimit) {
+			// 释放扩容的缓存
+			session.resetCache();
+		}
+
+		return valid;
+	}
+
+	/**
+	 * 在指定数据范围内查找标签位置。
+	 *
+	 * @param data 指定数据。
+	 * @param from 指定起始位置。
+	 * @param end 指定结束位置（不含）。
+	 * @param mark 指定标签。
+	 * @param alternate 指定与 <code>mark</code> 等长的可选标签，可以为 <code>null</code> 。
+	 * @return 返回任一标签的位置，如果没有找到完整的标签返回 <code>-1</code> 。
+	 */
+	private static int indexOf(byte[] data, int from, int end, byte[] mark, byte[] alternate) {
+		final int last = end - mark.length;
+
+		for (int i = from; i <= last; ++i) {
+			if (data[i] == mark[0] && matches(data, i, mark)) {
+				return i;
+			}
+
+			if (null != alternate && data[i] == alternate[0] && matches(data, i, alternate)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * 判断指定位置的数据是否与标签一致。
+	 */
+	private static boolean matches(byte[] data, int pos, byte[] mark) {
+		for (int j = 0; j < mark.length; ++j) {
+			if (data[pos + j] != mark[j]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -26,9 +26,14 @@ THE SOFTWARE.
 
 package net.cellcloud.common;
 
+import java.nio.ByteBuffer;
+
 /**
  * 消息描述类。
  * 
+ * 消息数据可以是字节数组，也可以是由 {@link Packet#pack(Packet, MessageService)} 直接编码的帧缓存。
+ * 帧缓存包含帧头和帧尾，发送时直接写入通道，只有在需要字节数组时才复制数据。
+ * 
  * @author Ambrose Xu
  * 
  */
@@ -39,6 +44,17 @@ public class Message {
 	 */
 	private byte[] data;
 
+	/** 已编码的帧缓存，包含帧头和帧尾。 */
+	private ByteBuffer frame;
+	/** 消息数据在帧缓存里的位置。 */
+	private int frameOffset;
+	/** 消息数据的长度。 */
+	private int frameLength;
+	/** 编码帧缓存时使用的消息服务。 */
+	private MessageService frameService;
+	/** 帧缓存所属的缓存池。 */
+	private ByteBufferPool framePool;
+
 	/**
 	 * 发送成功触发器。
 	 */
@@ -53,6 +69,24 @@ public class Message {
 		this.data = data;
 	}
 
+	/**
+	 * 构造函数。
+	 * 
+	 * @param frame 指定已编码的帧缓存，缓存处于待读取状态。
+	 * @param offset 指定消息数据在帧缓存里的位置。
+	 * @param length 指定消息数据的长度。
+	 * @param service 指定编码帧缓存时使用的消息服务。
+	 * @param pool 指定帧缓存所属的缓存池，可以为 <code>null</code> 。
+	 */
+	protected Message(ByteBuffer frame, int offset, int length, MessageService service, ByteBufferPool pool) {
+		this.data = null;
+		this.frame = frame;
+		this.frameOffset = offset;
+		this.frameLength = length;
+		this.frameService = service;
+		this.framePool = pool;
+	}
+
 	/**
 	 * 设置消息数据。
 	 * 
@@ -60,6 +94,7 @@ public class Message {
 	 */
 	protected void set(byte[] newData) {
 		this.data = newData;
+		this.releaseFrame();
 	}
 
 	/**
@@ -68,6 +103,14 @@ public class Message {
 	 * @return 返回消息数据。
 	 */
 	public byte[] get() {
+		if (null == this.data && null != this.frame) {
+			byte[] data = new byte[this.frameLength];
+			ByteBuffer view = this.frame.duplicate();
+			view.position(this.frameOffset);
+			view.get(data);
+			this.data = data;
+		}
+
 		return this.data;
 	}
 
@@ -77,9 +120,50 @@ public class Message {
 	 * @return 消息数据长度。
 	 */
 	public int length() {
-		return this.data.length;
+		return (null != this.data) ? this.data.length : this.frameLength;
+	}
+
+	/**
+	 * 获得可以直接写入指定消息服务的帧缓存。
+	 * 
+	 * @param service 指定消息服务。
+	 * @return 如果消息是为指定消息服务编码的帧缓存则返回该缓存，否则返回 <code>null</code> 。
+	 */
+	protected ByteBuffer getFrame(MessageService service) {
+		return (service == this.frameService) ? this.frame : null;
 	}
 
+	/**
+	 * 在帧缓存上直接加密消息数据。
+	 * 
+	 * @param key 指定加密密钥。
+	 * @return 如果加密成功返回 <code>true</code> 。
+	 */
+	protected boolean encryptFrame(byte[] key) {
+		if (null == this.frame) {
+			return false;
+		}
+
+		return Cryptology.getInstance().simpleEncrypt(this.frame, this.frameOffset, this.frameLength, key);
+	}
+
+	/**
+	 * 将帧缓存归还缓存池。消息发送完成后由发送方调用。
+	 */
+	protected void releaseFrame() {
+		ByteBuffer frame = this.frame;
+		if (null == frame) {
+			return;
+		}
+
+		this.frame = null;
+		this.frameService = null;
+
+		if (null != this.framePool) {
+			this.framePool.release(frame);
+			this.framePool = null;
+		}
+	}
 	/**
 	 * 设置消息已发送触发器。
 	 * 
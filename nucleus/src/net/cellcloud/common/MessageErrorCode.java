@@ -66,6 +66,8 @@ public final class MessageErrorCode {
 	public static final int READ_FAILED = 404;
 	/** 写数据越界。 */
 	public static final int WRITE_OUTOFBOUNDS = 405;
+	/** 发送队列溢出。 */
+	public static final int WRITE_OVERFLOW = 406;
 
 	private MessageErrorCode() {
 	}
@@ -45,10 +45,22 @@ public abstract class MessageService {
 	private byte[] headMark;
 	/** 消息切片尾标记。 */
 	private byte[] tailMark;
+	/** 续传分片的头标记。 */
+	private byte[] continuationMark;
+
+	/** 是否使用长度帧。 */
+	private boolean lengthFraming;
+	/** 长度帧允许的最大数据长度。 */
+	private int maxFrameLength;
+	/** 分片传输时允许的最大消息长度。 */
+	private int maxMessageLength;
 
 	/** 最大连接数。 */
 	private int maxConnectNum;
 
+	/** 编码输出帧使用的缓存池。 */
+	private ByteBufferPool outputBufferPool;
+
 	/**
 	 * 构造函数。
 	 */
@@ -57,7 +69,12 @@ public abstract class MessageService {
 		this.interceptor = null;
 		this.headMark = null;
 		this.tailMark = null;
+		this.continuationMark = null;
+		this.lengthFraming = false;
+		this.maxFrameLength = 16 * 1024 * 1024;
+		this.maxMessageLength = 16 * 1024 * 1024;
 		this.maxConnectNum = 32;
+		this.outputBufferPool = new ByteBufferPool(8192, 256);
 	}
 
 	/**
@@ -98,6 +115,7 @@ public abstract class MessageService {
 
 	/**
 	 * 定义消息传输时使用的数据标记。
+	 * 续传分片的头标记由头标记的每个字节按位取反得到。
 	 * 
 	 * @param headMark 指定头标记。
 	 * @param tailMark 指定尾标记。
@@ -105,6 +123,72 @@ public abstract class MessageService {
 	public void defineDataMark(byte[] headMark, byte[] tailMark) {
 		this.headMark = headMark;
 		this.tailMark = tailMark;
+		this.lengthFraming = false;
+
+		this.continuationMark = new byte[headMark.length];
+		for (int i = 0; i < headMark.length; ++i) {
+			this.continuationMark[i] = (byte) ~headMark[i];
+		}
+	}
+
+	/**
+	 * 定义消息传输时使用长度帧。
+	 * 每条消息前附加 4 字节大端序的数据长度，该方式与数据标记方式互斥，
+	 * 通信双方必须使用相同的方式。
+	 * 
+	 * @see LengthFrameCodec
+	 */
+	public void defineLengthFraming() {
+		this.headMark = null;
+		this.tailMark = null;
+		this.continuationMark = null;
+		this.lengthFraming = true;
+	}
+
+	/**
+	 * 该服务是否使用了长度帧。
+	 * 
+	 * @return 返回该服务是否使用了长度帧。
+	 */
+	public boolean hasLengthFraming() {
+		return this.lengthFraming;
+	}
+
+	/**
+	 * 设置长度帧允许的最大数据长度。
+	 * 
+	 * @param length 指定最大数据长度，单位：字节。
+	 */
+	public void setMaxFrameLength(int length) {
+		this.maxFrameLength = length;
+	}
+
+	/**
+	 * 获得长度帧允许的最大数据长度。
+	 * 
+	 * @return 返回长度帧允许的最大数据长度。
+	 */
+	public int getMaxFrameLength() {
+		return this.maxFrameLength;
+	}
+
+	/**
+	 * 设置分片传输时允许的最大消息长度。
+	 * 超过写限制的消息被拆分为续传帧发送，超过该长度的消息不允许发送，接收时也被丢弃。
+	 * 
+	 * @param length 指定最大消息长度，单位：字节。
+	 */
+	public void setMaxMessageLength(int length) {
+		this.maxMessageLength = length;
+	}
+
+	/**
+	 * 获得分片传输时允许的最大消息长度。
+	 * 
+	 * @return 返回分片传输时允许的最大消息长度。
+	 */
+	public int getMaxMessageLength() {
+		return this.maxMessageLength;
 	}
 
 	/**
@@ -134,6 +218,15 @@ public abstract class MessageService {
 		return this.tailMark;
 	}
 
+	/**
+	 * 获得续传分片的头标记。
+	 * 
+	 * @return 返回续传分片的头标记。
+	 */
+	public byte[] getContinuationMark() {
+		return this.continuationMark;
+	}
+
 	/**
 	 * 设置最大连接数。
 	 * 
@@ -152,6 +245,15 @@ public abstract class MessageService {
 		return this.maxConnectNum;
 	}
 
+	/**
+	 * 获得编码输出帧使用的缓存池。
+	 * 
+	 * @return 返回输出帧缓存池。
+	 */
+	public ByteBufferPool getOutputBufferPool() {
+		return this.outputBufferPool;
+	}
+
 	/**
 	 * 写入消息数据。
 	 * 
@@ -36,10 +36,14 @@ import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 非阻塞网络接收器。
@@ -77,11 +81,44 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 	/** 工作器数量。 */
 	private int workerNum = 8;
 
+	/** 每个会话单次聚集发送的数据量上限。 */
+	private int sendBudget = 65536;
+
+	/** 发送队列字节数低水位。 */
+	private long lowWatermarkBytes = 4 * 1024 * 1024;
+	/** 发送队列字节数高水位，为 0 时不检查。 */
+	private long highWatermarkBytes = 8 * 1024 * 1024;
+	/** 发送队列消息数低水位。 */
+	private int lowWatermarkMessages = 0;
+	/** 发送队列消息数高水位，为 0 时不检查。 */
+	private int highWatermarkMessages = 0;
+	/** 发送队列超过高水位后的溢出策略。 */
+	private OverflowPolicy overflowPolicy = OverflowPolicy.NONE;
+	/** 发送队列水位监听器。 */
+	private WatermarkListener watermarkListener;
+
+	/** 反应器线程数组。 */
+	private NonblockingAcceptorReactor[] reactors;
+	/** 反应器数量，为 0 时使用单线程事件分发。 */
+	private int reactorNum = 0;
+
+	/** 单线程事件分发时等待开启写事件的会话队列。 */
+	private ConcurrentLinkedQueue<NonblockingAcceptorSession> writeQueue;
+	/** 单线程事件分发时的无效唤醒次数。 */
+	private AtomicLong spuriousWakeups;
+
+	/** 所有工作器共享的全局传输配额。 */
+	private QuotaCalculator globalQuota;
+	/** 每个会话的传输配额，为 0 时不限制。 */
+	private int sessionQuota = 0;
+	/** 已移除的会话配额计算器累计的超发字节数。 */
+	private AtomicLong retiredThrottledBytes;
+	/** 已移除的会话配额计算器累计的推迟次数。 */
+	private AtomicLong retiredQuotaDeferrals;
+
 	/** 任务池执行器。 */
 	private ScheduledExecutorService scheduledExecutor;
 
-	/** Socket 映射 Session，Key: Socket hash code ，Value: Session */
-	private ConcurrentHashMap<Integer, NonblockingAcceptorSession> socketSessionMap;
 	/** Session Id 映射 Session，Key: Session Id ，Value: Session */
 	private ConcurrentHashMap<Long, NonblockingAcceptorSession> idSessionMap;
 
@@ -91,8 +128,12 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 	public NonblockingAcceptor() {
 		this.spinning = false;
 		this.running = false;
-		this.socketSessionMap = new ConcurrentHashMap<Integer, NonblockingAcceptorSession>();
 		this.idSessionMap = new ConcurrentHashMap<Long, NonblockingAcceptorSession>();
+		this.writeQueue = new ConcurrentLinkedQueue<NonblockingAcceptorSession>();
+		this.spuriousWakeups = new AtomicLong(0);
+		this.globalQuota = new QuotaCalculator(0);
+		this.retiredThrottledBytes = new AtomicLong(0);
+		this.retiredQuotaDeferrals = new AtomicLong(0);
 		// 默认 8 线程
 		this.workerNum = 8;
 	}
@@ -124,6 +165,20 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 			}
 		}
 
+		// 创建反应器线程
+		if (null == this.reactors && this.reactorNum > 0) {
+			NonblockingAcceptorReactor[] array = new NonblockingAcceptorReactor[this.reactorNum];
+			try {
+				for (int i = 0; i < this.reactorNum; ++i) {
+					array[i] = new NonblockingAcceptorReactor(this, i);
+				}
+				this.reactors = array;
+			} catch (IOException e) {
+				Logger.log(NonblockingAcceptor.class, e, LogLevel.ERROR);
+				return false;
+			}
+		}
+
 		// 打开 Socket channel 并绑定服务
 		SelectionKey skey = null;
 		try {
@@ -166,6 +221,9 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 				running = true;
 				spinning = true;
 
+				// 启动全局配额管理
+				globalQuota.start();
+
 				// 启动工作线程
 				for (int i = 0; i < workerNum; ++i) {
 					if (!workers[i].isWorking()) {
@@ -173,9 +231,23 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 					}
 				}
 
+				// 启动反应器线程
+				if (null != reactors) {
+					for (int i = 0; i < reactors.length; ++i) {
+						if (!reactors[i].isWorking()) {
+							reactors[i].start();
+						}
+					}
+				}
+
 				// 进入事件分发循环
 				try {
-					loopDispatch();
+					if (null != reactors) {
+						loopAccept();
+					}
+					else {
+						loopDispatch();
+					}
 				} catch (IOException ioe) {
 					Logger.log(NonblockingAcceptor.class, ioe, LogLevel.WARNING);
 				} catch (CancelledKeyException e) {
@@ -207,8 +279,8 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 		// 退出事件循环
 		this.spinning = false;
 
-		ArrayList<NonblockingAcceptorSession> sessionList = new ArrayList<NonblockingAcceptorSession>(this.socketSessionMap.size());
-		sessionList.addAll(this.socketSessionMap.values());
+		ArrayList<NonblockingAcceptorSession> sessionList = new ArrayList<NonblockingAcceptorSession>(this.idSessionMap.size());
+		sessionList.addAll(this.idSessionMap.values());
 		for (NonblockingAcceptorSession session : sessionList) {
 			this.close(session);
 		}
@@ -225,6 +297,24 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 		} catch (IOException e) {
 			Logger.log(NonblockingAcceptor.class, e, LogLevel.DEBUG);
 		}
+		this.writeQueue.clear();
+
+		// 关闭反应器线程
+		if (null != this.reactors) {
+			for (NonblockingAcceptorReactor reactor : this.reactors) {
+				reactor.stopSpinning();
+			}
+
+			for (NonblockingAcceptorReactor reactor : this.reactors) {
+				try {
+					reactor.join(1000L);
+				} catch (InterruptedException e) {
+					Logger.log(NonblockingAcceptor.class, e, LogLevel.DEBUG);
+				}
+			}
+
+			this.reactors = null;
+		}
 
 		// 关闭工作线程
 		if (null != this.workers) {
@@ -286,9 +376,11 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 			this.handleThread = null;
 		}
 
-		this.socketSessionMap.clear();
 		this.idSessionMap.clear();
 
+		// 停止全局配额管理
+		this.globalQuota.stop();
+
 		if (null != this.scheduledExecutor) {
 			this.scheduledExecutor.shutdown();
 			this.scheduledExecutor = null;
@@ -330,14 +422,107 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 	 */
 	@Override
 	public void write(Session session, Message message) throws IOException {
-		if (message.length() > this.writeLimit) {
-			this.fireErrorOccurred(session, MessageErrorCode.WRITE_OUTOFBOUNDS);
-			return;
+		NonblockingAcceptorSession nas = this.enqueue(session, message);
+		if (null != nas) {
+			this.interestWrite(nas);
+		}
+	}
+
+	/**
+	 * 批量写入消息。
+	 * 
+	 * 所有消息进入各自会话的发送队列之后，每个反应器只被唤醒一次。
+	 * 用于向大量会话推送数据，避免每条消息都唤醒一次反应器。
+	 * 
+	 * @param sessions 指定目标会话列表。
+	 * @param messages 指定与目标会话一一对应的消息列表。
+	 * @param results 用于返回每条消息是否进入发送队列，可以为 <code>null</code> 。
+	 * @return 返回进入发送队列的消息数量。
+	 */
+	public int write(List<Session> sessions, List<Message> messages, boolean[] results) {
+		int count = 0;
+		ArrayList<NonblockingAcceptorReactor> reactors = null;
+		boolean wakeup = false;
+
+		for (int i = 0, size = sessions.size(); i < size; ++i) {
+			NonblockingAcceptorSession nas = null;
+			try {
+				nas = this.enqueue(sessions.get(i), messages.get(i));
+			} catch (IOException e) {
+				Logger.log(NonblockingAcceptor.class, e, LogLevel.DEBUG);
+			}
+
+			if (null != results) {
+				results[i] = (null != nas);
+			}
+
+			if (null == nas) {
+				continue;
+			}
+
+			++count;
+
+			NonblockingAcceptorReactor reactor = nas.reactor;
+			if (null != reactor) {
+				reactor.offerWrite(nas);
+				if (null == reactors) {
+					reactors = new ArrayList<NonblockingAcceptorReactor>(this.reactorNum);
+				}
+				if (!reactors.contains(reactor)) {
+					reactors.add(reactor);
+				}
+			}
+			else {
+				this.writeQueue.offer(nas);
+				wakeup = true;
+			}
+		}
+
+		if (null != reactors) {
+			for (int i = 0, size = reactors.size(); i < size; ++i) {
+				reactors.get(i).wakeup();
+			}
+		}
+
+		if (wakeup) {
+			this.selector.wakeup();
 		}
 
+		return count;
+	}
+
+	/**
+	 * 将消息放入会话的发送队列。
+	 * 
+	 * @param session 指定会话。
+	 * @param message 指定消息。
+	 * @return 返回消息进入发送队列的会话，消息被拒绝时返回 <code>null</code> 。
+	 * @throws IOException 如果会话不存在。
+	 */
+	private NonblockingAcceptorSession enqueue(Session session, Message message) throws IOException {
 		NonblockingAcceptorSession nas = this.idSessionMap.get(session.getId());
 		if (null != nas) {
+			if (message.length() > this.writeLimit
+					&& (!FragmentCodec.isSupported(this) || !nas.isFragmentable()
+						|| message.length() > this.getMaxMessageLength())) {
+				// 超过写限制的消息只能向协商了分片传输的会话分片发送
+				this.fireErrorOccurred(session, MessageErrorCode.WRITE_OUTOFBOUNDS);
+				return null;
+			}
+
+			if (!nas.writable.get() && OverflowPolicy.NONE != this.overflowPolicy) {
+				// 发送队列持续超过高水位
+				if (!this.processOverflow(nas)) {
+					return null;
+				}
+			}
+
 			nas.putMessage(message);
+
+			// 检查水位
+			this.updateWritability(nas);
+
+			return nas;
 		}
 		else {
 			this.fireErrorOccurred(session, MessageErrorCode.WRITE_FAILED);
@@ -345,6 +530,143 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 		}
 	}
 
+	/**
+	 * 判断指定会话的发送队列是否处于可写状态。
+	 * 
+	 * @param session 指定会话。
+	 * @return 如果会话发送队列没有超过高水位返回 <code>true</code> 。
+	 */
+	public boolean isWritable(Session session) {
+		NonblockingAcceptorSession nas = this.idSessionMap.get(session.getId());
+		if (null == nas) {
+			return false;
+		}
+
+		return nas.writable.get();
+	}
+
+	/**
+	 * 根据会话发送队列的水位更新会话的可写状态。
+	 * 
+	 * @param session 指定会话。
+	 */
+	protected void updateWritability(NonblockingAcceptorSession session) {
+		if (this.highWatermarkBytes <= 0 && this.highWatermarkMessages <= 0) {
+			return;
+		}
+
+		if (session.writable.get()) {
+			if (((this.highWatermarkBytes > 0 && session.numMessageBytes() > this.highWatermarkBytes)
+					|| (this.highWatermarkMessages > 0 && session.numMessages() > this.highWatermarkMessages))
+					&& session.writable.compareAndSet(true, false)) {
+				if (null != this.watermarkListener) {
+					this.watermarkListener.sessionUnwritable(session);
+				}
+			}
+			else {
+				return;
+			}
+		}
+
+		// 工作器可能在状态变更前已取走队列里的消息，因此再次检查低水位。
+		// 只检查已启用的水位，未启用的水位不阻止恢复可写
+		if ((this.highWatermarkBytes <= 0 || session.numMessageBytes() <= this.lowWatermarkBytes)
+				&& (this.highWatermarkMessages <= 0 || session.numMessages() <= this.lowWatermarkMessages)
+				&& session.writable.compareAndSet(false, true)) {
+			if (null != this.watermarkListener) {
+				this.watermarkListener.sessionWritable(session);
+			}
+		}
+	}
+
+	/**
+	 * 按照溢出策略处理超过高水位的会话。
+	 * 
+	 * @param session 指定会话。
+	 * @return 如果新消息可以进入发送队列返回 <code>true</code> 。
+	 */
+	private boolean processOverflow(NonblockingAcceptorSession session) {
+		switch (this.overflowPolicy) {
+		case DROP_OLDEST:
+			Message dropped = session.pollMessage();
+			if (null != dropped) {
+				// 归还被丢弃消息的帧缓存
+				dropped.releaseFrame();
+			}
+			this.fireErrorOccurred(session, MessageErrorCode.WRITE_OVERFLOW);
+			return true;
+		case DROP_NEWEST:
+			this.fireErrorOccurred(session, MessageErrorCode.WRITE_OVERFLOW);
+			return false;
+		case DISCONNECT:
+			Logger.w(NonblockingAcceptor.class, "Session send queue overflow, close: " + session.getAddress().getHostString());
+			this.fireErrorOccurred(session, MessageErrorCode.WRITE_OVERFLOW);
+			this.close(session);
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * 关注指定会话的写事件。
+	 * 
+	 * @param session 指定有待发送数据的会话。
+	 */
+	protected void interestWrite(NonblockingAcceptorSession session) {
+		if (null != session.reactor) {
+			// 通知反应器关注写事件
+			session.reactor.interestWrite(session);
+		}
+		else {
+			// 通知事件循环关注写事件
+			this.writeQueue.offer(session);
+			this.selector.wakeup();
+		}
+	}
+
+	/**
+	 * 推迟关注指定会话的写事件。用于会话超出传输配额时暂停发送，等待令牌恢复后再关注写事件。
+	 * 
+	 * @param session 指定超出配额的会话。
+	 * @param delayNanos 指定推迟的纳秒数。
+	 * @return 如果本次调用推迟了写事件返回 <code>true</code> ，会话已在等待时返回 <code>false</code> 。
+	 */
+	protected boolean deferWrite(final NonblockingAcceptorSession session, long delayNanos) {
+		ScheduledExecutorService executor = this.scheduledExecutor;
+		if (null == executor || !session.writeDeferred.compareAndSet(false, true)) {
+			return false;
+		}
+
+		try {
+			executor.schedule(new Runnable() {
+				@Override
+				public void run() {
+					session.writeDeferred.set(false);
+
+					if (null != session.socket && idSessionMap.containsKey(session.getId())) {
+						interestWrite(session);
+					}
+				}
+			}, delayNanos, TimeUnit.NANOSECONDS);
+			return true;
+		} catch (RejectedExecutionException e) {
+			session.writeDeferred.set(false);
+			Logger.log(NonblockingAcceptor.class, e, LogLevel.DEBUG);
+		}
+
+		return false;
+	}
+
+	/**
+	 * 获得全局传输配额计算器。
+	 * 
+	 * @return 返回全局传输配额计算器。
+	 */
+	protected QuotaCalculator getGlobalQuotaCalculator() {
+		return this.globalQuota;
+	}
+
 	/**
 	 * 判断指定的会话是否已经连接到接收器。
 	 * 
@@ -352,7 +674,7 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 	 * @return 返回指定会话是否存在。
 	 */
 	public boolean hasSession(Session session) {
-		return this.idSessionMap.contains(session.getId());
+		return this.idSessionMap.containsKey(session.getId());
 	}
 
 	/**
@@ -396,6 +718,136 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 		return this.workerNum;
 	}
 
+	/**
+	 * 设置每个会话单次聚集发送的数据量上限。
+	 * 每次发送至少包含一条消息。
+	 * 
+	 * @param budget 指定数据量上限，单位：字节。
+	 */
+	public void setSendBudget(int budget) {
+		this.sendBudget = Math.max(1, budget);
+	}
+
+	/**
+	 * 获得每个会话单次聚集发送的数据量上限。
+	 * 
+	 * @return 返回数据量上限，单位：字节。
+	 */
+	public int getSendBudget() {
+		return this.sendBudget;
+	}
+
+	/**
+	 * 设置发送队列字节数水位。
+	 * 发送队列超过高水位时会话变为不可写，回落到低水位时恢复可写。
+	 * 
+	 * @param low 指定低水位，单位：字节。
+	 * @param high 指定高水位，单位：字节，设置为 <code>0</code> 时不检查字节数。
+	 */
+	public void setWatermarkBytes(long low, long high) {
+		this.lowWatermarkBytes = Math.min(low, high);
+		this.highWatermarkBytes = high;
+	}
+
+	/**
+	 * 设置发送队列消息数水位。
+	 * 
+	 * @param low 指定低水位。
+	 * @param high 指定高水位，设置为 <code>0</code> 时不检查消息数。
+	 */
+	public void setWatermarkMessages(int low, int high) {
+		this.lowWatermarkMessages = Math.min(low, high);
+		this.highWatermarkMessages = high;
+	}
+
+	/**
+	 * 获得发送队列字节数低水位。
+	 * 
+	 * @return 返回发送队列字节数低水位。
+	 */
+	public long getLowWatermarkBytes() {
+		return this.lowWatermarkBytes;
+	}
+
+	/**
+	 * 获得发送队列字节数高水位。
+	 * 
+	 * @return 返回发送队列字节数高水位。
+	 */
+	public long getHighWatermarkBytes() {
+		return this.highWatermarkBytes;
+	}
+
+	/**
+	 * 获得发送队列消息数低水位。
+	 * 
+	 * @return 返回发送队列消息数低水位。
+	 */
+	public int getLowWatermarkMessages() {
+		return this.lowWatermarkMessages;
+	}
+
+	/**
+	 * 获得发送队列消息数高水位。
+	 * 
+	 * @return 返回发送队列消息数高水位。
+	 */
+	public int getHighWatermarkMessages() {
+		return this.highWatermarkMessages;
+	}
+
+	/**
+	 * 设置发送队列超过高水位后的溢出策略。
+	 * 
+	 * @param policy 指定溢出策略。
+	 */
+	public void setOverflowPolicy(OverflowPolicy policy) {
+		this.overflowPolicy = policy;
+	}
+
+	/**
+	 * 获得发送队列超过高水位后的溢出策略。
+	 * 
+	 * @return 返回溢出策略。
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return this.overflowPolicy;
+	}
+
+	/**
+	 * 设置发送队列水位监听器。
+	 * 
+	 * @param listener 指定监听器。
+	 */
+	public void setWatermarkListener(WatermarkListener listener) {
+		this.watermarkListener = listener;
+	}
+
+	/**
+	 * 设置反应器数量。
+	 * 反应器数量大于 0 时，接收器的句柄线程仅负责接收连接，
+	 * 连接的读写事件由各反应器线程分发。
+	 * 
+	 * @param num 指定反应器数量，设置为 <code>0</code> 时使用单线程事件分发。
+	 */
+	public void setReactorNum(int num) {
+		if (null == this.reactors && !this.running) {
+			this.reactorNum = Math.max(0, num);
+		}
+		else {
+			Logger.e(NonblockingAcceptor.class, "Can NOT set reactor number");
+		}
+	}
+
+	/**
+	 * 获得反应器数量。
+	 * 
+	 * @return 返回反应器数量。
+	 */
+	public int getReactorNum() {
+		return this.reactorNum;
+	}
+
 	/**
 	 * 设置缓存数据块大小。
 	 * 
@@ -423,13 +875,22 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 		return this.block;
 	}
 
+	/**
+	 * 获得单条数据帧的写限制。超过该限制的消息被拆分为续传帧发送。
+	 * 
+	 * @return 返回写限制，单位：字节。
+	 */
+	public int getWriteLimit() {
+		return this.writeLimit;
+	}
+
 	/**
 	 * 获得存储了所有会话的集合。
 	 * 
 	 * @return 返回接收器里的所有会话。
 	 */
 	public Collection<NonblockingAcceptorSession> getSessions() {
-		return this.socketSessionMap.values();
+		return this.idSessionMap.values();
 	}
 
 	/**
@@ -438,7 +899,7 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 	 * @return 返回所有会话数量。
 	 */
 	public int numSessions() {
-		return this.socketSessionMap.size();
+		return this.idSessionMap.size();
 	}
 
 	/**
@@ -513,6 +974,99 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 		return this.workers[0].getQuotaCalculator().getQuota();
 	}
 
+	/**
+	 * 设置所有工作器共享的全局数据传输配额，单位：字节每秒（BPS）。
+	 * 
+	 * @param quotaInBytesPerSecond 指定以字节每秒为单位的传输带宽，为 0 时不限制。
+	 */
+	public void setGlobalTransmissionQuota(int quotaInBytesPerSecond) {
+		this.globalQuota.setQuota(quotaInBytesPerSecond);
+	}
+
+	/**
+	 * 获得全局数据传输配额。
+	 * 
+	 * @return 返回以字节每秒为单位的传输带宽，为 0 时不限制。
+	 */
+	public int getGlobalTransmissionQuota() {
+		return this.globalQuota.getQuota();
+	}
+
+	/**
+	 * 设置每个会话的数据传输配额，单位：字节每秒（BPS）。对已连接的会话同样生效。
+	 * 
+	 * @param quotaInBytesPerSecond 指定以字节每秒为单位的传输带宽，为 0 时不限制。
+	 */
+	public void setSessionTransmissionQuota(int quotaInBytesPerSecond) {
+		this.sessionQuota = quotaInBytesPerSecond;
+
+		for (NonblockingAcceptorSession session : this.idSessionMap.values()) {
+			this.applySessionQuota(session);
+		}
+	}
+
+	/**
+	 * 获得每个会话的数据传输配额。
+	 * 
+	 * @return 返回以字节每秒为单位的传输带宽，为 0 时不限制。
+	 */
+	public int getSessionTransmissionQuota() {
+		return this.sessionQuota;
+	}
+
+	/**
+	 * 获得因超出配额而超发的累计字节数，包括工作器配额、全局配额和会话配额，已关闭会话的统计也计算在内。
+	 * 
+	 * @return 返回因超出配额而超发的累计字节数。
+	 */
+	public long getThrottledBytes() {
+		long ret = this.globalQuota.getThrottledBytes() + this.retiredThrottledBytes.get();
+
+		NonblockingAcceptorWorker[] array = this.workers;
+		if (null != array) {
+			for (int i = 0; i < array.length; ++i) {
+				ret += array[i].getQuotaCalculator().getThrottledBytes();
+			}
+		}
+
+		for (NonblockingAcceptorSession session : this.idSessionMap.values()) {
+			QuotaCalculator quota = session.quota;
+			if (null != quota) {
+				ret += quota.getThrottledBytes();
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * 获得会话因超出配额而被推迟发送的累计次数。
+	 * 
+	 * 每次推迟只记录在等待时间最长的配额计算器上，因此工作器配额、全局配额和会话配额的推迟次数之和即为总次数，
+	 * 已关闭会话的统计也计算在内。
+	 * 
+	 * @return 返回会话被推迟发送的累计次数。
+	 */
+	public long getQuotaDeferrals() {
+		long ret = this.globalQuota.getDeferrals() + this.retiredQuotaDeferrals.get();
+
+		NonblockingAcceptorWorker[] array = this.workers;
+		if (null != array) {
+			for (int i = 0; i < array.length; ++i) {
+				ret += array[i].getQuotaCalculator().getDeferrals();
+			}
+		}
+
+		for (NonblockingAcceptorSession session : this.idSessionMap.values()) {
+			QuotaCalculator quota = session.quota;
+			if (null != quota) {
+				ret += quota.getDeferrals();
+			}
+		}
+
+		return ret;
+	}
+
 	/**
 	 * 获得发送数据总流量。
 	 * 
@@ -565,6 +1119,161 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 		return ret;
 	}
 
+	/**
+	 * 获得所有工作器读缓存池的命中次数。
+	 * 
+	 * @return 返回读缓存池的命中次数。
+	 */
+	public long getReadBufferPoolHits() {
+		long total = 0;
+		if (null != this.workers) {
+			for (NonblockingAcceptorWorker worker : this.workers) {
+				total += worker.getReadBufferPool().getHits();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * 获得所有工作器读缓存池的未命中次数。
+	 * 
+	 * @return 返回读缓存池的未命中次数。
+	 */
+	public long getReadBufferPoolMisses() {
+		long total = 0;
+		if (null != this.workers) {
+			for (NonblockingAcceptorWorker worker : this.workers) {
+				total += worker.getReadBufferPool().getMisses();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * 获得所有工作器读缓存池当前借出未归还的缓存数量。
+	 * 
+	 * @return 返回借出未归还的缓存数量。
+	 */
+	public int getReadBufferPoolLeases() {
+		int total = 0;
+		if (null != this.workers) {
+			for (NonblockingAcceptorWorker worker : this.workers) {
+				total += worker.getReadBufferPool().numLeases();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * 获得事件分发的无效唤醒次数。
+	 * 
+	 * 无效唤醒包括没有就绪事件的唤醒和会话没有待发消息时的写事件。
+	 * 
+	 * @return 返回无效唤醒次数，使用反应器时返回所有反应器的累计值。
+	 */
+	public long getSpuriousWakeups() {
+		long ret = this.spuriousWakeups.get();
+
+		NonblockingAcceptorReactor[] array = this.reactors;
+		if (null != array) {
+			for (int i = 0; i < array.length; ++i) {
+				ret += array[i].getSpuriousWakeups();
+			}
+		}
+
+		return ret;
+	}
+
+	/**
+	 * 获得各反应器分发的读事件数量。
+	 * 
+	 * @return 返回存储了各个反应器读事件数量的数组，未使用反应器时返回 <code>null</code> 。
+	 */
+	public long[] getReactorsReadEvents() {
+		NonblockingAcceptorReactor[] array = this.reactors;
+		if (null == array) {
+			return null;
+		}
+
+		long[] ret = new long[array.length];
+		for (int i = 0; i < array.length; ++i) {
+			ret[i] = array[i].getReadEvents();
+		}
+		return ret;
+	}
+
+	/**
+	 * 获得各反应器分发的写事件数量。
+	 * 
+	 * @return 返回存储了各个反应器写事件数量的数组，未使用反应器时返回 <code>null</code> 。
+	 */
+	public long[] getReactorsWriteEvents() {
+		NonblockingAcceptorReactor[] array = this.reactors;
+		if (null == array) {
+			return null;
+		}
+
+		long[] ret = new long[array.length];
+		for (int i = 0; i < array.length; ++i) {
+			ret[i] = array[i].getWriteEvents();
+		}
+		return ret;
+	}
+
+	/**
+	 * 获得各反应器管理的会话数量。
+	 * 
+	 * @return 返回存储了各个反应器会话数量的数组，未使用反应器时返回 <code>null</code> 。
+	 */
+	public int[] getReactorsSessions() {
+		NonblockingAcceptorReactor[] array = this.reactors;
+		if (null == array) {
+			return null;
+		}
+
+		int[] ret = new int[array.length];
+		for (int i = 0; i < array.length; ++i) {
+			ret[i] = array[i].numSessions();
+		}
+		return ret;
+	}
+
+	/**
+	 * 按照当前的会话配额设置指定会话的配额计算器。
+	 * 
+	 * @param session 指定会话。
+	 */
+	private void applySessionQuota(NonblockingAcceptorSession session) {
+		int quota = this.sessionQuota;
+		if (quota > 0) {
+			if (null == session.quota) {
+				QuotaCalculator calculator = new QuotaCalculator(quota);
+				calculator.start();
+				session.quota = calculator;
+			}
+			else {
+				session.quota.setQuota(quota);
+			}
+		}
+		else {
+			this.retireSessionQuota(session);
+		}
+	}
+
+	/**
+	 * 移除指定会话的配额计算器，并保留其统计数据。
+	 * 
+	 * @param session 指定会话。
+	 */
+	private void retireSessionQuota(NonblockingAcceptorSession session) {
+		QuotaCalculator quota = session.quota;
+		if (null != quota) {
+			session.quota = null;
+			this.retiredThrottledBytes.addAndGet(quota.getThrottledBytes());
+			this.retiredQuotaDeferrals.addAndGet(quota.getDeferrals());
+		}
+	}
+
 	/**
 	 * 从接收器里删除指定的 Session 。
 	 * 
@@ -577,23 +1286,56 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 			exist = true;
 		}
 
-		if (null != session.socket) {
-			this.socketSessionMap.remove(session.socket.hashCode());
-		}
-
 		if (exist) {
+			if (null != session.reactor) {
+				session.reactor.unregister(session);
+			}
+
 			this.fireSessionDestroyed(session);
 			session.socket = null;
 
-			Iterator<Map.Entry<Integer, NonblockingAcceptorSession>> iter = this.socketSessionMap.entrySet().iterator();
-			while (iter.hasNext()) {
-				Map.Entry<Integer, NonblockingAcceptorSession> e = iter.next();
-				if (e.getValue().getId().equals(session.getId())) {
-					iter.remove();
-					break;
-				}
+			this.retireSessionQuota(session);
+		}
+
+		// 归还未发送消息的帧缓存
+		session.clearMessages();
+		this.releaseWriteBuffers(session);
+	}
+
+	/**
+	 * 归还会话未写完的消息的帧缓存。
+	 * 
+	 * 写缓存只能在持有会话锁时访问。调用线程没有持有会话锁时在调度线程里归还，
+	 * 避免与持有会话锁回调事件的工作线程形成死锁。
+	 * 
+	 * @param session 指定会话。
+	 */
+	private void releaseWriteBuffers(final NonblockingAcceptorSession session) {
+		if (Thread.holdsLock(session)) {
+			session.resetWriteBuffers();
+			return;
+		}
+
+		ScheduledExecutorService executor = this.scheduledExecutor;
+		if (null != executor) {
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						synchronized (session) {
+							session.resetWriteBuffers();
+						}
+					}
+				});
+				return;
+			} catch (RejectedExecutionException e) {
+				Logger.log(NonblockingAcceptor.class, e, LogLevel.DEBUG);
 			}
 		}
+
+		synchronized (session) {
+			session.resetWriteBuffers();
+		}
 	}
 
 	/**
@@ -723,7 +1465,14 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 				continue;
 			}
 
-			if (this.selector.select() > 0) {
+			int num = this.selector.select();
+
+			// 为有待发消息的会话开启写事件
+			if (!this.processWriteQueue() && num == 0) {
+				this.spuriousWakeups.incrementAndGet();
+			}
+
+			if (num > 0) {
 				Iterator<SelectionKey> it = this.selector.selectedKeys().iterator();
 				while (it.hasNext()) {
 					SelectionKey key = (SelectionKey) it.next();
@@ -789,6 +1538,68 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 		} // # while
 	}
 
+	/**
+	 * 处理等待开启写事件的会话。
+	 * 
+	 * @return 如果有会话被处理返回 <code>true</code> 。
+	 */
+	private boolean processWriteQueue() {
+		boolean processed = false;
+
+		NonblockingAcceptorSession session = null;
+		while (null != (session = this.writeQueue.poll())) {
+			processed = true;
+
+			SelectionKey key = session.selectionKey;
+			if (null != key && key.isValid()) {
+				try {
+					key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+				} catch (CancelledKeyException e) {
+					// Nothing
+				}
+			}
+		}
+
+		return processed;
+	}
+
+	/**
+	 * 多反应器模式下的连接接收循环。
+	 * 
+	 * @throws IOException
+	 * @throws Exception
+	 */
+	private void loopAccept() throws IOException, Exception {
+		while (this.spinning) {
+			if (!this.selector.isOpen()) {
+				break;
+			}
+
+			if (this.selector.select() > 0) {
+				Iterator<SelectionKey> it = this.selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+
+					try {
+						if (key.isValid() && key.isAcceptable()) {
+							accept(key);
+						}
+					}
+					catch (Exception e) {
+						if (this.spinning) {
+							// 没有被主动终止循环
+							continue;
+						}
+						else {
+							throw e;
+						}
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * 处理 Accept 动作。
 	 * 
@@ -798,13 +1609,13 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 		ServerSocketChannel channel = (ServerSocketChannel) key.channel();
 
 		Long sessionId = null;
-		Integer socket = null;
+		SelectionKey clientKey = null;
 		boolean error = false;
 
 		try {
 			// accept
 			SocketChannel clientChannel = channel.accept();
-			if (this.socketSessionMap.size() >= this.getMaxConnectNum()) {
+			if (this.idSessionMap.size() >= this.getMaxConnectNum()) {
 				// 达到最大连接数
 				clientChannel.socket().close();
 				clientChannel.close();
@@ -814,7 +1625,10 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 			clientChannel.socket().setReceiveBufferSize(this.block);
 			clientChannel.socket().setSendBufferSize(this.block);
 			clientChannel.configureBlocking(false);
-			clientChannel.register(this.selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			if (null == this.reactors) {
+				// 仅在有待发消息时关注写事件
+				clientKey = clientChannel.register(this.selector, SelectionKey.OP_READ);
+			}
 
 			// 创建 Session
 			InetSocketAddress address = new InetSocketAddress(clientChannel.socket().getInetAddress().getHostAddress(),
@@ -822,19 +1636,29 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 			NonblockingAcceptorSession session = new NonblockingAcceptorSession(this, address, this.block);
 			// 设置 Socket
 			session.socket = clientChannel.socket();
+			session.channel = clientChannel;
+			session.selectionKey = clientKey;
+			this.applySessionQuota(session);
+			if (null != clientKey) {
+				// 会话作为附件，事件分发时无需查找
+				clientKey.attach(session);
+			}
 
 			// 为 Session 选择工作线程
 			session.worker = this.chooseWorker(session);
 
 			// session id
 			sessionId = session.getId();
-			// socket
-			socket = session.socket.hashCode();
 
 			// 记录
-			this.socketSessionMap.put(socket, session);
 			this.idSessionMap.put(sessionId, session);
 
+			if (null != this.reactors) {
+				// 为 Session 选择反应器
+				session.reactor = this.chooseReactor();
+				session.reactor.register(session);
+			}
+
 			// 回调事件
 			this.fireSessionCreated(session);
 
@@ -849,8 +1673,8 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 		}
 
 		if (error) {
-			if (null != socket) {
-				this.socketSessionMap.remove(socket);
+			if (null != clientKey) {
+				clientKey.cancel();
 			}
 			if (null != sessionId) {
 				this.idSessionMap.remove(sessionId);
@@ -870,18 +1694,13 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 			return;
 		}
 
-		NonblockingAcceptorSession session = this.socketSessionMap.get(channel.socket().hashCode());
+		NonblockingAcceptorSession session = (NonblockingAcceptorSession) key.attachment();
 		if (null == session) {
-			try {
-				Logger.d(NonblockingAcceptor.class, "Not found session: " + channel.socket().getInetAddress().getHostAddress());
-			} catch (Exception e) {
-				// Nothing
-			}
+			key.cancel();
 			return;
 		}
 
 		// 推入 Worker
-		session.selectionKey = key;
 		session.worker.pushReceiveSession(session);
 
 		if (key.isValid()) {
@@ -901,23 +1720,22 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 			return;
 		}
 
-		NonblockingAcceptorSession session = this.socketSessionMap.get(channel.socket().hashCode());
+		NonblockingAcceptorSession session = (NonblockingAcceptorSession) key.attachment();
 		if (null == session) {
-			try {
-				Logger.w(NonblockingAcceptor.class, "Not found session: " + channel.socket().getInetAddress().getHostAddress());
-			} catch (Exception e) {
-				// Nothing
-			}
+			key.cancel();
 			return;
 		}
 
-		// 推入 Worker
-		session.selectionKey = key;
-		session.worker.pushSendSession(session);
+		// 关闭写事件，直到有新的待发消息
+		key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
 
-		if (key.isValid()) {
-			key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+		if (!session.hasPendingOutput()) {
+			this.spuriousWakeups.incrementAndGet();
+			return;
 		}
+
+		// 推入 Worker
+		session.worker.pushSendSession(session);
 	}
 
 	/**
@@ -950,4 +1768,24 @@ public class NonblockingAcceptor extends MessageService implements MessageAccept
 		return worker;
 	}
 
+	/**
+	 * 选择管理会话数量最少的反应器。
+	 * 
+	 * @return
+	 */
+	private NonblockingAcceptorReactor chooseReactor() {
+		NonblockingAcceptorReactor reactor = this.reactors[0];
+		int min = Integer.MAX_VALUE;
+
+		for (int i = 0; i < this.reactors.length; ++i) {
+			int num = this.reactors[i].numSessions();
+			if (num < min) {
+				min = num;
+				reactor = this.reactors[i];
+			}
+		}
+
+		return reactor;
+	}
+
 }
@@ -0,0 +1,336 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.common;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 非阻塞网络接收器的反应器线程。
+ *
+ * 在多反应器模式下，接收器的句柄线程只负责 Accept 连接，
+ * 每个反应器持有独立的 Selector 并负责其管理的 Socket 通道的读写事件分发，
+ * 事件分发给会话所属的 {@link NonblockingAcceptorWorker} 进行处理。
+ *
+ * @author Ambrose Xu
+ *
+ */
+public final class NonblockingAcceptorReactor extends Thread {
+
+	/** 关联的接收器。 */
+	private NonblockingAcceptor acceptor;
+
+	/** NIO selector */
+	private Selector selector;
+
+	/** 是否处于自旋。 */
+	private volatile boolean spinning = false;
+	/** 是否正在工作。 */
+	private volatile boolean working = false;
+
+	/** 等待注册到本反应器的会话队列。 */
+	private ConcurrentLinkedQueue<NonblockingAcceptorSession> registerQueue = new ConcurrentLinkedQueue<NonblockingAcceptorSession>();
+	/** 等待重新开启读事件的会话队列。 */
+	private ConcurrentLinkedQueue<NonblockingAcceptorSession> readQueue = new ConcurrentLinkedQueue<NonblockingAcceptorSession>();
+	/** 等待开启写事件的会话队列。 */
+	private ConcurrentLinkedQueue<NonblockingAcceptorSession> writeQueue = new ConcurrentLinkedQueue<NonblockingAcceptorSession>();
+
+	/** 当前管理的会话数量。 */
+	private AtomicInteger numSessions = new AtomicInteger(0);
+
+	/** 已分发的读事件数量。 */
+	private AtomicLong readEvents = new AtomicLong(0);
+	/** 已分发的写事件数量。 */
+	private AtomicLong writeEvents = new AtomicLong(0);
+	/** 无效唤醒次数。 */
+	private AtomicLong spuriousWakeups = new AtomicLong(0);
+
+	/**
+	 * 构造函数。
+	 *
+	 * @param acceptor 消息接收器。
+	 * @param index 反应器序号。
+	 * @throws IOException
+	 */
+	public NonblockingAcceptorReactor(NonblockingAcceptor acceptor, int index) throws IOException {
+		this.acceptor = acceptor;
+		this.selector = Selector.open();
+		this.setName("NonblockingAcceptorReactor#" + index + "@" + this.toString());
+	}
+
+	@Override
+	public void run() {
+		this.working = true;
+		this.spinning = true;
+
+		try {
+			while (this.spinning) {
+				int num = this.selector.select();
+
+				// 处理待注册及待修改事件的会话
+				if (!this.processPending() && num == 0) {
+					this.spuriousWakeups.incrementAndGet();
+				}
+
+				if (!this.spinning) {
+					break;
+				}
+
+				Iterator<SelectionKey> it = this.selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+
+					NonblockingAcceptorSession session = (NonblockingAcceptorSession) key.attachment();
+					if (null == session) {
+						key.cancel();
+						continue;
+					}
+
+					try {
+						if (key.isValid() && key.isReadable()) {
+							// 读事件交给工作器，在工作器读取完成之前不再关注读事件
+							key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+							this.readEvents.incrementAndGet();
+							session.worker.pushReceiveSession(session);
+						}
+
+						if (key.isValid() && key.isWritable()) {
+							// 写事件交给工作器，在有新消息之前不再关注写事件
+							key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+							if (!session.hasPendingOutput()) {
+								this.spuriousWakeups.incrementAndGet();
+							}
+							else {
+								this.writeEvents.incrementAndGet();
+								session.worker.pushSendSession(session);
+							}
+						}
+					} catch (CancelledKeyException e) {
+						// 会话已关闭
+						continue;
+					}
+				}
+			}
+		} catch (IOException e) {
+			Logger.log(NonblockingAcceptorReactor.class, e, LogLevel.WARNING);
+		} catch (Exception e) {
+			if (this.spinning) {
+				Logger.log(NonblockingAcceptorReactor.class, e, LogLevel.ERROR);
+			}
+			else {
+				Logger.log(NonblockingAcceptorReactor.class, e, LogLevel.DEBUG);
+			}
+		}
+
+		try {
+			this.selector.close();
+		} catch (IOException e) {
+			Logger.log(NonblockingAcceptorReactor.class, e, LogLevel.DEBUG);
+		}
+
+		this.registerQueue.clear();
+		this.readQueue.clear();
+		this.writeQueue.clear();
+
+		this.working = false;
+	}
+
+	/**
+	 * 停止反应器自旋。
+	 */
+	protected void stopSpinning() {
+		this.spinning = false;
+		this.selector.wakeup();
+	}
+
+	/**
+	 * 返回线程是否正在工作。
+	 */
+	protected boolean isWorking() {
+		return this.working;
+	}
+
+	/**
+	 * 将会话交由本反应器管理。
+	 *
+	 * @param session 指定会话。
+	 */
+	protected void register(NonblockingAcceptorSession session) {
+		this.numSessions.incrementAndGet();
+		this.registerQueue.offer(session);
+		this.selector.wakeup();
+	}
+
+	/**
+	 * 会话从本反应器移除。
+	 *
+	 * @param session 指定会话。
+	 */
+	protected void unregister(NonblockingAcceptorSession session) {
+		this.numSessions.decrementAndGet();
+	}
+
+	/**
+	 * 工作器完成数据读取后重新关注会话的读事件。
+	 *
+	 * @param session 指定会话。
+	 */
+	protected void interestRead(NonblockingAcceptorSession session) {
+		this.readQueue.offer(session);
+		this.selector.wakeup();
+	}
+
+	/**
+	 * 会话有待发送消息时关注会话的写事件。
+	 *
+	 * @param session 指定会话。
+	 */
+	protected void interestWrite(NonblockingAcceptorSession session) {
+		this.writeQueue.offer(session);
+		this.selector.wakeup();
+	}
+
+	/**
+	 * 将会话加入待关注写事件的队列，不唤醒反应器。
+	 * 批量写入时所有会话入队之后调用一次 {@link #wakeup()} 。
+	 *
+	 * @param session 指定会话。
+	 */
+	protected void offerWrite(NonblockingAcceptorSession session) {
+		this.writeQueue.offer(session);
+	}
+
+	/**
+	 * 唤醒反应器。
+	 */
+	protected void wakeup() {
+		this.selector.wakeup();
+	}
+
+	/**
+	 * 获得当前管理的会话数量。
+	 *
+	 * @return 返回当前管理的会话数量。
+	 */
+	protected int numSessions() {
+		return this.numSessions.get();
+	}
+
+	/**
+	 * 获得已分发的读事件数量。
+	 *
+	 * @return 返回已分发的读事件数量。
+	 */
+	protected long getReadEvents() {
+		return this.readEvents.get();
+	}
+
+	/**
+	 * 获得已分发的写事件数量。
+	 *
+	 * @return 返回已分发的写事件数量。
+	 */
+	protected long getWriteEvents() {
+		return this.writeEvents.get();
+	}
+
+	/**
+	 * 获得无效唤醒次数。
+	 *
+	 * @return 返回无效唤醒次数。
+	 */
+	protected long getSpuriousWakeups() {
+		return this.spuriousWakeups.get();
+	}
+
+	/**
+	 * 在反应器线程内处理注册和事件修改请求。
+	 *
+	 * @return 如果有请求被处理返回 <code>true</code> 。
+	 */
+	private boolean processPending() {
+		boolean processed = false;
+		NonblockingAcceptorSession session = null;
+
+		while (null != (session = this.registerQueue.poll())) {
+			processed = true;
+
+			SocketChannel channel = session.channel;
+			if (null == channel || !channel.isOpen()) {
+				continue;
+			}
+
+			try {
+				session.selectionKey = channel.register(this.selector, SelectionKey.OP_READ, session);
+			} catch (ClosedChannelException e) {
+				Logger.log(NonblockingAcceptorReactor.class, e, LogLevel.DEBUG);
+				continue;
+			}
+
+			// 注册前已有待发消息
+			if (session.hasPendingOutput()) {
+				this.writeQueue.offer(session);
+			}
+		}
+
+		while (null != (session = this.readQueue.poll())) {
+			processed = true;
+			SelectionKey key = session.selectionKey;
+			if (null != key && key.isValid()) {
+				try {
+					key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+				} catch (CancelledKeyException e) {
+					// Nothing
+				}
+			}
+		}
+
+		while (null != (session = this.writeQueue.poll())) {
+			processed = true;
+			SelectionKey key = session.selectionKey;
+			if (null != key && key.isValid()) {
+				try {
+					key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+				} catch (CancelledKeyException e) {
+					// Nothing
+				}
+			}
+		}
+
+		return processed;
+	}
+
+}
@@ -28,8 +28,11 @@ package net.cellcloud.common;
 
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
 import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import net.cellcloud.util.Clock;
 
@@ -51,15 +54,42 @@ public class NonblockingAcceptorSession extends Session {
 
 	/** 待发送消息列表。 */
 	private LinkedList<Message> sendBuffer = new LinkedList<Message>();
+	/** 待发送消息的总字节数。 */
+	private long sendBufferBytes = 0;
+
+	/** 发送队列是否处于可写状态。 */
+	protected AtomicBoolean writable = new AtomicBoolean(true);
+
+	/** 会话的传输配额，为 <code>null</code> 时不限制。 */
+	protected volatile QuotaCalculator quota = null;
+	/** 是否因超出配额而推迟了写事件。 */
+	protected AtomicBoolean writeDeferred = new AtomicBoolean(false);
 
 	protected SelectionKey selectionKey = null;
 
 	/** 当前会话对应的 Socket 。 */
 	protected Socket socket = null;
 
+	/** 当前会话对应的 Socket 通道。 */
+	protected SocketChannel channel = null;
+
 	/** 所属的工作器。 */
 	protected NonblockingAcceptorWorker worker = null;
 
+	/** 所属的反应器，仅在多反应器模式下有效。 */
+	protected NonblockingAcceptorReactor reactor = null;
+
+	/** 正在发送的写缓存，为 <code>null</code> 时表示没有未写完的数据。 */
+	protected ByteBuffer[] writeBuffers = null;
+	/** 第一个未写完的写缓存索引。 */
+	protected int writeOffset = 0;
+	/** 写缓存对应的消息。 */
+	protected Message[] writeMessages = null;
+	/** 每条消息的最后一个写缓存的下一个索引。 */
+	protected int[] writeEnds = null;
+	/** 下一条等待回调发送事件的消息索引。 */
+	protected int writeMessageIndex = 0;
+
 	/**
 	 * 构造函数。
 	 * 
@@ -91,6 +121,7 @@ public class NonblockingAcceptorSession extends Session {
 	protected void putMessage(Message message) {
 		synchronized (this.sendBuffer) {
 			this.sendBuffer.add(message);
+			this.sendBufferBytes += message.length();
 		}
 	}
 
@@ -112,10 +143,57 @@ public class NonblockingAcceptorSession extends Session {
 	 */
 	protected Message pollMessage() {
 		synchronized (this.sendBuffer) {
-			return this.sendBuffer.poll();
+			Message message = this.sendBuffer.poll();
+			if (null != message) {
+				this.sendBufferBytes -= message.length();
+			}
+			return message;
 		}
 	}
 
+	/**
+	 * 是否有待发送的数据，包括消息队列里的消息和未写完的写缓存。
+	 * 
+	 * @return 如果有待发送的数据则返回 <code>true</code> 。
+	 */
+	protected boolean hasPendingOutput() {
+		return (null != this.writeBuffers) || !this.isEmptyMessage();
+	}
+
+	/**
+	 * 清空发送队列，并归还队列里消息的帧缓存。
+	 */
+	protected void clearMessages() {
+		synchronized (this.sendBuffer) {
+			for (Message message : this.sendBuffer) {
+				message.releaseFrame();
+			}
+			this.sendBuffer.clear();
+			this.sendBufferBytes = 0;
+		}
+	}
+
+	/**
+	 * 清空未写完的写缓存，并归还未写完的消息的帧缓存。
+	 */
+	protected void resetWriteBuffers() {
+		if (null != this.writeMessages) {
+			for (int i = this.writeMessageIndex; i < this.writeMessages.length; ++i) {
+				Message message = this.writeMessages[i];
+				if (null != message) {
+					this.writeMessages[i] = null;
+					message.releaseFrame();
+				}
+			}
+		}
+
+		this.writeBuffers = null;
+		this.writeOffset = 0;
+		this.writeMessages = null;
+		this.writeEnds = null;
+		this.writeMessageIndex = 0;
+	}
+
 	/**
 	 * 消息发送队列里消息数量。
 	 * 
@@ -127,4 +205,15 @@ public class NonblockingAcceptorSession extends Session {
 		}
 	}
 
+	/**
+	 * 消息发送队列里消息的总字节数。
+	 * 
+	 * @return 返回消息发送队列里消息的总字节数。
+	 */
+	protected long numMessageBytes() {
+		synchronized (this.sendBuffer) {
+			return this.sendBufferBytes;
+		}
+	}
+
 }
@@ -75,6 +75,9 @@ public final class NonblockingAcceptorWorker extends Thread {
 	/** 接收消息时的数组缓存池。 */
 	private LinkedList<ArrayList<byte[]>> tenantablePool = new LinkedList<ArrayList<byte[]>>();
 
+	/** 读数据缓存池。 */
+	private ByteBufferPool readBufferPool;
+
 	/**
 	 * 构造函数。
 	 * 
@@ -84,6 +87,7 @@ public final class NonblockingAcceptorWorker extends Thread {
 	public NonblockingAcceptorWorker(NonblockingAcceptor acceptor, ScheduledExecutorService scheduledExecutor) {
 		this.acceptor = acceptor;
 		this.transmissionQuota = new QuotaCalculator(scheduledExecutor, 1024 * 1024);
+		this.readBufferPool = new ByteBufferPool(acceptor.getBlockSize(), 2);
 		this.setName("NonblockingAcceptorWorker@" + this.toString());
 	}
 
@@ -174,6 +178,11 @@ public final class NonblockingAcceptorWorker extends Thread {
 						if (null != session.socket) {
 							processReceive(session);
 							session.readTime = ctime;
+
+							if (null != session.reactor && null != session.socket) {
+								// 读取完成，通知反应器重新关注读事件
+								session.reactor.interestRead(session);
+							}
 						}
 					}
 					else {
@@ -186,7 +195,7 @@ public final class NonblockingAcceptorWorker extends Thread {
 					session = this.sendSessions.poll();
 					if (Math.abs(ctime - session.writeTime) > this.eachSessionWriteInterval) {
 						if (null != session.socket) {
-							int n = processSend(session, 2);
+							int n = processSend(session);
 							if (n > 0) {
 								this.sendSessions.add(session);
 							}
@@ -215,6 +224,16 @@ public final class NonblockingAcceptorWorker extends Thread {
 
 		this.working = false;
 		this.tenantablePool.clear();
+		this.readBufferPool.clear();
+	}
+
+	/**
+	 * 获得读数据缓存池。
+	 * 
+	 * @return 返回读数据缓存池。
+	 */
+	protected ByteBufferPool getReadBufferPool() {
+		return this.readBufferPool;
 	}
 
 	/**
@@ -307,7 +326,7 @@ public final class NonblockingAcceptorWorker extends Thread {
 		}
 
 		// 必须进行此判断
-		if (session.isEmptyMessage()) {
+		if (!session.hasPendingOutput()) {
 			return;
 		}
 
@@ -352,88 +371,64 @@ public final class NonblockingAcceptorWorker extends Thread {
 		}
 
 		int totalReaded = 0;
-		ByteBuffer buffer = ByteBuffer.allocate(session.getBlock() + session.getBlock());
 
-		int read = 0;
-		do {
-			read = 0;
-			// 创建读缓存
-			ByteBuffer buf = ByteBuffer.allocate(16384);
-
-			synchronized (session) {
-				try {
-					if (channel.isOpen()) {
-						read = channel.read(buf);
-					}
-					else {
-						read = -1;
-					}
-				} catch (IOException e) {
-					if (Logger.isDebugLevel()) {
-						Logger.d(this.getClass(), "Remote host has closed the connection.");
-					}
+		// 从缓存池借出读缓存
+		ByteBuffer buffer = this.readBufferPool.lease();
 
-					if (null != session.socket) {
-						this.acceptor.fireSessionClosed(session);
-					}
-
-					// 移除 Session
-					this.acceptor.eraseSession(session);
+		try {
+			int read = 0;
+			do {
+				read = 0;
 
+				synchronized (session) {
 					try {
-						if (channel.isOpen())
-							channel.close();
-					} catch (IOException ioe) {
-						Logger.log(NonblockingAcceptorWorker.class, ioe, LogLevel.DEBUG);
-					}
-
-					this.removeSession(session);
-
-					session.selectionKey.cancel();
-
-					buf = null;
-
-					return;
-				}
+						if (channel.isOpen()) {
+							read = channel.read(buffer);
+						}
+						else {
+							read = -1;
+						}
+					} catch (IOException e) {
+						if (Logger.isDebugLevel()) {
+							Logger.d(this.getClass(), "Remote host has closed the connection.");
+						}
 
-				if (read == 0) {
-					buf = null;
-					break;
-				}
-				else if (read == -1) {
-					if (null != session.socket) {
-						this.acceptor.fireSessionClosed(session);
+						this.closeSession(session, channel);
+						return;
 					}
 
-					// 移除 Session
-					this.acceptor.eraseSession(session);
-
-					try {
-						if (channel.isOpen())
-							channel.close();
-					} catch (IOException ioe) {
-						Logger.log(NonblockingAcceptorWorker.class, ioe, LogLevel.DEBUG);
+					if (read == -1) {
+						this.closeSession(session, channel);
+						return;
 					}
+				} // #synchronized
 
-					this.removeSession(session);
+				if (read > 0) {
+					// 计算长度
+					totalReaded += read;
 
-					session.selectionKey.cancel();
-
-					buf = null;
+					if (!buffer.hasRemaining()) {
+						// 缓存已满，先进行解析
+						buffer.flip();
+						if (!this.parse(session, buffer)) {
+							return;
+						}
+						buffer.clear();
+					}
+				}
+			} while (read > 0);
 
+			if (buffer.position() > 0) {
+				buffer.flip();
+				// 解析数据
+				if (!this.parse(session, buffer)) {
 					return;
 				}
-			} // #synchronized
-
-			// 计算长度
-			totalReaded += read;
-
-			if (buf.position() != 0) {
-				buf.flip();
 			}
-			// 合并
-			buffer.put(buf);
-		} while (read > 0);
+		} finally {
+			// 归还读缓存
+			this.readBufferPool.release(buffer);
+		}
 
 		if (0 == totalReaded) {
 			// 没有读取到数据
@@ -445,137 +440,283 @@ public final class NonblockingAcceptorWorker extends Thread {
 			this.rx = 0;
 		}
 		this.rx += totalReaded;
+	}
+
+	/**
+	 * 关闭已断开的会话。
+	 * 
+	 * @param session
+	 * @param channel
+	 */
+	private void closeSession(NonblockingAcceptorSession session, SocketChannel channel) {
+		if (null != session.socket) {
+			this.acceptor.fireSessionClosed(session);
+		}
 
-		buffer.flip();
+		// 移除 Session
+		this.acceptor.eraseSession(session);
 
-		byte[] array = new byte[totalReaded];
-		buffer.get(array);
+		try {
+			if (channel.isOpen())
+				channel.close();
+		} catch (IOException ioe) {
+			Logger.log(NonblockingAcceptorWorker.class, ioe, LogLevel.DEBUG);
+		}
 
-		// 解析数据
-		this.parse(session, array);
+		this.removeSession(session);
 
-		buffer.clear();
-		buffer = null;
+		session.selectionKey.cancel();
+	}
+
+	/**
+	 * 检查会话的传输配额，超出配额时推迟会话的写事件。
+	 * 
+	 * 等待时间取会话配额、工作器配额和全局配额中最长的一个，推迟次数只记录在该配额计算器上。
+	 * 
+	 * @param session 指定会话。
+	 * @return 如果会话需要等待配额恢复返回 <code>true</code> 。
+	 */
+	private boolean deferForQuota(NonblockingAcceptorSession session) {
+		QuotaCalculator limiter = this.transmissionQuota;
+		long delay = limiter.delay();
+
+		QuotaCalculator global = this.acceptor.getGlobalQuotaCalculator();
+		long globalDelay = global.delay();
+		if (globalDelay > delay) {
+			delay = globalDelay;
+			limiter = global;
+		}
+
+		QuotaCalculator quota = session.quota;
+		if (null != quota) {
+			long sessionDelay = quota.delay();
+			if (sessionDelay > delay) {
+				delay = sessionDelay;
+				limiter = quota;
+			}
+		}
+
+		if (delay <= 0) {
+			return false;
+		}
+
+		// 会话已在等待时不重复记录
+		if (this.acceptor.deferWrite(session, delay)) {
+			limiter.countDeferral();
+		}
+
+		return true;
 	}
 
 	/**
 	 * 处理数据发送。
 	 * 
+	 * 将会话的待发消息聚集后通过一次 {@link java.nio.channels.GatheringByteChannel#write(ByteBuffer[], int, int)} 写入通道。
+	 * 未写完的数据保留在会话里，在下一次写事件时继续发送。
+	 * 
 	 * @param session
+	 * @return 返回会话仍需继续发送的消息数量，返回 <code>-1</code> 表示会话已关闭。
 	 */
-	private int processSend(NonblockingAcceptorSession session, int total) {
+	private int processSend(NonblockingAcceptorSession session) {
 		SocketChannel channel = (SocketChannel) session.selectionKey.channel();
 
 		if (!channel.isConnected()) {
 			return -1;
 		}
 
-		if (!session.isEmptyMessage()) {
-			// 有消息，进行发送
-			Message message = null;
+		synchronized (session) {
+			if (null == session.writeBuffers) {
+				// 聚集待发消息
+				if (!this.gather(session)) {
+					return 0;
+				}
+			}
 
-			int count = total;
+			// 配额控制，超出配额时暂停写事件，等待令牌恢复
+			if (this.deferForQuota(session)) {
+				return 0;
+			}
 
-			synchronized (session) {
-				// 遍历待发信息
-				while (!session.isEmptyMessage() && count > 0) {
-					message = session.pollMessage();
-					if (null == message) {
-						break;
-					}
+			ByteBuffer[] buffers = session.writeBuffers;
+
+			try {
+				long size = channel.write(buffers, session.writeOffset, buffers.length - session.writeOffset);
 
-					// 是否进行消息加密
-					byte[] key = session.getSecretKey();
-					if (null != key) {
-						this.encryptMessage(message, key);
+				// 统计流量
+				if (size > 0) {
+					if (this.tx > Long.MAX_VALUE - size) {
+						this.tx = 0;
 					}
 
-					// 创建写缓存
-					ByteBuffer buf = null;
-
-					// 根据是否有数据掩码组装数据包
-					if (this.acceptor.hasDataMark()) {
-						byte[] data = message.get();
-						byte[] head = this.acceptor.getHeadMark();
-						byte[] tail = this.acceptor.getTailMark();
-						byte[] pd = new byte[data.length + head.length + tail.length];
-						System.arraycopy(head, 0, pd, 0, head.length);
-						System.arraycopy(data, 0, pd, head.length, data.length);
-						System.arraycopy(tail, 0, pd, head.length + data.length, tail.length);
-						buf = ByteBuffer.wrap(pd);
+					this.tx += size;
+
+					// 配额控制
+					this.transmissionQuota.acquire((int) size);
+					this.acceptor.getGlobalQuotaCalculator().acquire((int) size);
+					QuotaCalculator quota = session.quota;
+					if (null != quota) {
+						quota.acquire((int) size);
 					}
-					else {
-						buf = ByteBuffer.wrap(message.get());
+				}
+			} catch (IOException e) {
+				Logger.log(NonblockingAcceptorWorker.class, e, LogLevel.WARNING);
+
+				session.resetWriteBuffers();
+
+				if (null != session.socket) {
+					this.acceptor.fireSessionClosed(session);
+				}
+
+				// 移除 Session
+				this.acceptor.eraseSession(session);
+
+				try {
+					if (channel.isOpen()) {
+						channel.close();
 					}
+				} catch (IOException ioe) {
+					Logger.log(NonblockingAcceptorWorker.class, ioe, LogLevel.DEBUG);
+				}
 
-					// 计数
-					--count;
+				this.removeSession(session);
 
-					try {
-						int size = channel.write(buf);
+				session.selectionKey.cancel();
 
-						// 统计流量
-						if (size > 0) {
-							if (this.tx > Long.MAX_VALUE - size) {
-								this.tx = 0;
-							}
+				return -1;
+			}
 
-							this.tx += size;
+			// 跳过已写完的缓存
+			while (session.writeOffset < buffers.length && !buffers[session.writeOffset].hasRemaining()) {
+				++session.writeOffset;
+			}
 
-							// 配额控制
-							this.transmissionQuota.consume(size, null, null);
-						}
-					} catch (IOException e) {
-						Logger.log(NonblockingAcceptorWorker.class, e, LogLevel.WARNING);
+			// 回调已写完的消息
+			Message[] messages = session.writeMessages;
+			int[] ends = session.writeEnds;
+			while (session.writeMessageIndex < messages.length
+					&& ends[session.writeMessageIndex] <= session.writeOffset) {
+				Message message = messages[session.writeMessageIndex];
+				messages[session.writeMessageIndex] = null;
+				++session.writeMessageIndex;
 
-						if (null != session.socket) {
-							this.acceptor.fireSessionClosed(session);
-						}
+				// 回调事件
+				this.acceptor.fireMessageSent(session, message);
+
+				// 归还帧缓存
+				message.releaseFrame();
+			}
 
-						// 移除 Session
-						this.acceptor.eraseSession(session);
+			if (session.writeOffset < buffers.length) {
+				// 通道发送缓存已满，等待下一次写事件
+				this.acceptor.interestWrite(session);
+				return 0;
+			}
 
-						try {
-							if (channel.isOpen()) {
-								channel.close();
-							}
-						} catch (IOException ioe) {
-							Logger.log(NonblockingAcceptorWorker.class, ioe, LogLevel.DEBUG);
-						}
+			session.resetWriteBuffers();
+		} // #synchronized
+
+		return session.numMessages();
+	}
 
-						this.removeSession(session);
+	/**
+	 * 将会话的待发消息聚集为写缓存数组，聚集的数据量不超过接收器的发送预算。
+	 * 
+	 * @param session
+	 * @return 如果有待发消息返回 <code>true</code> 。
+	 */
+	private boolean gather(NonblockingAcceptorSession session) {
+		int budget = this.acceptor.getSendBudget();
+		ArrayList<Message> list = new ArrayList<Message>();
+		int bytes = 0;
+
+		// 至少发送一条消息
+		while (bytes < budget || list.isEmpty()) {
+			Message message = session.pollMessage();
+			if (null == message) {
+				break;
+			}
+
+			list.add(message);
+			bytes += message.length();
+		}
 
-						session.selectionKey.cancel();
+		if (list.isEmpty()) {
+			return false;
+		}
 
-						buf = null;
+		// 发送队列已出队，检查水位
+		this.acceptor.updateWritability(session);
 
-						return -1;
-					}
+		// 超过写限制的消息拆分为续传帧，未协商分片传输的会话不拆分
+		int fragmentSize = session.isFragmentable() ? this.acceptor.getWriteLimit() : Integer.MAX_VALUE;
+		Message[] messages = list.toArray(new Message[list.size()]);
+		int[] ends = new int[messages.length];
+		ArrayList<ByteBuffer> bufferList = new ArrayList<ByteBuffer>(messages.length * 3);
 
-					buf = null;
+		byte[] key = session.getSecretKey();
+		for (int i = 0; i < messages.length; ++i) {
+			Message message = messages[i];
 
-					// 回调事件
-					this.acceptor.fireMessageSent(session, message);
+			// 已编码的帧缓存直接写入通道
+			ByteBuffer frame = message.getFrame(this.acceptor);
+			if (null != frame && message.length() <= fragmentSize
+					&& (null == key || message.encryptFrame(key))) {
+				bufferList.add(frame);
+			}
+			else {
+				// 是否进行消息加密
+				if (null != key) {
+					this.encryptMessage(message, key);
 				}
-			} // #synchronized
+
+				FragmentCodec.encode(this.acceptor, message.get(), fragmentSize, bufferList);
+			}
+
+			ends[i] = bufferList.size();
 		}
 
-		return session.numMessages();
+		ByteBuffer[] buffers = bufferList.toArray(new ByteBuffer[bufferList.size()]);
+
+		session.writeBuffers = buffers;
+		session.writeMessages = messages;
+		session.writeEnds = ends;
+		session.writeOffset = 0;
+		session.writeMessageIndex = 0;
+		return true;
 	}
 
 	/**
 	 * 解析并通知数据接收。
 	 * 
 	 * @param session
-	 * @param data
+	 * @param buffer 已就绪的读缓存。
+	 * @return 如果会话因为数据帧无法同步被关闭返回 <code>false</code> 。
 	 */
-	private void parse(NonblockingAcceptorSession session, byte[] data) {
+	private boolean parse(NonblockingAcceptorSession session, ByteBuffer buffer) {
+		boolean broken = false;
+
 		try {
 			// 根据数据标志获取数据
-			if (this.acceptor.hasDataMark()) {
+			if (this.acceptor.hasDataMark() || this.acceptor.hasLengthFraming()) {
 				ArrayList<byte[]> output = this.borrowList();
-				// 进行递归提取
-				this.extract(output, session, data);
+
+				boolean valid = false;
+				if (this.acceptor.hasLengthFraming()) {
+					// 解码长度帧
+					valid = LengthFrameCodec.decode(this.acceptor, session, buffer, output);
+				}
+				else {
+					// 提取数据
+					valid = MarkFrameCodec.decode(this.acceptor, session, buffer, session.getBlock() << 1, output);
+				}
+
+				if (!valid) {
+					Logger.w(this.getClass(), "Illegal frame from " + session.getAddress().getHostString());
+					this.acceptor.fireErrorOccurred(session, MessageErrorCode.READ_FAILED);
+
+					// 长度帧无法重新同步，后续数据都无法解析
+					broken = this.acceptor.hasLengthFraming();
+				}
 
 				if (!output.isEmpty()) {
 					for (byte[] bytes : output) {
@@ -595,6 +736,8 @@ public final class NonblockingAcceptorWorker extends Thread {
 				this.returnList(output);
 			}
 			else {
+				byte[] data = new byte[buffer.remaining()];
+				buffer.get(data);
 				Message message = new Message(data);
 
 				// 是否是加密会话，如果是则进行解密
@@ -608,6 +751,13 @@ public final class NonblockingAcceptorWorker extends Thread {
 		} catch (Exception e) {
 			Logger.log(this.getClass(), e, LogLevel.ERROR);
 		}
+
+		if (broken) {
+			this.closeSession(session, (SocketChannel) session.selectionKey.channel());
+			return false;
+		}
+
+		return true;
 	}
 
 	/**
@@ -638,323 +788,6 @@ public final class NonblockingAcceptorWorker extends Thread {
 		}
 	}
 
-	/**
-	 * 数据提取并输出。
-	 * 
-	 * @param out 接收数据的数组。
-	 * @param session 会话。
-	 * @param data 待提取的数据。
-	 */
-	private void extract(final ArrayList<byte[]> output, final NonblockingAcceptorSession session, final byte[] data) {
-		final byte[] headMark = this.acceptor.getHeadMark();
-		final byte[] tailMark = this.acceptor.getTailMark();
-
-		byte[] real = data;
-		if (session.cacheCursor > 0) {
-			real = new byte[session.cacheCursor + data.length];
-			System.arraycopy(session.cache, 0, real, 0, session.cacheCursor);
-			System.arraycopy(data, 0, real, session.cacheCursor, data.length);
-			// 重置缓存
-			session.resetCache();
-		}
-
-		int index = 0;
-		final int len = real.length;
-		int headPos = -1;
-		int tailPos = -1;
-		int ret = -1;
-
-		ret = compareBytes(headMark, 0, real, index, headMark.length);
-		if (0 == ret) {
-			// 标记头标签
-			index = headMark.length;
-			// 记录数据位置头
-			headPos = index;
-			// 判断是否有尾标签，依次计数
-			ret = -1;
-			while (index < len) {
-				if (real[index] == tailMark[0]) {
-					ret = compareBytes(tailMark, 0, real, index, tailMark.length);
-					if (0 == ret) {
-						// 找到尾标签
-						tailPos = index;
-						break;
-					}
-					else if (1 == ret) {
-						// 越界
-						break;
-					}
-					else {
-						// 未找到尾标签
-						++index;
-					}
-				}
-				else {
-					++index;
-				}
-			}
-
-			if (headPos > 0 && tailPos > 0) {
-				byte[] outBytes = new byte[tailPos - headPos];
-				System.arraycopy(real, headPos, outBytes, 0, tailPos - headPos);
-				output.add(outBytes);
-
-				int newLen = len - tailPos - tailMark.length;
-				if (newLen > 0) {
-					byte[] newBytes = new byte[newLen];
-					System.arraycopy(real, tailPos + tailMark.length, newBytes, 0, newLen);
-
-					// 递归
-					extract(output, session, newBytes);
-				}
-			}
-			else {
-				// 没有尾标签，仅进行缓存
-				if (len + session.cacheCursor > session.getCacheSize()) {
-					// 缓存扩容
-					session.resetCacheSize(len + session.cacheCursor);
-				}
-
-				System.arraycopy(real, 0, session.cache, session.cacheCursor, len);
-				session.cacheCursor += len;
-			}
-		}
-		else if (-1 == ret){
-			// 没有头标签
-			// 尝试查找
-			ret = -1;
-			while (index < len) {
-				if (real[index] == headMark[0]) {
-					ret = compareBytes(headMark, 0, real, index, headMark.length);
-					if (0 == ret) {
-						// 找到头标签
-						headPos = index;
-						break;
-					}
-					else if (1 == ret) {
-						// 越界
-						break;
-					}
-					else {
-						// 未找到头标签
-						++index;
-					}
-				}
-				else {
-					++index;
-				}
-			}
-
-			if (headPos > 0) {
-				// 找到头标签
-				byte[] newBytes = new byte[len - headPos];
-				System.arraycopy(real, headPos, newBytes, 0, newBytes.length);
-
-				// 递归
-				extract(output, session, newBytes);
-			}
-			else {
-				// 没有找到头标签，尝试判断结束位置，没有找到则丢弃数据
-				byte backwardOne = real[len - 1];
-				byte backwardTwo = real[len - 2];
-				byte backwardThree = real[len - 3];
-				int pos = -1;
-				int cplen = 0;
-				if (headMark[0] == backwardOne) {
-					pos = len - 1;
-					cplen = 1;
-				}
-				else if (headMark[0] == backwardTwo && headMark[1] == backwardOne) {
-					pos = len - 2;
-					cplen = 2;
-				}
-				else if (headMark[0] == backwardThree && headMark[1] == backwardTwo && headMark[2] == backwardOne) {
-					pos = len - 3;
-					cplen = 3;
-				}
-
-				if (pos >= 0) {
-					// 有可能是数据头，进行缓存
-					if (cplen + session.cacheCursor > session.getCacheSize()) {
-						// 缓存扩容
-						session.resetCacheSize(cplen + session.cacheCursor);
-					}
-
-					System.arraycopy(real, pos, session.cache, session.cacheCursor, cplen);
-					session.cacheCursor += cplen;
-				}
-			}
-		}
-		else {
-			// 数据越界，直接缓存
-			if (session.cacheCursor + real.length > session.getCacheSize()) {
-				// 重置 cache 大小
-				session.resetCacheSize(session.cacheCursor + real.length);
-			}
-			System.arraycopy(real, 0, session.cache, session.cacheCursor, real.length);
-			session.cacheCursor += real.length;
-		}
-	}
-	/*private void extract(final ArrayList<byte[]> output, final NonblockingAcceptorSession session, final byte[] data) {
-		final byte[] headMark = this.acceptor.getHeadMark();
-		final byte[] tailMark = this.acceptor.getTailMark();
-
-		byte[] real = data;
-		if (session.cacheCursor > 0) {
-			real = new byte[session.cacheCursor + data.length];
-			System.arraycopy(session.cache, 0, real, 0, session.cacheCursor);
-			System.arraycopy(data, 0, real, session.cacheCursor, data.length);
-			session.cacheCursor = 0;
-		}
-
-		// 当数据小于标签长度时直接缓存
-		if (real.length < headMark.length) {
-			if (session.cacheCursor + real.length > session.getCacheSize()) {
-				// 重置 cache 大小
-				session.resetCacheSize(session.cacheCursor + real.length);
-			}
-			System.arraycopy(real, 0, session.cache, session.cacheCursor, real.length);
-			session.cacheCursor += real.length;
-			return;
-		}
-
-		int index = 0;
-		int len = real.length;
-		int headPos = -1;
-		int tailPos = -1;
-
-		if (0 == compareBytes(headMark, 0, real, index, headMark.length)) {
-			// 有头标签
-			index = headMark.length;
-			// 记录数据位置头
-			headPos = index;
-			// 判断是否有尾标签，依次计数
-			int ret = -1;
-			while (index < len) {
-				if (real[index] == tailMark[0]) {
-					ret = compareBytes(tailMark, 0, real, index, tailMark.length);
-					if (0 == ret) {
-						// 找到尾标签
-						tailPos = index;
-						break;
-					}
-					else if (1 == ret) {
-						// 越界
-						break;
-					}
-					else {
-						// 未找到尾标签
-						++index;
-					}
-				}
-				else {
-					++index;
-				}
-			}
-
-			if (headPos > 0 && tailPos > 0) {
-				byte[] outBytes = new byte[tailPos - headPos];
-				System.arraycopy(real, headPos, outBytes, 0, tailPos - headPos);
-				output.add(outBytes);
-
-				int newLen = len - tailPos - tailMark.length;
-				if (newLen > 0) {
-					byte[] newBytes = new byte[newLen];
-					System.arraycopy(real, tailPos + tailMark.length, newBytes, 0, newLen);
-
-					// 递归
-					extract(output, session, newBytes);
-				}
-			}
-			else {
-				// 没有尾标签
-				// 仅进行缓存
-				if (len + session.cacheCursor > session.getCacheSize()) {
-					// 缓存扩容
-					session.resetCacheSize(len + session.cacheCursor);
-				}
-
-				System.arraycopy(real, 0, session.cache, session.cacheCursor, len);
-				session.cacheCursor += len;
-			}
-		}
-		else {
-			// 没有头标签
-			// 尝试找到头标签
-			byte[] markBuf = new byte[headMark.length];
-			int searchIndex = 0;
-			int searchCounts = 0;
-			do {
-				// 判断数据是否越界
-				if (searchIndex + headMark.length > len) {
-					// 越界，删除索引之前的所有数据
-					byte[] newReal = new byte[len - searchIndex];
-					System.arraycopy(real, searchIndex, newReal, 0, newReal.length);
-
-					if (session.cacheCursor + newReal.length > session.getCacheSize()) {
-						// 重置 cache 大小
-						session.resetCacheSize(session.cacheCursor + newReal.length);
-					}
-					System.arraycopy(newReal, 0, session.cache, session.cacheCursor, newReal.length);
-					session.cacheCursor += newReal.length;
-					// 退出循环
-					break;
-				}
-
-				// 复制数据到待测试缓存
-				System.arraycopy(real, searchIndex, markBuf, 0, headMark.length);
-
-				for (int i = 0; i < markBuf.length; ++i) {
-					if (markBuf[i] == headMark[i]) {
-						++searchCounts;
-					}
-					else {
-						break;
-					}
-				}
-
-				if (searchCounts == headMark.length) {
-					// 找到 head mark
-					byte[] newReal = new byte[len - searchIndex];
-					System.arraycopy(real, searchIndex, newReal, 0, newReal.length);
-					extract(output, session, newReal);
-					return;
-				}
-
-				// 更新索引
-				++searchIndex;
-
-				// 重置计数
-				searchCounts = 0;
-			} while (searchIndex < len);
-		}
-	}*/
-
-	/**
-	 * 比较字节数组是否相等。
-	 * 
-	 * @param b1 指定字节数组1。
-	 * @param offsetB1 指定字节数组1操作偏移。
-	 * @param b2 指定字节数组2。
-	 * @param offsetB2 指定字节数组2操作偏移。
-	 * @param length 指定数组比较长度。
-	 * @return 返回 <code>0</code> 表示匹配，<code>-1</code> 表示不匹配，<code>1</code> 表示越界
-	 */
-	private int compareBytes(byte[] b1, int offsetB1, byte[] b2, int offsetB2, int length) {
-		for (int i = 0; i < length; ++i) {
-			// FIXME XJW 2015-12-30 判断数组越界
-			if (offsetB1 + i >= b1.length || offsetB2 + i >= b2.length) {
-				return 1;
-			}
-
-			if (b1[offsetB1 + i] != b2[offsetB2 + i]) {
-				return -1;
-			}
-		}
-
-		return 0;
-	}
-
 	/**
 	 * 加密消息。
 	 * 
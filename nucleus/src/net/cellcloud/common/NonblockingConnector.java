@@ -33,6 +33,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Set;
@@ -78,6 +79,10 @@ public class NonblockingConnector extends MessageService implements MessageConne
 
 	/** 待发送消息列表。 */
 	private ConcurrentLinkedQueue<Message> messages;
+	/** 未写完的写缓存。 */
+	private ByteBuffer[] pendingBuffers = null;
+	/** 未写完的写缓存对应的消息。 */
+	private Message pendingMessage = null;
 
 	/** 是否关闭连接。 */
 	private boolean closed = false;
@@ -87,6 +92,15 @@ public class NonblockingConnector extends MessageService implements MessageConne
 	 */
 	private ExecutorService executor = null;
 
+	/** 加入的事件循环组，为 <code>null</code> 时使用独立的数据处理线程。 */
+	private NonblockingConnectorGroup group = null;
+	/** 当前连接所在的事件循环，仅在使用事件循环组时有效。 */
+	private volatile NonblockingConnectorLoop loop = null;
+	/** 当前连接在事件循环上的选择键。 */
+	private volatile SelectionKey selectionKey = null;
+	/** 连接超时的截止时间。 */
+	private long connectDeadline = 0;
+
 	/**
 	 * 构造函数。
 	 */
@@ -95,6 +109,25 @@ public class NonblockingConnector extends MessageService implements MessageConne
 		this.messages = new ConcurrentLinkedQueue<Message>();
 	}
 
+	/**
+	 * 构造函数。
+	 * 
+	 * @param group 指定加入的事件循环组，为 <code>null</code> 时使用独立的数据处理线程。
+	 */
+	public NonblockingConnector(NonblockingConnectorGroup group) {
+		this();
+		this.group = group;
+	}
+
+	/**
+	 * 获得加入的事件循环组。
+	 * 
+	 * @return 返回加入的事件循环组，未加入时返回 <code>null</code> 。
+	 */
+	public NonblockingConnectorGroup getGroup() {
+		return this.group;
+	}
+
 	/**
 	 * 获得连接地址。
 	 * 
@@ -129,6 +162,10 @@ public class NonblockingConnector extends MessageService implements MessageConne
 				Logger.log(NonblockingConnector.class, e, LogLevel.DEBUG);
 			}
 
+			if (null != this.loop) {
+				this.loop.release(this);
+			}
+
 			while (this.running) {
 				try {
 					Thread.sleep(10L);
@@ -140,9 +177,15 @@ public class NonblockingConnector extends MessageService implements MessageConne
 		}
 
 		// 状态初始化
-		this.messages.clear();
+		this.clearMessages();
 		this.address = address;
 
+		// 使用事件循环组时不创建数据处理线程
+		NonblockingConnectorLoop loop = (null != this.group) ? this.group.chooseLoop() : null;
+		if (null != this.group && null == loop) {
+			Logger.w(NonblockingConnector.class, "Connector group is not running, use standalone thread");
+		}
+
 		try {
 			this.channel = SocketChannel.open();
 			this.channel.configureBlocking(false);
@@ -159,9 +202,14 @@ public class NonblockingConnector extends MessageService implements MessageConne
 			this.channel.socket().setSendBufferSize(this.block + 64);
 			*/
 
-			this.selector = Selector.open();
-			// 注册事件
-			this.channel.register(this.selector, SelectionKey.OP_CONNECT);
+			if (null == loop) {
+				this.selector = Selector.open();
+				// 注册事件
+				this.channel.register(this.selector, SelectionKey.OP_CONNECT);
+			}
+			else {
+				this.selector = null;
+			}
 
 			// 连接
 			this.channel.connect(this.address);
@@ -192,15 +240,31 @@ public class NonblockingConnector extends MessageService implements MessageConne
 			return false;
 		}
 
-		if (null != this.executor) {
+		if (null != this.executor && !this.isSharedExecutor()) {
 			this.executor.shutdown();
 		}
 
-		this.executor = CachedQueueExecutor.newCachedQueueThreadPool(2);
-
 		// 创建 Session
 		this.session = new Session(this, this.address);
 
+		if (null != loop) {
+			this.executor = this.group.getExecutor();
+			this.loop = loop;
+			this.selectionKey = null;
+			this.connectDeadline = System.currentTimeMillis() + this.connectTimeout;
+			// 连接建立后才通知会话关闭
+			this.closed = true;
+			this.spinning = true;
+			this.running = true;
+
+			// 交给事件循环注册事件
+			loop.register(this);
+			return true;
+		}
+
+		this.loop = null;
+		this.executor = CachedQueueExecutor.newCachedQueueThreadPool(2);
+
 		this.handleThread = new Thread() {
 			@Override
 			public void run() {
@@ -282,6 +346,10 @@ public class NonblockingConnector extends MessageService implements MessageConne
 			}
 		}
 
+		if (null != this.loop) {
+			this.loop.release(this);
+		}
+
 		int count = 0;
 		while (this.running) {
 			try {
@@ -291,13 +359,17 @@ public class NonblockingConnector extends MessageService implements MessageConne
 			}
 
 			if (++count >= 300) {
-				this.handleThread.interrupt();
+				if (null == this.loop) {
+					this.handleThread.interrupt();
+				}
 				this.running = false;
 			}
 		}
 
 		if (null != this.executor) {
-			this.executor.shutdown();
+			if (!this.isSharedExecutor()) {
+				this.executor.shutdown();
+			}
 			this.executor = null;
 		}
 
@@ -365,6 +437,15 @@ public class NonblockingConnector extends MessageService implements MessageConne
 		return this.block;
 	}
 
+	/**
+	 * 获得单条数据帧的写限制。超过该限制的消息被拆分为续传帧发送。
+	 * 
+	 * @return 返回写限制，单位：字节。
+	 */
+	public int getWriteLimit() {
+		return this.writeLimit;
+	}
+
 	/**
 	 * 是否已建立连接。
 	 * 
@@ -396,12 +477,22 @@ public class NonblockingConnector extends MessageService implements MessageConne
 	 */
 	@Override
 	public void write(Session session, Message message) throws IOException {
-		if (message.length() > this.writeLimit) {
+		Session current = this.session;
+		if (message.length() > this.writeLimit
+				&& (!FragmentCodec.isSupported(this) || null == current || !current.isFragmentable()
+					|| message.length() > this.getMaxMessageLength())) {
+			// 超过写限制的消息只能在协商了分片传输之后分片发送
 			this.fireErrorOccurred(MessageErrorCode.WRITE_OUTOFBOUNDS);
 			return;
 		}
 
 		this.messages.offer(message);
+
+		NonblockingConnectorLoop loop = this.loop;
+		if (null != loop) {
+			// 通知事件循环关注写事件
+			loop.interestWrite(this);
+		}
 	}
 
 	/**
@@ -537,7 +628,8 @@ public class NonblockingConnector extends MessageService implements MessageConne
 
 				try {
 					this.channel.close();
-					this.selector.close();
+					if (null != this.selector)
+						this.selector.close();
 				} catch (IOException ce) {
 					Logger.log(NonblockingConnector.class, ce, LogLevel.DEBUG);
 				}
@@ -611,7 +703,8 @@ public class NonblockingConnector extends MessageService implements MessageConne
 
 				try {
 					this.channel.close();
-					this.selector.close();
+					if (null != this.selector)
+						this.selector.close();
 				} catch (IOException ce) {
 					Logger.log(NonblockingConnector.class, ce, LogLevel.DEBUG);
 				}
@@ -633,19 +726,30 @@ public class NonblockingConnector extends MessageService implements MessageConne
 				}
 				readBuffer.put(buf);
 			}
-		} while (read > 0);
+			// 读缓存剩余空间不足时先处理已读数据，剩余数据在下一次读事件时读取
+		} while (read > 0 && readBuffer.remaining() >= 16384);
 
 		// 就绪
 		readBuffer.flip();
 
-		byte[] array = new byte[totalRead];
-		readBuffer.get(array);
+		if (this.hasLengthFraming() || this.hasDataMark()) {
+			// 直接从读缓存解码
+			LinkedList<byte[]> output = new LinkedList<byte[]>();
+			boolean valid = this.hasLengthFraming() ?
+					LengthFrameCodec.decode(this, this.session, readBuffer, output) :
+					MarkFrameCodec.decode(this, this.session, readBuffer, this.block << 1, output);
+			if (!valid) {
+				this.fireErrorOccurred(MessageErrorCode.READ_FAILED);
+			}
 
-		try {
+			if (!output.isEmpty()) {
+				this.dispatch(output);
+			}
+		}
+		else {
+			byte[] array = new byte[totalRead];
+			readBuffer.get(array);
 			this.process(array);
-		} catch (ArrayIndexOutOfBoundsException e) {
-			this.session.cacheCursor = 0;
-			Logger.log(NonblockingConnector.class, e, LogLevel.WARNING);
 		}
 
 		readBuffer.clear();
@@ -669,7 +773,34 @@ public class NonblockingConnector extends MessageService implements MessageConne
 			return;
 		}
 
+		// 正在写入通道的消息
+		Message current = null;
+
 		try {
+			// 先发送上一次未写完的数据
+			if (null != this.pendingBuffers) {
+				channel.write(this.pendingBuffers);
+
+				if (this.pendingBuffers[this.pendingBuffers.length - 1].hasRemaining()) {
+					// 通道发送缓存仍然已满
+					if (key.isValid()) {
+						key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+					}
+					return;
+				}
+
+				Message message = this.pendingMessage;
+				this.pendingBuffers = null;
+				this.pendingMessage = null;
+
+				if (null != this.handler) {
+					this.handler.messageSent(this.session, message);
+				}
+
+				// 归还帧缓存
+				message.releaseFrame();
+			}
+
 			if (!this.messages.isEmpty()) {
 				// 有消息，进行发送
 
@@ -680,97 +811,266 @@ public class NonblockingConnector extends MessageService implements MessageConne
 						break;
 					}
 
+					current = message;
+
 					byte[] skey = this.session.getSecretKey();
-					if (null != skey) {
-						this.encryptMessage(message, skey);
-					}
 
-					ByteBuffer writeBuffer = null;
-					if (this.hasDataMark()) {
-						byte[] data = message.get();
-						byte[] head = this.getHeadMark();
-						byte[] tail = this.getTailMark();
-						byte[] pd = new byte[data.length + head.length + tail.length];
-						System.arraycopy(head, 0, pd, 0, head.length);
-						System.arraycopy(data, 0, pd, head.length, data.length);
-						System.arraycopy(tail, 0, pd, head.length + data.length, tail.length);
-						writeBuffer = ByteBuffer.wrap(pd);
+					ByteBuffer[] writeBuffers = null;
+
+					// 已编码的帧缓存直接写入通道
+					ByteBuffer frame = message.getFrame(this);
+					if (null != frame && message.length() <= this.writeLimit
+							&& (null == skey || message.encryptFrame(skey))) {
+						writeBuffers = new ByteBuffer[] { frame };
 					}
 					else {
-						writeBuffer = ByteBuffer.wrap(message.get());
+						if (null != skey) {
+							this.encryptMessage(message, skey);
+						}
+
+						// 超过写限制的消息拆分为续传帧，未协商分片传输时不拆分
+						ArrayList<ByteBuffer> list = new ArrayList<ByteBuffer>(3);
+						FragmentCodec.encode(this, message.get(),
+								this.session.isFragmentable() ? this.writeLimit : Integer.MAX_VALUE, list);
+						writeBuffers = list.toArray(new ByteBuffer[list.size()]);
 					}
 
-					channel.write(writeBuffer);
+					channel.write(writeBuffers);
 
-					writeBuffer = null;
+					if (writeBuffers[writeBuffers.length - 1].hasRemaining()) {
+						// 未写完的数据在下一次写事件时继续发送
+						this.pendingBuffers = writeBuffers;
+						this.pendingMessage = message;
+						break;
+					}
+
+					writeBuffers = null;
+					current = null;
 
 					if (null != this.handler) {
 						this.handler.messageSent(this.session, message);
 					}
+
+					// 归还帧缓存
+					message.releaseFrame();
 				}
 			}
 		} catch (IOException e) {
 			Logger.log(NonblockingConnector.class, e, LogLevel.WARNING);
+
+			// 写入失败的消息不会再发送，归还帧缓存
+			if (null != current && current != this.pendingMessage) {
+				current.releaseFrame();
+			}
 		} catch (Exception e) {
 			Logger.log(NonblockingConnector.class, e, LogLevel.WARNING);
 		}
 
 		if (key.isValid()) {
-			key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+			if (null == this.loop || null != this.pendingBuffers || !this.messages.isEmpty()) {
+				key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+			}
+			else {
+				// 没有待发数据，在下一次写消息之前不再关注写事件
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			}
+		}
+	}
+
+	/**
+	 * 清空待发送的消息，并归还消息的帧缓存。
+	 */
+	private void clearMessages() {
+		Message message = null;
+		while (null != (message = this.messages.poll())) {
+			message.releaseFrame();
+		}
+
+		if (null != this.pendingMessage) {
+			this.pendingMessage.releaseFrame();
+			this.pendingMessage = null;
 		}
+		this.pendingBuffers = null;
 	}
 
 	/**
-	 * 解析并处理消息。
+	 * 当前使用的执行器是否是事件循环组共享的执行器。
 	 * 
-	 * @param data 接收到的数据数组。
+	 * @return 如果是共享的执行器返回 <code>true</code> 。
 	 */
-	private void process(byte[] data) {
-		// 根据数据标志获取数据
-		if (this.hasDataMark()) {
-			final LinkedList<byte[]> output = new LinkedList<byte[]>();
+	private boolean isSharedExecutor() {
+		return (null != this.group && this.executor == this.group.getExecutor());
+	}
 
-			// 数据递归提取
-			this.extract(output, data);
+	/**
+	 * 获得连接器的 Socket 通道。
+	 * 
+	 * @return 返回 Socket 通道。
+	 */
+	protected SocketChannel getChannel() {
+		return this.channel;
+	}
 
-			if (!output.isEmpty()) {
-				this.executor.execute(new Runnable() {
-					@Override
-					public void run() {
-						for (byte[] bytes : output) {
-							Message message = new Message(bytes);
-
-							byte[] skey = session.getSecretKey();
-							if (null != skey) {
-								decryptMessage(message, skey);
-							}
-
-							if (null != handler) {
-								handler.messageReceived(session, message);
-							}
-						}
-						output.clear();
-					}
-				});
+	/**
+	 * 获得连接器在事件循环上的选择键。
+	 * 
+	 * @return 返回选择键，未注册时返回 <code>null</code> 。
+	 */
+	protected SelectionKey getSelectionKey() {
+		return this.selectionKey;
+	}
+
+	/**
+	 * 获得连接超时的截止时间。
+	 * 
+	 * @return 返回以毫秒为单位的截止时间戳。
+	 */
+	protected long getConnectDeadline() {
+		return this.connectDeadline;
+	}
+
+	/**
+	 * 由事件循环调用，通道已注册到事件循环。
+	 * 
+	 * @param key 指定注册后的选择键。
+	 */
+	protected void registered(SelectionKey key) {
+		this.selectionKey = key;
+
+		// 通知 Session 创建。
+		this.fireSessionCreated();
+	}
+
+	/**
+	 * 由事件循环调用，注册时连接已经建立。
+	 */
+	protected void opened() {
+		this.fireSessionOpened();
+	}
+
+	/**
+	 * 由事件循环调用，连接超时。
+	 */
+	protected void connectTimeout() {
+		this.spinning = false;
+
+		try {
+			this.channel.close();
+		} catch (IOException e) {
+			Logger.log(NonblockingConnector.class, e, LogLevel.DEBUG);
+		}
+
+		this.fireErrorOccurred(MessageErrorCode.CONNECT_TIMEOUT);
+	}
+
+	/**
+	 * 由事件循环调用，处理就绪事件。
+	 * 
+	 * @param key 指定就绪的选择键。
+	 * @return 如果连接器仍需继续处理事件返回 <code>true</code> ，否则返回 <code>false</code> 。
+	 */
+	protected boolean processEvent(SelectionKey key) {
+		if (key.isConnectable()) {
+			if (!this.doConnect(key)) {
+				this.spinning = false;
+				return false;
+			}
+			else {
+				// 连接成功，打开 Session
+				this.fireSessionOpened();
 			}
 		}
-		else {
-			final Message message = new Message(data);
+		if (key.isValid() && key.isReadable()) {
+			this.receive(key);
+		}
+		if (key.isValid() && key.isWritable()) {
+			this.send(key);
+		}
+
+		return this.spinning;
+	}
+
+	/**
+	 * 由事件循环调用，连接器从事件循环移除。
+	 * 
+	 * @param loop 指定移除连接器的事件循环。
+	 * @return 如果本次调用完成了移除返回 <code>true</code> ，连接器已经移除时返回 <code>false</code> 。
+	 */
+	protected boolean released(NonblockingConnectorLoop loop) {
+		synchronized (this) {
+			if (this.loop != loop || !this.running) {
+				return false;
+			}
+
+			this.spinning = false;
+			this.selectionKey = null;
+
+			try {
+				if (null != this.channel && this.channel.isOpen()) {
+					this.channel.close();
+				}
+			} catch (IOException e) {
+				Logger.log(NonblockingConnector.class, e, LogLevel.DEBUG);
+			}
+
+			// 关闭会话
+			this.fireSessionClosed();
+
+			// 通知 Session 销毁。
+			this.fireSessionDestroyed();
+
+			this.running = false;
+			return true;
+		}
+	}
+
+	/**
+	 * 处理没有数据标记的消息。
+	 * 
+	 * @param data 接收到的数据数组。
+	 */
+	private void process(byte[] data) {
+		final Message message = new Message(data);
+
+		byte[] skey = this.session.getSecretKey();
+		if (null != skey) {
+			this.decryptMessage(message, skey);
+		}
 
-			byte[] skey = this.session.getSecretKey();
-			if (null != skey) {
-				this.decryptMessage(message, skey);
+		this.executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (null != handler) {
+					handler.messageReceived(session, message);
+				}
 			}
+		});
+	}
+
+	/**
+	 * 将解析出的数据交给执行器进行消息回调。
+	 * 
+	 * @param output 解析出的数据列表。
+	 */
+	private void dispatch(final LinkedList<byte[]> output) {
+		this.executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				for (byte[] bytes : output) {
+					Message message = new Message(bytes);
+
+					byte[] skey = session.getSecretKey();
+					if (null != skey) {
+						decryptMessage(message, skey);
+					}
 
-			this.executor.execute(new Runnable() {
-				@Override
-				public void run() {
 					if (null != handler) {
 						handler.messageReceived(session, message);
 					}
 				}
-			});
-		}
+				output.clear();
+			}
+		});
 	}
 
 	/**
@@ -859,238 +1159,6 @@ public class NonblockingConnector extends MessageService implements MessageConne
 		}
 	}
 
-	/**
-	 * 数据提取并输出。
-	 * 
-	 * @param out 解析之后的输出数据。
-	 * @param data 待处理数据。
-	 */
-	private void extract(final LinkedList<byte[]> output, final byte[] data) {
-		final byte[] headMark = this.getHeadMark();
-		final byte[] tailMark = this.getTailMark();
-
-		byte[] real = data;
-		if (this.session.cacheCursor > 0) {
-			real = new byte[this.session.cacheCursor + data.length];
-			System.arraycopy(this.session.cache, 0, real, 0, this.session.cacheCursor);
-			System.arraycopy(data, 0, real, this.session.cacheCursor, data.length);
-			// 重置缓存
-			this.session.resetCache();
-		}
-
-		int index = 0;
-		final int len = real.length;
-		int headPos = -1;
-		int tailPos = -1;
-		int ret = -1;
-
-		ret = compareBytes(headMark, 0, real, index, headMark.length);
-		if (0 == ret) {
-			// 有头标签
-			index = headMark.length;
-			// 记录数据位置头
-			headPos = index;
-			// 判断是否有尾标签，依次计数
-			ret = -1;
-			while (index < len) {
-				if (real[index] == tailMark[0]) {
-					ret = compareBytes(tailMark, 0, real, index, tailMark.length);
-					if (0 == ret) {
-						// 找到尾标签
-						tailPos = index;
-						break;
-					}
-					else if (1 == ret) {
-						// 越界
-						break;
-					}
-					else {
-						// 未找到尾标签
-						++index;
-					}
-				}
-				else {
-					++index;
-				}
-			}
-
-			if (headPos > 0 && tailPos > 0) {
-				byte[] outBytes = new byte[tailPos - headPos];
-				System.arraycopy(real, headPos, outBytes, 0, tailPos - headPos);
-				output.add(outBytes);
-
-				int newLen = len - tailPos - tailMark.length;
-				if (newLen > 0) {
-					byte[] newBytes = new byte[newLen];
-					System.arraycopy(real, tailPos + tailMark.length, newBytes, 0, newLen);
-
-					// 递归
-					extract(output, newBytes);
-				}
-			}
-			else {
-				// 没有尾标签，仅进行缓存
-				if (len + this.session.cacheCursor > this.session.getCacheSize()) {
-					// 缓存扩容
-					this.session.resetCacheSize(len + this.session.cacheCursor);
-				}
-
-				System.arraycopy(real, 0, this.session.cache, this.session.cacheCursor, len);
-				this.session.cacheCursor += len;
-			}
-		}
-		else if (-1 == ret){
-			// 没有头标签
-			// 尝试查找
-			ret = -1;
-			while (index < len) {
-				if (real[index] == headMark[0]) {
-					ret = compareBytes(headMark, 0, real, index, headMark.length);
-					if (0 == ret) {
-						// 找到头标签
-						headPos = index;
-						break;
-					}
-					else if (1 == ret) {
-						// 越界
-						break;
-					}
-					else {
-						// 未找到头标签
-						++index;
-					}
-				}
-				else {
-					++index;
-				}
-			}
-
-			if (headPos > 0) {
-				// 找到头标签
-				byte[] newBytes = new byte[len - headPos];
-				System.arraycopy(real, headPos, newBytes, 0, newBytes.length);
-
-				// 递归
-				extract(output, newBytes);
-			}
-			else {
-				// 没有找到头标签，尝试判断结束位置
-				byte backwardOne = real[len - 1];
-				byte backwardTwo = real[len - 2];
-				byte backwardThree = real[len - 3];
-				int pos = -1;
-				int cplen = 0;
-				if (headMark[0] == backwardOne) {
-					pos = len - 1;
-					cplen = 1;
-				}
-				else if (headMark[0] == backwardTwo && headMark[1] == backwardOne) {
-					pos = len - 2;
-					cplen = 2;
-				}
-				else if (headMark[0] == backwardThree && headMark[1] == backwardTwo && headMark[2] == backwardOne) {
-					pos = len - 3;
-					cplen = 3;
-				}
-
-				if (pos >= 0) {
-					// 有可能是数据头，进行缓存
-					if (cplen + this.session.cacheCursor > this.session.getCacheSize()) {
-						// 缓存扩容
-						this.session.resetCacheSize(cplen + this.session.cacheCursor);
-					}
-
-					System.arraycopy(real, pos, this.session.cache, this.session.cacheCursor, cplen);
-					this.session.cacheCursor += cplen;
-				}
-			}
-
-			/*
-			// 尝试找到头标签
-			byte[] markBuf = new byte[headMark.length];
-			int searchIndex = 0;
-			int searchCounts = 0;
-			do {
-				// 判断数据是否越界
-				if (searchIndex + headMark.length > len) {
-					// 越界，删除索引之前的所有数据
-					byte[] newReal = new byte[len - searchIndex];
-					System.arraycopy(real, searchIndex, newReal, 0, newReal.length);
-
-					if (this.session.cacheCursor + newReal.length > this.session.getCacheSize()) {
-						// 重置 cache 大小
-						this.session.resetCacheSize(this.session.cacheCursor + newReal.length);
-					}
-					System.arraycopy(newReal, 0, this.session.cache, this.session.cacheCursor, newReal.length);
-					this.session.cacheCursor += newReal.length;
-					// 退出循环
-					break;
-				}
-
-				// 复制数据到待测试缓存
-				System.arraycopy(real, searchIndex, markBuf, 0, headMark.length);
-
-				for (int i = 0; i < markBuf.length; ++i) {
-					if (markBuf[i] == headMark[i]) {
-						++searchCounts;
-					}
-					else {
-						break;
-					}
-				}
-
-				if (searchCounts == headMark.length) {
-					// 找到 head mark
-					byte[] newReal = new byte[len - searchIndex];
-					System.arraycopy(real, searchIndex, newReal, 0, newReal.length);
-					extract(out, newReal);
-					return;
-				}
-
-				// 更新索引
-				++searchIndex;
-
-				// 重置计数
-				searchCounts = 0;
-			} while (searchIndex < len);
-			*/
-		}
-		else {
-			// 数据越界，直接缓存
-			if (this.session.cacheCursor + real.length > this.session.getCacheSize()) {
-				// 重置 cache 大小
-				this.session.resetCacheSize(this.session.cacheCursor + real.length);
-			}
-			System.arraycopy(real, 0, this.session.cache, this.session.cacheCursor, real.length);
-			this.session.cacheCursor += real.length;
-		}
-	}
-
-	/**
-	 * 比较字节数组是否相等。
-	 * 
-	 * @param b1 指定字节数组1。
-	 * @param offsetB1 指定字节数组1操作偏移。
-	 * @param b2 指定字节数组2。
-	 * @param offsetB2 指定字节数组2操作偏移。
-	 * @param length 指定数组比较长度。
-	 * @return 返回 <code>0</code> 表示匹配，<code>-1</code> 表示不匹配，<code>1</code> 表示越界
-	 */
-	private int compareBytes(byte[] b1, int offsetB1, byte[] b2, int offsetB2, int length) {
-		for (int i = 0; i < length; ++i) {
-			// FIXME XJW 2015-12-30 判断数组越界
-			if (offsetB1 + i >= b1.length || offsetB2 + i >= b2.length) {
-				return 1;
-			}
-
-			if (b1[offsetB1 + i] != b2[offsetB2 + i]) {
-				return -1;
-			}
-		}
-
-		return 0;
-	}
-
 	/**
 	 * 加密消息。
 	 * 
@@ -0,0 +1,236 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+
+package net.cellcloud.common;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+
+import net.cellcloud.util.CachedQueueExecutor;
+
+/**
+ * 非阻塞网络连接器的事件循环组。
+ *
+ * 事件循环组由少量的事件循环线程组成，每个事件循环线程持有独立的 Selector ，
+ * 加入事件循环组的 {@link NonblockingConnector} 不再创建自己的数据处理线程，
+ * 其 Socket 通道由事件循环线程以事件驱动的方式多路复用，消息回调由组内共享的执行器执行。
+ *
+ * @author Ambrose Xu
+ *
+ */
+public final class NonblockingConnectorGroup {
+
+	/** 事件循环线程数组。 */
+	private NonblockingConnectorLoop[] loops;
+	/** 事件循环线程数量。 */
+	private int loopNum;
+	/** 回调执行器的最大线程数量。 */
+	private int maxCallbackThreads;
+
+	/** 组内连接器共享的回调执行器。 */
+	private ExecutorService executor;
+
+	/** 是否正在运行。 */
+	private volatile boolean running = false;
+
+	/**
+	 * 构造函数。
+	 *
+	 * @param loopNum 指定事件循环线程数量。
+	 */
+	public NonblockingConnectorGroup(int loopNum) {
+		this(loopNum, loopNum * 4);
+	}
+
+	/**
+	 * 构造函数。
+	 *
+	 * @param loopNum 指定事件循环线程数量。
+	 * @param maxCallbackThreads 指定回调执行器的最大线程数量。
+	 */
+	public NonblockingConnectorGroup(int loopNum, int maxCallbackThreads) {
+		this.loopNum = Math.max(1, loopNum);
+		this.maxCallbackThreads = Math.max(1, maxCallbackThreads);
+	}
+
+	/**
+	 * 启动事件循环组。
+	 *
+	 * @return 启动成功返回 <code>true</code> 。
+	 */
+	public boolean start() {
+		if (this.running) {
+			return true;
+		}
+
+		this.executor = CachedQueueExecutor.newCachedQueueThreadPool(this.maxCallbackThreads);
+
+		this.loops = new NonblockingConnectorLoop[this.loopNum];
+		try {
+			for (int i = 0; i < this.loopNum; ++i) {
+				this.loops[i] = new NonblockingConnectorLoop(i);
+			}
+		} catch (IOException e) {
+			Logger.log(NonblockingConnectorGroup.class, e, LogLevel.ERROR);
+
+			for (int i = 0; i < this.loopNum; ++i) {
+				if (null != this.loops[i]) {
+					this.loops[i].stopSpinning();
+				}
+			}
+			this.loops = null;
+
+			this.executor.shutdown();
+			this.executor = null;
+			return false;
+		}
+
+		for (int i = 0; i < this.loopNum; ++i) {
+			this.loops[i].start();
+		}
+
+		this.running = true;
+		return true;
+	}
+
+	/**
+	 * 停止事件循环组。组内所有的连接器将被关闭。
+	 */
+	public void stop() {
+		if (!this.running) {
+			return;
+		}
+
+		this.running = false;
+
+		for (int i = 0; i < this.loops.length; ++i) {
+			this.loops[i].stopSpinning();
+		}
+
+		for (int i = 0; i < this.loops.length; ++i) {
+			int count = 0;
+			while (this.loops[i].isWorking() && count < 300) {
+				try {
+					Thread.sleep(10L);
+				} catch (InterruptedException e) {
+					Logger.log(NonblockingConnectorGroup.class, e, LogLevel.DEBUG);
+					break;
+				}
+				++count;
+			}
+		}
+
+		this.loops = null;
+
+		this.executor.shutdown();
+		this.executor = null;
+	}
+
+	/**
+	 * 事件循环组是否正在运行。
+	 *
+	 * @return 如果正在运行返回 <code>true</code> 。
+	 */
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	/**
+	 * 获得事件循环线程数量。
+	 *
+	 * @return 返回事件循环线程数量。
+	 */
+	public int getLoopNum() {
+		return this.loopNum;
+	}
+
+	/**
+	 * 获得组内的连接器数量。
+	 *
+	 * @return 返回组内的连接器数量。
+	 */
+	public int numConnectors() {
+		NonblockingConnectorLoop[] array = this.loops;
+		if (null == array) {
+			return 0;
+		}
+
+		int ret = 0;
+		for (int i = 0; i < array.length; ++i) {
+			ret += array[i].numConnectors();
+		}
+		return ret;
+	}
+
+	/**
+	 * 获得事件循环的无效唤醒次数。
+	 *
+	 * @return 返回所有事件循环线程的累计无效唤醒次数。
+	 */
+	public long getSpuriousWakeups() {
+		NonblockingConnectorLoop[] array = this.loops;
+		if (null == array) {
+			return 0;
+		}
+
+		long ret = 0;
+		for (int i = 0; i < array.length; ++i) {
+			ret += array[i].getSpuriousWakeups();
+		}
+		return ret;
+	}
+
+	/**
+	 * 获得组内连接器共享的回调执行器。
+	 *
+	 * @return 返回回调执行器。
+	 */
+	protected ExecutorService getExecutor() {
+		return this.executor;
+	}
+
+	/**
+	 * 为连接器选择管理的连接器数量最少的事件循环线程。
+	 *
+	 * @return 返回事件循环线程，事件循环组未运行时返回 <code>null</code> 。
+	 */
+	protected NonblockingConnectorLoop chooseLoop() {
+		NonblockingConnectorLoop[] array = this.loops;
+		if (!this.running || null == array) {
+			return null;
+		}
+
+		NonblockingConnectorLoop loop = array[0];
+		for (int i = 1; i < array.length; ++i) {
+			if (array[i].numConnectors() < loop.numConnectors()) {
+				loop = array[i];
+			}
+		}
+		return loop;
+	}
+
+}
@@ -0,0 +1,385 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+
+package net.cellcloud.common;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 非阻塞网络连接器的事件循环线程。
+ *
+ * 事件循环线程持有独立的 Selector ，负责其管理的连接器的连接、读、写事件分发。
+ * 线程只在有就绪事件、注册请求或者连接超时时被唤醒，不进行睡眠轮询。
+ * 连接器仅在有待发送数据时关注写事件。
+ *
+ * @author Ambrose Xu
+ *
+ */
+public final class NonblockingConnectorLoop extends Thread {
+
+	/** NIO selector */
+	private Selector selector;
+
+	/** 是否处于自旋。 */
+	private volatile boolean spinning = false;
+	/** 是否正在工作。 */
+	private volatile boolean working = false;
+
+	/** 等待注册到本事件循环的连接器队列。 */
+	private ConcurrentLinkedQueue<NonblockingConnector> registerQueue = new ConcurrentLinkedQueue<NonblockingConnector>();
+	/** 等待开启写事件的连接器队列。 */
+	private ConcurrentLinkedQueue<NonblockingConnector> writeQueue = new ConcurrentLinkedQueue<NonblockingConnector>();
+	/** 等待移除的连接器队列。 */
+	private ConcurrentLinkedQueue<NonblockingConnector> releaseQueue = new ConcurrentLinkedQueue<NonblockingConnector>();
+
+	/** 正在建立连接的连接器，仅在事件循环线程内访问。 */
+	private ArrayList<NonblockingConnector> connectingList = new ArrayList<NonblockingConnector>();
+
+	/** 当前管理的连接器数量。 */
+	private AtomicInteger numConnectors = new AtomicInteger(0);
+
+	/** 无效唤醒次数。 */
+	private AtomicLong spuriousWakeups = new AtomicLong(0);
+
+	/**
+	 * 构造函数。
+	 *
+	 * @param index 事件循环序号。
+	 * @throws IOException
+	 */
+	public NonblockingConnectorLoop(int index) throws IOException {
+		this.selector = Selector.open();
+		this.setName("NonblockingConnectorLoop#" + index + "@" + this.toString());
+		this.setDaemon(true);
+	}
+
+	@Override
+	public void run() {
+		this.working = true;
+		this.spinning = true;
+
+		try {
+			while (this.spinning) {
+				int num = this.selector.select(this.nextTimeout());
+
+				// 处理待注册、待修改事件及待移除的连接器
+				boolean processed = this.processPending();
+
+				// 检查连接超时
+				if (this.processConnectTimeout()) {
+					processed = true;
+				}
+
+				if (!processed && num == 0) {
+					this.spuriousWakeups.incrementAndGet();
+				}
+
+				if (!this.spinning) {
+					break;
+				}
+
+				Iterator<SelectionKey> it = this.selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+
+					NonblockingConnector connector = (NonblockingConnector) key.attachment();
+					if (null == connector) {
+						key.cancel();
+						continue;
+					}
+
+					boolean alive = false;
+					try {
+						alive = connector.processEvent(key);
+					} catch (CancelledKeyException e) {
+						// 连接器已关闭
+					} catch (Exception e) {
+						Logger.log(NonblockingConnectorLoop.class, e, LogLevel.WARNING);
+					}
+
+					if (!alive) {
+						this.doRelease(connector);
+					}
+				}
+			}
+		} catch (IOException e) {
+			Logger.log(NonblockingConnectorLoop.class, e, LogLevel.WARNING);
+		} catch (Exception e) {
+			if (this.spinning) {
+				Logger.log(NonblockingConnectorLoop.class, e, LogLevel.ERROR);
+			}
+			else {
+				Logger.log(NonblockingConnectorLoop.class, e, LogLevel.DEBUG);
+			}
+		}
+
+		// 关闭所有连接器
+		for (SelectionKey key : this.selector.keys()) {
+			try {
+				key.channel().close();
+			} catch (IOException e) {
+				Logger.log(NonblockingConnectorLoop.class, e, LogLevel.DEBUG);
+			}
+
+			NonblockingConnector connector = (NonblockingConnector) key.attachment();
+			if (null != connector) {
+				this.doRelease(connector);
+			}
+		}
+
+		NonblockingConnector connector = null;
+		while (null != (connector = this.registerQueue.poll())) {
+			this.doRelease(connector);
+		}
+		while (null != (connector = this.releaseQueue.poll())) {
+			this.doRelease(connector);
+		}
+
+		try {
+			this.selector.close();
+		} catch (IOException e) {
+			Logger.log(NonblockingConnectorLoop.class, e, LogLevel.DEBUG);
+		}
+
+		this.writeQueue.clear();
+		this.connectingList.clear();
+
+		this.working = false;
+	}
+
+	/**
+	 * 停止事件循环自旋。
+	 */
+	protected void stopSpinning() {
+		this.spinning = false;
+		this.selector.wakeup();
+
+		if (!this.isAlive()) {
+			// 线程未启动，直接关闭 Selector
+			try {
+				this.selector.close();
+			} catch (IOException e) {
+				Logger.log(NonblockingConnectorLoop.class, e, LogLevel.DEBUG);
+			}
+		}
+	}
+
+	/**
+	 * 返回线程是否正在工作。
+	 */
+	protected boolean isWorking() {
+		return this.working;
+	}
+
+	/**
+	 * 将连接器交由本事件循环管理。
+	 *
+	 * @param connector 指定已发起连接的连接器。
+	 */
+	protected void register(NonblockingConnector connector) {
+		this.numConnectors.incrementAndGet();
+		this.registerQueue.offer(connector);
+		this.selector.wakeup();
+	}
+
+	/**
+	 * 从本事件循环移除连接器。在事件循环线程内调用时立即移除，否则由事件循环线程异步移除。
+	 *
+	 * @param connector 指定连接器。
+	 */
+	protected void release(NonblockingConnector connector) {
+		if (Thread.currentThread() == this) {
+			this.doRelease(connector);
+		}
+		else {
+			this.releaseQueue.offer(connector);
+			this.selector.wakeup();
+		}
+	}
+
+	/**
+	 * 连接器有待发送消息时关注连接器的写事件。
+	 *
+	 * @param connector 指定连接器。
+	 */
+	protected void interestWrite(NonblockingConnector connector) {
+		this.writeQueue.offer(connector);
+		this.selector.wakeup();
+	}
+
+	/**
+	 * 获得当前管理的连接器数量。
+	 *
+	 * @return 返回当前管理的连接器数量。
+	 */
+	protected int numConnectors() {
+		return this.numConnectors.get();
+	}
+
+	/**
+	 * 获得无效唤醒次数。
+	 *
+	 * @return 返回无效唤醒次数。
+	 */
+	protected long getSpuriousWakeups() {
+		return this.spuriousWakeups.get();
+	}
+
+	/**
+	 * 计算下一次 select 的超时时间。
+	 *
+	 * @return 返回距离最近的连接超时的毫秒数，没有正在建立的连接时返回 <code>0</code> 表示不超时。
+	 */
+	private long nextTimeout() {
+		if (this.connectingList.isEmpty()) {
+			return 0;
+		}
+
+		long deadline = Long.MAX_VALUE;
+		for (int i = 0, size = this.connectingList.size(); i < size; ++i) {
+			deadline = Math.min(deadline, this.connectingList.get(i).getConnectDeadline());
+		}
+
+		return Math.max(1L, deadline - System.currentTimeMillis());
+	}
+
+	/**
+	 * 检查正在建立连接的连接器是否超时。
+	 *
+	 * @return 如果有连接器超时返回 <code>true</code> 。
+	 */
+	private boolean processConnectTimeout() {
+		if (this.connectingList.isEmpty()) {
+			return false;
+		}
+
+		boolean processed = false;
+		long now = System.currentTimeMillis();
+
+		Iterator<NonblockingConnector> it = this.connectingList.iterator();
+		while (it.hasNext()) {
+			NonblockingConnector connector = it.next();
+			if (connector.isConnected() || null == connector.getSelectionKey()) {
+				it.remove();
+			}
+			else if (now >= connector.getConnectDeadline()) {
+				it.remove();
+				processed = true;
+
+				connector.connectTimeout();
+				this.doRelease(connector);
+			}
+		}
+
+		return processed;
+	}
+
+	/**
+	 * 在事件循环线程内处理注册和事件修改请求。
+	 *
+	 * @return 如果有请求被处理返回 <code>true</code> 。
+	 */
+	private boolean processPending() {
+		boolean processed = false;
+		NonblockingConnector connector = null;
+
+		while (null != (connector = this.registerQueue.poll())) {
+			processed = true;
+
+			SocketChannel channel = connector.getChannel();
+			if (null == channel || !channel.isOpen()) {
+				this.doRelease(connector);
+				continue;
+			}
+
+			try {
+				if (channel.isConnected()) {
+					// 连接已经建立
+					connector.registered(channel.register(this.selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, connector));
+					connector.opened();
+				}
+				else {
+					connector.registered(channel.register(this.selector, SelectionKey.OP_CONNECT, connector));
+					this.connectingList.add(connector);
+				}
+			} catch (ClosedChannelException e) {
+				Logger.log(NonblockingConnectorLoop.class, e, LogLevel.DEBUG);
+				this.doRelease(connector);
+			}
+		}
+
+		while (null != (connector = this.writeQueue.poll())) {
+			processed = true;
+			SelectionKey key = connector.getSelectionKey();
+			if (null != key && key.isValid()) {
+				try {
+					// 连接建立之前不关注写事件，连接建立后会关注写事件
+					if (0 == (key.interestOps() & SelectionKey.OP_CONNECT)) {
+						key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+					}
+				} catch (CancelledKeyException e) {
+					// Nothing
+				}
+			}
+		}
+
+		while (null != (connector = this.releaseQueue.poll())) {
+			processed = true;
+			this.doRelease(connector);
+		}
+
+		return processed;
+	}
+
+	/**
+	 * 在事件循环线程内移除连接器。
+	 *
+	 * @param connector 指定连接器。
+	 */
+	private void doRelease(NonblockingConnector connector) {
+		SelectionKey key = connector.getSelectionKey();
+		if (null != key) {
+			key.cancel();
+		}
+
+		if (connector.released(this)) {
+			this.numConnectors.decrementAndGet();
+		}
+	}
+
+}
@@ -26,6 +26,7 @@ THE SOFTWARE.
 
 package net.cellcloud.common;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 import net.cellcloud.util.ByteUtils;
@@ -127,6 +128,17 @@ public final class Packet {
 
 	/** 包数据段数据。 */
 	private ArrayList<byte[]> segments;
+	/** 数据段在 {@link #segments} 数组里的位置和长度。所有数据段都是完整数组时为 <code>null</code> 。 */
+	private int[] slices;
+
+	/** 解包时的原始数据，数据段以视图的形式引用该数据。为 <code>null</code> 时数据段存储在 {@link #segments} 里。 */
+	private byte[] buffer;
+	/** 包标签在原始数据中的位置。 */
+	private int tagOffset;
+	/** 数据段视图，依次存储每个数据段在原始数据中的位置和长度。 */
+	private int[] views;
+	/** 数据段视图数量。 */
+	private int numViews;
 
 	/**
 	 * 构造函数。
@@ -158,12 +170,40 @@ public final class Packet {
 		this.segments = new ArrayList<byte[]>();
 	}
 
+	/**
+	 * 构造函数。构造数据段引用原始数据的包。
+	 * 
+	 * @param buffer 原始数据。
+	 * @param tagOffset 包标签在原始数据中的位置。
+	 * @param sn 包序号。
+	 * @param major 包主版本号。
+	 * @param minor 包副版本号
+	 * @param numViews 数据段数量。
+	 */
+	private Packet(byte[] buffer, int tagOffset, int sn, int major, int minor, int numViews) {
+		this.tag = null;
+		this.sn = sn;
+		this.major = major;
+		this.minor = minor;
+		this.segments = null;
+		this.buffer = buffer;
+		this.tagOffset = tagOffset;
+		this.views = (numViews > 0) ? new int[numViews << 1] : null;
+		this.numViews = numViews;
+	}
+
 	/**
 	 * 获得包标签。
 	 * 
 	 * @return 返回包标签。
 	 */
 	public byte[] getTag() {
+		if (null == this.tag) {
+			byte[] tag = new byte[PFB_TAG];
+			System.arraycopy(this.buffer, this.tagOffset, tag, 0, PFB_TAG);
+			this.tag = tag;
+		}
+
 		return this.tag;
 	}
 
@@ -200,29 +240,155 @@ public final class Packet {
 	 * @param segment 数组端数据。
 	 */
 	public void appendSegment(byte[] segment) {
+		if (null != this.buffer) {
+			// 数据段不再引用原始数据
+			this.materialize();
+			this.buffer = null;
+			this.views = null;
+			this.numViews = 0;
+		}
+
 		this.segments.add(segment);
+
+		if (null != this.slices) {
+			this.addSlice(0, segment.length);
+		}
+	}
+
+	/**
+	 * 添加引用数组指定区间的数据段。
+	 * 
+	 * 该方法不复制数据，在包被序列化之前调用者不能修改该区间的数据。
+	 * 
+	 * @param data 指定数据段所在的数组。
+	 * @param offset 指定数据段在数组里的位置。
+	 * @param length 指定数据段长度。
+	 */
+	public void appendSegment(byte[] data, int offset, int length) {
+		if (0 == offset && length == data.length) {
+			this.appendSegment(data);
+			return;
+		}
+
+		if (null == this.slices) {
+			// 为已有的数据段记录位置
+			int num = this.numSegments();
+			this.slices = new int[Math.max(8, (num + 1) << 1)];
+			for (int i = 0; i < num; ++i) {
+				this.slices[(i << 1) + 1] = this.getSegmentLength(i);
+			}
+		}
+
+		this.appendSegment(data);
+		this.addSlice(offset, length);
+	}
+
+	/**
+	 * 记录最后一个数据段的位置和长度。
+	 */
+	private void addSlice(int offset, int length) {
+		int index = (this.segments.size() - 1) << 1;
+		if (index + 1 >= this.slices.length) {
+			int[] newSlices = new int[this.slices.length << 1];
+			System.arraycopy(this.slices, 0, newSlices, 0, this.slices.length);
+			this.slices = newSlices;
+		}
+
+		this.slices[index] = offset;
+		this.slices[index + 1] = length;
 	}
 
 	/**
 	 * 获得指定索引的数据段。
 	 * 
+	 * 解包得到的数据包在第一次调用该方法时复制所有数据段，
+	 * 不需要独立数据段数组的场景应使用 {@link #getSegmentBuffer(int)} 等视图方法。
+	 * 
 	 * @param index 指定索引。
 	 * @return 返回查找的数据段数据。
 	 */
 	public byte[] getSegment(int index) {
-		if (index < 0 || index >= this.segments.size())
+		if (index < 0 || index >= this.numSegments())
 			return null;
 
+		if (null == this.segments) {
+			this.materialize();
+		}
+
+		byte[] segment = this.segments.get(index);
+
+		if (null != this.slices) {
+			int offset = this.slices[index << 1];
+			int length = this.slices[(index << 1) + 1];
+			if (0 != offset || length != segment.length) {
+				// 复制引用的区间
+				byte[] copy = new byte[length];
+				System.arraycopy(segment, offset, copy, 0, length);
+				this.segments.set(index, copy);
+				this.slices[index << 1] = 0;
+				segment = copy;
+			}
+		}
+
+		return segment;
+	}
+
+	/**
+	 * 获得指定索引的数据段所在的数组。数据段在数组中的位置由 {@link #getSegmentOffset(int)} 和
+	 * {@link #getSegmentLength(int)} 给出。该方法不复制数据，调用者不应修改返回的数组。
+	 * 
+	 * @param index 指定索引。
+	 * @return 返回数据段所在的数组。
+	 */
+	public byte[] getSegmentBuffer(int index) {
+		if (null != this.buffer) {
+			return this.buffer;
+		}
+
 		return this.segments.get(index);
 	}
 
+	/**
+	 * 获得指定索引的数据段在 {@link #getSegmentBuffer(int)} 返回的数组中的位置。
+	 * 
+	 * @param index 指定索引。
+	 * @return 返回数据段的起始位置。
+	 */
+	public int getSegmentOffset(int index) {
+		if (null != this.buffer) {
+			return this.views[index << 1];
+		}
+		else if (null != this.slices) {
+			return this.slices[index << 1];
+		}
+
+		return 0;
+	}
+
+	/**
+	 * 获得指定索引的数据段长度。
+	 * 
+	 * @param index 指定索引。
+	 * @return 返回数据段长度。
+	 */
+	public int getSegmentLength(int index) {
+		if (null != this.buffer) {
+			return this.views[(index << 1) + 1];
+		}
+		else if (null != this.slices) {
+			return this.slices[(index << 1) + 1];
+		}
+
+		return this.segments.get(index).length;
+	}
+
 	/**
 	 * 获得数据段数量。
 	 * 
 	 * @return 返回数据段数量。
 	 */
 	public int numSegments() {
-		return this.segments.size();
+		return (null != this.buffer) ? this.numViews : this.segments.size();
 	}
 
 	/**
@@ -231,30 +397,67 @@ public final class Packet {
 	 * @return 返回包的数据负载长度。
 	 */
 	public int getPayloadLength() {
-		if (this.segments.isEmpty()) {
+		int num = this.numSegments();
+		if (num == 0) {
 			return 0;
 		}
 
 		int len = 0;
 
 		if (this.major == 2) {
-			for (int i = 0, size = this.segments.size(); i < size; ++i) {
+			for (int i = 0; i < num; ++i) {
 				len += PFB_SEGMENT_LENGTH;
-				len += this.segments.get(i).length;
+				len += this.getSegmentLength(i);
 			}
 		}
 		else {
 			len = PSL_SEGMENT_NUM;
 
-			for (int i = 0, size = this.segments.size(); i < size; ++i) {
+			for (int i = 0; i < num; ++i) {
 				len += PSL_SEGMENT_LENGTH;
-				len += this.segments.get(i).length;
+				len += this.getSegmentLength(i);
 			}
 		}
 
 		return len;
 	}
 
+	/**
+	 * 将数据段视图复制为独立的数据段数组。
+	 */
+	private void materialize() {
+		// 标签也引用原始数据，在释放原始数据之前复制
+		this.getTag();
+
+		this.segments = new ArrayList<byte[]>(this.numViews);
+		for (int i = 0; i < this.numViews; ++i) {
+			int offset = this.views[i << 1];
+			int length = this.views[(i << 1) + 1];
+			byte[] segment = new byte[length];
+			System.arraycopy(this.buffer, offset, segment, 0, length);
+			this.segments.add(segment);
+		}
+	}
+
+	/**
+	 * 获得包序列化后的总长度。
+	 * 
+	 * @return 返回包序列化后的总长度。
+	 */
+	public int getPackedLength() {
+		if (this.major == 2) {
+			return PFB_VERSION + PFB_RES + PFB_TAG + PFB_SN + PFB_SEGMENT_NUM + this.getPayloadLength();
+		}
+		else {
+			int num = this.numSegments();
+			int length = PSL_TAG + PSL_VERSION + PSL_SN + PSL_PAYLOAD_LENGTH + PSL_SEGMENT_NUM + (num * PSL_SEGMENT_LENGTH);
+			for (int i = 0; i < num; ++i) {
+				length += this.getSegmentLength(i);
+			}
+			return length;
+		}
+	}
+
 	/**
 	 * 将指定的包序列化为字节数组。
 	 * 
@@ -262,124 +465,149 @@ public final class Packet {
 	 * @return 返回序列化的数据。
 	 */
 	public static byte[] pack(Packet packet) {
-		if (packet.major == 2) {
-			// 计算数据长度
-			int payloadSize = packet.getPayloadLength();
-			int totalSize = PFB_VERSION + PFB_RES + PFB_TAG + PFB_SN + PFB_SEGMENT_NUM + payloadSize;
-			byte[] data = new byte[totalSize];
-			int dataCursor = 0;
+		byte[] data = new byte[packet.getPackedLength()];
+		pack(packet, ByteBuffer.wrap(data));
+		return data;
+	}
 
+	/**
+	 * 将指定的包序列化后直接写入缓存。
+	 * 
+	 * 数据从缓存的当前位置开始写入，写入完成后缓存位置移动到数据末尾。
+	 * 包头字段直接写入缓存，不产生临时数组。
+	 * 
+	 * @param packet 指定待处理的包对象。
+	 * @param buffer 指定写入的缓存，剩余空间不能小于 {@link #getPackedLength()} 。
+	 */
+	public static void pack(Packet packet, ByteBuffer buffer) {
+		int num = packet.numSegments();
+
+		if (packet.major == 2) {
 			// 填写 VER 和 RES
-			byte major = (byte) packet.major;
-			byte minor = (byte) packet.minor;
-			data[0] = major;
-			data[1] = minor;
-			// 更新游标
-			dataCursor = PFB_VERSION + PFB_RES;
+			buffer.put((byte) packet.major);
+			buffer.put((byte) packet.minor);
 
 			// 填写 TAG
-			System.arraycopy(packet.tag, 0, data, dataCursor, PFB_TAG);
-			// 更新游标
-			dataCursor += PFB_TAG;
+			buffer.put(packet.getTag(), 0, PFB_TAG);
 
 			// 填写 SN
-			short pSN = (short) packet.sn;
-			byte[] snBytes = ByteUtils.toBytes(pSN);
-			System.arraycopy(snBytes, 0, data, dataCursor, PFB_SN);
-			// 更新游标
-			dataCursor += PFB_SN;
+			putShort(buffer, packet.sn);
 
 			// 填写 SMN
-			short smn = (short) packet.segments.size();
-			byte[] smnBytes = ByteUtils.toBytes(smn);
-			System.arraycopy(smnBytes, 0, data, dataCursor, PFB_SEGMENT_NUM);
-			// 更新游标
-			dataCursor += PFB_SEGMENT_NUM;
-
-			if (smn > 0) {
-				// 填写动态的数据段长度
-				for (short i = 0; i < smn; ++i) {
-					int length = packet.segments.get(i).length;
-					byte[] lenBytes = ByteUtils.toBytes(length);
-					System.arraycopy(lenBytes, 0, data, dataCursor, PFB_SEGMENT_LENGTH);
-					// 更新游标
-					dataCursor += PFB_SEGMENT_LENGTH;
-				}
+			putShort(buffer, num);
 
-				// 填写动态的数据段数据
-				for (short i = 0; i < smn; ++i) {
-					byte[] sd = packet.segments.get(i);
-					System.arraycopy(sd, 0, data, dataCursor, sd.length);
-					// 更新游标
-					dataCursor += sd.length;
-				}
+			// 填写动态的数据段长度
+			for (int i = 0; i < num; ++i) {
+				putInt(buffer, packet.getSegmentLength(i));
 			}
-
-			return data;
 		}
 		else {
-			int ssNum = packet.numSegments();
-
-			// 计算总长度
-			int bodyLength = PSL_SEGMENT_NUM + (ssNum * PSL_SEGMENT_LENGTH);
-			int totalLength = PSL_TAG + PSL_VERSION + PSL_SN + PSL_PAYLOAD_LENGTH + bodyLength;
-			for (int i = 0; i < ssNum; ++i) {
-				totalLength += packet.getSegment(i).length;
-				bodyLength += packet.getSegment(i).length;
+			// 计算 Body 段长度
+			int bodyLength = PSL_SEGMENT_NUM + (num * PSL_SEGMENT_LENGTH);
+			for (int i = 0; i < num; ++i) {
+				bodyLength += packet.getSegmentLength(i);
 			}
 
-			byte[] data = new byte[totalLength];
-
 			// 填写 Tag
-			System.arraycopy(packet.getTag(), 0, data, 0, PSL_TAG);
+			buffer.put(packet.getTag(), 0, PSL_TAG);
 
 			// 填写 Version
-			String sMinor = fastFormatNumber(packet.getMinorVersion(), 2);
-			String sMajor = fastFormatNumber(packet.getMajorVersion(), 2);
-			System.arraycopy(sMinor.getBytes(), 0, data, PSL_TAG, 2);
-			System.arraycopy(sMajor.getBytes(), 0, data, PSL_TAG + 2, 2);
+			putDigits(buffer, packet.minor, 2);
+			putDigits(buffer, packet.major, 2);
 
 			// 填写 SN
-			String sVersion = fastFormatNumber(packet.getSequenceNumber(), PSL_SN);
-			System.arraycopy(sVersion.getBytes(), 0, data, PSL_TAG + PSL_VERSION, PSL_SN);
+			putDigits(buffer, packet.sn, PSL_SN);
 
 			// 填写 Body 段长度
-			String sLength = fastFormatNumber(bodyLength, PSL_PAYLOAD_LENGTH);
-			System.arraycopy(sLength.getBytes(), 0, data, PSL_TAG + PSL_VERSION + PSL_SN, PSL_PAYLOAD_LENGTH);
+			putDigits(buffer, bodyLength, PSL_PAYLOAD_LENGTH);
 
-			// 填写 Body 子段
-			// 子段格式打包
-			String sSubNum = fastFormatNumber(ssNum, PSL_SEGMENT_NUM);
-			System.arraycopy(sSubNum.getBytes(), 0, data, PSL_TAG + PSL_VERSION + PSL_SN + PSL_PAYLOAD_LENGTH, PSL_SEGMENT_NUM);
-
-			int begin = PSL_TAG + PSL_VERSION + PSL_SN + PSL_PAYLOAD_LENGTH + PSL_SEGMENT_NUM;
+			// 填写子段数量
+			putDigits(buffer, num, PSL_SEGMENT_NUM);
 
 			// 填充各子段长度
-			for (int i = 0; i < ssNum; ++i) {
-				int length = packet.getSegment(i).length;
-				String sLen = fastFormatNumber(length, PSL_SEGMENT_LENGTH);
-				System.arraycopy(sLen.getBytes(), 0, data, begin, PSL_SEGMENT_LENGTH);
-				begin += PSL_SEGMENT_LENGTH;
+			for (int i = 0; i < num; ++i) {
+				putDigits(buffer, packet.getSegmentLength(i), PSL_SEGMENT_LENGTH);
 			}
+		}
 
-			// 填充各子段数据
-			for (int i = 0; i < ssNum; ++i) {
-				byte[] subData = packet.getSegment(i);
-				System.arraycopy(subData, 0, data, begin, subData.length);
-				begin += subData.length;
-			}
+		// 填充各子段数据
+		for (int i = 0; i < num; ++i) {
+			buffer.put(packet.getSegmentBuffer(i), packet.getSegmentOffset(i), packet.getSegmentLength(i));
+		}
+	}
 
-			/* 2.X 版本开始不使用 BODY
-			System.arraycopy(packet.body, 0, data, PSL_TAG + PSL_VERSION + PSL_SN + PSL_BODY_LENGTH, packet.body.length);
-			*/
+	/**
+	 * 将指定的包序列化为可以直接写入指定消息服务的消息。
+	 * 
+	 * 帧头、包数据和帧尾一次写入从消息服务的输出缓存池借出的缓存，发送时直接写入通道，不再复制数据。
+	 * 超过缓存池容量的包使用独立分配的缓存。
+	 * 
+	 * @param packet 指定待处理的包对象。
+	 * @param service 指定发送消息的消息服务。
+	 * @return 返回包含已编码帧缓存的消息。
+	 */
+	public static Message pack(Packet packet, MessageService service) {
+		int length = packet.getPackedLength();
+		int headLength = FragmentCodec.headLength(service);
+		int total = headLength + length + FragmentCodec.tailLength(service);
+
+		ByteBufferPool pool = service.getOutputBufferPool();
+		ByteBuffer buffer = null;
+		if (total <= pool.getCapacity()) {
+			buffer = pool.lease();
+		}
+		else {
+			buffer = ByteBuffer.allocate(total);
+			pool = null;
+		}
+
+		FragmentCodec.putHead(service, length, buffer);
+		pack(packet, buffer);
+		FragmentCodec.putTail(service, buffer);
+		buffer.flip();
 
-			return data;
+		return new Message(buffer, headLength, length, service, pool);
+	}
+
+	/**
+	 * 将已序列化的包数据封装为可以直接写入指定消息服务的消息。
+	 * 
+	 * 用于将同一份序列化数据发送给多个会话，每个消息复制一次数据到独立的帧缓存，
+	 * 因此各会话可以在帧缓存上分别加密。
+	 * 
+	 * @param data 指定 {@link #pack(Packet)} 输出的序列化数据。
+	 * @param service 指定发送消息的消息服务。
+	 * @return 返回包含已编码帧缓存的消息。
+	 */
+	public static Message frame(byte[] data, MessageService service) {
+		int length = data.length;
+		int headLength = FragmentCodec.headLength(service);
+		int total = headLength + length + FragmentCodec.tailLength(service);
+
+		ByteBufferPool pool = service.getOutputBufferPool();
+		ByteBuffer buffer = null;
+		if (total <= pool.getCapacity()) {
+			buffer = pool.lease();
+		}
+		else {
+			buffer = ByteBuffer.allocate(total);
+			pool = null;
 		}
+
+		FragmentCodec.putHead(service, length, buffer);
+		buffer.put(data);
+		FragmentCodec.putTail(service, buffer);
+		buffer.flip();
+
+		return new Message(buffer, headLength, length, service, pool);
 	}
 
 	/**
 	 * 将指定的数据反序列化为包对象。
 	 * 
+	 * 包头在原始数据上直接解析，返回的包对象的数据段是原始数据上的视图，解包过程不复制数据。
+	 * 因此在包对象使用完毕之前不能修改原始数据。
+	 * 
 	 * @param data 指定待处理的序列化数据。
 	 * @return 返回反序列化的包对象。
 	 * 
@@ -394,59 +622,48 @@ public final class Packet {
 				return null;
 			}
 
-			int dataCursor = 0;
-
 			// 解析版本号
 			int major = data[0];
 			int minor = data[1];
-			// 更新游标
-			dataCursor = 2;
+			int dataCursor = PFB_VERSION + PFB_RES;
 
-			// 解析 TAG
-			byte[] tag = new byte[PFB_TAG];
-			System.arraycopy(data, dataCursor, tag, 0, PFB_TAG);
-			// 更新游标
+			// TAG 位置
+			int tagOffset = dataCursor;
 			dataCursor += PFB_TAG;
 
 			// 解析 SN
-			byte[] snBytes = new byte[PFB_SN];
-			System.arraycopy(data, dataCursor, snBytes, 0, PFB_SN);
-			int sn = ByteUtils.toShort(snBytes);
-			// 更新游标
+			int sn = ByteUtils.toShort(data, dataCursor);
 			dataCursor += PFB_SN;
 
 			// 解析 SMN
-			byte[] smnBytes = new byte[PFB_SEGMENT_NUM];
-			System.arraycopy(data, dataCursor, smnBytes, 0, PFB_SEGMENT_NUM);
-			short smn = ByteUtils.toShort(smnBytes);
-			// 更新游标
+			short smn = ByteUtils.toShort(data, dataCursor);
 			dataCursor += PFB_SEGMENT_NUM;
 
+			if (smn < 0 || totalSize < dataCursor + smn * PFB_SEGMENT_LENGTH) {
+				// 数据不完整
+				return null;
+			}
+
 			// 创建数据包
-			Packet packet = new Packet(tag, sn, major, minor);
+			Packet packet = new Packet(data, tagOffset, sn, major, minor, smn);
 
 			if (smn > 0) {
-				// 解析动态数据段长度
-				int[] segmentLengths = new int[smn];
-				for (short i = 0; i < smn; ++i) {
-					byte[] lenBytes = new byte[PFB_SEGMENT_LENGTH];
-					System.arraycopy(data, dataCursor, lenBytes, 0, PFB_SEGMENT_LENGTH);
-					segmentLengths[i] = ByteUtils.toInt(lenBytes);
-					// 更新游标
-					dataCursor += PFB_SEGMENT_LENGTH;
-				}
+				// 解析动态数据段长度和位置
+				int[] views = packet.views;
+				int segmentCursor = dataCursor + smn * PFB_SEGMENT_LENGTH;
+				for (int i = 0; i < smn; ++i) {
+					int length = ByteUtils.toInt(data, dataCursor);
+					if (length < 0 || segmentCursor + length > totalSize) {
+						throw new ArrayIndexOutOfBoundsException("Segment length out of bounds: " + length);
+					}
+
+					views[i << 1] = segmentCursor;
+					views[(i << 1) + 1] = length;
 
-				// 解析动态数据段数据
-				for (short i = 0; i < smn; ++i) {
-					int length = segmentLengths[i];
-					byte[] segment = new byte[length];
-					System.arraycopy(data, dataCursor, segment, 0, length);
-					packet.appendSegment(segment);
 					// 更新游标
-					dataCursor += length;
+					dataCursor += PFB_SEGMENT_LENGTH;
+					segmentCursor += length;
 				}
-
-				segmentLengths = null;
 			}
 
 			return packet;
@@ -457,145 +674,121 @@ public final class Packet {
 				return null;
 			}
 
-			// 解析 Tag
-			byte[] bTag = new byte[PSL_TAG];
-			System.arraycopy(data, 0, bTag, 0, PSL_TAG);
-
 			// 解析 Version
-			byte[] bMinor = new byte[2];
-			byte[] bMajor = new byte[2];
-			System.arraycopy(data, PSL_TAG, bMinor, 0, 2);
-			System.arraycopy(data, PSL_TAG + 2, bMajor, 0, 2);
 			int minor = 0;
 			int major = 0;
 			try {
-				minor = Integer.parseInt(new String(bMinor));
-				major = Integer.parseInt(new String(bMajor));
+				minor = parseDigits(data, PSL_TAG, 2);
+				major = parseDigits(data, PSL_TAG + 2, 2);
 			} catch (NumberFormatException e) {
 				Logger.log(Packet.class, e, LogLevel.ERROR);
 				return null;
 			}
 
 			// 解析 SN
-			byte[] bSN = new byte[PSL_SN];
-			System.arraycopy(data, PSL_TAG + PSL_VERSION, bSN, 0, PSL_SN);
-			int sn = Integer.parseInt(new String(bSN));
+			int sn = parseDigits(data, PSL_TAG + PSL_VERSION, PSL_SN);
 
 			// 解析 Body 段长度
-			byte[] bBodyLength = new byte[PSL_PAYLOAD_LENGTH];
-			System.arraycopy(data, PSL_TAG + PSL_VERSION + PSL_SN,
-					bBodyLength, 0, PSL_PAYLOAD_LENGTH);
-			int bodyLength = Integer.parseInt(new String(bBodyLength));
+			int bodyLength = parseDigits(data, PSL_TAG + PSL_VERSION + PSL_SN, PSL_PAYLOAD_LENGTH);
 
-			// 创建实例
-			Packet packet = new Packet(bTag, sn, major, minor);
+			int begin = PSL_TAG + PSL_VERSION + PSL_SN + PSL_PAYLOAD_LENGTH;
 
-			if (datalen > PSL_TAG + PSL_VERSION + PSL_SN + PSL_PAYLOAD_LENGTH) {
+			if (datalen > begin) {
 				// 确认有 BODY 段，校验 BODY 段长度
-				if ((datalen - (PSL_TAG + PSL_VERSION + PSL_SN + PSL_PAYLOAD_LENGTH)) != bodyLength) {
+				if ((datalen - begin) != bodyLength) {
 					Logger.w(Packet.class, "Packet length exception : bytes-length=" + datalen + " body-length=" + bodyLength);
 				}
 
-				int begin = PSL_TAG + PSL_VERSION + PSL_SN + PSL_PAYLOAD_LENGTH;
-
 				// 判断是否符合子段分割形式
-				byte[] bSubNum = new byte[PSL_SEGMENT_NUM];
-				System.arraycopy(data, begin, bSubNum, 0, PSL_SEGMENT_NUM);
-				// 判断是否是数字
 				for (int i = 0; i < PSL_SEGMENT_NUM; ++i) {
-					if (false == Character.isDigit(bSubNum[i])) {
+					if (false == Character.isDigit(data[begin + i])) {
 						// 不是数字，直接使用 Body
-						byte[] body = new byte[bodyLength];
-						System.arraycopy(data, begin, body, 0, bodyLength);
 						/* 2.x 版本开始不再提供直接设置负载数据的方式
 						 * packet.setBody(body);
 						 */
-						return packet;
+						return new Packet(data, 0, sn, major, minor, 0);
 					}
 				}
 
 				// 解析子段数量
-				int subNum = Integer.parseInt(new String(bSubNum));
-				bSubNum = null;
-
-				int[] subsegmentLengthArray = new int[subNum];
+				int subNum = parseDigits(data, begin, PSL_SEGMENT_NUM);
 				begin += PSL_SEGMENT_NUM;
 
-				// 解析子段长度
-				for (int i = 0; i < subNum; ++i) {
-					byte[] bSubLength = new byte[PSL_SEGMENT_LENGTH];
-					System.arraycopy(data, begin, bSubLength, 0, PSL_SEGMENT_LENGTH);
-					subsegmentLengthArray[i] = Integer.parseInt(new String(bSubLength));
-					begin += PSL_SEGMENT_LENGTH;
-					bSubLength = null;
-				}
+				// 创建实例
+				Packet packet = new Packet(data, 0, sn, major, minor, subNum);
 
-				// 解析子段数据
+				// 解析子段长度和位置
+				int[] views = packet.views;
+				int segmentCursor = begin + subNum * PSL_SEGMENT_LENGTH;
 				for (int i = 0; i < subNum; ++i) {
-					int length = subsegmentLengthArray[i];
-					byte[] subsegment = new byte[length];
-					System.arraycopy(data, begin, subsegment, 0, length);
-					begin += length;
+					int length = parseDigits(data, begin, PSL_SEGMENT_LENGTH);
+					if (segmentCursor + length > datalen) {
+						throw new ArrayIndexOutOfBoundsException("Segment length out of bounds: " + length);
+					}
 
-					// 添加子段
-					packet.appendSegment(subsegment);
+					views[i << 1] = segmentCursor;
+					views[(i << 1) + 1] = length;
+
+					begin += PSL_SEGMENT_LENGTH;
+					segmentCursor += length;
 				}
+
+				return packet;
 			}
 
-			return packet;
+			return new Packet(data, 0, sn, major, minor, 0);
 		}
 	}
 
-	private static String fastFormatNumber(int number, int limit) {
-		switch (limit) {
-		case 2:
-			if (number < 10) {
-				return "0" + number;
-			}
-			else {
-				return Integer.toString(number);
-			}
-		case 4:
-			if (number < 10) {
-				return "000" + number;
-			}
-			else if (number >= 10 && number < 100) {
-				return "00" + number;
-			}
-			else if (number >= 100 && number < 1000) {
-				return "0" + number;
-			}
-			else {
-				return Integer.toString(number);
-			}
-		case 8:
-			if (number < 10) {
-				return "0000000" + number;
-			}
-			else if (number >= 10 && number < 100) {
-				return "000000" + number;
-			}
-			else if (number >= 100 && number < 1000) {
-				return "00000" + number;
-			}
-			else if (number >= 1000 && number < 10000) {
-				return "0000" + number;
-			}
-			else if (number >= 10000 && number < 100000) {
-				return "000" + number;
-			}
-			else if (number >= 100000 && number < 1000000) {
-				return "00" + number;
-			}
-			else if (number >= 1000000 && number < 10000000) {
-				return "0" + number;
-			}
-			else {
-				return Integer.toString(number);
+	/**
+	 * 在原始数据上直接解析十进制数字字符。
+	 * 
+	 * @param data 指定数据。
+	 * @param offset 指定起始位置。
+	 * @param length 指定数字字符数量。
+	 * @return 返回解析出的数值。
+	 * @throws NumberFormatException 如果包含非数字字符。
+	 */
+	private static int parseDigits(byte[] data, int offset, int length) throws NumberFormatException {
+		int value = 0;
+		for (int i = offset, end = offset + length; i < end; ++i) {
+			int digit = data[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw new NumberFormatException("For input string: \"" + new String(data, offset, length) + "\"");
 			}
-		default:
-			return Integer.toString(number);
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	/**
+	 * 以小端序向缓存写入 2 字节整数。
+	 */
+	private static void putShort(ByteBuffer buffer, int value) {
+		buffer.put((byte) value);
+		buffer.put((byte) (value >>> 8));
+	}
+
+	/**
+	 * 以小端序向缓存写入 4 字节整数。
+	 */
+	private static void putInt(ByteBuffer buffer, int value) {
+		buffer.put((byte) value);
+		buffer.put((byte) (value >>> 8));
+		buffer.put((byte) (value >>> 16));
+		buffer.put((byte) (value >>> 24));
+	}
+
+	/**
+	 * 向缓存写入指定位数的十进制数字字符，不足位数时在高位补零。
+	 */
+	private static void putDigits(ByteBuffer buffer, int value, int width) {
+		int position = buffer.position();
+		for (int i = width - 1; i >= 0; --i) {
+			buffer.put(position + i, (byte) ('0' + (value % 10)));
+			value /= 10;
 		}
+		buffer.position(position + width);
 	}
 
 	/* Just for test
@@ -27,45 +27,69 @@ THE SOFTWARE.
 package net.cellcloud.common;
 
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
-/** 配置计算器。
- * 
+/**
+ * 配额计算器。
+ *
+ * 使用令牌桶算法计算配额。令牌按照配额速率连续补充，桶的容量为一个计算周期的配额。
+ * 令牌在每次访问时按流逝的时间补充，不依赖定时任务，因此补充粒度小于一秒。
+ * I/O 线程应当使用 {@link #delay()} 和 {@link #acquire(int)} 进行非阻塞的配额控制，
+ * {@link #consume(int, QuotaCalculatorCallback, Object)} 会阻塞调用线程，仅用于非 I/O 线程。
+ *
  * @author Ambrose Xu
  *
  */
 public class QuotaCalculator {
 
+	/** 一秒对应的纳秒数。 */
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
 	/** 标准配额数值。 */
 	private volatile int quota = 102400;
 
-	/** 运行时配额计数。 */
-	private AtomicInteger runtime;
+	/** 当前令牌数。令牌数为负值表示已透支。 */
+	private double tokens;
+	/** 上一次补充令牌的时间，单位：纳秒。 */
+	private long lastRefillTime;
 
-	/** 任务执行器。 */
-	private ScheduledExecutorService scheduledExecutor;
-	/** 当前任务的 Furture 。 */
-	private ScheduledFuture<?> future;
+	/** 计算器是否已启动。 */
+	private volatile boolean running;
 
 	/** 上一次拥塞大小。 */
 	private volatile long lastBlockingSize;
 	/** 上一次拥塞的时间戳。 */
 	private volatile long lastBlockingTime;
 
+	/** 超出配额的累计字节数。 */
+	private long throttledBytes;
+	/** 因配额不足而被推迟的累计次数。 */
+	private long deferrals;
+
 	/**
 	 * 构造函数。
 	 * 
-	 * @param scheduledExecutor 任务执行器。
+	 * @param scheduledExecutor 任务执行器。令牌桶不再需要定时任务，保留该参数以兼容已有调用。
 	 * @param quotaInSecond 以秒为计算周期的配额。
 	 */
 	public QuotaCalculator(ScheduledExecutorService scheduledExecutor, int quotaInSecond) {
-		this.scheduledExecutor = scheduledExecutor;
+		this(quotaInSecond);
+	}
+
+	/**
+	 * 构造函数。
+	 * 
+	 * @param quotaInSecond 以秒为计算周期的配额。
+	 */
+	public QuotaCalculator(int quotaInSecond) {
 		this.quota = quotaInSecond;
-		this.runtime = new AtomicInteger(quotaInSecond);
+		this.tokens = quotaInSecond;
+		this.lastRefillTime = System.nanoTime();
+		this.running = false;
 		this.lastBlockingSize = 0;
 		this.lastBlockingTime = 0;
+		this.throttledBytes = 0;
+		this.deferrals = 0;
 	}
 
 	/**
@@ -74,7 +98,13 @@ public class QuotaCalculator {
 	 * @param quotaInSecond 以秒为计算周期的配额。
 	 */
 	public void setQuota(int quotaInSecond) {
-		this.quota = quotaInSecond;
+		synchronized (this) {
+			this.refill(System.nanoTime());
+			this.quota = quotaInSecond;
+			if (this.tokens > quotaInSecond) {
+				this.tokens = quotaInSecond;
+			}
+		}
 	}
 
 	/**
@@ -104,55 +134,124 @@ public class QuotaCalculator {
 		return this.lastBlockingTime;
 	}
 
+	/**
+	 * 获得超出配额的累计字节数。
+	 * 
+	 * @return 返回超出配额的累计字节数。
+	 */
+	public synchronized long getThrottledBytes() {
+		return this.throttledBytes;
+	}
+
+	/**
+	 * 获得因配额不足而被推迟的累计次数。
+	 * 
+	 * @return 返回因配额不足而被推迟的累计次数。
+	 */
+	public synchronized long getDeferrals() {
+		return this.deferrals;
+	}
+
 	/**
 	 * 启动计算器。
 	 */
 	public void start() {
-		this.future = this.scheduledExecutor.scheduleWithFixedDelay(new Runnable() {
-			@Override
-			public void run() {
-				if (runtime.get() < 0) {
-					runtime.set(quota + runtime.get());
-				}
-				else {
-					runtime.set(quota);
-				}
+		synchronized (this) {
+			this.tokens = this.quota;
+			this.lastRefillTime = System.nanoTime();
+			this.running = true;
+		}
+	}
 
-				synchronized (runtime) {
-					runtime.notifyAll();
-				}
+	/**
+	 * 停止计算器。停止后不再限制配额，并唤醒所有阻塞在 {@link #consume(int, QuotaCalculatorCallback, Object)} 上的线程。
+	 */
+	public void stop() {
+		synchronized (this) {
+			this.running = false;
+			this.notifyAll();
+		}
+	}
+
+	/**
+	 * 计算器是否已启动。
+	 * 
+	 * @return 如果计算器已启动返回 <code>true</code> 。
+	 */
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	/**
+	 * 获得令牌恢复到可用状态需要等待的时间。该方法不阻塞，也不统计推迟次数，
+	 * 调用者确定推迟后使用 {@link #countDeferral()} 记录。
+	 * 
+	 * @return 返回需要等待的纳秒数。返回 <code>0</code> 表示当前配额可用。
+	 */
+	public long delay() {
+		if (!this.running || this.quota <= 0) {
+			return 0;
+		}
+
+		synchronized (this) {
+			this.refill(System.nanoTime());
+
+			if (this.tokens >= 0) {
+				return 0;
 			}
-		}, 1L, 1L, TimeUnit.SECONDS);
+
+			// 按配额速率计算偿还透支所需的时间，至少等待 1 毫秒
+			long nanos = (long) Math.ceil(-this.tokens * NANOS_PER_SECOND / this.quota);
+			return Math.max(nanos, TimeUnit.MILLISECONDS.toNanos(1));
+		}
 	}
 
 	/**
-	 * 停止计算器。
+	 * 记录一次因配额不足而推迟的操作。
+	 * 
+	 * 多个配额计算器共同限制同一次操作时，只由等待时间最长的计算器记录，避免重复统计。
 	 */
-	public void stop() {
-		if (null != this.future) {
-			this.future.cancel(false);
-			this.future = null;
+	protected synchronized void countDeferral() {
+		++this.deferrals;
+	}
+
+	/**
+	 * 获取配额。该方法不阻塞，配额不足时允许透支，透支部分在后续补充令牌时偿还。
+	 * 
+	 * @param value 指定获取的配额值。
+	 */
+	public void acquire(int value) {
+		if (!this.running || this.quota <= 0 || value <= 0) {
+			return;
 		}
 
-		synchronized (this.runtime) {
-			this.runtime.notifyAll();
+		synchronized (this) {
+			this.refill(System.nanoTime());
+
+			double available = Math.max(this.tokens, 0);
+			if (value > available) {
+				this.throttledBytes += (long) (value - available);
+			}
+
+			this.tokens -= value;
 		}
 	}
 
 	/**
-	 * 消耗配额。
+	 * 消耗配额。配额不足时阻塞调用线程直到令牌恢复，因此不能在 I/O 线程中调用。
 	 * 
 	 * @param value 指定消耗值。
 	 * @param callback 指定发生阻塞时的回调。
 	 * @param custom 指定回调时的自定义数据对象。
 	 */
 	public void consume(int value, QuotaCalculatorCallback callback, Object custom) {
-		if (null == this.future) {
+		if (!this.running) {
 			return;
 		}
 
-		if (this.runtime.get() <= 0) {
-//			Logger.d(this.getClass(), "Out of quota: " + this.quota);
+		long nanos = this.delay();
+		if (nanos > 0) {
+			this.countDeferral();
 
 			this.lastBlockingTime = System.currentTimeMillis();
 
@@ -162,18 +261,39 @@ public class QuotaCalculator {
 				callback.onCallback(value, custom);
 			}
 
-			synchronized (this.runtime) {
-				try {
-					this.runtime.wait();
-				} catch (InterruptedException e) {
-					e.printStackTrace();
+			synchronized (this) {
+				long deadline = System.nanoTime() + nanos;
+				while (this.running && nanos > 0) {
+					try {
+						TimeUnit.NANOSECONDS.timedWait(this, nanos);
+					} catch (InterruptedException e) {
+						Logger.log(QuotaCalculator.class, e, LogLevel.DEBUG);
+						break;
+					}
+
+					nanos = deadline - System.nanoTime();
 				}
 			}
 
 			this.lastBlockingSize -= value;
 		}
 
-		this.runtime.set(this.runtime.get() - value);
+		this.acquire(value);
+	}
+
+	/**
+	 * 按流逝的时间补充令牌。
+	 * 
+	 * @param now 指定当前时间，单位：纳秒。
+	 */
+	private void refill(long now) {
+		long elapsed = now - this.lastRefillTime;
+		if (elapsed <= 0) {
+			return;
+		}
+
+		this.lastRefillTime = now;
+		this.tokens = Math.min(this.quota, this.tokens + (double) elapsed * this.quota / NANOS_PER_SECOND);
 	}
 
 }
@@ -53,11 +53,26 @@ public class Session implements Comparable<Object> {
 	/** 会话的密钥。 */
 	private byte[] secretKey;
 
+	/** 对端是否能接收续传帧。 */
+	private volatile boolean fragmentable = false;
+
 	/** 数据缓存。 */
 	protected byte[] cache;
 	/** 当前数据缓存的游标。 */
 	protected int cacheCursor;
 
+	/** 长度帧模式下正在接收的帧数据。 */
+	protected byte[] frame;
+	/** 长度帧模式下正在接收的帧数据的游标。 */
+	protected int frameCursor;
+	/** 长度帧模式下正在接收的帧是否是续传帧。 */
+	protected boolean frameMore;
+
+	/** 正在重组的分片消息数据。 */
+	protected byte[] fragment;
+	/** 正在重组的分片消息数据的游标。 */
+	protected int fragmentCursor;
+
 	/** 属性映射，用于存储会话的属性。 */
 	private ConcurrentHashMap<String, Object> attributes;
 
@@ -232,6 +247,24 @@ public class Session implements Comparable<Object> {
 		this.secretKey = null;
 	}
 
+	/**
+	 * 对端是否能接收续传帧。
+	 * 
+	 * @return 协商了分片传输时返回 <code>true</code> 。
+	 */
+	public boolean isFragmentable() {
+		return this.fragmentable;
+	}
+
+	/**
+	 * 设置对端是否能接收续传帧。未协商分片传输的会话不能发送超过写限制的消息。
+	 * 
+	 * @param fragmentable 指定是否能接收续传帧。
+	 */
+	public void setFragmentable(boolean fragmentable) {
+		this.fragmentable = fragmentable;
+	}
+
 	/**
 	 * 获得安全密钥。
 	 * 
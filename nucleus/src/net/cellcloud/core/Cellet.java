@@ -26,10 +26,12 @@ THE SOFTWARE.
 
 package net.cellcloud.core;
 
+import java.util.Collection;
 import java.util.Set;
 
 import net.cellcloud.adapter.Adapter;
 import net.cellcloud.adapter.RelationNucleusAdapter;
+import net.cellcloud.talk.BroadcastFuture;
 import net.cellcloud.talk.Primitive;
 import net.cellcloud.talk.TalkService;
 import net.cellcloud.talk.dialect.Dialect;
@@ -108,6 +110,48 @@ public abstract class Cellet extends AbstractCellet {
 		return TalkService.getInstance().notice(targetTag, dialect, this, this.sandbox);
 	}
 
+	/**
+	 * 向一组消费端广播原语。广播异步执行，所有消费端共享同一份编码数据。
+	 * 
+	 * @param targetTags 指定消费端标签清单。
+	 * @param primitive 指定需发送的原语。
+	 * @return 返回广播结果。
+	 */
+	public BroadcastFuture broadcast(Collection<String> targetTags, Primitive primitive) {
+		return TalkService.getInstance().broadcast(targetTags, primitive, this, this.sandbox);
+	}
+
+	/**
+	 * 向一组消费端广播方言。广播异步执行，所有消费端共享同一份编码数据。
+	 * 
+	 * @param targetTags 指定消费端标签清单。
+	 * @param dialect 指定需发送的方言。
+	 * @return 返回广播结果。
+	 */
+	public BroadcastFuture broadcast(Collection<String> targetTags, Dialect dialect) {
+		return TalkService.getInstance().broadcast(targetTags, dialect, this, this.sandbox);
+	}
+
+	/**
+	 * 向所有与当前 Cellet 建立对话的消费端广播原语。
+	 * 
+	 * @param primitive 指定需发送的原语。
+	 * @return 返回广播结果。
+	 */
+	public BroadcastFuture broadcast(Primitive primitive) {
+		return TalkService.getInstance().broadcast(primitive, this, this.sandbox);
+	}
+
+	/**
+	 * 向所有与当前 Cellet 建立对话的消费端广播方言。
+	 * 
+	 * @param dialect 指定需发送的方言。
+	 * @return 返回广播结果。
+	 */
+	public BroadcastFuture broadcast(Dialect dialect) {
+		return TalkService.getInstance().broadcast(dialect, this, this.sandbox);
+	}
+
 	/**
 	 * 关闭消费端会话。
 	 * 
@@ -214,4 +258,24 @@ public abstract class Cellet extends AbstractCellet {
 	public void failed(String tag, int failure, Primitive primitive) {
 		// Nothing
 	}
+
+	/**
+	 * 当终端会话的发送队列超过高水位或回落到低水位时此方法被调用。
+	 * 
+	 * @param tag 终端的内核标签。
+	 * @param writable 为 <code>false</code> 时表示发送队列超过高水位，应暂停向该终端发送数据。
+	 */
+	public void writabilityChanged(String tag, boolean writable) {
+		// Nothing
+	}
+
+	/**
+	 * 判断指定终端当前是否可写。
+	 * 
+	 * @param targetTag 指定消费端标签。
+	 * @return 如果终端可写返回 <code>true</code> 。
+	 */
+	public boolean isWritable(String targetTag) {
+		return TalkService.getInstance().isWritable(targetTag);
+	}
 }
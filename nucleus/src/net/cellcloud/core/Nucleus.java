@@ -47,6 +47,7 @@ import net.cellcloud.adapter.AdapterListenerProfile;
 import net.cellcloud.cluster.ClusterController;
 import net.cellcloud.common.LogLevel;
 import net.cellcloud.common.Logger;
+import net.cellcloud.common.NonblockingConnectorGroup;
 import net.cellcloud.exception.CelletSandboxException;
 import net.cellcloud.exception.SingletonException;
 import net.cellcloud.gateway.GatewayService;
@@ -139,6 +140,11 @@ public final class Nucleus {
 	 */
 	private GatewayService gatewayService = null;
 
+	/**
+	 * 出站连接器共享的事件循环组。
+	 */
+	private NonblockingConnectorGroup connectorGroup = null;
+
 	/**
 	 * Jar 包内的 Cellet 类映射表。
 	 */
@@ -273,6 +279,15 @@ public final class Nucleus {
 		return this.gatewayService;
 	}
 
+	/**
+	 * 获得出站连接器共享的事件循环组。
+	 * 
+	 * @return 返回事件循环组，未启用时返回 <code>null</code> 。
+	 */
+	public NonblockingConnectorGroup getConnectorGroup() {
+		return this.connectorGroup;
+	}
+
 	/**
 	 * 启动内核。
 	 * 
@@ -292,6 +307,17 @@ public final class Nucleus {
 		// 设置角色
 		this.context.role = this.config.role;
 
+		// 启动出站连接器事件循环组
+		if (this.config.numConnectorThreads > 0 && null == this.connectorGroup) {
+			NonblockingConnectorGroup group = new NonblockingConnectorGroup(this.config.numConnectorThreads);
+			if (group.start()) {
+				this.connectorGroup = group;
+			}
+			else {
+				Logger.e(Nucleus.class, "Starting connector group failure.");
+			}
+		}
+
 		if (this.config.role == Role.NODE || this.config.role == Role.GATEWAY) {
 			// 角色：节点或网关
 
@@ -354,6 +380,14 @@ public final class Nucleus {
 				this.talkService.setMaxConnections(this.config.talk.maxConnections);
 				// 设置工作线程数
 				this.talkService.setWorkerThreadNum(this.config.talk.numWorkerThreads);
+				// 设置反应器线程数
+				this.talkService.setReactorThreadNum(this.config.talk.numReactorThreads);
+				// 设置单次发送数据量上限
+				this.talkService.setSendBudget(this.config.talk.sendBudget);
+				// 设置发送队列水位及溢出策略
+				this.talkService.setWatermarks(this.config.talk.lowWatermarkBytes, this.config.talk.highWatermarkBytes,
+						this.config.talk.lowWatermarkMessages, this.config.talk.highWatermarkMessages);
+				this.talkService.setOverflowPolicy(this.config.talk.overflowPolicy);
 				// 设置是否启用 HTTP 服务
 				this.talkService.httpEnabled(this.config.talk.httpEnabled);
 				// 设置 HTTP 端口号
@@ -368,16 +402,22 @@ public final class Nucleus {
 				// 配置 Action 方言工厂
 				ActionDialectFactory adf = (ActionDialectFactory) DialectEnumerator.getInstance().getFactory(ActionDialect.DIALECT_NAME);
 				adf.setMaxThreadNum(this.config.talk.actionMaxThread);
+				adf.setMaxPendingNum(this.config.talk.actionMaxPending);
+				adf.setOverflowPolicy(this.config.talk.actionOverflowPolicy);
 
 				// 配置 Chunk 方言工厂
 				ChunkDialectFactory cdf = (ChunkDialectFactory) DialectEnumerator.getInstance().getFactory(ChunkDialect.DIALECT_NAME);
 				cdf.setMaxCacheMemorySize(this.config.talk.maxChunkMemorySize);
 				cdf.setMaxFileCacheSpace(this.config.talk.maxChunkFileSize);
+				cdf.setWindowSize(this.config.talk.chunkWindowSize);
+				cdf.setChunkSize(this.config.talk.chunkSize);
 
 				// 启动 Talk Service
 				if (this.talkService.startup()) {
 					// 配置运行时参数
 					this.talkService.setMaxWorkerBandwidth(this.config.talk.maxWorkerBandwidth);
+					this.talkService.setMaxSessionBandwidth(this.config.talk.maxSessionBandwidth);
+					this.talkService.setMaxTotalBandwidth(this.config.talk.maxTotalBandwidth);
 
 					Logger.i(Nucleus.class, "Starting talk service (" + this.config.talk.port + ") success.");
 				}
@@ -552,6 +592,12 @@ public final class Nucleus {
 			this.talkService.stopDaemon();
 		}
 
+		// 关闭出站连接器事件循环组
+		if (null != this.connectorGroup) {
+			this.connectorGroup.stop();
+			this.connectorGroup = null;
+		}
+
 		// 关闭时钟
 		Clock.stop();
 	}
@@ -29,6 +29,9 @@ package net.cellcloud.core;
 import java.net.InetSocketAddress;
 import java.util.List;
 
+import net.cellcloud.common.OverflowPolicy;
+import net.cellcloud.talk.dialect.ActionOverflowPolicy;
+
 /**
  * 内核参数配置描述。
  * 
@@ -49,6 +52,9 @@ public final class NucleusConfig {
 	/** 是否启用 HTTP 服务器。 */
 	public boolean httpd = true;
 
+	/** 出站连接器共享的事件循环线程数。为 0 时每个连接器使用独立的数据处理线程。 */
+	public int numConnectorThreads = 0;
+
 	/** Talk Service 配置。 */
 	public TalkConfig talk;
 
@@ -86,8 +92,29 @@ public final class NucleusConfig {
 		/** 工作线程数。 */
 		public int numWorkerThreads = 8;
 
+		/** 反应器线程数。为 0 时使用单线程事件分发。 */
+		public int numReactorThreads = 0;
+
+		/** 每个会话单次聚集发送的数据量上限。单位：字节。 */
+		public int sendBudget = 65536;
+
+		/** 会话发送队列字节数低水位。单位：字节。 */
+		public long lowWatermarkBytes = 4 * 1024 * 1024;
+		/** 会话发送队列字节数高水位。单位：字节。为 0 时不检查。 */
+		public long highWatermarkBytes = 8 * 1024 * 1024;
+		/** 会话发送队列消息数低水位。 */
+		public int lowWatermarkMessages = 0;
+		/** 会话发送队列消息数高水位。为 0 时不检查。 */
+		public int highWatermarkMessages = 0;
+		/** 会话发送队列超过高水位后的溢出策略。 */
+		public OverflowPolicy overflowPolicy = OverflowPolicy.NONE;
+
 		/** 每个工作线程的允许使用的最大带宽。单位：字节/秒。 */
 		public int maxWorkerBandwidth = 2 * 1024 * 1024;
+		/** 每个会话允许使用的最大带宽。单位：字节/秒。为 0 时不限制。 */
+		public int maxSessionBandwidth = 0;
+		/** 所有工作线程共享的最大带宽。单位：字节/秒。为 0 时不限制。 */
+		public int maxTotalBandwidth = 0;
 
 		/** 是否使用 HTTP 服务。 */
 		public boolean httpEnabled = true;
@@ -114,6 +141,10 @@ public final class NucleusConfig {
 
 		/** Action 方言工厂最大线程数量。 */
 		public int actionMaxThread = 16;
+		/** Action 方言工厂最大待处理动作数量，小于等于 <code>0</code> 时不限制。 */
+		public int actionMaxPending = 10000;
+		/** Action 方言工厂待处理动作数量达到上限时的处理策略。 */
+		public ActionOverflowPolicy actionOverflowPolicy = ActionOverflowPolicy.REJECT;
 
 		/** Chunk 方言工厂的文件缓存路径。 */
 		public String chunkFilePath = "_chunks/";
@@ -121,6 +152,10 @@ public final class NucleusConfig {
 		public long maxChunkMemorySize = 100L * 1024L * 1024L;
 		/** Chunk 方言工厂的最大文件缓存大小。 */
 		public long maxChunkFileSize = 1024L * 1024L * 1024L;
+		/** Chunk 方言工厂的发送窗口大小，小于等于 <code>0</code> 时不等待接收方确认。 */
+		public int chunkWindowSize = 32;
+		/** Chunk 方言工厂期望的区块大小。 */
+		public int chunkSize = 2048;
 
 		private TalkConfig() {
 		}
@@ -35,6 +35,7 @@ import net.cellcloud.common.MessageHandler;
 import net.cellcloud.common.NonblockingConnector;
 import net.cellcloud.common.Packet;
 import net.cellcloud.common.Session;
+import net.cellcloud.core.Nucleus;
 import net.cellcloud.exception.StorageException;
 import net.cellcloud.storage.ResultSet;
 import net.cellcloud.storage.StorageEnumerator;
@@ -183,7 +184,8 @@ public final class FileExpressTask implements MessageHandler, Runnable {
 		}
 		resultSet.next();
 
-		NonblockingConnector connector = new NonblockingConnector();
+		Nucleus nucleus = Nucleus.getInstance();
+		NonblockingConnector connector = new NonblockingConnector((null != nucleus) ? nucleus.getConnectorGroup() : null);
 		byte[] headMark = {0x10, 0x04, 0x11, 0x24};
 		byte[] tailMark = {0x11, 0x24, 0x10, 0x04};
 		connector.defineDataMark(headMark, tailMark);
@@ -472,7 +474,8 @@ public final class FileExpressTask implements MessageHandler, Runnable {
 			return;
 		}
 
-		NonblockingConnector connector = new NonblockingConnector();
+		Nucleus nucleus = Nucleus.getInstance();
+		NonblockingConnector connector = new NonblockingConnector((null != nucleus) ? nucleus.getConnectorGroup() : null);
 		byte[] headMark = {0x10, 0x04, 0x11, 0x24};
 		byte[] tailMark = {0x11, 0x24, 0x10, 0x04};
 		connector.defineDataMark(headMark, tailMark);
@@ -50,6 +50,7 @@ import net.cellcloud.talk.http.HttpDialogueHandler;
 import net.cellcloud.talk.http.HttpInterceptable;
 import net.cellcloud.talk.stuff.PrimitiveSerializer;
 import net.cellcloud.talk.stuff.StuffVersion;
+import net.cellcloud.util.ByteArrayBuffer;
 import net.cellcloud.util.Utils;
 
 import org.json.JSONException;
@@ -167,7 +168,7 @@ public class ProxyForwarder implements MessageInterceptor, HttpInterceptable {
 	public boolean interceptMessage(final Session session, Message message) {
 		final byte[] data = message.get();
 
-		if (session instanceof WebSocketSession) {
+		if (session instanceof WebSocketSession && !((WebSocketSession) session).isBinary()) {
 			// WS Speaker
 			boolean dialogue = false;
 			for (int i = 0, len = data.length - 8; i < len; ++i) {
@@ -295,12 +296,12 @@ public class ProxyForwarder implements MessageInterceptor, HttpInterceptable {
 					primitive.setVersion(version);
 				}
 
-				// 序列化原语
-				ByteArrayOutputStream stream = primitive.write();
+				// 序列化原语，数据包在当前线程内打包完成，直接引用线程复用的缓存
+				ByteArrayBuffer stream = PrimitiveSerializer.write(primitive);
 
 				// 封装数据包
 				Packet packet = new Packet(TalkDefinition.TPT_DIALOGUE, 99, 2, 0);
-				packet.appendSegment(stream.toByteArray());
+				packet.appendSegment(stream.array(), 0, stream.length());
 				packet.appendSegment(Utils.string2Bytes(speakerTag));
 				packet.appendSegment(Utils.string2Bytes(celletIdentifier));
 
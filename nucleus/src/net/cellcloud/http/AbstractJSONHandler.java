@@ -202,4 +202,21 @@ public abstract class AbstractJSONHandler extends HttpHandler {
 		}
 	}
 
+	/**
+	 * 使用已编码的 JSON 数据进行成功应答。
+	 * 
+	 * @param response 指定 HTTP 应答。
+	 * @param data 指定 UTF-8 编码的 JSON 数据。
+	 * @param offset 指定数据偏移。
+	 * @param length 指定数据长度。
+	 * @throws IOException
+	 */
+	protected void respondWithOk(HttpResponse response, byte[] data, int offset, int length) throws IOException {
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+		response.setStatus(HttpResponse.SC_OK);
+
+		response.write(data, offset, length);
+	}
+
 }
@@ -26,6 +26,10 @@ THE SOFTWARE.
 
 package net.cellcloud.http;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
 /**
  * 用于代理跨域 HTTP 响应。
  * 
@@ -67,4 +71,15 @@ public class CrossDomainResponse extends HttpResponse {
 		this.response.respond(timestamp, callback);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * 跨域应答的数据需要由 {@link #respond(long, String, String)} 包装后输出，因此数据写入应答的缓存。
+	 */
+	@Override
+	public void write(byte[] data, int offset, int length) throws IOException {
+		PrintWriter out = this.response.getWriter();
+		out.print(new String(data, offset, length, Charset.forName("UTF-8")));
+	}
+
 }
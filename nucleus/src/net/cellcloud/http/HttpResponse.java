@@ -27,6 +27,7 @@ THE SOFTWARE.
 package net.cellcloud.http;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 
 import javax.servlet.http.HttpServletResponse;
@@ -210,6 +211,21 @@ public class HttpResponse {
 		return this.response.getWriter();
 	}
 
+	/**
+	 * 写入已编码的应答数据。数据直接写入输出流，不经过字符编码转换。
+	 * 
+	 * @param data 指定应答数据。
+	 * @param offset 指定数据偏移。
+	 * @param length 指定数据长度。
+	 * @throws IOException
+	 */
+	public void write(byte[] data, int offset, int length) throws IOException {
+		this.response.setContentLength(length);
+		OutputStream out = this.response.getOutputStream();
+		out.write(data, offset, length);
+		out.flush();
+	}
+
 	/**
 	 * 获得原始的 Servlet Response 对象。
 	 * 
@@ -30,6 +30,7 @@ import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
 import java.util.LinkedList;
 
+import net.cellcloud.common.Cryptology;
 import net.cellcloud.common.Logger;
 import net.cellcloud.common.Message;
 import net.cellcloud.common.MessageErrorCode;
@@ -118,6 +119,8 @@ public final class JettyWebSocket implements WebSocketManager {
 	/**
 	 * 当接收到二进制数据时该方法被调用。
 	 * 
+	 * 二进制帧仅用于协商了 {@link WebSocketSession#SUBPROTOCOL_BINARY} 的会话，每个帧携带一个完整的数据包。
+	 * 
 	 * @param session 数据对应的会话。
 	 * @param buf 接收到的数据。
 	 * @param offset 数据偏移量。
@@ -125,24 +128,47 @@ public final class JettyWebSocket implements WebSocketManager {
 	 */
 	@OnWebSocketMessage
 	public void onWebSocketBinary(Session session, byte[] buf, int offset, int length) {
-		Logger.d(this.getClass(), "onWebSocketBinary");
-
 		if (!session.isOpen()) {
 			Logger.w(this.getClass(), "Session is closed");
 			return;
 		}
 
-		/*
-		RemoteEndpoint remote = this.session.getRemote();
-		remote.sendBytes(ByteBuffer.wrap(buf, offset, length), null);
-		if (remote.getBatchMode() == BatchMode.ON) {
-			try {
-				remote.flush();
-			} catch (IOException e) {
-				e.printStackTrace();
+		WebSocketSession wsSession = null;
+		synchronized (this.sessions) {
+			int index = this.sessions.indexOf(session);
+			if (index >= 0) {
+				wsSession = this.wsSessions.get(index);
+			}
+		}
+
+		if (null == wsSession || !wsSession.isBinary()) {
+			Logger.w(this.getClass(), "Binary frame on text session: " + session.getRemoteAddress());
+			return;
+		}
+
+		// 接收流量计数
+		this.rx += length;
+
+		if (null != this.handler) {
+			byte[] data = buf;
+			if (offset != 0 || length != buf.length) {
+				data = new byte[length];
+				System.arraycopy(buf, offset, data, 0, length);
+			}
+
+			// 与 TCP 协议一致，加密会话接收的是密文
+			byte[] key = wsSession.getSecretKey();
+			if (null != key) {
+				data = Cryptology.getInstance().simpleDecrypt(data, key);
+			}
+
+			Message message = new Message(data);
+
+			// 判断是否拦截
+			if (false == (null != this.interceptor && this.interceptor.interceptMessage(wsSession, message))) {
+				this.handler.messageReceived(wsSession, message);
 			}
 		}
-		*/
 	}
 
 	/**
@@ -166,6 +192,11 @@ public final class JettyWebSocket implements WebSocketManager {
 			wsSession = this.wsSessions.get(index);
 		}
 
+		if (wsSession.isBinary()) {
+			Logger.w(this.getClass(), "Text frame on binary session: " + session.getRemoteAddress());
+			return;
+		}
+
 		// 接收流量计数
 		this.rx += text.length();
 
@@ -49,11 +49,17 @@ public final class JettyWebSocketCreator implements WebSocketCreator {
 		this.socket = socket;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * 按照客户端给出的顺序选择第一个支持的子协议，子协议决定会话使用文本帧还是二进制帧。
+	 */
 	@Override
 	public Object createWebSocket(ServletUpgradeRequest request,
 			ServletUpgradeResponse response) {
 		for (String protocol : request.getSubProtocols()) {
-			if (protocol.equals("cell")) {
+			if (protocol.equals(WebSocketSession.SUBPROTOCOL_TEXT)
+					|| protocol.equals(WebSocketSession.SUBPROTOCOL_BINARY)) {
 				response.setAcceptedSubProtocol(protocol);
 				return this.socket;
 			}
@@ -28,8 +28,10 @@ package net.cellcloud.http;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
+import net.cellcloud.common.Cryptology;
 import net.cellcloud.common.LogLevel;
 import net.cellcloud.common.Logger;
 import net.cellcloud.common.Message;
@@ -41,13 +43,24 @@ import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 /**
  * WebSocket 连接的会话。
  * 
+ * 会话的传输方式在建立连接时通过子协议协商：{@link #SUBPROTOCOL_TEXT} 使用 JSON 格式的文本帧，
+ * {@link #SUBPROTOCOL_BINARY} 使用二进制帧，每个帧携带一个与 TCP 协议相同格式的数据包。
+ * 
  * @author Ambrose Xu
  *
  */
 public class WebSocketSession extends Session {
 
+	/** 使用 JSON 文本帧的子协议。 */
+	public final static String SUBPROTOCOL_TEXT = "cell";
+	/** 使用二进制数据包帧的子协议。 */
+	public final static String SUBPROTOCOL_BINARY = "cell.packet";
+
 	private org.eclipse.jetty.websocket.api.Session rawSession;
 
+	/** 是否使用二进制帧。 */
+	private boolean binary;
+
 	/**
 	 * 构造函数。
 	 * 
@@ -57,6 +70,17 @@ public class WebSocketSession extends Session {
 	public WebSocketSession(InetSocketAddress address, org.eclipse.jetty.websocket.api.Session session) {
 		super(null, address);
 		this.rawSession = session;
+		this.binary = (null != session.getUpgradeResponse()
+				&& SUBPROTOCOL_BINARY.equals(session.getUpgradeResponse().getAcceptedSubProtocol()));
+	}
+
+	/**
+	 * 会话是否使用二进制帧传输数据包。
+	 * 
+	 * @return 如果会话协商使用二进制帧返回 <code>true</code> 。
+	 */
+	public boolean isBinary() {
+		return this.binary;
 	}
 
 	/**
@@ -76,7 +100,15 @@ public class WebSocketSession extends Session {
 
 		try {
 			RemoteEndpoint remote = this.rawSession.getRemote();
-			remote.sendString(new String(message.get(), Charset.forName("UTF-8")), null);
+			if (this.binary) {
+				// 与 TCP 协议一致，加密会话发送密文，生成新数组，不修改共享的消息数据
+				byte[] key = this.getSecretKey();
+				byte[] data = (null != key) ? Cryptology.getInstance().simpleEncrypt(message.get(), key) : message.get();
+				remote.sendBytes(ByteBuffer.wrap(data), null);
+			}
+			else {
+				remote.sendString(new String(message.get(), Charset.forName("UTF-8")), null);
+			}
 			if (remote.getBatchMode() == BatchMode.ON) {
 				try {
 					remote.flush();
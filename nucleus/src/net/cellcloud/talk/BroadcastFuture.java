@@ -0,0 +1,122 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.talk;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 广播结果。
+ * 
+ * 广播在内核的广播线程里异步执行，执行完成后可以获得每个目标标签的发送结果。
+ * 结果里标签对应的值为 <code>true</code> 表示数据至少进入了该终端一个会话的发送队列。
+ * 广播不可以取消。
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+public final class BroadcastFuture implements Future<Map<String, Boolean>> {
+
+	/** 完成信号。 */
+	private final CountDownLatch latch;
+
+	/** 每个目标标签的发送结果。 */
+	private volatile Map<String, Boolean> results;
+
+	/**
+	 * 构造函数。
+	 */
+	protected BroadcastFuture() {
+		this.latch = new CountDownLatch(1);
+		this.results = null;
+	}
+
+	/**
+	 * 设置发送结果并完成广播。
+	 * 
+	 * @param results 指定每个目标标签的发送结果。
+	 */
+	protected void complete(Map<String, Boolean> results) {
+		this.results = results;
+		this.latch.countDown();
+	}
+
+	/**
+	 * 获得数据进入发送队列的终端数量。未完成时返回 <code>0</code> 。
+	 * 
+	 * @return 返回数据进入发送队列的终端数量。
+	 */
+	public int numDelivered() {
+		Map<String, Boolean> results = this.results;
+		if (null == results) {
+			return 0;
+		}
+
+		int count = 0;
+		for (Boolean value : results.values()) {
+			if (value.booleanValue()) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return false;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return false;
+	}
+
+	@Override
+	public boolean isDone() {
+		return (this.latch.getCount() == 0);
+	}
+
+	@Override
+	public Map<String, Boolean> get() throws InterruptedException, ExecutionException {
+		this.latch.await();
+		return this.results;
+	}
+
+	@Override
+	public Map<String, Boolean> get(long timeout, TimeUnit unit)
+			throws InterruptedException, ExecutionException, TimeoutException {
+		if (!this.latch.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return this.results;
+	}
+
+}
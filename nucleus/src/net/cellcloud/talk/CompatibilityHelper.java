@@ -54,4 +54,18 @@ public class CompatibilityHelper {
 		}
 	}
 
+	/**
+	 * 通过能力描述匹配语素版本。双方都支持 {@link StuffVersion#V4} 时使用二进制格式。
+	 * 
+	 * @param capacity 指定协商后的能力描述。
+	 * @return 返回语素版本。
+	 */
+	public static StuffVersion match(TalkCapacity capacity) {
+		if (capacity.getMaxStuffVersion() >= StuffVersion.V4.getValue()) {
+			return StuffVersion.V4;
+		}
+
+		return match(capacity.getVersionNumber());
+	}
+
 }
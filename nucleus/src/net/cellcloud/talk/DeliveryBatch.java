@@ -0,0 +1,127 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.talk;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Map;
+
+import net.cellcloud.common.Message;
+import net.cellcloud.common.NonblockingAcceptor;
+import net.cellcloud.common.Session;
+
+/**
+ * 批量发送队列。
+ * 
+ * 广播时发往接收器会话的消息先进入批量队列，按批写入接收器，
+ * 接收器在一批消息全部入队后每个反应器只唤醒一次。
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+public final class DeliveryBatch {
+
+	/** 消息写入的接收器。 */
+	private final NonblockingAcceptor acceptor;
+
+	/** 目标会话。 */
+	private final ArrayList<Session> sessions;
+	/** 发送的消息。 */
+	private final ArrayList<Message> messages;
+	/** 消息对应的目标标签。 */
+	private final ArrayList<String> tags;
+
+	/**
+	 * 构造函数。
+	 * 
+	 * @param acceptor 指定消息写入的接收器。
+	 * @param capacity 指定每批消息的数量。
+	 */
+	protected DeliveryBatch(NonblockingAcceptor acceptor, int capacity) {
+		this.acceptor = acceptor;
+		this.sessions = new ArrayList<Session>(capacity);
+		this.messages = new ArrayList<Message>(capacity);
+		this.tags = new ArrayList<String>(capacity);
+	}
+
+	/**
+	 * 添加待发送的消息。
+	 * 
+	 * @param tag 指定消息的目标标签。
+	 * @param session 指定目标会话。
+	 * @param message 指定消息。
+	 */
+	protected void add(String tag, Session session, Message message) {
+		this.tags.add(tag);
+		this.sessions.add(session);
+		this.messages.add(message);
+	}
+
+	/**
+	 * 获得待发送的消息数量。
+	 * 
+	 * @return 返回待发送的消息数量。
+	 */
+	protected int size() {
+		return this.messages.size();
+	}
+
+	/**
+	 * 将待发送的消息写入接收器。
+	 * 
+	 * 标签的所有消息都没有进入发送队列时，将标签的发送结果更新为 <code>false</code> 。
+	 * 
+	 * @param results 指定需要更新的发送结果。
+	 */
+	protected void flush(Map<String, Boolean> results) {
+		int size = this.messages.size();
+		if (0 == size) {
+			return;
+		}
+
+		boolean[] queued = new boolean[size];
+		this.acceptor.write(this.sessions, this.messages, queued);
+
+		HashSet<String> delivered = new HashSet<String>();
+		for (int i = 0; i < size; ++i) {
+			if (queued[i]) {
+				delivered.add(this.tags.get(i));
+			}
+		}
+		for (int i = 0; i < size; ++i) {
+			String tag = this.tags.get(i);
+			if (!delivered.contains(tag)) {
+				results.put(tag, Boolean.FALSE);
+			}
+		}
+
+		this.tags.clear();
+		this.sessions.clear();
+		this.messages.clear();
+	}
+
+}
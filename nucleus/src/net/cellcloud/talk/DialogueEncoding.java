@@ -0,0 +1,208 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.talk;
+
+import java.util.ArrayList;
+
+import net.cellcloud.common.LogLevel;
+import net.cellcloud.common.Logger;
+import net.cellcloud.common.Packet;
+import net.cellcloud.common.Session;
+import net.cellcloud.core.Cellet;
+import net.cellcloud.http.WebSocketSession;
+import net.cellcloud.talk.http.HttpDialogueHandler;
+import net.cellcloud.talk.stuff.PrimitiveSerializer;
+import net.cellcloud.talk.stuff.StuffVersion;
+import net.cellcloud.util.ByteArrayBuffer;
+import net.cellcloud.util.JSONStreamWriter;
+import net.cellcloud.util.Utils;
+
+import org.json.JSONException;
+
+/**
+ * 对话数据编码缓存。
+ * 
+ * 向多个会话发送同一个原语时，语素版本、包版本和传输方式都相同的会话共享一份编码后的数据，
+ * 原语只为每种组合序列化和打包一次。
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+public final class DialogueEncoding {
+
+	/** 发送的原语。 */
+	private final Primitive primitive;
+	/** 源 Cellet 标识。 */
+	private final String identifier;
+	/** 附注。 */
+	private final String note;
+
+	/** 已编码的数据。 */
+	private final ArrayList<Encoded> encodedList;
+
+	/**
+	 * 构造函数。
+	 * 
+	 * @param cellet 指定源 Cellet 。
+	 * @param primitive 指定发送的原语。
+	 * @param note 指定附注，可以为 <code>null</code> 。
+	 */
+	protected DialogueEncoding(Cellet cellet, Primitive primitive, String note) {
+		this.primitive = primitive;
+		this.identifier = cellet.getFeature().getIdentifier();
+		this.note = note;
+		this.encodedList = new ArrayList<Encoded>(2);
+	}
+
+	/**
+	 * 获得附注。
+	 * 
+	 * @return 返回附注。
+	 */
+	protected String getNote() {
+		return this.note;
+	}
+
+	/**
+	 * 获得发送给指定会话的编码数据。
+	 * 
+	 * 相同语素版本、包版本和传输方式的会话返回同一个数组，调用者不能修改返回的数据。
+	 * 
+	 * @param version 指定语素版本。
+	 * @param session 指定目标会话。
+	 * @return 返回编码后的数据。使用文本帧的 WebSocket 会话返回 JSON 数据，其他会话返回序列化的数据包。编码失败返回 <code>null</code> 。
+	 */
+	protected synchronized byte[] encode(StuffVersion version, Session session) {
+		boolean websocket = isJSONSession(session);
+		int major = websocket ? 0 : session.major;
+		int minor = websocket ? 0 : session.minor;
+
+		for (int i = 0, size = this.encodedList.size(); i < size; ++i) {
+			Encoded encoded = this.encodedList.get(i);
+			if (encoded.version == version && encoded.websocket == websocket
+					&& encoded.major == major && encoded.minor == minor) {
+				return encoded.data;
+			}
+		}
+
+		this.primitive.setVersion(version);
+
+		byte[] data = websocket ? this.encodeJSON() : this.encodePacket(major, minor);
+		if (null != data) {
+			this.encodedList.add(new Encoded(version, websocket, major, minor, data));
+		}
+
+		return data;
+	}
+
+	/**
+	 * 会话是否使用 JSON 格式的对话数据。
+	 * 
+	 * @param session 指定会话。
+	 * @return 如果会话是使用文本帧的 WebSocket 会话返回 <code>true</code> 。
+	 */
+	protected static boolean isJSONSession(Session session) {
+		return (session instanceof WebSocketSession) && !((WebSocketSession) session).isBinary();
+	}
+
+	/**
+	 * 编码 WebSocket 对话数据。
+	 */
+	private byte[] encodeJSON() {
+		return encodeJSON(this.primitive, this.identifier, this.note);
+	}
+
+	/**
+	 * 将原语编码为 WebSocket 对话数据。
+	 * 
+	 * 数据通过流式写入器直接编码为 UTF-8 字节，不构建 JSON 对象树。
+	 * 
+	 * @param primitive 指定原语。
+	 * @param identifier 指定源 Cellet 标识。
+	 * @param note 指定数据包注解，可以为 <code>null</code> 。
+	 * @return 返回编码后的数据。编码失败返回 <code>null</code> 。
+	 */
+	protected static byte[] encodeJSON(Primitive primitive, String identifier, String note) {
+		JSONStreamWriter writer = JSONStreamWriter.getThreadWriter();
+		try {
+			writer.beginObject();
+			writer.key(WebSocketMessageHandler.TALK_PACKET_TAG).value(WebSocketMessageHandler.TPT_DIALOGUE);
+			writer.key(WebSocketMessageHandler.TALK_PACKET).beginObject();
+			writer.key(HttpDialogueHandler.Primitive);
+			PrimitiveSerializer.write(writer, primitive);
+			writer.key(HttpDialogueHandler.Identifier).value(identifier);
+			if (null != note) {
+				writer.key(HttpDialogueHandler.Note).value(note);
+			}
+			writer.endObject();
+			writer.endObject();
+
+			return writer.toByteArray();
+		} catch (JSONException e) {
+			Logger.log(DialogueEncoding.class, e, LogLevel.ERROR);
+			return null;
+		}
+	}
+
+	/**
+	 * 编码对话数据包。
+	 */
+	private byte[] encodePacket(int major, int minor) {
+		// 包格式：原语序列|Cellet[|NOTE]
+
+		ByteArrayBuffer stream = PrimitiveSerializer.write(this.primitive);
+
+		Packet packet = new Packet(TalkDefinition.TPT_DIALOGUE, 99, major, minor);
+		packet.appendSegment(stream.array(), 0, stream.length());
+		packet.appendSegment(Utils.string2Bytes(this.identifier));
+		if (null != this.note) {
+			packet.appendSegment(Utils.string2Bytes(this.note));
+		}
+
+		return Packet.pack(packet);
+	}
+
+	/**
+	 * 一种编码参数组合对应的编码数据。
+	 */
+	private final class Encoded {
+		private final StuffVersion version;
+		private final boolean websocket;
+		private final int major;
+		private final int minor;
+		private final byte[] data;
+
+		private Encoded(StuffVersion version, boolean websocket, int major, int minor, byte[] data) {
+			this.version = version;
+			this.websocket = websocket;
+			this.major = major;
+			this.minor = minor;
+			this.data = data;
+		}
+	}
+
+}
@@ -39,8 +39,12 @@ import net.cellcloud.talk.stuff.ComplementStuff;
 import net.cellcloud.talk.stuff.ObjectiveStuff;
 import net.cellcloud.talk.stuff.PredicateStuff;
 import net.cellcloud.talk.stuff.PrimitiveSerializer;
+import net.cellcloud.talk.stuff.Stuff;
+import net.cellcloud.talk.stuff.StuffIndex;
+import net.cellcloud.talk.stuff.StuffType;
 import net.cellcloud.talk.stuff.StuffVersion;
 import net.cellcloud.talk.stuff.SubjectStuff;
+import net.cellcloud.util.ByteArrayBuffer;
 
 /**
  * 原语描述类。
@@ -70,6 +74,15 @@ public class Primitive {
 	/** 补语语素清单。 */
 	private ArrayList<ComplementStuff> complementList;
 
+	/** 延迟解析时的语素索引。 */
+	private StuffIndex index;
+	/** 已经从索引创建语素的类型掩码。 */
+	private int decoded;
+	/** 从索引创建的语素，按语素类型存储，用于检查语素列表是否被修改。 */
+	private Stuff[][] decodedStuffs;
+	/** 延迟解析之后原语是否被修改。 */
+	private boolean modified;
+
 	/** 方言。 */
 	private Dialect dialect;
 
@@ -128,6 +141,11 @@ public class Primitive {
 	 * @param version 指定新的语素版本。
 	 */
 	public void setVersion(StuffVersion version) {
+		if (null != this.index && this.version != version) {
+			// 尚未创建的语素在创建时直接变更为新版本
+			this.modified = true;
+		}
+
 		this.version = version;
 
 		if (null != this.subjectList) {
@@ -237,6 +255,10 @@ public class Primitive {
 	 * @param dialect 指定需设置的方言。
 	 */
 	public void capture(Dialect dialect) {
+		if (null != this.index) {
+			this.modified = true;
+		}
+
 		this.dialect = dialect;
 		this.dialect.setOwnerTag(this.ownerTag);
 		this.dialect.setCelletIdentifier(this.celletIdentifier);
@@ -248,6 +270,11 @@ public class Primitive {
 	 * @param subject 指定需提交的主语。
 	 */
 	public void commit(SubjectStuff subject) {
+		if (null != this.index) {
+			this.decode(StuffType.SUBJECT);
+			this.modified = true;
+		}
+
 		subject.changeVersion(this.version);
 
 		if (null == this.subjectList)
@@ -261,6 +288,11 @@ public class Primitive {
 	 * @param predicate 指定需提交的谓语。
 	 */
 	public void commit(PredicateStuff predicate) {
+		if (null != this.index) {
+			this.decode(StuffType.PREDICATE);
+			this.modified = true;
+		}
+
 		predicate.changeVersion(this.version);
 
 		if (null == this.predicateList)
@@ -274,6 +306,11 @@ public class Primitive {
 	 * @param objective 指定需提交的宾语。
 	 */
 	public void commit(ObjectiveStuff objective) {
+		if (null != this.index) {
+			this.decode(StuffType.OBJECTIVE);
+			this.modified = true;
+		}
+
 		objective.changeVersion(this.version);
 
 		if (null == this.objectiveList)
@@ -287,6 +324,11 @@ public class Primitive {
 	 * @param attributive 指定需提交的定语。
 	 */
 	public void commit(AttributiveStuff attributive) {
+		if (null != this.index) {
+			this.decode(StuffType.ATTRIBUTIVE);
+			this.modified = true;
+		}
+
 		attributive.changeVersion(this.version);
 
 		if (null == this.attributiveList)
@@ -300,6 +342,11 @@ public class Primitive {
 	 * @param adverbial 指定需提交的状语。
 	 */
 	public void commit(AdverbialStuff adverbial) {
+		if (null != this.index) {
+			this.decode(StuffType.ADVERBIAL);
+			this.modified = true;
+		}
+
 		adverbial.changeVersion(this.version);
 
 		if (null == this.adverbialList)
@@ -313,6 +360,11 @@ public class Primitive {
 	 * @param complement 指定需提交的补语。
 	 */
 	public void commit(ComplementStuff complement) {
+		if (null != this.index) {
+			this.decode(StuffType.COMPLEMENT);
+			this.modified = true;
+		}
+
 		complement.changeVersion(this.version);
 
 		if (null == this.complementList)
@@ -326,6 +378,10 @@ public class Primitive {
 	 * @return 返回主语列表。
 	 */
 	public List<SubjectStuff> subjects() {
+		if (null != this.index) {
+			this.decode(StuffType.SUBJECT);
+		}
+
 		return this.subjectList;
 	}
 
@@ -335,6 +391,10 @@ public class Primitive {
 	 * @return 返回谓语列表。
 	 */
 	public List<PredicateStuff> predicates() {
+		if (null != this.index) {
+			this.decode(StuffType.PREDICATE);
+		}
+
 		return this.predicateList;
 	}
 
@@ -344,6 +404,10 @@ public class Primitive {
 	 * @return 返回宾语列表。
 	 */
 	public List<ObjectiveStuff> objectives() {
+		if (null != this.index) {
+			this.decode(StuffType.OBJECTIVE);
+		}
+
 		return this.objectiveList;
 	}
 
@@ -353,6 +417,10 @@ public class Primitive {
 	 * @return 返回定语列表。
 	 */
 	public List<AttributiveStuff> attributives() {
+		if (null != this.index) {
+			this.decode(StuffType.ATTRIBUTIVE);
+		}
+
 		return this.attributiveList;
 	}
 
@@ -362,6 +430,10 @@ public class Primitive {
 	 * @return 返回状语列表。
 	 */
 	public List<AdverbialStuff> adverbials() {
+		if (null != this.index) {
+			this.decode(StuffType.ADVERBIAL);
+		}
+
 		return this.adverbialList;
 	}
 
@@ -371,6 +443,10 @@ public class Primitive {
 	 * @return 返回补语列表。
 	 */
 	public List<ComplementStuff> complements() {
+		if (null != this.index) {
+			this.decode(StuffType.COMPLEMENT);
+		}
+
 		return this.complementList;
 	}
 
@@ -380,6 +456,10 @@ public class Primitive {
 	 * @param dest 指定复制目标原语。
 	 */
 	public void copyStuff(Primitive dest) {
+		if (null != this.index) {
+			this.decodeAll();
+		}
+
 		if (null != this.subjectList) {
 			for (int i = 0, size = this.subjectList.size(); i < size; ++i) {
 				dest.commit(this.subjectList.get(i));
@@ -421,6 +501,11 @@ public class Primitive {
 	 * 清空所有语素。
 	 */
 	public void clearStuffs() {
+		if (null != this.index) {
+			this.decodeAll();
+			this.modified = true;
+		}
+
 		if (null != this.subjectList)
 			this.subjectList.clear();
 
@@ -446,7 +531,7 @@ public class Primitive {
 	 * @return 返回存储序列化数据的流。
 	 */
 	public ByteArrayOutputStream write() {
-		ByteArrayOutputStream stream = new ByteArrayOutputStream(128);
+		ByteArrayBuffer stream = new ByteArrayBuffer(128);
 		PrimitiveSerializer.write(stream, this);
 		return stream;
 	}
@@ -460,4 +545,175 @@ public class Primitive {
 		PrimitiveSerializer.read(this, stream);
 	}
 
+	/**
+	 * 从序列化数据延迟读取原语数据。
+	 * 
+	 * 读取时只为数据建立语素索引，各类型的语素在第一次访问时创建。
+	 * 原语未被修改时，再次序列化原语直接使用原始数据。
+	 * 原语引用输入数据，调用者在原语使用期间不能修改数据。该方法应当在新创建的原语上调用。
+	 * 
+	 * @param data 指定序列化数据所在数组。
+	 * @param offset 指定数据起始位置。
+	 * @param length 指定数据长度。
+	 */
+	public void readLazily(byte[] data, int offset, int length) {
+		StuffIndex index = PrimitiveSerializer.index(data, offset, length);
+		if (null == index) {
+			// 非规范格式的数据进行完整解析
+			PrimitiveSerializer.read(this, new ByteArrayInputStream(data, offset, length));
+			return;
+		}
+
+		this.attach(index);
+
+		if (null != index.getDialectName()) {
+			PrimitiveSerializer.constructDialect(this, index.getDialectName(), index.getDialectTracker());
+		}
+
+		this.modified = false;
+	}
+
+	/**
+	 * 创建原语的快照。
+	 * 
+	 * 快照从当前原语的序列化数据延迟读取语素，之后修改当前原语不会影响快照。
+	 * 快照与当前原语共用同一个方言实例。
+	 * 
+	 * @return 返回原语快照。
+	 */
+	protected Primitive snapshot() {
+		byte[] data = this.write().toByteArray();
+
+		Primitive copy = new Primitive(this.ownerTag);
+		StuffIndex index = PrimitiveSerializer.index(data, 0, data.length);
+		if (null != index) {
+			copy.attach(index);
+		}
+		else {
+			PrimitiveSerializer.read(copy, new ByteArrayInputStream(data));
+		}
+
+		copy.celletIdentifier = this.celletIdentifier;
+		copy.cellet = this.cellet;
+		copy.dialect = this.dialect;
+		return copy;
+	}
+
+	/**
+	 * 关联延迟读取的语素索引。
+	 * 
+	 * @param index 指定语素索引。
+	 */
+	private void attach(StuffIndex index) {
+		this.index = index;
+		this.decoded = 0;
+		this.decodedStuffs = new Stuff[StuffType.values().length + 1][];
+		this.version = index.getVersion();
+		this.modified = false;
+	}
+
+	/**
+	 * 获得延迟读取时建立的语素索引。
+	 * 
+	 * @return 如果原语是延迟读取的并且未被修改，返回语素索引，否则返回 <code>null</code> 。
+	 */
+	public synchronized StuffIndex getStuffIndex() {
+		if (null == this.index || this.modified) {
+			return null;
+		}
+
+		// 检查是否通过语素列表修改了语素，语素本身不能被外部修改，因此逐一比较引用
+		for (StuffType type : StuffType.values()) {
+			if ((this.decoded & (1 << type.getType())) != 0) {
+				List<? extends Stuff> list = this.list(type);
+				Stuff[] stuffs = this.decodedStuffs[type.getType()];
+				int size = (null != list) ? list.size() : 0;
+				if (size != ((null != stuffs) ? stuffs.length : 0)) {
+					return null;
+				}
+
+				for (int i = 0; i < size; ++i) {
+					if (list.get(i) != stuffs[i]) {
+						return null;
+					}
+				}
+			}
+		}
+
+		return this.index;
+	}
+
+	/**
+	 * 从索引创建指定类型的语素。
+	 * 
+	 * @param type 指定语素类型。
+	 */
+	private synchronized void decode(StuffType type) {
+		int mask = 1 << type.getType();
+		if ((this.decoded & mask) != 0) {
+			return;
+		}
+
+		this.decoded |= mask;
+
+		switch (type) {
+		case SUBJECT:
+			this.subjectList = this.index.decode(type, this.version);
+			break;
+		case PREDICATE:
+			this.predicateList = this.index.decode(type, this.version);
+			break;
+		case OBJECTIVE:
+			this.objectiveList = this.index.decode(type, this.version);
+			break;
+		case ATTRIBUTIVE:
+			this.attributiveList = this.index.decode(type, this.version);
+			break;
+		case ADVERBIAL:
+			this.adverbialList = this.index.decode(type, this.version);
+			break;
+		case COMPLEMENT:
+			this.complementList = this.index.decode(type, this.version);
+			break;
+		default:
+			break;
+		}
+
+		List<? extends Stuff> list = this.list(type);
+		if (null != list) {
+			this.decodedStuffs[type.getType()] = list.toArray(new Stuff[list.size()]);
+		}
+	}
+
+	/**
+	 * 从索引创建全部语素。
+	 */
+	private void decodeAll() {
+		for (StuffType type : StuffType.values()) {
+			this.decode(type);
+		}
+	}
+
+	/**
+	 * 获得指定类型的语素列表。
+	 */
+	private List<? extends Stuff> list(StuffType type) {
+		switch (type) {
+		case SUBJECT:
+			return this.subjectList;
+		case PREDICATE:
+			return this.predicateList;
+		case OBJECTIVE:
+			return this.objectiveList;
+		case ATTRIBUTIVE:
+			return this.attributiveList;
+		case ADVERBIAL:
+			return this.adverbialList;
+		case COMPLEMENT:
+			return this.complementList;
+		default:
+			return null;
+		}
+	}
+
 }
@@ -35,6 +35,7 @@ import net.cellcloud.common.MessageErrorCode;
 import net.cellcloud.common.MessageHandler;
 import net.cellcloud.common.Packet;
 import net.cellcloud.common.Session;
+import net.cellcloud.common.WatermarkListener;
 import net.cellcloud.talk.command.ServerCheckCommand;
 import net.cellcloud.talk.command.ServerConsultCommand;
 import net.cellcloud.talk.command.ServerDialogueCommand;
@@ -51,7 +52,7 @@ import net.cellcloud.talk.command.ServerRequestCommand;
  * @author Ambrose Xu
  * 
  */
-public final class TalkAcceptorHandler implements MessageHandler {
+public final class TalkAcceptorHandler implements MessageHandler, WatermarkListener {
 
 	/** 会话服务核心。 */
 	private TalkServiceKernel kernel;
@@ -161,11 +162,27 @@ public final class TalkAcceptorHandler implements MessageHandler {
 	public void errorOccurred(int errorCode, Session session) {
 		Logger.d(this.getClass(), "Network error: " + errorCode + ", session: " + session.getAddress().getHostString());
 
-		if (errorCode != MessageErrorCode.WRITE_OUTOFBOUNDS) {
+		if (errorCode != MessageErrorCode.WRITE_OUTOFBOUNDS && errorCode != MessageErrorCode.WRITE_OVERFLOW) {
 			this.kernel.closeSession(session);
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void sessionUnwritable(Session session) {
+		this.kernel.notifyWritability(session, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void sessionWritable(Session session) {
+		this.kernel.notifyWritability(session, true);
+	}
+
 	/**
 	 * 进行包分析并处理数据。
 	 * 
@@ -29,6 +29,7 @@ package net.cellcloud.talk;
 import java.nio.charset.Charset;
 
 import net.cellcloud.Version;
+import net.cellcloud.talk.stuff.StuffVersion;
 
 /**
  * 会话能力描述类。
@@ -44,6 +45,12 @@ public final class TalkCapacity {
 	/** 内核的版本串号。 */
 	private int versionNumber = Version.VERSION_NUMBER;
 
+	/** 支持的最高语素版本，对端没有描述时为 <code>0</code> 。 */
+	private int maxStuffVersion = StuffVersion.V4.getValue();
+
+	/** 是否能接收续传帧，对端没有描述时为 <code>false</code> 。 */
+	private boolean fragmentable = true;
+
 	/** 是否为加密会话。 */
 	public boolean secure = false;
 
@@ -110,12 +117,55 @@ public final class TalkCapacity {
 
 		if (version == 1) {
 			this.versionNumber = 130;
+			this.maxStuffVersion = 0;
+			this.fragmentable = false;
+		}
+		else if (version == 2) {
+			this.versionNumber = Version.VERSION_NUMBER;
+			this.maxStuffVersion = 0;
+			this.fragmentable = false;
 		}
-		else if (version == 2 || version == 3) {
+		else if (version == 3) {
 			this.versionNumber = Version.VERSION_NUMBER;
 		}
 	}
 
+	/**
+	 * 获得支持的最高语素版本。
+	 * 
+	 * @return 返回支持的最高语素版本号，不支持语素版本协商时返回 <code>0</code> 。
+	 */
+	public int getMaxStuffVersion() {
+		return this.maxStuffVersion;
+	}
+
+	/**
+	 * 设置支持的最高语素版本。设置为 <code>0</code> 时不协商语素版本，始终使用文本格式。
+	 * 
+	 * @param version 指定语素版本号。
+	 */
+	public void setMaxStuffVersion(int version) {
+		this.maxStuffVersion = Math.min(version, StuffVersion.V4.getValue());
+	}
+
+	/**
+	 * 是否能接收续传帧。
+	 * 
+	 * @return 支持分片传输时返回 <code>true</code> 。
+	 */
+	public boolean isFragmentable() {
+		return this.fragmentable;
+	}
+
+	/**
+	 * 设置是否能接收续传帧。
+	 * 
+	 * @param fragmentable 指定是否支持分片传输。
+	 */
+	public void setFragmentable(boolean fragmentable) {
+		this.fragmentable = fragmentable;
+	}
+
 	/**
 	 * 获得版本串号。
 	 * 
@@ -165,6 +215,15 @@ public final class TalkCapacity {
 			buf.append(capacity.proxy ? "Y" : "N");
 			buf.append("|");
 			buf.append(capacity.versionNumber);
+			if (capacity.maxStuffVersion > 0 || capacity.fragmentable) {
+				// 旧版本忽略此字段
+				buf.append("|");
+				buf.append(capacity.maxStuffVersion);
+			}
+			if (capacity.fragmentable) {
+				// 旧版本忽略此字段
+				buf.append("|Y");
+			}
 		}
 
 		byte[] bytes = buf.toString().getBytes();
@@ -187,6 +246,8 @@ public final class TalkCapacity {
 		}
 
 		TalkCapacity cap = new TalkCapacity();
+		cap.maxStuffVersion = 0;
+		cap.fragmentable = false;
 
 		cap.version = Integer.parseInt(array[0]);
 		if (cap.version == 1) {
@@ -206,6 +267,12 @@ public final class TalkCapacity {
 			cap.retryDelay = Integer.parseInt(array[3]);
 			cap.proxy = array[4].equalsIgnoreCase("Y") ? true : false;
 			cap.versionNumber = Integer.parseInt(array[5]);
+			if (array.length > 6) {
+				cap.setMaxStuffVersion(Integer.parseInt(array[6]));
+			}
+			if (array.length > 7) {
+				cap.fragmentable = array[7].equalsIgnoreCase("Y") ? true : false;
+			}
 		}
 		else {
 			// 尝试兼容未知版本号
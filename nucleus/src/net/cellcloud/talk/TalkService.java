@@ -1,9 +1,11 @@
 package net.cellcloud.talk;
 
 import java.net.InetSocketAddress;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
+import net.cellcloud.common.OverflowPolicy;
 import net.cellcloud.common.Service;
 import net.cellcloud.core.Cellet;
 import net.cellcloud.core.CelletSandbox;
@@ -156,6 +158,75 @@ public class TalkService implements Service {
 		return this.kernel.getWorkerThreadNum();
 	}
 
+	/**
+	 * 设置反应器线程数。
+	 * 
+	 * @param num 指定反应器线程数。
+	 * 
+	 * @throws InvalidException
+	 */
+	public void setReactorThreadNum(int num) throws InvalidException {
+		this.kernel.setReactorThreadNum(num);
+	}
+
+	/**
+	 * 获得反应器线程数。
+	 * 
+	 * @return 返回反应器线程数。
+	 */
+	public int getReactorThreadNum() {
+		return this.kernel.getReactorThreadNum();
+	}
+
+	/**
+	 * 设置每个会话单次聚集发送的数据量上限。
+	 * 
+	 * @param budget 指定数据量上限，单位：字节。
+	 */
+	public void setSendBudget(int budget) {
+		this.kernel.setSendBudget(budget);
+	}
+
+	/**
+	 * 获得每个会话单次聚集发送的数据量上限。
+	 * 
+	 * @return 返回数据量上限，单位：字节。
+	 */
+	public int getSendBudget() {
+		return this.kernel.getSendBudget();
+	}
+
+	/**
+	 * 设置会话发送队列的水位。
+	 * 
+	 * @param lowBytes 指定字节数低水位。
+	 * @param highBytes 指定字节数高水位，设置为 <code>0</code> 时不检查字节数。
+	 * @param lowMessages 指定消息数低水位。
+	 * @param highMessages 指定消息数高水位，设置为 <code>0</code> 时不检查消息数。
+	 */
+	public void setWatermarks(long lowBytes, long highBytes, int lowMessages, int highMessages) {
+		this.kernel.setWatermarks(lowBytes, highBytes, lowMessages, highMessages);
+	}
+
+	/**
+	 * 设置会话发送队列超过高水位后的溢出策略。
+	 * 
+	 * @param policy 指定溢出策略。
+	 */
+	public void setOverflowPolicy(OverflowPolicy policy) {
+		this.kernel.setOverflowPolicy(policy);
+	}
+
+	/**
+	 * 判断指定标签的终端是否可写。
+	 * 
+	 * @param targetTag 指定目标的内核标签。
+	 * @return 如果终端可写返回 <code>true</code> 。
+	 */
+	public boolean isWritable(String targetTag) {
+		return this.kernel.isWritable(targetTag);
+	}
+
 	/**
 	 * 设置每个工作器最大允许带宽（字节每秒，B/S）。
 	 * 
@@ -165,6 +236,24 @@ public class TalkService implements Service {
 		this.kernel.setWorkerTransmissionQuota(bandwidthInBytesPerSecond);
 	}
 
+	/**
+	 * 设置每个会话最大允许带宽（字节每秒，B/S）。
+	 * 
+	 * @param bandwidthInBytesPerSecond 指定带宽，单位：字节每秒。为 0 时不限制。
+	 */
+	public void setMaxSessionBandwidth(int bandwidthInBytesPerSecond) {
+		this.kernel.setSessionTransmissionQuota(bandwidthInBytesPerSecond);
+	}
+
+	/**
+	 * 设置所有工作器共享的最大允许带宽（字节每秒，B/S）。
+	 * 
+	 * @param bandwidthInBytesPerSecond 指定带宽，单位：字节每秒。为 0 时不限制。
+	 */
+	public void setMaxTotalBandwidth(int bandwidthInBytesPerSecond) {
+		this.kernel.setGlobalTransmissionQuota(bandwidthInBytesPerSecond);
+	}
+
 	/**
 	 * 设置是否启用 HTTP 服务器。
 	 * 
@@ -313,6 +402,56 @@ public class TalkService implements Service {
 		return this.kernel.notice(targetTag, dialect, cellet, sandbox);
 	}
 
+	/**
+	 * 向指定标签的一组终端异步发送同一个原语。所有终端的会话共享编码后的数据。
+	 * 
+	 * @param targetTags 指定目标的内核标签清单。
+	 * @param primitive 指定发送的原语数据。
+	 * @param cellet 指定源 Cellet 。
+	 * @param sandbox 指定 Cellet 对应的沙盒。
+	 * @return 返回广播结果，广播完成后可以获得每个目标标签的发送结果。
+	 */
+	public BroadcastFuture broadcast(Collection<String> targetTags, Primitive primitive, Cellet cellet, CelletSandbox sandbox) {
+		return this.kernel.broadcast(targetTags, primitive, cellet, sandbox);
+	}
+
+	/**
+	 * 向指定标签的一组终端异步发送同一个方言。所有终端的会话共享编码后的数据。
+	 * 
+	 * @param targetTags 指定目标的内核标签清单。
+	 * @param dialect 指定发送的方言数据。
+	 * @param cellet 指定源 Cellet 。
+	 * @param sandbox 指定 Cellet 对应的沙盒。
+	 * @return 返回广播结果，广播完成后可以获得每个目标标签的发送结果。
+	 */
+	public BroadcastFuture broadcast(Collection<String> targetTags, Dialect dialect, Cellet cellet, CelletSandbox sandbox) {
+		return this.kernel.broadcast(targetTags, dialect, cellet, sandbox);
+	}
+
+	/**
+	 * 向所有与指定 Cellet 建立了对话的终端异步发送同一个原语。
+	 * 
+	 * @param primitive 指定发送的原语数据。
+	 * @param cellet 指定源 Cellet 。
+	 * @param sandbox 指定 Cellet 对应的沙盒。
+	 * @return 返回广播结果，广播完成后可以获得每个目标标签的发送结果。
+	 */
+	public BroadcastFuture broadcast(Primitive primitive, Cellet cellet, CelletSandbox sandbox) {
+		return this.kernel.broadcast(primitive, cellet, sandbox);
+	}
+
+	/**
+	 * 向所有与指定 Cellet 建立了对话的终端异步发送同一个方言。
+	 * 
+	 * @param dialect 指定发送的方言数据。
+	 * @param cellet 指定源 Cellet 。
+	 * @param sandbox 指定 Cellet 对应的沙盒。
+	 * @return 返回广播结果，广播完成后可以获得每个目标标签的发送结果。
+	 */
+	public BroadcastFuture broadcast(Dialect dialect, Cellet cellet, CelletSandbox sandbox) {
+		return this.kernel.broadcast(dialect, cellet, sandbox);
+	}
+
 	/**
 	 * 将指定标签的终端踢出。
 	 * 
@@ -26,12 +26,13 @@ THE SOFTWARE.
 
 package net.cellcloud.talk;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -41,14 +42,18 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 import net.cellcloud.common.Cryptology;
 import net.cellcloud.common.LogLevel;
 import net.cellcloud.common.Logger;
 import net.cellcloud.common.Message;
 import net.cellcloud.common.MessageInterceptor;
+import net.cellcloud.common.MessageService;
 import net.cellcloud.common.MessageTrigger;
 import net.cellcloud.common.NonblockingAcceptor;
+import net.cellcloud.common.NonblockingAcceptorSession;
+import net.cellcloud.common.OverflowPolicy;
 import net.cellcloud.common.Packet;
 import net.cellcloud.common.Service;
 import net.cellcloud.common.Session;
@@ -87,11 +92,13 @@ import net.cellcloud.talk.speaker.Speaker;
 import net.cellcloud.talk.speaker.SpeakerDelegate;
 import net.cellcloud.talk.stuff.PrimitiveSerializer;
 import net.cellcloud.talk.stuff.StuffVersion;
+import net.cellcloud.util.ByteArrayBuffer;
 import net.cellcloud.util.Clock;
 import net.cellcloud.util.Utils;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 /**
  * 会话服务内核。
@@ -113,6 +120,23 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 	/** 工作线程数量。 */
 	private int numWorkerThreads;
 
+	/** 反应器线程数量。 */
+	private int numReactorThreads;
+
+	/** 每个会话单次聚集发送的数据量上限。 */
+	private int sendBudget;
+
+	/** 发送队列字节数低水位。 */
+	private long lowWatermarkBytes;
+	/** 发送队列字节数高水位。 */
+	private long highWatermarkBytes;
+	/** 发送队列消息数低水位。 */
+	private int lowWatermarkMessages;
+	/** 发送队列消息数高水位。 */
+	private int highWatermarkMessages;
+	/** 发送队列溢出策略。 */
+	private OverflowPolicy overflowPolicy;
+
 	/** 会话超时时间。 */
 	private long sessionTimeout;
 
@@ -178,6 +202,14 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 	 */
 	protected ExecutorService executor;
 
+	/**
+	 * 广播执行器。广播任务在单一线程里按顺序执行。
+	 */
+	private ExecutorService broadcastExecutor;
+
+	/** 广播时每批写入接收器的消息数量。 */
+	private final static int BROADCAST_BATCH_SIZE = 1024;
+
 	/**
 	 * 存储待验证的 Session 。键是 Session 的 ID，值是服务为此 Session 生成的临时证书。
 	 */
@@ -283,6 +315,13 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 		this.block = 65536;
 		this.maxConnections = 5000;
 		this.numWorkerThreads = 8;
+		this.numReactorThreads = 0;
+		this.sendBudget = 65536;
+		this.lowWatermarkBytes = 4 * 1024 * 1024;
+		this.highWatermarkBytes = 8 * 1024 * 1024;
+		this.lowWatermarkMessages = 0;
+		this.highWatermarkMessages = 0;
+		this.overflowPolicy = OverflowPolicy.NONE;
 
 		this.httpEnabled = true;
 		this.httpQueueSize = 1000;
@@ -320,6 +359,13 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 			ts.numWorkers = this.acceptor.getWorkerNum();
 			ts.networkRx = this.acceptor.getWorkersRx();
 			ts.networkTx = this.acceptor.getWorkersTx();
+			ts.numReactors = this.acceptor.getReactorNum();
+			ts.reactorReadEvents = this.acceptor.getReactorsReadEvents();
+			ts.reactorWriteEvents = this.acceptor.getReactorsWriteEvents();
+			ts.reactorSessions = this.acceptor.getReactorsSessions();
+			ts.spuriousWakeups = this.acceptor.getSpuriousWakeups();
+			ts.throttledBytes = this.acceptor.getThrottledBytes();
+			ts.quotaDeferrals = this.acceptor.getQuotaDeferrals();
 		}
 
 		if (null != HttpService.getInstance()) {
@@ -353,11 +399,17 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 		ts.actionDialectThreadNum = adf.getThreadCounts();
 		ts.actionDialectMaxThreadNum = adf.getMaxThreadNum();
 		ts.actionDialectPendingNum = adf.getPendingNum();
+		ts.actionDialectMaxPendingNum = adf.getMaxPendingNum();
+		ts.actionDialectRejectedNum = adf.getRejectedNum();
+		ts.actionDialectQueueDepth = adf.getQueueDepthHistogram();
+		ts.actionDialectWaitTime = adf.getWaitTimeHistogram();
+		ts.actionDialectExecTime = adf.getExecutionTimeHistogram();
 
 		ChunkDialectFactory cdf = (ChunkDialectFactory) DialectEnumerator.getInstance().getFactory(ChunkDialect.DIALECT_NAME);
 		ts.chunkDialectCacheNum = cdf.getCacheNum();
 		ts.chunkDialectCacheMemSize = cdf.getCacheMemorySize();
 		ts.chunkDialectMaxCacheMemSize = cdf.getMaxCacheMemorySize();
+		ts.chunkDialectCacheFileSize = cdf.getCacheFileSize();
 		ts.chunkDialectQueueSize = cdf.getSListSize();
 
 		return ts;
@@ -381,6 +433,12 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 			this.tagList = new ConcurrentSkipListSet<String>();
 		}
 
+		// 解析 JSON 时复用对话协议的键字符串
+		JSONTokener.internKeys(WebSocketMessageHandler.TALK_PACKET_TAG, WebSocketMessageHandler.TALK_PACKET_VERSION,
+				WebSocketMessageHandler.TALK_PACKET, HttpDialogueHandler.Tag, HttpDialogueHandler.Identifier,
+				HttpDialogueHandler.Primitive, HttpDialogueHandler.Primitives, HttpDialogueHandler.Note,
+				HttpDialogueHandler.Queue);
+
 		if (null == this.acceptor) {
 			// 创建网络适配器
 			this.acceptor = new NonblockingAcceptor();
@@ -394,12 +452,27 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 			// 设置处理器
 			this.talkHandler = new TalkAcceptorHandler(this);
 			this.acceptor.setHandler(this.talkHandler);
+			this.acceptor.setWatermarkListener(this.talkHandler);
 		}
 
 		// 最大连接数
 		this.acceptor.setMaxConnectNum(this.maxConnections);
 		// 工作线程数
 		this.acceptor.setWorkerNum(this.numWorkerThreads);
+		// 反应器线程数
+		this.acceptor.setReactorNum(this.numReactorThreads);
+		// 单次发送数据量上限
+		this.acceptor.setSendBudget(this.sendBudget);
+		// 发送队列水位及溢出策略
+		this.acceptor.setWatermarkBytes(this.lowWatermarkBytes, this.highWatermarkBytes);
+		this.acceptor.setWatermarkMessages(this.lowWatermarkMessages, this.highWatermarkMessages);
+		this.acceptor.setOverflowPolicy(this.overflowPolicy);
+
+		synchronized (this) {
+			if (null == this.broadcastExecutor) {
+				this.broadcastExecutor = Executors.newSingleThreadExecutor();
+			}
+		}
 
 		// 启动 acceptor
 		boolean succeeded = this.acceptor.bind(this.port);
@@ -441,6 +514,13 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 			this.executor.shutdown();
 		}
 
+		synchronized (this) {
+			if (null != this.broadcastExecutor) {
+				this.broadcastExecutor.shutdown();
+				this.broadcastExecutor = null;
+			}
+		}
+
 		if (this.httpEnabled && null != HttpService.getInstance()) {
 			HttpCapsule hc = HttpService.getInstance().getCapsule("ts");
 			HttpService.getInstance().removeCapsule(hc);
@@ -598,6 +678,96 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 		return this.numWorkerThreads;
 	}
 
+	/**
+	 * 设置反应器线程数。
+	 * 设置为 <code>0</code> 时接收器使用单线程进行事件分发。
+	 * 
+	 * @param num 指定反应器线程数。
+	 * 
+	 * @throws InvalidException
+	 */
+	public void setReactorThreadNum(int num) throws InvalidException {
+		if (null != this.acceptor && this.acceptor.isRunning()) {
+			throw new InvalidException("Can't set the number of reactor thread in talk service after the start");
+		}
+
+		this.numReactorThreads = num;
+	}
+
+	/**
+	 * 获得反应器线程数。
+	 * 
+	 * @return 返回反应器线程数。
+	 */
+	public int getReactorThreadNum() {
+		return this.numReactorThreads;
+	}
+
+	/**
+	 * 设置每个会话单次聚集发送的数据量上限。
+	 * 
+	 * @param budget 指定数据量上限，单位：字节。
+	 */
+	public void setSendBudget(int budget) {
+		this.sendBudget = budget;
+
+		if (null != this.acceptor) {
+			this.acceptor.setSendBudget(budget);
+		}
+	}
+
+	/**
+	 * 获得每个会话单次聚集发送的数据量上限。
+	 * 
+	 * @return 返回数据量上限，单位：字节。
+	 */
+	public int getSendBudget() {
+		return this.sendBudget;
+	}
+
+	/**
+	 * 设置会话发送队列的水位。
+	 * 发送队列超过任一高水位时会话变为不可写，字节数和消息数都回落到低水位时恢复可写。
+	 * 
+	 * @param lowBytes 指定字节数低水位。
+	 * @param highBytes 指定字节数高水位，设置为 <code>0</code> 时不检查字节数。
+	 * @param lowMessages 指定消息数低水位。
+	 * @param highMessages 指定消息数高水位，设置为 <code>0</code> 时不检查消息数。
+	 */
+	public void setWatermarks(long lowBytes, long highBytes, int lowMessages, int highMessages) {
+		this.lowWatermarkBytes = lowBytes;
+		this.highWatermarkBytes = highBytes;
+		this.lowWatermarkMessages = lowMessages;
+		this.highWatermarkMessages = highMessages;
+
+		if (null != this.acceptor) {
+			this.acceptor.setWatermarkBytes(lowBytes, highBytes);
+			this.acceptor.setWatermarkMessages(lowMessages, highMessages);
+		}
+	}
+
+	/**
+	 * 设置会话发送队列超过高水位后的溢出策略。
+	 * 
+	 * @param policy 指定溢出策略。
+	 */
+	public void setOverflowPolicy(OverflowPolicy policy) {
+		this.overflowPolicy = policy;
+
+		if (null != this.acceptor) {
+			this.acceptor.setOverflowPolicy(policy);
+		}
+	}
+
+	/**
+	 * 获得会话发送队列超过高水位后的溢出策略。
+	 * 
+	 * @return 返回溢出策略。
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return this.overflowPolicy;
+	}
+
 	/**
 	 * 设置每个 Session 的读取数据间隔。
 	 * 
@@ -664,6 +834,50 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 		return (null != this.acceptor) ? this.acceptor.getTransmissionQuota() : -1;
 	}
 
+	/**
+	 * 设置每个会话发送数据配额（字节每秒，B/S）。
+	 * 
+	 * @param quotaInBytesPerSecond 以字节每秒为单位的带宽配额，为 0 时不限制。
+	 */
+	public void setSessionTransmissionQuota(int quotaInBytesPerSecond) {
+		if (null == this.acceptor) {
+			return;
+		}
+
+		this.acceptor.setSessionTransmissionQuota(quotaInBytesPerSecond);
+	}
+
+	/**
+	 * 获得每个会话发送数据配额（字节每秒，B/S）。
+	 * 
+	 * @return 返回以字节每秒为单位的带宽配额。
+	 */
+	public int getSessionTransmissionQuota() {
+		return (null != this.acceptor) ? this.acceptor.getSessionTransmissionQuota() : -1;
+	}
+
+	/**
+	 * 设置所有工作线程共享的发送数据配额（字节每秒，B/S）。
+	 * 
+	 * @param quotaInBytesPerSecond 以字节每秒为单位的带宽配额，为 0 时不限制。
+	 */
+	public void setGlobalTransmissionQuota(int quotaInBytesPerSecond) {
+		if (null == this.acceptor) {
+			return;
+		}
+
+		this.acceptor.setGlobalTransmissionQuota(quotaInBytesPerSecond);
+	}
+
+	/**
+	 * 获得所有工作线程共享的发送数据配额（字节每秒，B/S）。
+	 * 
+	 * @return 返回以字节每秒为单位的带宽配额。
+	 */
+	public int getGlobalTransmissionQuota() {
+		return (null != this.acceptor) ? this.acceptor.getGlobalTransmissionQuota() : -1;
+	}
+
 	/**
 	 * 设置是否激活 HTTP 服务。
 	 * 
@@ -859,6 +1073,80 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 		return this.tagList;
 	}
 
+	/**
+	 * 判断指定标签的终端是否可写。
+	 * 当终端所有会话的发送队列都超过高水位时终端不可写，Cellet 应当暂停向该终端发送数据。
+	 * 
+	 * @param targetTag 指定目标的内核标签。
+	 * @return 如果终端至少有一个会话可写返回 <code>true</code> 。
+	 */
+	public boolean isWritable(String targetTag) {
+		TalkSessionContext context = this.tagContexts.get(targetTag);
+		if (null == context && null != this.hostlink) {
+			String host = this.hostlink.searchHost(targetTag);
+			if (null != host) {
+				context = this.tagContexts.get(host);
+			}
+		}
+
+		if (null == context) {
+			return false;
+		}
+
+		synchronized (context) {
+			for (Session session : context.getSessions()) {
+				if (this.isWritable(session)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * 指定会话的发送队列是否可写。
+	 * 
+	 * @param session 指定会话。
+	 * @return 接收器会话的发送队列未超过高水位时返回 <code>true</code> ，其他会话始终返回 <code>true</code> 。
+	 */
+	private boolean isWritable(Session session) {
+		NonblockingAcceptor acceptor = this.acceptor;
+		if (null == acceptor || !(session instanceof NonblockingAcceptorSession)) {
+			// 只有接收器会话有发送队列水位
+			return true;
+		}
+
+		return acceptor.isWritable(session);
+	}
+
+	/**
+	 * 通知会话关联的 Cellet 会话的可写状态发生变化。
+	 * 
+	 * @param session 指定会话。
+	 * @param writable 指定会话是否可写。
+	 */
+	protected void notifyWritability(Session session, boolean writable) {
+		String tag = this.sessionTagMap.get(session.getId());
+		if (null == tag) {
+			return;
+		}
+
+		TalkSessionContext context = this.tagContexts.get(tag);
+		if (null == context) {
+			return;
+		}
+
+		TalkTracker tracker = context.getTracker(session);
+		if (null == tracker) {
+			return;
+		}
+
+		for (Cellet cellet : tracker.getCelletList()) {
+			cellet.writabilityChanged(tag, writable);
+		}
+	}
+
 	/**
 	 * 向指定标签的终端发送原语。
 	 * 
@@ -876,6 +1164,258 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 			return false;
 		}
 
+		return this.deliver(targetTag, primitive, cellet, sentTrigger, null, null);
+	}
+
+	/**
+	 * 向指定标签的一组终端发送同一个原语。
+	 * 
+	 * 广播在广播线程里异步执行，多次广播按调用顺序执行，但是与 {@link #notice(String, Primitive, Cellet, CelletSandbox)}
+	 * 之间不保证顺序。原语在调用线程里序列化为快照，调用返回后修改原语不影响广播的数据。
+	 * 所有终端的会话共享编码后的数据，语素版本、包版本和传输方式相同的会话只编码一次。
+	 * 发往接收器会话的消息按批写入，每批消息只唤醒一次接收器的反应器。
+	 * 
+	 * @param targetTags 指定目标的内核标签清单。
+	 * @param primitive 指定发送的原语数据。
+	 * @param cellet 指定源 Cellet 。
+	 * @param sandbox 指定 Cellet 对应的沙盒。
+	 * @return 返回广播结果，广播完成后可以获得每个目标标签的发送结果。
+	 */
+	public BroadcastFuture broadcast(Collection<String> targetTags, Primitive primitive, Cellet cellet, CelletSandbox sandbox) {
+		return this.broadcast(targetTags, primitive, true, cellet, sandbox);
+	}
+
+	/**
+	 * 向指定标签的一组终端发送同一个原语。
+	 * 
+	 * @param targetTags 指定目标的内核标签清单。
+	 * @param primitive 指定发送的原语数据。
+	 * @param snapshot 指定是否需要为原语创建快照，调用者不再持有的原语不需要快照。
+	 * @param cellet 指定源 Cellet 。
+	 * @param sandbox 指定 Cellet 对应的沙盒。
+	 * @return 返回广播结果。
+	 */
+	private BroadcastFuture broadcast(Collection<String> targetTags, Primitive primitive, boolean snapshot,
+			final Cellet cellet, CelletSandbox sandbox) {
+		final BroadcastFuture future = new BroadcastFuture();
+		final ArrayList<String> tags = new ArrayList<String>(targetTags);
+
+		// 检查 Cellet 合法性
+		if (!Nucleus.getInstance().checkSandbox(cellet, sandbox)) {
+			Logger.w(TalkServiceKernel.class, "Illegal cellet : " + cellet.getFeature().getIdentifier());
+			future.complete(this.failedResults(tags));
+			return future;
+		}
+
+		// 在调用线程里序列化原语
+		final Primitive data = snapshot ? primitive.snapshot() : primitive;
+
+		this.executeBroadcast(future, tags, new Runnable() {
+			@Override
+			public void run() {
+				future.complete(doBroadcast(tags, data, cellet));
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * 向指定标签的一组终端发送同一个方言。
+	 * 
+	 * @param targetTags 指定目标的内核标签清单。
+	 * @param dialect 指定发送的方言数据。
+	 * @param cellet 指定源 Cellet 。
+	 * @param sandbox 指定 Cellet 对应的沙盒。
+	 * @return 返回广播结果，广播完成后可以获得每个目标标签的发送结果。
+	 */
+	public BroadcastFuture broadcast(Collection<String> targetTags, Dialect dialect, Cellet cellet, CelletSandbox sandbox) {
+		Primitive primitive = dialect.reconstruct();
+		if (null != primitive) {
+			// 重建的原语只被广播使用，不需要快照
+			return this.broadcast(targetTags, primitive, false, cellet, sandbox);
+		}
+
+		BroadcastFuture future = new BroadcastFuture();
+		future.complete(this.failedResults(targetTags));
+		return future;
+	}
+
+	/**
+	 * 向所有与指定 Cellet 建立了对话的终端发送同一个原语。
+	 * 
+	 * @param primitive 指定发送的原语数据。
+	 * @param cellet 指定源 Cellet 。
+	 * @param sandbox 指定 Cellet 对应的沙盒。
+	 * @return 返回广播结果，广播完成后可以获得每个目标标签的发送结果。
+	 */
+	public BroadcastFuture broadcast(Primitive primitive, Cellet cellet, CelletSandbox sandbox) {
+		return this.broadcast(primitive, true, cellet, sandbox);
+	}
+
+	/**
+	 * 向所有与指定 Cellet 建立了对话的终端发送同一个原语。
+	 * 
+	 * @param primitive 指定发送的原语数据。
+	 * @param snapshot 指定是否需要为原语创建快照，调用者不再持有的原语不需要快照。
+	 * @param cellet 指定源 Cellet 。
+	 * @param sandbox 指定 Cellet 对应的沙盒。
+	 * @return 返回广播结果。
+	 */
+	private BroadcastFuture broadcast(Primitive primitive, boolean snapshot, final Cellet cellet, CelletSandbox sandbox) {
+		final BroadcastFuture future = new BroadcastFuture();
+
+		// 检查 Cellet 合法性
+		if (!Nucleus.getInstance().checkSandbox(cellet, sandbox)) {
+			Logger.w(TalkServiceKernel.class, "Illegal cellet : " + cellet.getFeature().getIdentifier());
+			future.complete(new LinkedHashMap<String, Boolean>());
+			return future;
+		}
+
+		// 在调用线程里序列化原语
+		final Primitive data = snapshot ? primitive.snapshot() : primitive;
+
+		this.executeBroadcast(future, null, new Runnable() {
+			@Override
+			public void run() {
+				future.complete(doBroadcast(getContactedTags(cellet), data, cellet));
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * 向所有与指定 Cellet 建立了对话的终端发送同一个方言。
+	 * 
+	 * @param dialect 指定发送的方言数据。
+	 * @param cellet 指定源 Cellet 。
+	 * @param sandbox 指定 Cellet 对应的沙盒。
+	 * @return 返回广播结果，广播完成后可以获得每个目标标签的发送结果。
+	 */
+	public BroadcastFuture broadcast(Dialect dialect, Cellet cellet, CelletSandbox sandbox) {
+		Primitive primitive = dialect.reconstruct();
+		if (null != primitive) {
+			// 重建的原语只被广播使用，不需要快照
+			return this.broadcast(primitive, false, cellet, sandbox);
+		}
+
+		BroadcastFuture future = new BroadcastFuture();
+		future.complete(new LinkedHashMap<String, Boolean>());
+		return future;
+	}
+
+	/**
+	 * 在广播线程里执行广播任务。
+	 * 
+	 * @param future 指定广播结果。
+	 * @param tags 指定目标标签，用于生成执行失败时的结果，可以为 <code>null</code> 。
+	 * @param task 指定广播任务。
+	 */
+	private void executeBroadcast(BroadcastFuture future, List<String> tags, Runnable task) {
+		ExecutorService executor = null;
+		synchronized (this) {
+			executor = this.broadcastExecutor;
+		}
+
+		if (null == executor) {
+			// 服务未启动或者已经关闭
+			Logger.w(TalkServiceKernel.class, "Talk service is not running, broadcast rejected");
+			future.complete(null != tags ? this.failedResults(tags) : new LinkedHashMap<String, Boolean>());
+			return;
+		}
+
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			Logger.log(TalkServiceKernel.class, e, LogLevel.WARNING);
+			future.complete(null != tags ? this.failedResults(tags) : new LinkedHashMap<String, Boolean>());
+		}
+	}
+
+	/**
+	 * 执行广播。
+	 * 
+	 * @param tags 指定目标的内核标签清单。
+	 * @param primitive 指定发送的原语数据。
+	 * @param cellet 指定源 Cellet 。
+	 * @return 返回每个目标标签的发送结果。
+	 */
+	private Map<String, Boolean> doBroadcast(List<String> tags, Primitive primitive, Cellet cellet) {
+		LinkedHashMap<String, Boolean> results = new LinkedHashMap<String, Boolean>();
+		DialogueEncoding encoding = new DialogueEncoding(cellet, primitive, null);
+		DeliveryBatch batch = (null != this.acceptor) ? new DeliveryBatch(this.acceptor, BROADCAST_BATCH_SIZE) : null;
+
+		for (int i = 0, size = tags.size(); i < size; ++i) {
+			String tag = tags.get(i);
+			try {
+				results.put(tag, this.deliver(tag, primitive, cellet, null, encoding, batch));
+			} catch (Exception e) {
+				Logger.log(TalkServiceKernel.class, e, LogLevel.WARNING);
+				results.put(tag, Boolean.FALSE);
+			}
+
+			// 按批写入，每批消息只唤醒一次反应器
+			if (null != batch && batch.size() >= BROADCAST_BATCH_SIZE) {
+				batch.flush(results);
+			}
+		}
+
+		if (null != batch) {
+			batch.flush(results);
+		}
+
+		return results;
+	}
+
+	/**
+	 * 获得与指定 Cellet 建立了对话的终端标签。
+	 * 
+	 * @param cellet 指定 Cellet 。
+	 * @return 返回终端标签清单。
+	 */
+	private List<String> getContactedTags(Cellet cellet) {
+		ArrayList<String> tags = new ArrayList<String>();
+
+		for (Map.Entry<String, TalkSessionContext> e : this.tagContexts.entrySet()) {
+			TalkSessionContext context = e.getValue();
+			synchronized (context) {
+				for (TalkTracker tracker : context.getTrackers()) {
+					if (tracker.hasCellet(cellet)) {
+						tags.add(e.getKey());
+						break;
+					}
+				}
+			}
+		}
+
+		return tags;
+	}
+
+	/**
+	 * 生成全部失败的广播结果。
+	 */
+	private Map<String, Boolean> failedResults(Collection<String> tags) {
+		LinkedHashMap<String, Boolean> results = new LinkedHashMap<String, Boolean>();
+		for (String tag : tags) {
+			results.put(tag, Boolean.FALSE);
+		}
+		return results;
+	}
+
+	/**
+	 * 向指定标签的终端的所有会话发送原语。
+	 * 
+	 * @param targetTag 指定目标的内核标签。
+	 * @param primitive 指定发送的原语数据。
+	 * @param cellet 指定源 Cellet 。
+	 * @param sentTrigger 指定消息触发器。
+	 * @param sharedEncoding 指定多个终端共享的编码缓存，可以为 <code>null</code> 。
+	 * @param batch 指定批量发送队列，发往接收器会话的消息进入该队列，可以为 <code>null</code> 。
+	 * @return 如果数据被正确送入发送队列返回 <code>true</code> 。
+	 */
+	private boolean deliver(String targetTag, Primitive primitive, Cellet cellet, MessageTrigger sentTrigger,
+			DialogueEncoding sharedEncoding, DeliveryBatch batch) {
 		String verifiedTag = targetTag;
 		String note = null;
 
@@ -905,22 +1445,44 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 		}
 
 		Message message = null;
+		// 是否有会话因发送队列溢出拒绝消息
+		boolean rejected = false;
 
 		synchronized (context) {
-			for (Session session : context.getSessions()) {
+			List<Session> sessions = context.getSessions();
+
+			// 多个会话共享编码数据，只有一个会话时直接编码到输出帧缓存
+			DialogueEncoding encoding = null;
+			if (null != sharedEncoding && null == note) {
+				encoding = sharedEncoding;
+			}
+			else if (sessions.size() > 1) {
+				encoding = new DialogueEncoding(cellet, primitive, note);
+			}
+
+			for (Session session : sessions) {
 				if (session.lock.get()) {
 					// 会话被锁，不能进行操作
 					continue;
 				}
 
+				if (!this.isWritable(session)) {
+					OverflowPolicy policy = this.acceptor.getOverflowPolicy();
+					if (OverflowPolicy.DROP_NEWEST == policy || OverflowPolicy.DISCONNECT == policy) {
+						rejected = true;
+					}
+				}
+
 				// 返回 tracker
 				TalkTracker tracker = context.getTracker(session);
 
 				if (tracker.hasCellet(cellet)) {
 
-					// 兼容性处理
-					StuffVersion sv = (null != tracker.stuffVersion) ?
-							tracker.stuffVersion : CompatibilityHelper.match(tracker.getCapacity().getVersionNumber());
+					// 兼容性处理，协商了二进制格式时优先使用二进制格式
+					StuffVersion sv = CompatibilityHelper.match(tracker.getCapacity());
+					if (StuffVersion.V4 != sv && null != tracker.stuffVersion) {
+						sv = tracker.stuffVersion;
+					}
 					// 设置语素版本
 					primitive.setVersion(sv);
 
@@ -940,7 +1502,12 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 					}
 
 					// 打包
-					message = this.packetDialogue(cellet, primitive, session, note);
+					if (null != encoding) {
+						message = this.packetDialogue(encoding, sv, session);
+					}
+					else {
+						message = this.packetDialogue(cellet, primitive, session, note);
+					}
 
 					// 设置触发器
 					if (null != sentTrigger) {
@@ -952,6 +1519,13 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 					}
 
 					if (null != message) {
+						if (null != batch && session.getService() == this.acceptor
+								&& !(session instanceof WebSocketSession)) {
+							// 由批量发送队列写入
+							batch.add(targetTag, session, message);
+							continue;
+						}
+
 						try {
 							session.write(message);
 						} catch (Exception e) {
@@ -966,7 +1540,7 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 			}
 		}
 
-		return (null != message);
+		return (null != message) && !rejected;
 	}
 
 	/**
@@ -2056,6 +2630,9 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 			Logger.e(this.getClass(), "Can not find talk tracker for session: " + session.getAddress().getHostString());
 		}
 
+		// 终端声明能接收续传帧时才分片发送大消息
+		session.setFragmentable(capacity.isFragmentable());
+
 		return capacity;
 	}
 
@@ -2312,7 +2889,7 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 			// 如果是来自 HTTP 协议的 Session 则直接返回
 			return;
 		}
-		else if (session instanceof WebSocketSession) {
+		else if (DialogueEncoding.isJSONSession(session)) {
 			// 是否是 WebSocket 的 Session
 			WebSocketSession ws = (WebSocketSession) session;
 
@@ -2354,10 +2931,22 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 		byte[] data = Packet.pack(packet);
 		if (null != data) {
 			Message message = new Message(data);
-			try {
-				this.acceptor.write(session, message);
-			} catch (IOException e) {
-				Logger.log(this.getClass(), e, LogLevel.ERROR);
+			if (session instanceof WebSocketSession) {
+				// 使用二进制帧的 WebSocket 会话
+				WebSocketSession ws = (WebSocketSession) session;
+				if (null != this.wssManager && this.wssManager.hasSession(ws)) {
+					this.wssManager.write(ws, message);
+				}
+				else {
+					this.wsManager.write(ws, message);
+				}
+			}
+			else {
+				try {
+					this.acceptor.write(session, message);
+				} catch (IOException e) {
+					Logger.log(this.getClass(), e, LogLevel.ERROR);
+				}
 			}
 			message = null;
 		}
@@ -2365,6 +2954,16 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 		packet = null;
 	}
 
+	/**
+	 * 处理 WebSocket 二进制帧携带的数据包。数据包与 TCP 协议的格式相同，由相同的服务器命令处理。
+	 * 
+	 * @param session 指定数据来源会话。
+	 * @param message 指定包含数据包的消息。
+	 */
+	protected void processPacket(Session session, Message message) {
+		this.talkHandler.messageReceived(session, message);
+	}
+
 	/**
 	 * 将原语打包为原始消息数据格式。
 	 * 
@@ -2377,50 +2976,66 @@ public final class TalkServiceKernel implements Service, SpeakerDelegate {
 	private Message packetDialogue(Cellet cellet, Primitive primitive, Session session, String note) {
 		Message message = null;
 
-		if (session instanceof WebSocketSession) {
-			try {
-				JSONObject primJson = new JSONObject();
-				PrimitiveSerializer.write(primJson, primitive);
-
-				JSONObject packet = new JSONObject();
-				packet.put(HttpDialogueHandler.Primitive, primJson);
-				packet.put(HttpDialogueHandler.Identifier, cellet.getFeature().getIdentifier());
-				if (null != note) {
-					packet.put(HttpDialogueHandler.Note, note);
-				}
-
-				JSONObject data = new JSONObject();
-				data.put(WebSocketMessageHandler.TALK_PACKET_TAG, WebSocketMessageHandler.TPT_DIALOGUE);
-				data.put(WebSocketMessageHandler.TALK_PACKET, packet);
-
+		if (DialogueEncoding.isJSONSession(session)) {
+			byte[] data = DialogueEncoding.encodeJSON(primitive, cellet.getFeature().getIdentifier(), note);
+			if (null != data) {
 				// 创建 message
-				message = new Message(data.toString().getBytes(Charset.forName("UTF-8")));
-			} catch (JSONException e) {
-				Logger.log(this.getClass(), e, LogLevel.ERROR);
+				message = new Message(data);
 			}
 		}
 		else {
 			// 包格式：原语序列|Cellet[|NOTE]
 
-			// 序列化原语
-			ByteArrayOutputStream stream = primitive.write();
+			// 序列化原语，数据包在当前线程内打包完成，直接引用线程复用的缓存
+			ByteArrayBuffer stream = PrimitiveSerializer.write(primitive);
 
 			// 封装数据包
 			Packet packet = new Packet(TalkDefinition.TPT_DIALOGUE, 99, session.major, session.minor);
-			packet.appendSegment(stream.toByteArray());
+			packet.appendSegment(stream.array(), 0, stream.length());
 			packet.appendSegment(Utils.string2Bytes(cellet.getFeature().getIdentifier()));
 			if (null != note) {
 				packet.appendSegment(Utils.string2Bytes(note));
 			}
 
 			// 打包数据
-			byte[] data = Packet.pack(packet);
-			message = new Message(data);
+			MessageService service = session.getService();
+			if (service == this.acceptor) {
+				// 直接编码到输出帧缓存
+				message = Packet.pack(packet, service);
+			}
+			else {
+				byte[] data = Packet.pack(packet);
+				message = new Message(data);
+			}
 		}
 
 		return message;
 	}
 
+	/**
+	 * 使用编码缓存生成对话消息。
+	 * 
+	 * @param encoding 指定编码缓存。
+	 * @param version 指定语素版本。
+	 * @param session 指定目标会话。
+	 * @return 返回生成的消息，编码失败返回 <code>null</code> 。
+	 */
+	private Message packetDialogue(DialogueEncoding encoding, StuffVersion version, Session session) {
+		byte[] data = encoding.encode(version, session);
+		if (null == data) {
+			return null;
+		}
+
+		if (session.getService() == this.acceptor && !(session instanceof WebSocketSession)) {
+			// 每个会话复制一次数据到独立的输出帧缓存
+			return Packet.frame(data, this.acceptor);
+		}
+		else {
+			// 加密时生成新数组，共享的数据不会被修改
+			return new Message(data);
+		}
+	}
+
 	/**
 	 * 会话身份证书。
 	 */
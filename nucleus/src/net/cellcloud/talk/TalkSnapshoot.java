@@ -26,6 +26,8 @@ THE SOFTWARE.
 
 package net.cellcloud.talk;
 
+import net.cellcloud.util.Histogram;
+
 /**
  * Talk Service 快照。
  * 
@@ -51,6 +53,20 @@ public final class TalkSnapshoot {
 	public long[] networkRx = null;
 	/** 标准协议的每个工作线程发送的数据流量（字节）。 */
 	public long[] networkTx = null;
+	/** 标准协议的反应器线程数量。 */
+	public int numReactors = 0;
+	/** 标准协议的每个反应器线程分发的读事件数量。 */
+	public long[] reactorReadEvents = null;
+	/** 标准协议的每个反应器线程分发的写事件数量。 */
+	public long[] reactorWriteEvents = null;
+	/** 标准协议的每个反应器线程管理的会话数量。 */
+	public int[] reactorSessions = null;
+	/** 标准协议的事件分发无效唤醒次数。 */
+	public long spuriousWakeups = 0;
+	/** 标准协议超出传输配额的累计字节数。 */
+	public long throttledBytes = 0;
+	/** 标准协议因超出传输配额而推迟发送的累计次数。 */
+	public long quotaDeferrals = 0;
 
 	/** WebSocket 协议的服务绑定端口。 */
 	public int webSocketPort = 0;
@@ -97,6 +113,16 @@ public final class TalkSnapshoot {
 	public int actionDialectMaxThreadNum = 0;
 	/** 处于待处理状态的动作方言数量。 */
 	public int actionDialectPendingNum = 0;
+	/** 动作方言待处理数量上限。 */
+	public int actionDialectMaxPendingNum = 0;
+	/** 因队列已满被拒绝或丢弃的动作方言数量。 */
+	public long actionDialectRejectedNum = 0;
+	/** 动作方言入队时的队列深度分布。 */
+	public Histogram actionDialectQueueDepth = null;
+	/** 动作方言在队列中的等待时间分布，单位：微秒。 */
+	public Histogram actionDialectWaitTime = null;
+	/** 动作方言的执行时间分布，单位：微秒。 */
+	public Histogram actionDialectExecTime = null;
 
 	/** 区块方言缓存数量。 */
 	public int chunkDialectCacheNum = 0;
@@ -104,6 +130,8 @@ public final class TalkSnapshoot {
 	public long chunkDialectCacheMemSize = 0;
 	/** 区块方言最大内存缓存大小。 */
 	public long chunkDialectMaxCacheMemSize = 0;
+	/** 区块方言当前文件缓存大小。 */
+	public long chunkDialectCacheFileSize = 0;
 	/** 区块方言当前队列长度。 */
 	public int chunkDialectQueueSize = 0;
 
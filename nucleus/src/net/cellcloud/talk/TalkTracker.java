@@ -59,6 +59,9 @@ public final class TalkTracker {
 	protected TalkTracker(Session session) {
 		this.cellets = new LinkedList<Cellet>();
 		this.capacity = new TalkCapacity();
+		// 协商之前不使用二进制语素格式
+		this.capacity.setMaxStuffVersion(0);
+		this.capacity.setFragmentable(false);
 		this.session = session;
 	}
 
@@ -37,15 +37,18 @@ import net.cellcloud.common.Message;
 import net.cellcloud.common.MessageHandler;
 import net.cellcloud.common.Session;
 import net.cellcloud.core.Nucleus;
+import net.cellcloud.http.WebSocketSession;
 import net.cellcloud.talk.http.HttpCheckHandler;
 import net.cellcloud.talk.http.HttpDialogueHandler;
 import net.cellcloud.talk.http.HttpQuickHandler;
 import net.cellcloud.talk.http.HttpRequestHandler;
 import net.cellcloud.talk.stuff.PrimitiveSerializer;
+import net.cellcloud.util.JSONStreamReader;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 /**
  * WebSocket 协议的消息处理器。
@@ -135,25 +138,56 @@ public class WebSocketMessageHandler implements MessageHandler {
 
 	@Override
 	public void messageReceived(Session session, Message message) {
+		if (session instanceof WebSocketSession && ((WebSocketSession) session).isBinary()) {
+			// 二进制帧携带与 TCP 协议相同格式的数据包
+			this.service.processPacket(session, message);
+			return;
+		}
+
 		try {
-			JSONObject data = new JSONObject(new String(message.get(), Charset.forName("UTF-8")));
-			String packetTag = data.getString(TALK_PACKET_TAG);
+			// 只解析外层的包标签和包数据位置，不构建 JSON 对象树
+			byte[] data = message.get();
+			JSONStreamReader reader = new JSONStreamReader(data);
+
+			String packetTag = null;
+			int packetStart = -1;
+			int packetEnd = -1;
+
+			reader.beginObject();
+			while (reader.hasNext()) {
+				String key = reader.nextName();
+				if (key.equals(TALK_PACKET_TAG)) {
+					packetTag = reader.nextString();
+				}
+				else if (key.equals(TALK_PACKET)) {
+					packetStart = reader.skipValue();
+					packetEnd = reader.position();
+				}
+				else {
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+
 			if (null != packetTag) {
 				if (packetTag.equals(TPT_DIALOGUE)) {
-					this.processDialogue(data.getJSONObject(TALK_PACKET), session);
+					if (packetStart < 0) {
+						throw new JSONException("JSONObject[\"" + TALK_PACKET + "\"] not found.");
+					}
+					this.processDialogue(data, packetStart, packetEnd - packetStart, session);
 				}
 				else if (packetTag.equals(TPT_QUICK)) {
-					this.processQuick(data.getJSONObject(TALK_PACKET), session);
+					this.processQuick(this.toJSONObject(data, packetStart, packetEnd), session);
 				}
 				else if (packetTag.equals(TPT_HEARTBEAT)) {
 					// 更新心跳
 					this.service.updateSessionHeartbeat(session);
 				}
 				else if (packetTag.equals(TPT_REQUEST)) {
-					this.processRequest(data.getJSONObject(TALK_PACKET), session);
+					this.processRequest(this.toJSONObject(data, packetStart, packetEnd), session);
 				}
 				else if (packetTag.equals(TPT_CHECK)) {
-					this.processCheck(data.getJSONObject(TALK_PACKET), session);
+					this.processCheck(this.toJSONObject(data, packetStart, packetEnd), session);
 				}
 				else {
 					Logger.w(this.getClass(), "Unknown TPT: " + packetTag);
@@ -167,6 +201,23 @@ public class WebSocketMessageHandler implements MessageHandler {
 		}
 	}
 
+	/**
+	 * 将包数据解析为 JSON 对象。
+	 * 
+	 * @param data 指定消息数据。
+	 * @param start 指定包数据起始位置，小于 <code>0</code> 表示没有包数据。
+	 * @param end 指定包数据结束位置。
+	 * @return 返回 JSON 对象。
+	 * @throws JSONException
+	 */
+	private JSONObject toJSONObject(byte[] data, int start, int end) throws JSONException {
+		if (start < 0) {
+			throw new JSONException("JSONObject[\"" + TALK_PACKET + "\"] not found.");
+		}
+
+		return new JSONObject(new JSONTokener(data, start, end - start));
+	}
+
 	@Override
 	public void messageSent(Session session, Message message) {
 		// Nothing
@@ -180,12 +231,14 @@ public class WebSocketMessageHandler implements MessageHandler {
 	/**
 	 * 处理数据对话。
 	 * 
-	 * @param data JSON 格式的数据。
+	 * @param data 消息数据。
+	 * @param offset 对话包数据的偏移。
+	 * @param length 对话包数据的长度。
 	 * @param session 当前数据的 Session 。
 	 */
-	private void processDialogue(JSONObject data, Session session) {
+	private void processDialogue(byte[] data, int offset, int length, Session session) {
 		// 异步执行任务
-		this.service.executor.execute(this.borrowTask(data, session));
+		this.service.executor.execute(this.borrowTask(data, offset, length, session));
 	}
 
 	/**
@@ -372,10 +425,12 @@ public class WebSocketMessageHandler implements MessageHandler {
 	 * 从缓存中借出任务实例。
 	 * 
 	 * @param data 任务需要处理的 JSON 格式数据。
+	 * @param offset 数据偏移。
+	 * @param length 数据长度。
 	 * @param session 任务关联的会话。
 	 * @return
 	 */
-	private Task borrowTask(JSONObject data, Session session) {
+	private Task borrowTask(byte[] data, int offset, int length, Session session) {
 		Task task = null;
 
 		synchronized (this.taskList) {
@@ -390,6 +445,8 @@ public class WebSocketMessageHandler implements MessageHandler {
 		this.taskCounts.incrementAndGet();
 
 		task.data = data;
+		task.offset = offset;
+		task.length = length;
 		task.session = session;
 		return task;
 	}
@@ -418,8 +475,12 @@ public class WebSocketMessageHandler implements MessageHandler {
 	 */
 	protected class Task implements Runnable {
 
-		/** 数据。 */
-		protected JSONObject data;
+		/** UTF-8 编码的 JSON 格式数据。 */
+		protected byte[] data;
+		/** 数据偏移。 */
+		protected int offset;
+		/** 数据长度。 */
+		protected int length;
 		/** 会话 Session 。 */
 		protected Session session;
 
@@ -432,12 +493,39 @@ public class WebSocketMessageHandler implements MessageHandler {
 		@Override
 		public void run() {
 			try {
-				String speakerTag = this.data.getString(HttpDialogueHandler.Tag);
-				String celletIdentifier = this.data.getString(HttpDialogueHandler.Identifier);
-				JSONObject primitiveJSON = this.data.getJSONObject(HttpDialogueHandler.Primitive);
+				JSONStreamReader reader = new JSONStreamReader(this.data, this.offset, this.length);
+
+				String speakerTag = null;
+				String celletIdentifier = null;
+				int primitivePosition = -1;
+
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String key = reader.nextName();
+					if (key.equals(HttpDialogueHandler.Tag)) {
+						speakerTag = reader.nextString();
+					}
+					else if (key.equals(HttpDialogueHandler.Identifier)) {
+						celletIdentifier = reader.nextString();
+					}
+					else if (key.equals(HttpDialogueHandler.Primitive)) {
+						// 原语需要使用标签创建，先记录位置
+						primitivePosition = reader.skipValue();
+					}
+					else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+
+				if (null == speakerTag || null == celletIdentifier || primitivePosition < 0) {
+					throw new JSONException("Missing dialogue data");
+				}
+
 				// 解析原语
 				Primitive primitive = new Primitive(speakerTag);
-				PrimitiveSerializer.read(primitive, primitiveJSON);
+				reader.seek(primitivePosition);
+				PrimitiveSerializer.read(primitive, reader);
 				// 处理原语
 				service.processDialogue(this.session, speakerTag, celletIdentifier, primitive);
 			} catch (JSONException e) {
@@ -66,6 +66,8 @@ public final class ServerConsultCommand extends ServerCommand {
 		if (null == capacity) {
 			Logger.w(ServerConsultCommand.class, "Error talk capacity data format: tag=" + tag);
 			capacity = new TalkCapacity();
+			capacity.setMaxStuffVersion(0);
+			capacity.setFragmentable(false);
 		}
 
 		TalkCapacity ret = this.kernel.processConsult(this.session, tag, capacity);
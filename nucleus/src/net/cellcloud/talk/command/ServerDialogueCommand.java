@@ -26,8 +26,6 @@ THE SOFTWARE.
 
 package net.cellcloud.talk.command;
 
-import java.io.ByteArrayInputStream;
-
 import net.cellcloud.common.Logger;
 import net.cellcloud.common.Packet;
 import net.cellcloud.common.Session;
@@ -61,24 +59,25 @@ public final class ServerDialogueCommand extends ServerCommand {
 	public void execute() {
 		// 包格式：序列化的原语|源标签|Cellet
 
-		if (this.packet.numSegments() < 2) {
+		if (this.packet.numSegments() < 3) {
 			Logger.e(ServerDialogueCommand.class, "Dialogue packet format error");
 			return;
 		}
 
-		byte[] priData = this.packet.getSegment(0);
-		ByteArrayInputStream stream = new ByteArrayInputStream(priData);
+		// 直接在数据段视图上读取，不复制数据段
+		Packet packet = this.packet;
 
-		byte[] tagData = this.packet.getSegment(1);
-		String speakerTag = Utils.bytes2String(tagData);
+		String speakerTag = Utils.bytes2String(packet.getSegmentBuffer(1),
+				packet.getSegmentOffset(1), packet.getSegmentLength(1));
 
-		byte[] identifierData = this.packet.getSegment(2);
+		String identifier = Utils.bytes2String(packet.getSegmentBuffer(2),
+				packet.getSegmentOffset(2), packet.getSegmentLength(2));
 
-		// 反序列化原语
+		// 延迟反序列化原语，语素在访问时创建，未修改的原语转发时直接使用原始数据
 		Primitive primitive = new Primitive(speakerTag);
-		primitive.read(stream);
+		primitive.readLazily(packet.getSegmentBuffer(0), packet.getSegmentOffset(0), packet.getSegmentLength(0));
 
-		this.kernel.processDialogue(this.session, speakerTag, Utils.bytes2String(identifierData), primitive);
+		this.kernel.processDialogue(this.session, speakerTag, identifier, primitive);
 	}
 
 }
@@ -66,9 +66,8 @@ public final class ServerProxyCommand extends ServerCommand {
 	public void execute() {
 		// 包格式：JSON数据
 
-		byte[] data = this.packet.getSegment(0);
-
-		String jsonString = Utils.bytes2String(data);
+		String jsonString = Utils.bytes2String(this.packet.getSegmentBuffer(0),
+				this.packet.getSegmentOffset(0), this.packet.getSegmentLength(0));
 
 		String proxyTag = null;
 		String targetTag = null;
@@ -90,7 +89,7 @@ public final class ServerProxyCommand extends ServerCommand {
 		// 包格式：状态码|JSON数据
 		Packet packet = new Packet(TalkDefinition.TPT_PROXY, 20, this.session.major, this.session.minor);
 		packet.appendSegment(ret ? TalkDefinition.SC_SUCCESS : TalkDefinition.SC_FAILURE_NOCELLET);
-		packet.appendSegment(data);
+		packet.appendSegment(this.packet.getSegment(0));
 
 		// 打包数据
 		byte[] response = Packet.pack(packet);
@@ -66,9 +66,8 @@ public final class ServerProxyDialogueResponseCommand extends ServerCommand {
 	public void execute() {
 		// 包格式：JSON数据
 
-		byte[] data = packet.getSegment(0);
-
-		String jsonstr = Utils.bytes2String(data);
+		String jsonstr = Utils.bytes2String(this.packet.getSegmentBuffer(0),
+				this.packet.getSegmentOffset(0), this.packet.getSegmentLength(0));
 
 		String tag = null;
 		String identifier = null;
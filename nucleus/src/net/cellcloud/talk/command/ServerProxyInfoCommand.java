@@ -53,9 +53,8 @@ public class ServerProxyInfoCommand extends ServerCommand {
 	public void execute() {
 		// 包格式：JSON数据
 		
-		byte[] data = this.packet.getSegment(0);
-
-		String jsonString = Utils.bytes2String(data);
+		String jsonString = Utils.bytes2String(this.packet.getSegmentBuffer(0),
+				this.packet.getSegmentOffset(0), this.packet.getSegmentLength(0));
 
 		String proxyTag = null;
 		String info = null;
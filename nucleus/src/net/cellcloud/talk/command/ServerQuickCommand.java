@@ -115,6 +115,8 @@ public final class ServerQuickCommand extends ServerCommand {
 			if (null == capacity) {
 				Logger.w(ServerQuickCommand.class, "Error talk capacity data format: tag=" + tag);
 				capacity = new TalkCapacity();
+				capacity.setMaxStuffVersion(0);
+				capacity.setFragmentable(false);
 			}
 
 			// 进行协商
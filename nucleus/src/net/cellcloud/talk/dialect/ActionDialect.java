@@ -26,7 +26,8 @@ THE SOFTWARE.
 
 package net.cellcloud.talk.dialect;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import net.cellcloud.talk.Primitive;
@@ -41,6 +42,8 @@ import org.json.JSONObject;
 /**
  * 动作方言。
  * 
+ * 参数按照添加顺序保存，并使用散列索引按参数名查找。参数名重复时按名称查找返回第一个参数。
+ * 
  * @author Ambrose Xu
  * 
  */
@@ -54,9 +57,11 @@ public class ActionDialect extends Dialect {
 	/** 动作名。 */
 	private String action;
 	/** 参数名列表。 */
-	private LinkedList<String> nameList;
+	private ArrayList<String> nameList;
 	/** 参数值列表。 */
-	private LinkedList<ObjectiveStuff> valueList;
+	private ArrayList<ObjectiveStuff> valueList;
+	/** 参数名到第一个同名参数位置的索引。 */
+	private HashMap<String, Integer> indexMap;
 
 	/** 动作自定义上下文数据。 */
 	private Object customContext;
@@ -66,8 +71,9 @@ public class ActionDialect extends Dialect {
 	 */
 	public ActionDialect() {
 		super(ActionDialect.DIALECT_NAME);
-		this.nameList = new LinkedList<String>();
-		this.valueList = new LinkedList<ObjectiveStuff>();
+		this.nameList = new ArrayList<String>();
+		this.valueList = new ArrayList<ObjectiveStuff>();
+		this.indexMap = new HashMap<String, Integer>();
 	}
 
 	/**
@@ -77,8 +83,9 @@ public class ActionDialect extends Dialect {
 	 */
 	public ActionDialect(String tracker) {
 		super(ActionDialect.DIALECT_NAME, tracker);
-		this.nameList = new LinkedList<String>();
-		this.valueList = new LinkedList<ObjectiveStuff>();
+		this.nameList = new ArrayList<String>();
+		this.valueList = new ArrayList<ObjectiveStuff>();
+		this.indexMap = new HashMap<String, Integer>();
 	}
 
 	/**
@@ -90,8 +97,9 @@ public class ActionDialect extends Dialect {
 	public ActionDialect(String tracker, String action) {
 		super(ActionDialect.DIALECT_NAME, tracker);
 		this.action = action;
-		this.nameList = new LinkedList<String>();
-		this.valueList = new LinkedList<ObjectiveStuff>();
+		this.nameList = new ArrayList<String>();
+		this.valueList = new ArrayList<ObjectiveStuff>();
+		this.indexMap = new HashMap<String, Integer>();
 	}
 
 	/**
@@ -150,9 +158,11 @@ public class ActionDialect extends Dialect {
 			List<SubjectStuff> names = primitive.subjects();
 			List<ObjectiveStuff> values = primitive.objectives();
 			synchronized (this) {
-				for (int i = 0, size = names.size(); i < size; ++i) {
-					this.nameList.add(names.get(i).getValueAsString());
-					this.valueList.add(values.get(i));
+				int size = names.size();
+				this.nameList.ensureCapacity(this.nameList.size() + size);
+				this.valueList.ensureCapacity(this.valueList.size() + size);
+				for (int i = 0; i < size; ++i) {
+					this.append(names.get(i).getValueAsString(), values.get(i));
 				}
 			}
 		}
@@ -184,8 +194,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public void appendParam(String name, String value) {
 		synchronized (this) {
-			this.nameList.add(name);
-			this.valueList.add(new ObjectiveStuff(value));
+			this.append(name, new ObjectiveStuff(value));
 		}
 	}
 
@@ -197,8 +206,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public void appendParam(String name, int value) {
 		synchronized (this) {
-			this.nameList.add(name);
-			this.valueList.add(new ObjectiveStuff(value));
+			this.append(name, new ObjectiveStuff(value));
 		}
 	}
 
@@ -210,8 +218,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public void appendParam(String name, long value) {
 		synchronized (this) {
-			this.nameList.add(name);
-			this.valueList.add(new ObjectiveStuff(value));
+			this.append(name, new ObjectiveStuff(value));
 		}
 	}
 
@@ -223,8 +230,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public void appendParam(String name, float value) {
 		synchronized (this) {
-			this.nameList.add(name);
-			this.valueList.add(new ObjectiveStuff(value));
+			this.append(name, new ObjectiveStuff(value));
 		}
 	}
 
@@ -236,8 +242,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public void appendParam(String name, double value) {
 		synchronized (this) {
-			this.nameList.add(name);
-			this.valueList.add(new ObjectiveStuff(value));
+			this.append(name, new ObjectiveStuff(value));
 		}
 	}
 
@@ -249,8 +254,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public void appendParam(String name, boolean value) {
 		synchronized (this) {
-			this.nameList.add(name);
-			this.valueList.add(new ObjectiveStuff(value));
+			this.append(name, new ObjectiveStuff(value));
 		}
 	}
 
@@ -262,8 +266,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public void appendParam(String name, JSONObject value) {
 		synchronized (this) {
-			this.nameList.add(name);
-			this.valueList.add(new ObjectiveStuff(value));
+			this.append(name, new ObjectiveStuff(value));
 		}
 	}
 
@@ -275,7 +278,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public String getParamAsString(String name) {
 		synchronized (this) {
-			int index = this.nameList.indexOf(name);
+			int index = this.indexOf(name);
 			if (index >= 0)
 				return this.valueList.get(index).getValueAsString();
 		}
@@ -291,7 +294,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public int getParamAsInt(String name) {
 		synchronized (this) {
-			int index = this.nameList.indexOf(name);
+			int index = this.indexOf(name);
 			if (index >= 0)
 				return this.valueList.get(index).getValueAsInt();
 		}
@@ -307,7 +310,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public long getParamAsLong(String name) {
 		synchronized (this) {
-			int index = this.nameList.indexOf(name);
+			int index = this.indexOf(name);
 			if (index >= 0)
 				return this.valueList.get(index).getValueAsLong();
 		}
@@ -323,7 +326,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public float getParamAsFloat(String name) {
 		synchronized (this) {
-			int index = this.nameList.indexOf(name);
+			int index = this.indexOf(name);
 			if (index >= 0)
 				return this.valueList.get(index).getValueAsFloat();
 		}
@@ -339,7 +342,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public double getParamAsDouble(String name) {
 		synchronized (this) {
-			int index = this.nameList.indexOf(name);
+			int index = this.indexOf(name);
 			if (index >= 0)
 				return this.valueList.get(index).getValueAsDouble();
 		}
@@ -355,7 +358,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public boolean getParamAsBoolean(String name) {
 		synchronized (this) {
-			int index = this.nameList.indexOf(name);
+			int index = this.indexOf(name);
 			if (index >= 0)
 				return this.valueList.get(index).getValueAsBool();
 		}
@@ -372,7 +375,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public JSONObject getParamAsJSON(String name) throws JSONException {
 		synchronized (this) {
-			int index = this.nameList.indexOf(name);
+			int index = this.indexOf(name);
 			if (index >= 0)
 				return this.valueList.get(index).getValueAsJSON();
 		}
@@ -388,14 +391,14 @@ public class ActionDialect extends Dialect {
 	 */
 	public boolean hasParam(String name) {
 		synchronized (this) {
-			return this.nameList.contains(name);
+			return this.indexMap.containsKey(name);
 		}
 	}
 
 	/**
 	 * 获得动作方言里包含的所有参数名。
 	 * 
-	 * @return 返回包含所有参数名的列表。
+	 * @return 返回包含所有参数名的列表。调用者不能修改返回的列表。
 	 */
 	public List<String> getParamNames() {
 		return this.nameList;
@@ -409,7 +412,7 @@ public class ActionDialect extends Dialect {
 	 */
 	public LiteralBase getParamLiteralBase(String name) {
 		synchronized (this) {
-			int index = this.nameList.indexOf(name);
+			int index = this.indexOf(name);
 			if (index >= 0) {
 				return this.valueList.get(index).getLiteralBase();
 			}
@@ -419,13 +422,44 @@ public class ActionDialect extends Dialect {
 	}
 
 	/**
-	 * 异步方式执行动作委派。
+	 * 添加参数并更新索引。调用者需要持有当前对象的锁。
+	 * 
+	 * @param name 指定参数名。
+	 * @param value 指定参数值。
+	 */
+	private void append(String name, ObjectiveStuff value) {
+		if (!this.indexMap.containsKey(name)) {
+			this.indexMap.put(name, this.nameList.size());
+		}
+
+		this.nameList.add(name);
+		this.valueList.add(value);
+	}
+
+	/**
+	 * 查找参数位置。调用者需要持有当前对象的锁。
+	 * 
+	 * @param name 指定参数名。
+	 * @return 返回第一个同名参数的位置，没有该参数时返回 <code>-1</code> 。
 	 */
-	public void act(ActionDelegate delegate) {
+	private int indexOf(String name) {
+		Integer index = this.indexMap.get(name);
+		return (null != index) ? index.intValue() : -1;
+	}
+
+	/**
+	 * 异步方式执行动作委派。同一个标签的动作按照调用顺序执行。
+	 * 
+	 * @param delegate 指定动作委派。
+	 * @return 如果动作进入待处理队列返回 <code>true</code> ，因队列已满被拒绝返回 <code>false</code> 。
+	 */
+	public boolean act(ActionDelegate delegate) {
 		ActionDialectFactory factory = (ActionDialectFactory) DialectEnumerator.getInstance().getFactory(ActionDialect.DIALECT_NAME);
 		if (null != factory) {
-			factory.doAction(this, delegate);
+			return factory.doAction(this, delegate);
 		}
+
+		return false;
 	}
 
 }
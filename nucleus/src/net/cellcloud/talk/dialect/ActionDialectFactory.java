@@ -26,18 +26,16 @@ THE SOFTWARE.
 
 package net.cellcloud.talk.dialect;
 
-import java.util.LinkedList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
-
-import net.cellcloud.common.LogLevel;
 import net.cellcloud.common.Logger;
 import net.cellcloud.core.Cellet;
+import net.cellcloud.util.Histogram;
 
 /**
  * 动作方言工厂。
  * 
+ * 动作在固定数量的线程上执行，同一个标签的动作按照提交顺序依次执行。
+ * 待处理动作总数达到上限后，按照 {@link ActionOverflowPolicy} 处理新动作。
+ * 
  * @author Ambrose Xu
  * 
  */
@@ -49,40 +47,25 @@ public final class ActionDialectFactory extends DialectFactory {
 	private DialectMetaData metaData;
 
 	/**
-	 * 线程池执行器。
+	 * 动作执行器。
 	 */
-	private ExecutorService executor;
-
-	/** 最大线程数。 */
-	private int maxThreadNum;
-	/** 当前活跃的线程计数。 */
-	private AtomicInteger threadCount;
-	/** 当前待处理方言列表。 */
-	private LinkedList<ActionDialect> dialects;
-	/** 当前待处理方言的委派列表。 */
-	private LinkedList<ActionDelegate> delegates;
+	private ActionExecutor executor;
 
 	/**
 	 * 构造函数。
-	 * 
-	 * @param executor 指定线程池执行器。
 	 */
 	public ActionDialectFactory() {
 		this.metaData = new DialectMetaData(ActionDialect.DIALECT_NAME, "Action Dialect");
-		this.executor = Executors.newCachedThreadPool();
-		this.maxThreadNum = 32;
-		this.threadCount = new AtomicInteger(0);
-		this.dialects = new LinkedList<ActionDialect>();
-		this.delegates = new LinkedList<ActionDelegate>();
+		this.executor = new ActionExecutor(32, 10000, ActionOverflowPolicy.REJECT);
 	}
 
 	/**
 	 * 获得当前活跃线程数量。
 	 * 
-	 * @return 返回当前正在工作的线程数量。
+	 * @return 返回当前正在执行动作的线程数量。
 	 */
 	public int getThreadCounts() {
-		return this.threadCount.get();
+		return this.executor.numBusy();
 	}
 
 	/**
@@ -91,7 +74,7 @@ public final class ActionDialectFactory extends DialectFactory {
 	 * @return 返回工厂允许最大并发线程数量。
 	 */
 	public int getMaxThreadNum() {
-		return this.maxThreadNum;
+		return this.executor.getNumThreads();
 	}
 
 	/**
@@ -104,7 +87,7 @@ public final class ActionDialectFactory extends DialectFactory {
 			return;
 		}
 
-		this.maxThreadNum = num;
+		this.executor.setNumThreads(num);
 	}
 
 	/**
@@ -113,9 +96,83 @@ public final class ActionDialectFactory extends DialectFactory {
 	 * @return 返回待处理数量。
 	 */
 	public int getPendingNum() {
-		synchronized (this.metaData) {
-			return this.dialects.size();
+		return this.executor.numPending();
+	}
+
+	/**
+	 * 获得待处理动作方言数量上限。
+	 * 
+	 * @return 返回待处理数量上限。
+	 */
+	public int getMaxPendingNum() {
+		return this.executor.getMaxPending();
+	}
+
+	/**
+	 * 设置待处理动作方言数量上限。
+	 * 
+	 * @param num 指定待处理数量上限，小于等于 <code>0</code> 时不限制。
+	 */
+	public void setMaxPendingNum(int num) {
+		this.executor.setMaxPending(num);
+	}
+
+	/**
+	 * 获得待处理队列的溢出策略。
+	 * 
+	 * @return 返回溢出策略。
+	 */
+	public ActionOverflowPolicy getOverflowPolicy() {
+		return this.executor.getOverflowPolicy();
+	}
+
+	/**
+	 * 设置待处理队列的溢出策略。
+	 * 
+	 * @param policy 指定溢出策略。
+	 */
+	public void setOverflowPolicy(ActionOverflowPolicy policy) {
+		if (null == policy) {
+			return;
 		}
+
+		this.executor.setOverflowPolicy(policy);
+	}
+
+	/**
+	 * 获得因队列已满被拒绝或丢弃的动作方言数量。
+	 * 
+	 * @return 返回被拒绝或丢弃的数量。
+	 */
+	public long getRejectedNum() {
+		return this.executor.numRejected();
+	}
+
+	/**
+	 * 获得动作方言入队时的队列深度分布。
+	 * 
+	 * @return 返回队列深度直方图的副本。
+	 */
+	public Histogram getQueueDepthHistogram() {
+		return this.executor.getQueueDepth().snapshot();
+	}
+
+	/**
+	 * 获得动作方言在队列中的等待时间分布，单位：微秒。
+	 * 
+	 * @return 返回等待时间直方图的副本。
+	 */
+	public Histogram getWaitTimeHistogram() {
+		return this.executor.getWaitTime().snapshot();
+	}
+
+	/**
+	 * 获得动作方言的执行时间分布，单位：微秒。
+	 * 
+	 * @return 返回执行时间直方图的副本。
+	 */
+	public Histogram getExecutionTimeHistogram() {
+		return this.executor.getExecutionTime().snapshot();
 	}
 
 	/**
@@ -139,10 +196,7 @@ public final class ActionDialectFactory extends DialectFactory {
 	 */
 	@Override
 	public void shutdown() {
-		synchronized (this.metaData) {
-			this.dialects.clear();
-			this.delegates.clear();
-		}
+		this.executor.shutdown();
 	}
 
 	/**
@@ -183,56 +237,19 @@ public final class ActionDialectFactory extends DialectFactory {
 
 	/**
 	 * 执行动作。
+	 * 
+	 * @param dialect 指定动作方言。
+	 * @param delegate 指定动作委派。
+	 * @return 如果动作进入待处理队列返回 <code>true</code> 。
 	 */
-	protected void doAction(ActionDialect dialect, ActionDelegate delegate) {
-		synchronized (this.metaData) {
-			this.dialects.add(dialect);
-			this.delegates.add(delegate);
+	protected boolean doAction(ActionDialect dialect, ActionDelegate delegate) {
+		if (this.executor.execute(dialect, delegate)) {
+			return true;
 		}
 
-		if (this.threadCount.get() < this.maxThreadNum) {
-			// 线程数量未达到最大线程数，启动新线程
-
-			// 更新线程计数
-			this.threadCount.incrementAndGet();
-
-			this.executor.execute(new Runnable() {
-				@Override
-				public void run() {
-					while (!dialects.isEmpty()) {
-						ActionDelegate adg = null;
-						ActionDialect adl = null;
-						synchronized (metaData) {
-							if (dialects.isEmpty()) {
-								break;
-							}
-							adg = delegates.removeFirst();
-							adl = dialects.removeFirst();
-						}
-
-						// Do action
-						if (null != adg) {
-							if (null != adl.getCustomContext() && Logger.isDebugLevel()) {
-								Logger.d(this.getClass(), "Before do action: " + adl.getAction() + " -> " + adl.getCustomContext().toString());
-							}
-
-							try {
-								adg.doAction(adl);
-							} catch (Exception e) {
-								Logger.log(this.getClass(), e, LogLevel.ERROR);
-							}
-
-							if (null != adl.getCustomContext() && Logger.isDebugLevel()) {
-								Logger.d(this.getClass(), "After do action: " + adl.getAction() + " -> " + adl.getCustomContext().toString());
-							}
-						}
-					}
-
-					// 更新线程计数
-					threadCount.decrementAndGet();
-				}
-			});
-		}
+		Logger.w(this.getClass(), "Action queue is full, reject action: " + dialect.getAction()
+				+ " from " + dialect.getOwnerTag());
+		return false;
 	}
 
 }
@@ -0,0 +1,521 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.talk.dialect;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.cellcloud.common.LogLevel;
+import net.cellcloud.common.Logger;
+import net.cellcloud.util.Histogram;
+
+/**
+ * 动作执行器。
+ * 
+ * 同一个标签的动作按照提交顺序依次执行，不同标签的动作在固定数量的线程上并行执行。
+ * 没有标签的动作之间不保证顺序。所有标签的待处理动作总数受上限约束，达到上限后按照溢出策略处理。
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+final class ActionExecutor {
+
+	/** 每个标签连续执行的最大动作数量，超过后让出线程给其他标签。 */
+	private final static int BATCH_SIZE = 16;
+
+	/** 队列锁。 */
+	private final Object mutex = new Object();
+
+	/** 线程池。 */
+	private ThreadPoolExecutor executor;
+	/** 线程数量。 */
+	private int numThreads;
+	/** 待处理动作数量上限，小于等于 0 时不限制。 */
+	private int maxPending;
+	/** 溢出策略。 */
+	private ActionOverflowPolicy policy;
+
+	/** 标签对应的执行队列。 */
+	private final HashMap<String, Lane> lanes;
+	/** 待处理动作数量。 */
+	private int pending;
+	/** 等待队列空位的线程数量。 */
+	private int waiters;
+
+	/** 正在执行动作的线程数量。 */
+	private final AtomicInteger busy;
+	/** 被拒绝或丢弃的动作数量。 */
+	private final AtomicLong rejected;
+
+	/** 动作入队时的队列深度。 */
+	private final Histogram queueDepth;
+	/** 动作在队列中的等待时间，单位：微秒。 */
+	private final Histogram waitTime;
+	/** 动作的执行时间，单位：微秒。 */
+	private final Histogram execTime;
+
+	/**
+	 * 构造函数。
+	 * 
+	 * @param numThreads 指定线程数量。
+	 * @param maxPending 指定待处理动作数量上限。
+	 * @param policy 指定溢出策略。
+	 */
+	protected ActionExecutor(int numThreads, int maxPending, ActionOverflowPolicy policy) {
+		this.numThreads = numThreads;
+		this.maxPending = maxPending;
+		this.policy = policy;
+		this.lanes = new HashMap<String, Lane>();
+		this.pending = 0;
+		this.waiters = 0;
+		this.busy = new AtomicInteger(0);
+		this.rejected = new AtomicLong(0);
+		this.queueDepth = new Histogram();
+		this.waitTime = new Histogram();
+		this.execTime = new Histogram();
+	}
+
+	/**
+	 * 设置线程数量。
+	 * 
+	 * @param numThreads 指定线程数量。
+	 */
+	protected void setNumThreads(int numThreads) {
+		synchronized (this.mutex) {
+			this.numThreads = numThreads;
+
+			if (null != this.executor) {
+				if (numThreads > this.executor.getMaximumPoolSize()) {
+					this.executor.setMaximumPoolSize(numThreads);
+					this.executor.setCorePoolSize(numThreads);
+				}
+				else {
+					this.executor.setCorePoolSize(numThreads);
+					this.executor.setMaximumPoolSize(numThreads);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 获得线程数量。
+	 * 
+	 * @return 返回线程数量。
+	 */
+	protected int getNumThreads() {
+		return this.numThreads;
+	}
+
+	/**
+	 * 设置待处理动作数量上限。
+	 * 
+	 * @param maxPending 指定上限，小于等于 <code>0</code> 时不限制。
+	 */
+	protected void setMaxPending(int maxPending) {
+		synchronized (this.mutex) {
+			this.maxPending = maxPending;
+			this.mutex.notifyAll();
+		}
+	}
+
+	/**
+	 * 获得待处理动作数量上限。
+	 * 
+	 * @return 返回待处理动作数量上限。
+	 */
+	protected int getMaxPending() {
+		return this.maxPending;
+	}
+
+	/**
+	 * 设置溢出策略。
+	 * 
+	 * @param policy 指定溢出策略。
+	 */
+	protected void setOverflowPolicy(ActionOverflowPolicy policy) {
+		synchronized (this.mutex) {
+			this.policy = policy;
+			this.mutex.notifyAll();
+		}
+	}
+
+	/**
+	 * 获得溢出策略。
+	 * 
+	 * @return 返回溢出策略。
+	 */
+	protected ActionOverflowPolicy getOverflowPolicy() {
+		return this.policy;
+	}
+
+	/**
+	 * 获得正在执行动作的线程数量。
+	 * 
+	 * @return 返回正在执行动作的线程数量。
+	 */
+	protected int numBusy() {
+		return this.busy.get();
+	}
+
+	/**
+	 * 获得待处理动作数量。
+	 * 
+	 * @return 返回待处理动作数量。
+	 */
+	protected int numPending() {
+		synchronized (this.mutex) {
+			return this.pending;
+		}
+	}
+
+	/**
+	 * 获得被拒绝或丢弃的动作数量。
+	 * 
+	 * @return 返回被拒绝或丢弃的动作数量。
+	 */
+	protected long numRejected() {
+		return this.rejected.get();
+	}
+
+	/**
+	 * 获得动作入队时的队列深度分布。
+	 * 
+	 * @return 返回队列深度直方图。
+	 */
+	protected Histogram getQueueDepth() {
+		return this.queueDepth;
+	}
+
+	/**
+	 * 获得动作在队列中的等待时间分布，单位：微秒。
+	 * 
+	 * @return 返回等待时间直方图。
+	 */
+	protected Histogram getWaitTime() {
+		return this.waitTime;
+	}
+
+	/**
+	 * 获得动作的执行时间分布，单位：微秒。
+	 * 
+	 * @return 返回执行时间直方图。
+	 */
+	protected Histogram getExecutionTime() {
+		return this.execTime;
+	}
+
+	/**
+	 * 提交动作。
+	 * 
+	 * @param dialect 指定动作方言。
+	 * @param delegate 指定动作委派。
+	 * @return 如果动作进入队列返回 <code>true</code> ，被拒绝返回 <code>false</code> 。
+	 */
+	protected boolean execute(ActionDialect dialect, ActionDelegate delegate) {
+		String tag = dialect.getOwnerTag();
+		Lane launch = null;
+		ThreadPoolExecutor executor = null;
+
+		synchronized (this.mutex) {
+			if (this.maxPending > 0 && this.pending >= this.maxPending && !this.admit(tag)) {
+				this.rejected.incrementAndGet();
+				return false;
+			}
+
+			Lane lane = null;
+			if (null == tag) {
+				lane = new Lane(null);
+			}
+			else {
+				lane = this.lanes.get(tag);
+				if (null == lane) {
+					lane = new Lane(tag);
+					this.lanes.put(tag, lane);
+				}
+			}
+
+			lane.queue.add(new Entry(dialect, delegate));
+			++this.pending;
+			this.queueDepth.record(this.pending);
+
+			if (!lane.scheduled) {
+				lane.scheduled = true;
+				launch = lane;
+			}
+
+			if (null == this.executor) {
+				this.executor = this.createExecutor();
+			}
+			executor = this.executor;
+		}
+
+		if (null != launch) {
+			try {
+				executor.execute(launch);
+			} catch (RejectedExecutionException e) {
+				// 执行器已关闭
+				synchronized (this.mutex) {
+					launch.finish();
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * 清空所有待处理动作并停止线程。正在执行的动作会执行完。
+	 */
+	protected void shutdown() {
+		ThreadPoolExecutor executor = null;
+
+		synchronized (this.mutex) {
+			for (Lane lane : this.lanes.values()) {
+				lane.queue.clear();
+			}
+			this.lanes.clear();
+			this.pending = 0;
+			this.mutex.notifyAll();
+
+			executor = this.executor;
+			this.executor = null;
+		}
+
+		if (null != executor) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * 队列已满时按照溢出策略处理。调用者需要持有队列锁。
+	 * 
+	 * @param tag 指定新动作的标签。
+	 * @return 如果可以接收新动作返回 <code>true</code> 。
+	 */
+	private boolean admit(String tag) {
+		switch (this.policy) {
+		case DROP_OLDEST:
+			Lane lane = (null != tag) ? this.lanes.get(tag) : null;
+			if (null != lane && !lane.queue.isEmpty()) {
+				Entry entry = lane.queue.removeFirst();
+				--this.pending;
+				this.rejected.incrementAndGet();
+				Logger.w(ActionExecutor.class, "Drop action: " + entry.dialect.getAction() + " from " + tag);
+				return true;
+			}
+			break;
+
+		case BLOCK:
+			if (Thread.currentThread() instanceof ActionThread) {
+				// 动作执行线程等待会导致所有线程互相等待
+				return true;
+			}
+
+			++this.waiters;
+			try {
+				while (this.maxPending > 0 && this.pending >= this.maxPending
+						&& ActionOverflowPolicy.BLOCK == this.policy && null != this.executor) {
+					this.mutex.wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			} finally {
+				--this.waiters;
+			}
+			return this.maxPending <= 0 || this.pending < this.maxPending;
+
+		default:
+			break;
+		}
+
+		return false;
+	}
+
+	/**
+	 * 创建线程池。
+	 */
+	private ThreadPoolExecutor createExecutor() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(this.numThreads, this.numThreads,
+				60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger(0);
+					@Override
+					public Thread newThread(Runnable runnable) {
+						return new ActionThread(runnable, "ActionWorker-" + this.count.incrementAndGet());
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * 执行动作。
+	 */
+	private void run(Entry entry) {
+		ActionDialect dialect = entry.dialect;
+
+		long start = System.nanoTime();
+		this.waitTime.record((start - entry.time) / 1000L);
+
+		this.busy.incrementAndGet();
+
+		if (null != dialect.getCustomContext() && Logger.isDebugLevel()) {
+			Logger.d(ActionExecutor.class, "Before do action: " + dialect.getAction() + " -> " + dialect.getCustomContext().toString());
+		}
+
+		try {
+			entry.delegate.doAction(dialect);
+		} catch (Exception e) {
+			Logger.log(ActionExecutor.class, e, LogLevel.ERROR);
+		}
+
+		if (null != dialect.getCustomContext() && Logger.isDebugLevel()) {
+			Logger.d(ActionExecutor.class, "After do action: " + dialect.getAction() + " -> " + dialect.getCustomContext().toString());
+		}
+
+		this.busy.decrementAndGet();
+
+		this.execTime.record((System.nanoTime() - start) / 1000L);
+	}
+
+	/**
+	 * 一个标签的执行队列。同一时刻最多只有一个线程执行队列里的动作。
+	 */
+	private final class Lane implements Runnable {
+
+		private final String tag;
+		private final LinkedList<Entry> queue;
+		/** 是否已提交到线程池。 */
+		private boolean scheduled;
+
+		private Lane(String tag) {
+			this.tag = tag;
+			this.queue = new LinkedList<Entry>();
+			this.scheduled = false;
+		}
+
+		@Override
+		public void run() {
+			for (int i = 0; i < BATCH_SIZE; ++i) {
+				Entry entry = this.poll();
+				if (null == entry) {
+					return;
+				}
+
+				ActionExecutor.this.run(entry);
+			}
+
+			// 让出线程，重新排队
+			ThreadPoolExecutor executor = null;
+			synchronized (mutex) {
+				if (this.queue.isEmpty()) {
+					this.finish();
+					return;
+				}
+
+				executor = ActionExecutor.this.executor;
+				if (null == executor) {
+					this.finish();
+					return;
+				}
+			}
+
+			try {
+				executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				// 执行器已关闭
+				synchronized (mutex) {
+					this.finish();
+				}
+			}
+		}
+
+		/**
+		 * 取出下一个动作，队列为空时结束调度。
+		 */
+		private Entry poll() {
+			synchronized (mutex) {
+				Entry entry = this.queue.poll();
+				if (null == entry) {
+					this.finish();
+					return null;
+				}
+
+				--pending;
+				if (waiters > 0) {
+					mutex.notifyAll();
+				}
+				return entry;
+			}
+		}
+
+		/**
+		 * 结束调度。调用者需要持有队列锁。
+		 */
+		private void finish() {
+			this.scheduled = false;
+			if (null != this.tag && lanes.get(this.tag) == this) {
+				lanes.remove(this.tag);
+			}
+		}
+	}
+
+	/**
+	 * 待处理的动作。
+	 */
+	private final static class Entry {
+
+		private final ActionDialect dialect;
+		private final ActionDelegate delegate;
+		/** 入队时间。 */
+		private final long time;
+
+		private Entry(ActionDialect dialect, ActionDelegate delegate) {
+			this.dialect = dialect;
+			this.delegate = delegate;
+			this.time = System.nanoTime();
+		}
+	}
+
+	/**
+	 * 动作执行线程。
+	 */
+	private final static class ActionThread extends Thread {
+
+		private ActionThread(Runnable runnable, String name) {
+			super(runnable, name);
+		}
+	}
+
+}
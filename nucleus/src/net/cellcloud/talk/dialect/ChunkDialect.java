@@ -26,6 +26,7 @@ THE SOFTWARE.
 
 package net.cellcloud.talk.dialect;
 
+import java.io.File;
 import java.util.List;
 
 import net.cellcloud.talk.Primitive;
@@ -52,6 +53,9 @@ public class ChunkDialect extends Dialect {
 	/** 以 KB 为单位的区块大小 */
 	protected final static int CHUNK_SIZE_KB = 2;
 
+	/** 确认区块的长度标记。接收方用长度为该值的区块确认已收到的区块。 */
+	protected final static int ACK_LENGTH = -1;
+
 	/** 整块记号。用于标记整个块。 */
 	protected String sign = null;
 	/** 整块总长度。 */
@@ -80,6 +84,17 @@ public class ChunkDialect extends Dialect {
 	/** 数据传输速率，单位：KB/S */
 	protected int speedInKB = 128;
 
+	/**
+	 * 发送窗口大小。数据区块里大于 <code>0</code> 表示发送方需要接收方确认，
+	 * 确认区块里表示接收方允许的窗口大小。
+	 */
+	protected int window = 0;
+
+	/**
+	 * 区块大小。数据区块里表示发送方期望的区块大小，确认区块里表示协商后的区块大小。
+	 */
+	protected int chunkSize = 0;
+
 	/**
 	 * 构造函数。
 	 */
@@ -184,6 +199,15 @@ public class ChunkDialect extends Dialect {
 		return this.length;
 	}
 
+	/**
+	 * 是否是接收方回送的确认区块。
+	 * 
+	 * @return 如果是确认区块返回 <code>true</code> 。
+	 */
+	protected boolean isAck() {
+		return (this.length == ACK_LENGTH);
+	}
+
 	/**
 	 * 设置监听器。
 	 * 
@@ -263,6 +287,11 @@ public class ChunkDialect extends Dialect {
 		primitive.commit(new SubjectStuff(this.length));
 		primitive.commit(new SubjectStuff(this.totalLength));
 
+		if (this.window > 0 || this.isAck()) {
+			primitive.commit(new SubjectStuff(this.window));
+			primitive.commit(new SubjectStuff(this.chunkSize));
+		}
+
 		return primitive;
 	}
 
@@ -278,6 +307,12 @@ public class ChunkDialect extends Dialect {
 		this.data = list.get(3).getValue();
 		this.length = list.get(4).getValueAsInt();
 		this.totalLength = list.get(5).getValueAsLong();
+
+		// 旧版本的发送方没有窗口和区块大小
+		if (list.size() > 7) {
+			this.window = list.get(6).getValueAsInt();
+			this.chunkSize = list.get(7).getValueAsInt();
+		}
 	}
 
 	@Override
@@ -313,6 +348,18 @@ public class ChunkDialect extends Dialect {
 		return fact.hasCompleted(this.sign);
 	}
 
+	/**
+	 * 将当前记号的整块直接写入文件。已经接收到的区块会从接收缓存移入文件。
+	 * 
+	 * @param file 指定写入的文件。
+	 * @param listener 指定监听器，接收到所有区块后回调。
+	 * @return 设置成功返回 <code>true</code> 。
+	 */
+	public boolean receiveToFile(File file, ChunkFileListener listener) {
+		ChunkDialectFactory fact = (ChunkDialectFactory) DialectEnumerator.getInstance().getFactory(ChunkDialect.DIALECT_NAME);
+		return fact.receive(this.sign, file, listener);
+	}
+
 	/**
 	 * 当前区块是否是该整块的最后一块。
 	 * 
@@ -26,33 +26,26 @@ THE SOFTWARE.
 
 package net.cellcloud.talk.dialect;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import net.cellcloud.common.LogLevel;
 import net.cellcloud.common.Logger;
 import net.cellcloud.core.Cellet;
 import net.cellcloud.talk.TalkService;
-import net.cellcloud.util.ByteUtils;
 import net.cellcloud.util.Clock;
 
 /**
@@ -66,6 +59,9 @@ public class ChunkDialectFactory extends DialectFactory {
 	/** 当内存不足时，将内存数据移入磁盘文件的路径。 */
 	public static String CachePath = "_chunks/";
 
+	/** 配额定时器的执行周期。 */
+	private final static long QUOTA_PERIOD = 100L;
+
 	/**
 	 * 方言元数据。
 	 */
@@ -81,8 +77,19 @@ public class ChunkDialectFactory extends DialectFactory {
 	/** 每个区块列表列表的默认配额。 */
 	private long defaultQuotaPerList = 128L * 1024L;
 
-	/** 数据接收缓存。键是区块记号 */
-	private ConcurrentHashMap<String, Cache> cacheMap;
+	/** 发送窗口大小，即允许未被确认的最大区块数量。 */
+	private int windowSize = 32;
+	/** 本端期望的区块大小。 */
+	private int chunkSize = ChunkDialect.CHUNK_SIZE;
+	/** 与各目标协商后的区块大小。 */
+	private ConcurrentHashMap<String, Integer> chunkSizeMap;
+	/** 等待接收方确认的超时时间，超时后不再等待确认。 */
+	private long ackTimeout = 5000L;
+	/** 不回送确认的目标，向这些目标发送时不使用窗口。 */
+	private Set<String> noAckTargets;
+
+	/** 数据接收缓存。键是区块记号，按照访问顺序排列，最久未访问的缓存最先被移入文件。 */
+	private LinkedHashMap<String, Cache> cacheMap;
 
 	/** 用于服务器模式下的队列。 */
 	private ConcurrentHashMap<String, ChunkList> sListMap;
@@ -98,17 +105,16 @@ public class ChunkDialectFactory extends DialectFactory {
 	/** 内存门限，当内存缓存大小大于此值时，将内存数据移入磁盘文件。  */
 	private long memoryThreshold = 100L * 1024L * 1024L;
 
-	/** 当前缓存文件占用的磁盘空间大小。 */
-	private AtomicLong fileSpace = new AtomicLong(0);
-	/** 文件门限，当所有区块文件大小大于此值时，将执行清理算法对文件进行清理。 */
+	/** 文件门限，当所有区块文件大小大于此值时，删除最早的区块文件。 */
 	private long fileThreshold = 1024L * 1024L * 1024L;
-	/** 保存当前系统维护的所有 Chunk 文件。 */
-	private ConcurrentHashMap<String, File> chunkFileMap;
+	/** 区块文件存储。 */
+	private ChunkStore store;
+
+	/** 直接写入文件的接收器。键是区块记号。 */
+	private ConcurrentHashMap<String, ChunkFileReceiver> receiverMap;
 
 	/** 是否正在执行内存转移任务。 */
 	private AtomicBoolean moveMemoryRunning = new AtomicBoolean(false);
-	/** 是否正在执行文件清理任务。 */
-	private AtomicBoolean clearFileRunning = new AtomicBoolean(false);
 
 	/** 用于辅助打印日志的计数器。 */
 	private int logCounts = 0;
@@ -121,10 +127,12 @@ public class ChunkDialectFactory extends DialectFactory {
 	public ChunkDialectFactory(ExecutorService executor) {
 		this.metaData = new DialectMetaData(ChunkDialect.DIALECT_NAME, "Chunk Dialect");
 		this.executor = executor;
-		this.cacheMap = new ConcurrentHashMap<String, Cache>();
-		this.chunkFileMap = new ConcurrentHashMap<String, File>();
+		this.cacheMap = new LinkedHashMap<String, Cache>(16, 0.75f, true);
+		this.receiverMap = new ConcurrentHashMap<String, ChunkFileReceiver>();
+		this.chunkSizeMap = new ConcurrentHashMap<String, Integer>();
+		this.noAckTargets = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 		this.quotaTimer = new Timer("ChunkQuotaTimer");
-		this.quotaTimer.schedule(new QuotaTask(), 3000L, 1000L);
+		this.quotaTimer.schedule(new QuotaTask(), QUOTA_PERIOD, QUOTA_PERIOD);
 
 		File dir = new File(CachePath);
 		if (!dir.exists()) {
@@ -132,15 +140,10 @@ public class ChunkDialectFactory extends DialectFactory {
 		}
 		if (dir.isDirectory()) {
 			Logger.i(this.getClass(), "Chunk cache file path: \"" + dir.getAbsolutePath() + "\"");
-
-			File[] files = dir.listFiles();
-			for (File f : files) {
-				if (f.isFile()) {
-					this.chunkFileMap.put(f.getName(), f);
-					this.fileSpace.addAndGet(f.length());
-				}
-			}
 		}
+
+		this.store = new ChunkStore(dir, this.fileThreshold);
+		this.store.open();
 	}
 
 	/**
@@ -164,8 +167,17 @@ public class ChunkDialectFactory extends DialectFactory {
 	 */
 	@Override
 	public void shutdown() {
-		this.cacheMap.clear();
-		this.chunkFileMap.clear();
+		synchronized (this.cacheMap) {
+			this.cacheMap.clear();
+		}
+		this.store.close();
+
+		for (ChunkFileReceiver receiver : this.receiverMap.values()) {
+			receiver.close();
+		}
+		this.receiverMap.clear();
+		this.chunkSizeMap.clear();
+		this.noAckTargets.clear();
 
 		if (null != this.quotaTimer) {
 			this.quotaTimer.cancel();
@@ -216,7 +228,18 @@ public class ChunkDialectFactory extends DialectFactory {
 	 * @return 返回接收用的缓存数量。
 	 */
 	public int getCacheNum() {
-		return this.cacheMap.size();
+		synchronized (this.cacheMap) {
+			return this.cacheMap.size();
+		}
+	}
+
+	/**
+	 * 获得区块文件占用的磁盘空间大小。
+	 * 
+	 * @return 返回区块文件占用的磁盘空间大小。
+	 */
+	public long getCacheFileSize() {
+		return this.store.getSpace();
 	}
 
 	/**
@@ -235,6 +258,160 @@ public class ChunkDialectFactory extends DialectFactory {
 	 */
 	public void setMaxFileCacheSpace(long value) {
 		this.fileThreshold = value;
+		this.store.setMaxSpace(value);
+	}
+
+	/**
+	 * 获得发送窗口大小。
+	 * 
+	 * @return 返回允许未被确认的最大区块数量。
+	 */
+	public int getWindowSize() {
+		return this.windowSize;
+	}
+
+	/**
+	 * 设置发送窗口大小。
+	 * 
+	 * @param value 指定允许未被确认的最大区块数量，小于等于 <code>0</code> 时不等待接收方确认，仅按照速率发送。
+	 */
+	public void setWindowSize(int value) {
+		this.windowSize = value;
+	}
+
+	/**
+	 * 获得本端期望的区块大小。
+	 * 
+	 * @return 返回区块大小。
+	 */
+	public int getChunkSize() {
+		return this.chunkSize;
+	}
+
+	/**
+	 * 设置本端期望的区块大小。发送时告知接收方，接收时用于和发送方协商。
+	 * 
+	 * @param value 指定区块大小。
+	 */
+	public void setChunkSize(int value) {
+		if (value <= 0) {
+			return;
+		}
+
+		this.chunkSize = value;
+	}
+
+	/**
+	 * 获得与指定目标协商后的区块大小。应用程序可以按照该大小切分后续发送给该目标的数据。
+	 * 
+	 * @param target 指定目标的 Cellet 标识或者目标标签。
+	 * @return 返回协商后的区块大小，如果还没有协商返回本端期望的区块大小。
+	 */
+	public int getChunkSize(String target) {
+		Integer size = this.chunkSizeMap.get(target);
+		if (null == size) {
+			return this.chunkSize;
+		}
+
+		return size.intValue();
+	}
+
+	/**
+	 * 将指定记号的区块直接写入文件。
+	 * 
+	 * 区块按照偏移量写入预分配大小的文件，不再保留在接收缓存里。
+	 * 调用前已经接收到的区块会从接收缓存移入文件。接收到所有区块后回调监听器。
+	 * 
+	 * @param sign 指定区块记号。
+	 * @param file 指定写入的文件。
+	 * @param listener 指定监听器。
+	 * @return 设置成功返回 <code>true</code> 。
+	 */
+	public synchronized boolean receive(String sign, File file, ChunkFileListener listener) {
+		if (null == sign || null == file) {
+			return false;
+		}
+
+		ChunkFileReceiver receiver = new ChunkFileReceiver(sign, file, listener);
+		ChunkFileReceiver old = this.receiverMap.put(sign, receiver);
+		if (null != old) {
+			old.close();
+		}
+
+		// 移出已经接收的区块
+		List<ChunkDialect> list = null;
+		Cache cache = null;
+		synchronized (this.cacheMap) {
+			cache = this.cacheMap.remove(sign);
+		}
+
+		if (null != cache) {
+			synchronized (cache.list) {
+				list = new ArrayList<ChunkDialect>(cache.list);
+			}
+			this.cacheMemorySize.addAndGet(-cache.clear());
+		}
+		else {
+			list = this.store.load(sign);
+		}
+
+		this.store.remove(sign);
+
+		if (null != list) {
+			for (ChunkDialect cd : list) {
+				if (cd.length > 0) {
+					this.writeToFile(receiver, cd);
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * 将区块写入接收器，完成或者失败时回调监听器。
+	 * 
+	 * @param receiver 指定接收器。
+	 * @param chunk 指定区块。
+	 */
+	private void writeToFile(final ChunkFileReceiver receiver, ChunkDialect chunk) {
+		boolean completed = false;
+		try {
+			completed = receiver.write(chunk);
+		} catch (IOException e) {
+			Logger.log(this.getClass(), e, LogLevel.WARNING);
+
+			receiver.close();
+			this.receiverMap.remove(receiver.getSign(), receiver);
+
+			this.fireFileFailed(receiver);
+			return;
+		}
+
+		if (completed && null != receiver.getListener()) {
+			this.executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					receiver.getListener().onCompleted(receiver.getSign(), receiver.getFile());
+				}
+			});
+		}
+	}
+
+	/**
+	 * 回调接收器失败。
+	 * 
+	 * @param receiver 指定接收器。
+	 */
+	private void fireFileFailed(final ChunkFileReceiver receiver) {
+		if (null != receiver.getListener()) {
+			this.executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					receiver.getListener().onFailed(receiver.getSign(), receiver.getFile());
+				}
+			});
+		}
 	}
 
 	/**
@@ -290,22 +467,32 @@ public class ChunkDialectFactory extends DialectFactory {
 	 * 获得指定记号对应的所有已接收到缓存的 Chunk 方言。
 	 * 
 	 * @param sign 指定 Chunk 方言的记号。
-	 * @return 返回 Chunk 方言列表。如果没有找到指定的 Chunk ，返回 <code>null</code> 值。
+	 * @return 返回 Chunk 方言列表。如果没有找到指定的 Chunk 或者 Chunk 直接写入了文件，返回 <code>null</code> 值。
 	 */
 	public List<ChunkDialect> getCachedList(String sign) {
-		Cache cache = this.cacheMap.get(sign);
-		if (null == cache) {
-			cache = this.getCacheFromFile(sign);
-		}
-
-		if (null == cache) {
+		if (this.receiverMap.containsKey(sign)) {
 			return null;
 		}
 
 		ArrayList<ChunkDialect> list = new ArrayList<ChunkDialect>();
 
-		synchronized (cache.list) {
-			for (ChunkDialect cd : cache.list) {
+		Cache cache = this.getCache(sign);
+		if (null != cache) {
+			synchronized (cache.list) {
+				for (ChunkDialect cd : cache.list) {
+					if (cd.length > 0) {
+						list.add(cd);
+					}
+				}
+			}
+		}
+		else {
+			List<ChunkDialect> stored = this.store.load(sign);
+			if (null == stored) {
+				return null;
+			}
+
+			for (ChunkDialect cd : stored) {
 				if (cd.length > 0) {
 					list.add(cd);
 				}
@@ -342,8 +529,21 @@ public class ChunkDialectFactory extends DialectFactory {
 	protected boolean onDialogue(final String identifier, Dialect dialect) {
 		ChunkDialect chunk = (ChunkDialect) dialect;
 
+		if (chunk.isAck()) {
+			if (null != this.cListMap) {
+				this.acknowledge(this.cListMap.get(chunk.getSign()), identifier, chunk);
+			}
+
+			// 劫持确认区块
+			return false;
+		}
+
 		this.write(chunk);
 
+		if (this.needAck(chunk)) {
+			TalkService.getInstance().talk(identifier, this.createAck(chunk));
+		}
+
 		return true;
 	}
 
@@ -374,11 +574,82 @@ public class ChunkDialectFactory extends DialectFactory {
 	protected boolean onDialogue(final Cellet cellet, final String sourceTag, Dialect dialect) {
 		ChunkDialect chunk = (ChunkDialect) dialect;
 
+		if (chunk.isAck()) {
+			if (null != this.sListMap) {
+				this.acknowledge(this.sListMap.get(sourceTag + chunk.getSign()), sourceTag, chunk);
+			}
+
+			// 劫持确认区块
+			return false;
+		}
+
 		this.write(chunk);
 
+		if (this.needAck(chunk)) {
+			cellet.talk(sourceTag, this.createAck(chunk));
+		}
+
 		return true;
 	}
 
+	/**
+	 * 判断收到的区块是否需要回送确认。每收到半个窗口的区块以及最后一个区块时回送确认。
+	 * 窗口取发送方窗口与本地窗口中较小的一个，与发送方收到确认之后使用的窗口一致。
+	 * 
+	 * @param chunk 指定收到的区块。
+	 * @return 如果需要回送确认返回 <code>true</code> 。
+	 */
+	private boolean needAck(ChunkDialect chunk) {
+		if (chunk.window <= 0) {
+			// 发送方不需要确认
+			return false;
+		}
+
+		int window = (this.windowSize > 0) ? Math.min(this.windowSize, chunk.window) : chunk.window;
+		int step = Math.max(1, window / 2);
+		return ((chunk.chunkIndex + 1) % step == 0) || chunk.isLast();
+	}
+
+	/**
+	 * 创建指定区块的确认区块。
+	 * 
+	 * @param chunk 指定收到的区块。
+	 * @return 返回确认区块。
+	 */
+	private ChunkDialect createAck(ChunkDialect chunk) {
+		ChunkDialect ack = new ChunkDialect(chunk.getTracker());
+		ack.sign = chunk.sign;
+		ack.totalLength = chunk.totalLength;
+		ack.chunkIndex = chunk.chunkIndex;
+		ack.chunkNum = chunk.chunkNum;
+		ack.data = new byte[0];
+		ack.length = ChunkDialect.ACK_LENGTH;
+		ack.window = (this.windowSize > 0) ? this.windowSize : chunk.window;
+		ack.chunkSize = (chunk.chunkSize > 0) ? Math.min(chunk.chunkSize, this.chunkSize) : this.chunkSize;
+		// 确认区块直接发送
+		ack.infectant = true;
+		return ack;
+	}
+
+	/**
+	 * 处理接收方回送的确认。
+	 * 
+	 * @param list 指定确认对应的发送列表。
+	 * @param target 指定目标的 Cellet 标识或者目标标签。
+	 * @param ack 指定确认区块。
+	 */
+	private void acknowledge(ChunkList list, String target, ChunkDialect ack) {
+		this.noAckTargets.remove(target);
+
+		if (ack.chunkSize > 0) {
+			this.chunkSizeMap.put(target, ack.chunkSize);
+		}
+
+		if (null != list) {
+			list.acknowledge(ack.chunkIndex, ack.window);
+		}
+	}
+
 	/**
 	 * 将指定的区块方言写入缓存。
 	 * 
@@ -386,22 +657,37 @@ public class ChunkDialectFactory extends DialectFactory {
 	 * @return 返回是否写入成功。
 	 */
 	private synchronized boolean write(ChunkDialect chunk) {
+		ChunkFileReceiver receiver = this.receiverMap.get(chunk.getSign());
+		if (null != receiver) {
+			if (chunk.getChunkIndex() != 0 || !receiver.hasCompleted()) {
+				this.writeToFile(receiver, chunk);
+				return chunk.isLast();
+			}
+
+			// 已经完成的整块又从头开始发送，按照新的整块接收
+			this.receiverMap.remove(chunk.getSign(), receiver);
+		}
+
 		if (chunk.getChunkIndex() == 0) {
 			this.clear(chunk.getSign());
 		}
 
-		if (this.cacheMap.containsKey(chunk.getSign())) {
-			Cache cache = this.cacheMap.get(chunk.getSign());
-			cache.offer(chunk);
+		Cache cache = this.getCache(chunk.getSign());
+		if (null == cache && this.store.contains(chunk.getSign())) {
+			// 已经移入文件的整块直接写入文件
+			this.store.append(chunk);
+			return chunk.isLast();
 		}
-		else {
-			Cache cache = new Cache(chunk.getSign(), chunk.chunkNum);
-			cache.offer(chunk);
-			this.cacheMap.put(chunk.getSign(), cache);
+
+		if (null == cache) {
+			cache = new Cache(chunk.getSign(), chunk.chunkNum);
+			synchronized (this.cacheMap) {
+				this.cacheMap.put(chunk.getSign(), cache);
+			}
 		}
 
 		// 更新内存大小
-		this.cacheMemorySize.addAndGet(chunk.getLength());
+		this.cacheMemorySize.addAndGet(cache.offer(chunk));
 
 		if ((this.logCounts % 100) == 0) {
 			long mem = this.cacheMemorySize.get();
@@ -421,9 +707,8 @@ public class ChunkDialectFactory extends DialectFactory {
 		}
 
 		if (this.cacheMemorySize.get() > this.memoryThreshold) {
-			if (!this.moveMemoryRunning.get()) {
-				this.moveMemoryRunning.set(true);
-				(new Thread(new MoveMemoryTask())).start();
+			if (this.moveMemoryRunning.compareAndSet(false, true)) {
+				this.executor.execute(new MoveMemoryTask());
 			}
 		}
 
@@ -449,71 +734,44 @@ public class ChunkDialectFactory extends DialectFactory {
 			return -1;
 		}
 
-		Cache cache = this.cacheMap.get(sign);
-		if (null != cache) {
-			ChunkDialect cd = cache.get(index);
-			byte[] buf = cd.data;
-			int len = cd.length;
-
-			if (null == buf) {
+		ChunkFileReceiver receiver = this.receiverMap.get(sign);
+		if (null != receiver) {
+			try {
+				return receiver.read(index, out);
+			} catch (IOException e) {
+				Logger.log(this.getClass(), e, LogLevel.WARNING);
 				return -1;
 			}
-
-			System.arraycopy(buf, 0, out, 0, len);
-			return len;
 		}
-		else {
-			// 尝试从磁盘恢复
-			cache = getCacheFromFile(sign);
-
-			if (null != cache) {
-				// 放入内存
-				this.cacheMap.put(cache.sign, cache);
-				this.cacheMemorySize.addAndGet(cache.currentLength);
-				// 更新时间戳
-				cache.timestamp = Clock.currentTimeMillis();
-
-				ChunkDialect cd = cache.get(index);
-				byte[] buf = cd.data;
-				int len = cd.length;
-
-				if (null != buf) {
-					System.arraycopy(buf, 0, out, 0, len);
-					return len;
-				}
-			}
-			else {
-				Logger.w(this.getClass(), "Can NOT find chunk in disk : " + sign);
+
+		Cache cache = this.getCache(sign);
+		if (null != cache) {
+			ChunkDialect cd = cache.get(index);
+			if (null != cd && null != cd.data && cd.length > 0) {
+				System.arraycopy(cd.data, 0, out, 0, cd.length);
+				return cd.length;
 			}
 		}
 
-		return -1;
-	}
+		// 直接从文件读取
+		int length = this.store.read(sign, index, out);
+		if (length < 0 && null == cache) {
+			Logger.w(this.getClass(), "Can NOT find chunk in disk : " + sign);
+		}
 
-	private Cache getCacheFromFile(String sign) {
-		Cache cache = null;
+		return length;
+	}
 
-		File file = this.chunkFileMap.get(sign);
-		if (null != file) {
-			FileInputStream fis = null;
-			try {
-				fis = new FileInputStream(file);
-				// 反序列化
-				cache = new Cache(fis);
-			} catch (IOException e) {
-				Logger.log(this.getClass(), e, LogLevel.WARNING);
-			} finally {
-				if (null != fis) {
-					try {
-						fis.close();
-					} catch (IOException e) {
-						// Nothing
-					}
-				}
-			}
+	/**
+	 * 获得指定记号的接收缓存，并更新缓存的访问顺序。
+	 * 
+	 * @param sign 指定区块记号。
+	 * @return 返回接收缓存，如果缓存不在内存里返回 <code>null</code> 。
+	 */
+	private Cache getCache(String sign) {
+		synchronized (this.cacheMap) {
+			return this.cacheMap.get(sign);
 		}
-
-		return cache;
 	}
 
 	/**
@@ -527,12 +785,33 @@ public class ChunkDialectFactory extends DialectFactory {
 			return false;
 		}
 
-		Cache cache = this.cacheMap.get(sign);
-		if (null != cache) {
-			return cache.hasCompleted();
+		ChunkFileReceiver receiver = this.receiverMap.get(sign);
+		if (null != receiver) {
+			return receiver.hasCompleted();
 		}
 
-		return false;
+		Cache cache = this.getCache(sign);
+		if (null == cache) {
+			return this.store.hasCompleted(sign);
+		}
+
+		if (cache.hasCompleted()) {
+			return true;
+		}
+
+		if (!this.store.contains(sign)) {
+			return false;
+		}
+
+		// 部分区块已经移入文件
+		for (int i = 0, size = cache.size(); i < size; ++i) {
+			ChunkDialect cd = cache.get(i);
+			if (cd.length <= 0 && !this.store.contains(sign, i)) {
+				return false;
+			}
+		}
+
+		return true;
 	}
 
 	/**
@@ -541,13 +820,24 @@ public class ChunkDialectFactory extends DialectFactory {
 	 * @param sign 指定区块的记号。
 	 */
 	protected void clear(String sign) {
-		Cache cache = this.cacheMap.remove(sign);
+		Cache cache = null;
+		synchronized (this.cacheMap) {
+			cache = this.cacheMap.remove(sign);
+		}
+
 		if (null != cache) {
 			// 计算缓存大小变化差值，进行缓存清理
 			long size = cache.clear();
 
 			// 更新内存大小
-			this.cacheMemorySize.set(this.cacheMemorySize.get() - size);
+			this.cacheMemorySize.addAndGet(-size);
+		}
+
+		this.store.remove(sign);
+
+		ChunkFileReceiver receiver = this.receiverMap.remove(sign);
+		if (null != receiver) {
+			receiver.close();
 		}
 	}
 
@@ -577,10 +867,7 @@ public class ChunkDialectFactory extends DialectFactory {
 			listMap.put(mapKey, list);
 		}
 
-		if (!list.running.get()) {
-			list.running.set(true);
-			this.executor.execute(list);
-		}
+		list.schedule();
 	}
 
 	/**
@@ -614,6 +901,29 @@ public class ChunkDialectFactory extends DialectFactory {
 		}
 	}
 
+	/**
+	 * 检查并清理超时的文件接收器。没有接收完成的接收器回调失败。
+	 * 
+	 * @param timeout 指定超时时间。
+	 */
+	private void checkAndClearReceivers(long timeout) {
+		long time = Clock.currentTimeMillis();
+
+		Iterator<ChunkFileReceiver> iter = this.receiverMap.values().iterator();
+		while (iter.hasNext()) {
+			ChunkFileReceiver receiver = iter.next();
+			if (time - receiver.getTimestamp() > timeout) {
+				iter.remove();
+				receiver.close();
+
+				if (!receiver.hasCompleted()) {
+					Logger.i(ChunkDialectFactory.class, "Clear chunk file receiver - sign: " + receiver.getSign());
+					this.fireFileFailed(receiver);
+				}
+			}
+		}
+	}
+
 	/**
 	 * 用于接收数据的缓存。每个 Cache 存储一个整块。
 	 */
@@ -622,8 +932,6 @@ public class ChunkDialectFactory extends DialectFactory {
 		private String sign;
 		/** 区块方言列表。 */
 		private ArrayList<ChunkDialect> list;
-		/** 更新时间戳。 */
-		private long timestamp;
 		/** 当前数据大小。 */
 		private long currentLength;
 
@@ -642,101 +950,22 @@ public class ChunkDialectFactory extends DialectFactory {
 			this.currentLength = 0;
 		}
 
-		/**
-		 * 构造函数。执行反序列化。
-		 * 
-		 * @param stream
-		 */
-		public Cache(InputStream stream) throws IOException {
-			// 128 bytes - 块记号
-			// 8 bytes - 时间戳
-			// 8 bytes - 数据总大小
-			// 4 bytes - 块总数
-			// N * 4 bytes - 每个块的序列长度
-			// M bytes - 数据
-
-			// sign
-			byte[] signBuf = new byte[128];
-			if (stream.read(signBuf) != 128) {
-				throw new IOException("Sign error");
-			}
-			this.sign = new String(signBuf, Charset.forName("UTF-8"));
-
-			// timestamp
-			byte[] tsBuf = new byte[8];
-			if (stream.read(tsBuf) != 8) {
-				throw new IOException("Timestamp error");
-			}
-			this.timestamp = ByteUtils.toLong(tsBuf);
-
-			// total
-			byte[] totalBuf = new byte[8];
-			if (stream.read(totalBuf) != 8) {
-				throw new IOException("Total error");
-			}
-			long total = ByteUtils.toLong(totalBuf);
-
-			byte[] numBuf = new byte[4];
-			if (stream.read(numBuf) != 4) {
-				throw new IOException("Number of chunk error");
-			}
-			int num = ByteUtils.toInt(numBuf);
-
-			// init list
-			this.list = new ArrayList<ChunkDialect>(num);
-
-			int[] lengthArray = new int[num];
-			for (int i = 0; i < num; ++i) {
-				byte[] buf = new byte[4];
-				if (stream.read(buf) != 4) {
-					throw new IOException("Chunk length error");
-				}
-
-				lengthArray[i] = ByteUtils.toInt(buf);
-			}
-
-			for (int i = 0; i < num; ++i) {
-				int length = lengthArray[i];
-				if (length > 0) {
-					byte[] buf = new byte[length];
-					if (stream.read(buf) != length) {
-						throw new IOException("Chunk data error");
-					}
-
-					ChunkDialect dialect = new ChunkDialect(this.sign, total, i, num, buf, length);
-					this.list.add(dialect);
-
-					this.currentLength += length;
-				}
-				else {
-					this.list.add(new ChunkDialect());
-				}
-			}
-		}
-
 		/**
 		 * 追加数据到缓存。
 		 * 
 		 * @param dialect 指定待追加区块方言。
+		 * @return 返回缓存数据大小的变化量。
 		 */
-		public void offer(ChunkDialect dialect) {
+		public long offer(ChunkDialect dialect) {
 			synchronized (this.list) {
-				if (this.list.contains(dialect)) {
-					int index = this.list.indexOf(dialect);
-					// 删除旧长度
-					ChunkDialect old = this.list.get(index);
-					this.currentLength -= old.getLength();
-					// 设置新值
-					this.list.set(index, dialect);
-					this.currentLength += dialect.getLength();
-				}
-				else {
-					this.list.set(dialect.getChunkIndex(), dialect);
-					this.currentLength += dialect.getLength();
-				}
+				// 删除旧长度
+				ChunkDialect old = this.list.get(dialect.getChunkIndex());
+				long delta = dialect.getLength() - Math.max(0, old.getLength());
+				// 设置新值
+				this.list.set(dialect.getChunkIndex(), dialect);
+				this.currentLength += delta;
+				return delta;
 			}
-
-			this.timestamp = Clock.currentTimeMillis();
 		}
 
 		/**
@@ -755,6 +984,17 @@ public class ChunkDialectFactory extends DialectFactory {
 			}
 		}
 
+		/**
+		 * 获得总块数量。
+		 * 
+		 * @return 返回总块数量。
+		 */
+		public int size() {
+			synchronized (this.list) {
+				return this.list.size();
+			}
+		}
+
 		/**
 		 * 是否接收到所有的块。
 		 * 
@@ -782,100 +1022,20 @@ public class ChunkDialectFactory extends DialectFactory {
 		 * @return 返回清理前的数据总长度。
 		 */
 		public long clear() {
-			long size = this.currentLength;
 			synchronized (this.list) {
+				long size = this.currentLength;
 				this.list.clear();
 				this.currentLength = 0;
+				return size;
 			}
-			return size;
-		}
-
-		/**
-		 * 返回时间戳。
-		 * 
-		 * @return 返回时间戳。
-		 */
-		public long getTimestamp() {
-			return this.timestamp;
-		}
-
-		/**
-		 * 返回块的总长度。
-		 * 
-		 * @return
-		 */
-		public long getTotalLength() {
-			synchronized (this.list) {
-				for (ChunkDialect cd : this.list) {
-					if (cd.length > 0) {
-						return cd.totalLength;
-					}
-				}
-			}
-
-			return 0;
-		}
-
-		/**
-		 * 序列化缓存。
-		 * 
-		 * 128 bytes - 块记号
-		 * 8 bytes - 时间戳
-		 * 8 bytes - 数据总大小
-		 * 4 bytes - 块总数
-		 * N * 4 bytes - 每个块的序列长度
-		 * D bytes - 数据
-		 * 
-		 * @return
-		 */
-		public ByteArrayOutputStream serialize() throws IOException {
-			// 没有数据不能进行序列化
-			if (this.currentLength == 0) {
-				return null;
-			}
-
-			ByteArrayOutputStream stream = new ByteArrayOutputStream(128);
-
-			// 块记号
-			byte[] signBuf = new byte[128];
-			for (int i = 0; i < signBuf.length; ++i) {
-				signBuf[i] = 0;
-			}
-			System.arraycopy(this.sign.getBytes(Charset.forName("UTF-8")), 0, signBuf, 0, this.sign.length());
-			stream.write(signBuf);
-
-			// 更新时间戳
-			byte[] tsBuf = ByteUtils.toBytes(this.timestamp);
-			stream.write(tsBuf);
-
-			// 数据总大小
-			byte[] sizeBuf = ByteUtils.toBytes(this.getTotalLength());
-			stream.write(sizeBuf);
-
-			// 块总数
-			byte[] numBuf = ByteUtils.toBytes(this.list.size());
-			stream.write(numBuf);
-
-			synchronized (this.list) {
-				for (int i = 0, size = this.list.size(); i < size; ++i) {
-					ChunkDialect cd = this.list.get(i);
-					stream.write(ByteUtils.toBytes(cd.length));
-				}
-
-				for (int i = 0, size = this.list.size(); i < size; ++i) {
-					ChunkDialect cd = this.list.get(i);
-					if (cd.length > 0) {
-						stream.write(cd.data);
-					}
-				}
-			}
-
-			return stream;
 		}
 	}
 
 	/**
 	 * 区块发送列表。
+	 * 
+	 * 在窗口和配额允许的范围内连续发送区块。窗口已满或者配额用尽时结束执行，
+	 * 收到确认、追加区块或者配额定时器补充配额后再次调度执行。
 	 */
 	private class ChunkList implements Runnable {
 		/** Cellet */
@@ -888,19 +1048,27 @@ public class ChunkDialectFactory extends DialectFactory {
 		private int chunkNum = 0;
 		/** 存储区块方言的列表。 */
 		private ArrayList<ChunkDialect> list;
-		/** 当前有效存储的区块索引。 */
-		private AtomicInteger index;
+		/** 最近一个已发送的区块索引。 */
+		private int index;
+		/** 最近一个已确认的区块索引。 */
+		private int acked;
+
+		/** 发送窗口大小。 */
+		private int window;
+		/** 接收方是否回送确认。 */
+		private boolean acking;
+		/** 窗口被占满的时间，没有被占满时为 <code>0</code> 。 */
+		private long stallTime;
 
 		/** 该列表任务是否正在被执行。 */
 		private AtomicBoolean running;
+		/** 执行期间是否有新的调度请求。 */
+		private AtomicBoolean signaled;
 
-		/** 带宽配额。 */
+		/** 带宽配额，单位：字节每秒。 */
 		private long quota;
 		/** 剩余配额。 */
-		private AtomicLong remaining;
-
-		/** 执行间隔，用于控制数据传输速率。 */
-		private long interval = 100L;
+		private long remaining;
 
 		/**
 		 * 构造函数。
@@ -912,9 +1080,9 @@ public class ChunkDialectFactory extends DialectFactory {
 			this.quota = quota;
 			this.cellet = cellet;
 			this.list = new ArrayList<ChunkDialect>(chunkNum);
-			this.index = new AtomicInteger(-1);
 			this.running = new AtomicBoolean(false);
-			this.remaining = new AtomicLong(this.quota);
+			this.signaled = new AtomicBoolean(false);
+			this.resetWindow();
 		}
 
 		/**
@@ -925,20 +1093,16 @@ public class ChunkDialectFactory extends DialectFactory {
 		protected void append(ChunkDialect chunk) {
 			// 标识为已污染
 			chunk.infectant = true;
+			chunk.chunkSize = chunkSize;
 
 			synchronized (this) {
 				if (!this.list.contains(chunk)) {
 					this.list.add(chunk);
 				}
-			}
 
-			if (chunk.getChunkIndex() == 0) {
-				double t = (ChunkDialect.CHUNK_SIZE_KB + 0.0d) / (chunk.speedInKB + 0.0d) * 1000.0d;
-				if (t >= 10.0d) {
-					this.interval = Math.round(t) + 1;
-				}
-				else {
-					this.interval = 10L;
+				if (chunk.getChunkIndex() == 0) {
+					this.quota = (chunk.speedInKB > 0) ? chunk.speedInKB * 1024L : defaultQuotaPerList;
+					this.remaining = this.quota * QUOTA_PERIOD / 1000L;
 				}
 			}
 		}
@@ -948,8 +1112,8 @@ public class ChunkDialectFactory extends DialectFactory {
 		 * 
 		 * @return 如果已经全部发送返回 <code>true</code> 。
 		 */
-		protected boolean isComplete() {
-			return (this.index.get() + 1 == this.chunkNum);
+		protected synchronized boolean isComplete() {
+			return (this.index + 1 == this.chunkNum);
 		}
 
 		/**
@@ -962,84 +1126,155 @@ public class ChunkDialectFactory extends DialectFactory {
 			this.timestamp = Clock.currentTimeMillis();
 			this.target = target;
 			this.chunkNum = chunkNum;
-			this.index.set(-1);
-			this.remaining.set(this.quota);
-			this.interval = 100L;
 
 			synchronized (this) {
+				this.resetWindow();
 				this.list.clear();
 			}
 		}
 
+		/**
+		 * 重置发送状态。
+		 */
+		private void resetWindow() {
+			this.index = -1;
+			this.acked = -1;
+			this.window = windowSize;
+			this.acking = (windowSize > 0 && !noAckTargets.contains(this.target));
+			this.stallTime = 0;
+			this.remaining = this.quota * QUOTA_PERIOD / 1000L;
+		}
+
+		/**
+		 * 处理接收方的确认。
+		 * 
+		 * @param chunkIndex 指定接收方已收到的区块索引。
+		 * @param window 指定接收方允许的窗口大小。
+		 */
+		protected void acknowledge(int chunkIndex, int window) {
+			synchronized (this) {
+				if (chunkIndex > this.acked) {
+					this.acked = Math.min(chunkIndex, this.index);
+					this.stallTime = 0;
+				}
+
+				if (window > 0 && window < this.window) {
+					this.window = window;
+				}
+			}
+
+			this.schedule();
+		}
+
+		/**
+		 * 补充配额，并检查接收方确认是否超时。
+		 * 
+		 * @param now 指定当前时间。
+		 * @return 如果还有待发送的区块返回 <code>true</code> 。
+		 */
+		protected synchronized boolean refill(long now) {
+			long tick = this.quota * QUOTA_PERIOD / 1000L;
+			// 透支的配额在后续周期里扣除
+			this.remaining = Math.min(this.remaining + tick, tick);
+
+			if (this.acking && this.stallTime > 0 && now - this.stallTime > ackTimeout) {
+				// 接收方不支持确认，仅按照速率发送
+				this.acking = false;
+				this.stallTime = 0;
+				noAckTargets.add(this.target);
+				Logger.w(ChunkDialectFactory.class, "No chunk acknowledgement from " + this.target
+						+ ", send without window");
+			}
+
+			return (this.index + 1 < this.list.size());
+		}
+
+		/**
+		 * 调度执行。
+		 */
+		protected void schedule() {
+			this.signaled.set(true);
+			if (this.running.compareAndSet(false, true)) {
+				executor.execute(this);
+			}
+		}
+
 		@Override
 		public void run() {
-			// 判断剩余配额
-			long qr = this.remaining.get();
-			if (qr > 0) {
-				// 有配额
+			while (true) {
+				this.signaled.set(false);
+
+				boolean ret = this.flush();
+
+				this.running.set(false);
+
+				// 执行期间有新的调度请求时继续执行
+				if (!ret || !this.signaled.get() || !this.running.compareAndSet(false, true)) {
+					break;
+				}
+			}
+		}
+
+		/**
+		 * 在窗口和配额允许的范围内发送区块。
+		 * 
+		 * @return 如果发送失败返回 <code>false</code> 。
+		 */
+		private boolean flush() {
+			while (true) {
 				ChunkDialect dialect = null;
 				synchronized (this) {
-					// 更新索引
-					this.index.incrementAndGet();
+					if (this.remaining <= 0 || this.index + 1 >= this.list.size()) {
+						// 没有配额或者没有待发送区块
+						return true;
+					}
 
-					if (this.index.get() < this.list.size()) {
-						dialect = this.list.get(this.index.get());
+					if (this.acking && this.index - this.acked >= this.window) {
+						// 窗口已满，等待确认
+						if (0 == this.stallTime) {
+							this.stallTime = Clock.currentTimeMillis();
+						}
+						return true;
 					}
-				}
 
-				if (null != dialect) {
-					// 更新剩余配额
-					qr = qr - dialect.getLength();
-					this.remaining.set(qr);
+					// 更新索引和剩余配额
+					++this.index;
+					dialect = this.list.get(this.index);
+					this.remaining -= dialect.getLength();
 
-					// 发送
-					boolean ret = false;
-					if (null == this.cellet) {
-						ret = TalkService.getInstance().talk(this.target, dialect);
-					}
-					else {
-						ret = this.cellet.talk(this.target, dialect);
-					}
+					// 使用发送时的窗口，窗口会因接收方的确认而缩小
+					dialect.window = (this.acking) ? this.window : 0;
+				}
 
-					if (!ret) {
-						// 错误处理
+				// 发送
+				boolean ret = false;
+				if (null == this.cellet) {
+					ret = TalkService.getInstance().talk(this.target, dialect);
+				}
+				else {
+					ret = this.cellet.talk(this.target, dialect);
+				}
+
+				if (!ret) {
+					// 错误处理
+					synchronized (this) {
 						// 修正配额
-						this.remaining.addAndGet(dialect.getLength());
+						this.remaining += dialect.getLength();
 						// 修正索引
-						this.index.decrementAndGet();
-
-						// 进行回调
-						dialect.fireFailed(this.target);
-
-						// 结束发送
-						this.running.set(false);
-						return;
+						--this.index;
 					}
 
-					if (this.index.get() + 1 == this.chunkNum) {
-						dialect.fireCompleted(this.target);
-						this.running.set(false);
-					}
-					else {
-						try {
-							Thread.sleep(this.interval);
-						} catch (InterruptedException e) {
-							e.printStackTrace();
-						}
-						// 继续执行
-						executor.execute(this);
-					}
+					// 进行回调
+					dialect.fireFailed(this.target);
+
+					// 结束发送
+					return false;
 				}
-				else {
-					// 修正索引
-					this.index.decrementAndGet();
-					this.running.set(false);
+
+				if (dialect.isLast()) {
+					dialect.fireCompleted(this.target);
 				}
 			}
-			else {
-				// 没有配额
-				this.running.set(false);
-			}
 		}
 	}
 
@@ -1061,16 +1296,15 @@ public class ChunkDialectFactory extends DialectFactory {
 
 		@Override
 		public void run() {
+			long now = Clock.currentTimeMillis();
+
 			if (null != cListMap) {
 				Iterator<ChunkList> iter = cListMap.values().iterator();
 				while (iter.hasNext()) {
 					ChunkList list = iter.next();
-					list.remaining.set(list.quota);
-
-					if (!list.isComplete() && !list.running.get()) {
+					if (list.refill(now)) {
 						// 列表没有发送完成
-						list.running.set(true);
-						executor.execute(list);
+						list.schedule();
 					}
 				}
 			}
@@ -1079,19 +1313,16 @@ public class ChunkDialectFactory extends DialectFactory {
 				Iterator<ChunkList> iter = sListMap.values().iterator();
 				while (iter.hasNext()) {
 					ChunkList list = iter.next();
-					list.remaining.set(list.quota);
-
-					if (!list.isComplete() && !list.running.get()) {
+					if (list.refill(now)) {
 						// 列表没有发送完成
-						list.running.set(true);
-						executor.execute(list);
+						list.schedule();
 					}
 				}
 			}
 
 			++this.counts;
 
-			if (this.counts >= 1000) {
+			if (this.counts >= 10000) {
 				this.counts = 0;
 
 				if (null != cListMap) {
@@ -1115,6 +1346,15 @@ public class ChunkDialectFactory extends DialectFactory {
 						}
 					});
 				}
+
+				if (!receiverMap.isEmpty()) {
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							checkAndClearReceivers(listTimeout);
+						}
+					});
+				}
 			}
 		}
 
@@ -1122,7 +1362,7 @@ public class ChunkDialectFactory extends DialectFactory {
 
 
 	/**
-	 * 转移内存缓存任务。
+	 * 转移内存缓存任务。将最久未访问的缓存写入区块文件，直到内存缓存大小低于门限。
 	 */
 	private class MoveMemoryTask implements Runnable {
 		/**
@@ -1133,127 +1373,40 @@ public class ChunkDialectFactory extends DialectFactory {
 
 		@Override
 		public void run() {
-			long time = Long.MAX_VALUE;
-			Cache selected = null;
-
 			while (cacheMemorySize.get() > memoryThreshold) {
-				for (Cache cache : cacheMap.values()) {
-					// 找到最旧的 cache
-					long ft = cache.getTimestamp();
-					if (ft < time) {
-						time = ft;
-						selected = cache;
+				// 与写入互斥，避免同一个整块同时存在于内存和文件
+				synchronized (ChunkDialectFactory.this) {
+					Cache selected = null;
+					synchronized (cacheMap) {
+						Iterator<Cache> iter = cacheMap.values().iterator();
+						if (iter.hasNext()) {
+							selected = iter.next();
+							iter.remove();
+						}
+					}
+
+					if (null == selected) {
+						break;
 					}
-				}
 
-				if (null != selected) {
 					// 将 Cache 写入文件
-					this.writeCacheToFile(selected, CachePath);
+					synchronized (selected.list) {
+						for (ChunkDialect cd : selected.list) {
+							if (cd.length > 0) {
+								store.append(cd);
+							}
+						}
+					}
 
 					long size = selected.clear();
 
 					// 更新内存大小记录
-					cacheMemorySize.set(cacheMemorySize.get() - size);
-
-					cacheMap.remove(selected.sign);
+					cacheMemorySize.addAndGet(-size);
 				}
-
-				time = Long.MAX_VALUE;
-				selected = null;
 			}
 
 			moveMemoryRunning.set(false);
 		}
-
-		private void writeCacheToFile(Cache cache, String path) {
-			File file = new File(path, cache.sign);
-			if (file.exists()) {
-				file.delete();
-			}
-
-			FileOutputStream fos = null;
-			try {
-				ByteArrayOutputStream bos = cache.serialize();
-				if (null == bos) {
-					Logger.w(this.getClass(), "Chunk cache serialize faild: " + cache.sign);
-					return;
-				}
-
-				fos = new FileOutputStream(file);
-				fos.write(bos.toByteArray());
-				fos.flush();
-
-				bos = null;
-			} catch (FileNotFoundException e) {
-				Logger.log(this.getClass(), e, LogLevel.WARNING);
-			} catch (IOException e) {
-				Logger.log(this.getClass(), e, LogLevel.WARNING);
-			} finally {
-				if (null != fos) {
-					try {
-						fos.close();
-					} catch (IOException e) {
-						// Nothing
-					}
-				}
-			}
-
-			if (file.exists()) {
-				File old = chunkFileMap.get(file.getName());
-				if (null == old) {
-					chunkFileMap.put(file.getName(), file);
-				}
-				else {
-					fileSpace.set(fileSpace.get() - old.length());
-					chunkFileMap.put(file.getName(), file);
-				}
-
-				fileSpace.addAndGet(file.length());
-
-				if (fileSpace.get() > fileThreshold) {
-					if (!clearFileRunning.get()) {
-						clearFileRunning.set(true);
-						(new Thread(new ClearFileTask())).start();
-					}
-				}
-			}
-		}
-	}
-	
-	/**
-	 * 清理文件。
-	 */
-	private class ClearFileTask implements Runnable {
-		/**
-		 * 构造函数。
-		 */
-		private ClearFileTask() {
-		}
-
-		@Override
-		public void run() {
-			// 按照文件修改时间进行排序
-			ArrayList<File> files = new ArrayList<File>(chunkFileMap.values());
-			Collections.sort(files, new Comparator<File>() {
-				@Override
-				public int compare(File o1, File o2) {
-					return (int) (o1.lastModified() - o2.lastModified());
-				}
-			});
-
-			while (fileSpace.get() > fileThreshold && !files.isEmpty()) {
-				File file = files.remove(0);
-				if (null == file) {
-					break;
-				}
-
-				chunkFileMap.remove(file.getName());
-				fileSpace.set(fileSpace.get() - file.length());
-				file.delete();
-			}
-
-			clearFileRunning.set(false);
-		}
 	}
 
 }
@@ -0,0 +1,285 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.talk.dialect;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+import net.cellcloud.util.Clock;
+
+/**
+ * 区块文件接收器。
+ * 
+ * 将同一个记号的区块按照偏移量直接写入预分配的文件，不在内存里保留区块数据。
+ * 除最后一个区块外，所有区块的长度相同，区块的偏移量为索引乘以区块长度，最后一个区块写在文件末尾。
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+final class ChunkFileReceiver {
+
+	/** 整块记号。 */
+	private final String sign;
+	/** 写入的文件。 */
+	private final File file;
+	/** 监听器。 */
+	private final ChunkFileListener listener;
+
+	/** 文件。 */
+	private RandomAccessFile raf;
+	/** 文件通道。 */
+	private FileChannel channel;
+
+	/** 总块数量。 */
+	private int chunkNum;
+	/** 整块总长度。 */
+	private long totalLength;
+	/** 除最后一个区块以外的区块长度。 */
+	private int chunkSize;
+	/** 最后一个区块的长度。 */
+	private int lastLength;
+
+	/** 已接收的区块。 */
+	private BitSet received;
+	/** 已接收的区块数量。 */
+	private int count;
+
+	/** 最近一次写入的时间戳。 */
+	private long timestamp;
+
+	/**
+	 * 构造函数。
+	 * 
+	 * @param sign 指定整块记号。
+	 * @param file 指定写入的文件。
+	 * @param listener 指定监听器。
+	 */
+	protected ChunkFileReceiver(String sign, File file, ChunkFileListener listener) {
+		this.sign = sign;
+		this.file = file;
+		this.listener = listener;
+		this.chunkNum = 0;
+		this.totalLength = 0;
+		this.chunkSize = 0;
+		this.lastLength = 0;
+		this.count = 0;
+		this.timestamp = Clock.currentTimeMillis();
+	}
+
+	/**
+	 * 获得整块记号。
+	 * 
+	 * @return 返回整块记号。
+	 */
+	protected String getSign() {
+		return this.sign;
+	}
+
+	/**
+	 * 获得写入的文件。
+	 * 
+	 * @return 返回写入的文件。
+	 */
+	protected File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * 获得监听器。
+	 * 
+	 * @return 返回监听器。
+	 */
+	protected ChunkFileListener getListener() {
+		return this.listener;
+	}
+
+	/**
+	 * 获得最近一次写入的时间戳。
+	 * 
+	 * @return 返回时间戳。
+	 */
+	protected long getTimestamp() {
+		return this.timestamp;
+	}
+
+	/**
+	 * 是否接收到所有的区块。
+	 * 
+	 * @return 如果已经接收到所有的区块返回 <code>true</code> 。
+	 */
+	protected synchronized boolean hasCompleted() {
+		return (this.chunkNum > 0 && this.count == this.chunkNum);
+	}
+
+	/**
+	 * 将区块写入文件。接收到所有区块后关闭文件。
+	 * 
+	 * @param chunk 指定区块。
+	 * @return 如果该区块是最后一个未接收的区块返回 <code>true</code> 。
+	 * @throws IOException 写入文件出错或者区块与整块不匹配时抛出。
+	 */
+	protected synchronized boolean write(ChunkDialect chunk) throws IOException {
+		if (this.hasCompleted()) {
+			return false;
+		}
+
+		if (null == this.channel) {
+			this.open(chunk);
+		}
+		else if (chunk.chunkNum != this.chunkNum || chunk.totalLength != this.totalLength) {
+			throw new IOException("Chunk does not match: " + this.sign + " #" + chunk.chunkIndex);
+		}
+
+		int index = chunk.chunkIndex;
+		int length = chunk.length;
+		long offset = 0;
+		if (chunk.isLast()) {
+			offset = this.totalLength - length;
+			this.lastLength = length;
+		}
+		else {
+			offset = (long) index * length;
+			this.chunkSize = length;
+		}
+
+		if (index < 0 || index >= this.chunkNum || length < 0 || offset < 0 || offset + length > this.totalLength) {
+			throw new IOException("Chunk out of range: " + this.sign + " #" + index);
+		}
+
+		ByteBuffer buf = ByteBuffer.wrap(chunk.data, 0, length);
+		while (buf.hasRemaining()) {
+			offset += this.channel.write(buf, offset);
+		}
+
+		this.timestamp = Clock.currentTimeMillis();
+
+		if (!this.received.get(index)) {
+			this.received.set(index);
+			++this.count;
+		}
+
+		if (this.count == this.chunkNum) {
+			this.close();
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * 从文件读取已接收的区块。
+	 * 
+	 * @param index 指定区块索引。
+	 * @param out 指定输出数组。
+	 * @return 返回读取数据的长度，如果没有接收到该区块返回 <code>-1</code> 。
+	 * @throws IOException 读取文件出错时抛出。
+	 */
+	protected synchronized int read(int index, byte[] out) throws IOException {
+		if (null == this.received || index < 0 || index >= this.chunkNum || !this.received.get(index)) {
+			return -1;
+		}
+
+		long offset = 0;
+		int length = 0;
+		if (index + 1 == this.chunkNum) {
+			offset = this.totalLength - this.lastLength;
+			length = this.lastLength;
+		}
+		else {
+			offset = (long) index * this.chunkSize;
+			length = this.chunkSize;
+		}
+
+		ByteBuffer buf = ByteBuffer.wrap(out, 0, length);
+
+		if (null != this.channel) {
+			this.read(this.channel, buf, offset);
+		}
+		else {
+			// 接收完成后文件已关闭
+			RandomAccessFile in = new RandomAccessFile(this.file, "r");
+			try {
+				this.read(in.getChannel(), buf, offset);
+			} finally {
+				in.close();
+			}
+		}
+
+		return buf.position();
+	}
+
+	/**
+	 * 从指定位置读满缓存。
+	 */
+	private void read(FileChannel channel, ByteBuffer buf, long offset) throws IOException {
+		while (buf.hasRemaining()) {
+			if (channel.read(buf, offset + buf.position()) < 0) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * 关闭文件。
+	 */
+	protected synchronized void close() {
+		if (null == this.raf) {
+			return;
+		}
+
+		try {
+			this.raf.close();
+		} catch (IOException e) {
+			// Nothing
+		}
+
+		this.raf = null;
+		this.channel = null;
+	}
+
+	/**
+	 * 打开并预分配文件。
+	 */
+	private void open(ChunkDialect chunk) throws IOException {
+		if (chunk.chunkNum <= 0 || chunk.totalLength < 0) {
+			throw new IOException("Chunk does not match: " + this.sign + " #" + chunk.chunkIndex);
+		}
+
+		this.chunkNum = chunk.chunkNum;
+		this.totalLength = chunk.totalLength;
+		this.received = new BitSet(this.chunkNum);
+
+		this.raf = new RandomAccessFile(this.file, "rw");
+		this.raf.setLength(this.totalLength);
+		this.channel = this.raf.getChannel();
+	}
+
+}
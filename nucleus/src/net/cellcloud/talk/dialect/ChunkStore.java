@@ -0,0 +1,628 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.talk.dialect;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import net.cellcloud.common.LogLevel;
+import net.cellcloud.common.Logger;
+
+/**
+ * 区块文件存储。
+ * 
+ * 区块数据追加写入内存映射的段文件，按照记号和区块索引建立索引，读取时直接从映射内存复制数据。
+ * 每条记录都带有记号和索引，启动时扫描段文件即可恢复索引。
+ * 段文件总大小超过上限时删除最早的段文件，段文件里没有有效记录时立即删除。
+ * 
+ * 记录格式：
+ * 4 bytes - 魔数
+ * 1 byte - 有效标记
+ * 2 bytes - 记号长度
+ * S bytes - 记号
+ * 4 bytes - 区块索引
+ * 4 bytes - 区块总数
+ * 8 bytes - 整块总长度
+ * 4 bytes - 数据长度
+ * D bytes - 数据
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+final class ChunkStore {
+
+	/** 段文件最大大小。 */
+	private final static int SEGMENT_SIZE = 64 * 1024 * 1024;
+	/** 段文件最小大小。 */
+	private final static int MIN_SEGMENT_SIZE = 1024 * 1024;
+
+	/** 段文件扩展名。 */
+	private final static String SEGMENT_SUFFIX = ".seg";
+
+	/** 记录魔数。 */
+	private final static int MAGIC = 0x43484B31;
+
+	/** 记录头除记号以外的长度。 */
+	private final static int HEADER_SIZE = 4 + 1 + 2 + 4 + 4 + 8 + 4;
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	/** 段文件目录。 */
+	private File dir;
+
+	/** 按照创建顺序排列的段文件。 */
+	private LinkedList<Segment> segments;
+	/** 当前追加写入的段文件。 */
+	private Segment current;
+	/** 下一个段文件序号。 */
+	private int nextId;
+
+	/** 记号对应的索引。 */
+	private HashMap<String, Entry> entries;
+
+	/** 段文件占用的磁盘空间。 */
+	private long space;
+	/** 允许使用的最大磁盘空间。 */
+	private long maxSpace;
+
+	/**
+	 * 构造函数。
+	 * 
+	 * @param dir 指定段文件目录。
+	 * @param maxSpace 指定允许使用的最大磁盘空间。
+	 */
+	protected ChunkStore(File dir, long maxSpace) {
+		this.dir = dir;
+		this.maxSpace = maxSpace;
+		this.segments = new LinkedList<Segment>();
+		this.entries = new HashMap<String, Entry>();
+		this.nextId = 0;
+		this.space = 0;
+	}
+
+	/**
+	 * 扫描目录里已有的段文件，恢复索引。
+	 */
+	protected synchronized void open() {
+		File[] files = this.dir.listFiles();
+		if (null == files) {
+			return;
+		}
+
+		ArrayList<Integer> ids = new ArrayList<Integer>();
+		for (File f : files) {
+			String name = f.getName();
+			if (f.isFile() && name.endsWith(SEGMENT_SUFFIX)) {
+				try {
+					ids.add(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+				} catch (NumberFormatException e) {
+					// 不是段文件
+				}
+			}
+		}
+
+		Collections.sort(ids);
+
+		for (Integer id : ids) {
+			File file = this.segmentFile(id.intValue());
+			try {
+				Segment segment = this.map(file, file.length());
+				this.scan(segment);
+				this.segments.add(segment);
+				this.space += segment.size;
+				this.nextId = id.intValue() + 1;
+			} catch (IOException e) {
+				Logger.log(ChunkStore.class, e, LogLevel.WARNING);
+			}
+		}
+
+		// 删除没有有效记录的段文件
+		Iterator<Segment> iter = this.segments.iterator();
+		while (iter.hasNext()) {
+			Segment segment = iter.next();
+			if (segment.live == 0) {
+				iter.remove();
+				this.release(segment);
+			}
+		}
+
+		if (!this.segments.isEmpty()) {
+			this.current = this.segments.getLast();
+		}
+
+		if (!this.entries.isEmpty()) {
+			Logger.i(ChunkStore.class, "Recovered " + this.entries.size() + " chunk sign(s) from " + this.segments.size() + " segment file(s)");
+		}
+	}
+
+	/**
+	 * 关闭存储，释放所有映射。段文件保留在磁盘上。
+	 */
+	protected synchronized void close() {
+		for (Segment segment : this.segments) {
+			segment.buffer.force();
+			unmap(segment.buffer);
+		}
+
+		this.segments.clear();
+		this.entries.clear();
+		this.current = null;
+		this.space = 0;
+	}
+
+	/**
+	 * 设置允许使用的最大磁盘空间。
+	 * 
+	 * @param maxSpace 指定最大磁盘空间。
+	 */
+	protected synchronized void setMaxSpace(long maxSpace) {
+		this.maxSpace = maxSpace;
+		this.trim();
+	}
+
+	/**
+	 * 获得段文件占用的磁盘空间。
+	 * 
+	 * @return 返回占用的磁盘空间。
+	 */
+	protected synchronized long getSpace() {
+		return this.space;
+	}
+
+	/**
+	 * 获得存储的整块数量。
+	 * 
+	 * @return 返回整块数量。
+	 */
+	protected synchronized int size() {
+		return this.entries.size();
+	}
+
+	/**
+	 * 是否存储了指定记号的区块。
+	 * 
+	 * @param sign 指定区块记号。
+	 * @return 如果存储了该记号的区块返回 <code>true</code> 。
+	 */
+	protected synchronized boolean contains(String sign) {
+		return this.entries.containsKey(sign);
+	}
+
+	/**
+	 * 是否存储了指定索引的区块。
+	 * 
+	 * @param sign 指定区块记号。
+	 * @param index 指定区块索引。
+	 * @return 如果存储了该区块返回 <code>true</code> 。
+	 */
+	protected synchronized boolean contains(String sign, int index) {
+		Entry entry = this.entries.get(sign);
+		return (null != entry && index >= 0 && index < entry.chunkNum && null != entry.segments[index]);
+	}
+
+	/**
+	 * 是否存储了指定记号的所有区块。
+	 * 
+	 * @param sign 指定区块记号。
+	 * @return 如果所有区块都已存储返回 <code>true</code> 。
+	 */
+	protected synchronized boolean hasCompleted(String sign) {
+		Entry entry = this.entries.get(sign);
+		return (null != entry && entry.count == entry.chunkNum);
+	}
+
+	/**
+	 * 追加区块。已经存储的相同索引的区块被替换。
+	 * 
+	 * @param chunk 指定区块。
+	 * @return 写入成功返回 <code>true</code> 。
+	 */
+	protected synchronized boolean append(ChunkDialect chunk) {
+		if (chunk.length <= 0 || chunk.chunkIndex < 0 || chunk.chunkIndex >= chunk.chunkNum) {
+			return false;
+		}
+
+		byte[] signBytes = chunk.sign.getBytes(UTF8);
+		int recordSize = HEADER_SIZE + signBytes.length + chunk.length;
+
+		Segment segment = this.current;
+		if (null == segment || segment.size - segment.position < recordSize) {
+			try {
+				// 段文件大小不超过磁盘空间上限的四分之一，以便按照段文件清理
+				int size = (int) Math.max(MIN_SEGMENT_SIZE, Math.min(SEGMENT_SIZE, this.maxSpace / 4));
+				segment = this.create(Math.max(size, recordSize));
+			} catch (IOException e) {
+				Logger.log(ChunkStore.class, e, LogLevel.WARNING);
+				return false;
+			}
+		}
+
+		int offset = segment.position;
+		ByteBuffer buf = segment.buffer;
+		buf.position(offset);
+		buf.putInt(MAGIC);
+		buf.put((byte) 1);
+		buf.putShort((short) signBytes.length);
+		buf.put(signBytes);
+		buf.putInt(chunk.chunkIndex);
+		buf.putInt(chunk.chunkNum);
+		buf.putLong(chunk.totalLength);
+		buf.putInt(chunk.length);
+		buf.put(chunk.data, 0, chunk.length);
+		segment.position = buf.position();
+
+		this.index(chunk.sign, chunk.chunkIndex, chunk.chunkNum, chunk.totalLength, segment, offset, recordSize);
+
+		this.trim();
+		return true;
+	}
+
+	/**
+	 * 读取区块数据。
+	 * 
+	 * @param sign 指定区块记号。
+	 * @param index 指定区块索引。
+	 * @param out 指定输出数组。
+	 * @return 返回读取数据的长度，如果没有该区块返回 <code>-1</code> 。
+	 */
+	protected synchronized int read(String sign, int index, byte[] out) {
+		Entry entry = this.entries.get(sign);
+		if (null == entry || index < 0 || index >= entry.chunkNum || null == entry.segments[index]) {
+			return -1;
+		}
+
+		Segment segment = entry.segments[index];
+		int offset = entry.offsets[index];
+		ByteBuffer buf = segment.buffer;
+		int dataOffset = offset + HEADER_SIZE + buf.getShort(offset + 5);
+		int length = buf.getInt(dataOffset - 4);
+
+		buf.position(dataOffset);
+		buf.get(out, 0, length);
+		return length;
+	}
+
+	/**
+	 * 读取指定记号的所有区块。
+	 * 
+	 * @param sign 指定区块记号。
+	 * @return 返回区块列表，没有存储的区块用空区块占位。如果没有该记号返回 <code>null</code> 。
+	 */
+	protected synchronized List<ChunkDialect> load(String sign) {
+		Entry entry = this.entries.get(sign);
+		if (null == entry) {
+			return null;
+		}
+
+		ArrayList<ChunkDialect> list = new ArrayList<ChunkDialect>(entry.chunkNum);
+		for (int i = 0; i < entry.chunkNum; ++i) {
+			if (null == entry.segments[i]) {
+				list.add(new ChunkDialect());
+				continue;
+			}
+
+			ByteBuffer buf = entry.segments[i].buffer;
+			int offset = entry.offsets[i];
+			int dataOffset = offset + HEADER_SIZE + buf.getShort(offset + 5);
+			byte[] data = new byte[buf.getInt(dataOffset - 4)];
+			buf.position(dataOffset);
+			buf.get(data);
+
+			list.add(new ChunkDialect(sign, entry.totalLength, i, entry.chunkNum, data, data.length));
+		}
+
+		return list;
+	}
+
+	/**
+	 * 删除指定记号的所有区块。
+	 * 
+	 * @param sign 指定区块记号。
+	 */
+	protected synchronized void remove(String sign) {
+		Entry entry = this.entries.remove(sign);
+		if (null == entry) {
+			return;
+		}
+
+		for (int i = 0; i < entry.chunkNum; ++i) {
+			Segment segment = entry.segments[i];
+			if (null != segment) {
+				this.kill(segment, entry.offsets[i], entry.sizes[i]);
+			}
+		}
+	}
+
+	/**
+	 * 将记录写入索引。
+	 */
+	private void index(String sign, int chunkIndex, int chunkNum, long totalLength,
+			Segment segment, int offset, int recordSize) {
+		Entry entry = this.entries.get(sign);
+		if (null == entry || entry.chunkNum != chunkNum) {
+			if (null != entry) {
+				this.remove(sign);
+			}
+
+			entry = new Entry(chunkNum, totalLength);
+			this.entries.put(sign, entry);
+		}
+
+		if (null != entry.segments[chunkIndex]) {
+			// 替换旧记录
+			this.kill(entry.segments[chunkIndex], entry.offsets[chunkIndex], entry.sizes[chunkIndex]);
+		}
+		else {
+			++entry.count;
+		}
+
+		entry.segments[chunkIndex] = segment;
+		entry.offsets[chunkIndex] = offset;
+		entry.sizes[chunkIndex] = recordSize;
+
+		segment.live += recordSize;
+		segment.signs.add(sign);
+	}
+
+	/**
+	 * 将记录标记为无效。
+	 */
+	private void kill(Segment segment, int offset, int recordSize) {
+		segment.buffer.put(offset + 4, (byte) 0);
+		segment.live -= recordSize;
+
+		if (segment.live <= 0 && segment != this.current) {
+			this.segments.remove(segment);
+			this.release(segment);
+		}
+	}
+
+	/**
+	 * 磁盘空间超过上限时删除最早的段文件。
+	 */
+	private void trim() {
+		while (this.space > this.maxSpace && this.segments.size() > 1) {
+			Segment segment = this.segments.removeFirst();
+
+			// 删除该段文件里的所有区块
+			for (String sign : segment.signs) {
+				Entry entry = this.entries.get(sign);
+				if (null == entry) {
+					continue;
+				}
+
+				for (int i = 0; i < entry.chunkNum; ++i) {
+					if (entry.segments[i] == segment) {
+						entry.segments[i] = null;
+						--entry.count;
+					}
+				}
+
+				if (entry.count == 0) {
+					this.entries.remove(sign);
+				}
+			}
+
+			Logger.i(ChunkStore.class, "Clear chunk segment file: " + segment.file.getName());
+			this.release(segment);
+		}
+	}
+
+	/**
+	 * 创建新的段文件。
+	 */
+	private Segment create(int size) throws IOException {
+		if (!this.dir.exists()) {
+			this.dir.mkdirs();
+		}
+
+		int id = this.nextId++;
+		Segment segment = this.map(this.segmentFile(id), size);
+		this.segments.add(segment);
+		this.space += segment.size;
+
+		Segment last = this.current;
+		this.current = segment;
+
+		if (null != last && last.live <= 0) {
+			this.segments.remove(last);
+			this.release(last);
+		}
+
+		return segment;
+	}
+
+	/**
+	 * 映射段文件。
+	 */
+	private Segment map(File file, long size) throws IOException {
+		RandomAccessFile raf = null;
+		try {
+			raf = new RandomAccessFile(file, "rw");
+			if (raf.length() < size) {
+				raf.setLength(size);
+			}
+
+			MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+			return new Segment(file, buffer, (int) size);
+		} finally {
+			if (null != raf) {
+				try {
+					raf.close();
+				} catch (IOException e) {
+					// Nothing
+				}
+			}
+		}
+	}
+
+	/**
+	 * 扫描段文件里的记录。
+	 */
+	private void scan(Segment segment) {
+		ByteBuffer buf = segment.buffer;
+		int offset = 0;
+
+		while (offset + HEADER_SIZE <= segment.size && buf.getInt(offset) == MAGIC) {
+			byte flag = buf.get(offset + 4);
+			int signLength = buf.getShort(offset + 5);
+			int dataOffset = offset + HEADER_SIZE + signLength;
+			if (signLength < 0 || dataOffset > segment.size) {
+				break;
+			}
+
+			int length = buf.getInt(dataOffset - 4);
+			int recordSize = HEADER_SIZE + signLength + length;
+			if (length < 0 || offset + recordSize > segment.size) {
+				break;
+			}
+
+			if (flag != 0) {
+				byte[] signBytes = new byte[signLength];
+				buf.position(offset + 7);
+				buf.get(signBytes);
+				int chunkIndex = buf.getInt();
+				int chunkNum = buf.getInt();
+				long totalLength = buf.getLong();
+
+				if (chunkIndex >= 0 && chunkIndex < chunkNum) {
+					this.index(new String(signBytes, UTF8), chunkIndex, chunkNum, totalLength, segment, offset, recordSize);
+				}
+			}
+
+			offset += recordSize;
+		}
+
+		segment.position = offset;
+	}
+
+	/**
+	 * 释放并删除段文件。
+	 */
+	private void release(Segment segment) {
+		this.space -= segment.size;
+		unmap(segment.buffer);
+
+		if (!segment.file.delete()) {
+			Logger.w(ChunkStore.class, "Can NOT delete chunk segment file: " + segment.file.getName());
+		}
+	}
+
+	private File segmentFile(int id) {
+		return new File(this.dir, String.format("%08d", id) + SEGMENT_SUFFIX);
+	}
+
+	/**
+	 * 立即释放映射内存。不支持时等待垃圾回收释放。
+	 */
+	private static void unmap(MappedByteBuffer buffer) {
+		try {
+			// Java 9 及以后版本
+			Class<?> clazz = Class.forName("sun.misc.Unsafe");
+			Method invokeCleaner = clazz.getMethod("invokeCleaner", ByteBuffer.class);
+			Field field = clazz.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			invokeCleaner.invoke(field.get(null), buffer);
+			return;
+		} catch (Exception e) {
+			// Nothing
+		}
+
+		try {
+			// Java 8 及以前版本
+			Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+			cleanerMethod.setAccessible(true);
+			Object cleaner = cleanerMethod.invoke(buffer);
+			if (null != cleaner) {
+				cleaner.getClass().getMethod("clean").invoke(cleaner);
+			}
+		} catch (Exception e) {
+			// Nothing
+		}
+	}
+
+	/**
+	 * 段文件。
+	 */
+	private final static class Segment {
+		private final File file;
+		private final MappedByteBuffer buffer;
+		private final int size;
+		/** 追加写入位置。 */
+		private int position;
+		/** 有效记录的字节数。 */
+		private long live;
+		/** 在该段文件里有记录的记号。 */
+		private final HashSet<String> signs;
+
+		private Segment(File file, MappedByteBuffer buffer, int size) {
+			this.file = file;
+			this.buffer = buffer;
+			this.size = size;
+			this.position = 0;
+			this.live = 0;
+			this.signs = new HashSet<String>();
+		}
+	}
+
+	/**
+	 * 一个整块的索引。
+	 */
+	private final static class Entry {
+		private final int chunkNum;
+		private final long totalLength;
+		/** 已存储的区块数量。 */
+		private int count;
+		private final Segment[] segments;
+		private final int[] offsets;
+		private final int[] sizes;
+
+		private Entry(int chunkNum, long totalLength) {
+			this.chunkNum = chunkNum;
+			this.totalLength = totalLength;
+			this.count = 0;
+			this.segments = new Segment[chunkNum];
+			this.offsets = new int[chunkNum];
+			this.sizes = new int[chunkNum];
+		}
+	}
+
+}
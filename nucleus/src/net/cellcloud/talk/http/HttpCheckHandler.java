@@ -27,7 +27,6 @@ THE SOFTWARE.
 package net.cellcloud.talk.http;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
 
 import net.cellcloud.common.LogLevel;
 import net.cellcloud.common.Logger;
@@ -42,6 +41,7 @@ import net.cellcloud.talk.TalkServiceKernel;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 /**
  * 基于 HTTP 协议的接入校验处理器。
@@ -98,9 +98,9 @@ public final class HttpCheckHandler extends AbstractJSONHandler implements Capsu
 			TalkServiceKernel.Certificate cert = this.talkServiceKernel.getCertificate(session);
 			if (null != cert) {
 				// { "plaintext": plaintext, "tag": tag }
-				String data = new String(request.readRequestData(), Charset.forName("UTF-8"));
+				byte[] data = request.readRequestData();
 				try {
-					JSONObject json = new JSONObject(data);
+					JSONObject json = new JSONObject(new JSONTokener(data, 0, data.length));
 					// 获得明文码
 					String plaintext = json.getString(Plaintext);
 					// 获得 Tag
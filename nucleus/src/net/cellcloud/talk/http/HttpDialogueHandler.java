@@ -26,10 +26,7 @@ THE SOFTWARE.
 
 package net.cellcloud.talk.http;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
 import java.util.Queue;
 
 import net.cellcloud.common.LogLevel;
@@ -46,11 +43,12 @@ import net.cellcloud.http.HttpSession;
 import net.cellcloud.talk.Primitive;
 import net.cellcloud.talk.TalkServiceKernel;
 import net.cellcloud.talk.stuff.PrimitiveSerializer;
+import net.cellcloud.util.ByteArrayBuffer;
+import net.cellcloud.util.JSONStreamReader;
+import net.cellcloud.util.JSONStreamWriter;
 import net.cellcloud.util.Utils;
 
-import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 /**
  * 基于 HTTP 协议的对话处理器。
@@ -123,15 +121,41 @@ public final class HttpDialogueHandler extends AbstractJSONHandler implements Ca
 		HttpSession session = request.getSession();
 		if (null != session) {
 			try {
-				// 读取包体数据
-				JSONObject json = new JSONObject(new String(request.readRequestData(), Charset.forName("UTF-8")));
-				// 解析 JSON 数据
-				String speakerTag = json.getString(Tag);
-				String celletIdentifier = json.getString(Identifier);
-				JSONObject primitiveJSON = json.getJSONObject(Primitive);
+				// 读取包体数据，直接在字节数据上解析
+				byte[] data = request.readRequestData();
+				JSONStreamReader reader = new JSONStreamReader(data);
+
+				String speakerTag = null;
+				String celletIdentifier = null;
+				int primitivePosition = -1;
+
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String key = reader.nextName();
+					if (key.equals(Tag)) {
+						speakerTag = reader.nextString();
+					}
+					else if (key.equals(Identifier)) {
+						celletIdentifier = reader.nextString();
+					}
+					else if (key.equals(Primitive)) {
+						// 原语需要使用标签创建，先记录位置
+						primitivePosition = reader.skipValue();
+					}
+					else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+
+				if (null == speakerTag || null == celletIdentifier || primitivePosition < 0) {
+					throw new JSONException("Missing dialogue data");
+				}
+
 				// 解析原语
 				Primitive primitive = new Primitive(speakerTag);
-				PrimitiveSerializer.read(primitive, primitiveJSON);
+				reader.seek(primitivePosition);
+				PrimitiveSerializer.read(primitive, reader);
 
 				if (false == (null != this.interceptor && this.interceptor.intercept(session, speakerTag, celletIdentifier, primitive))) {
 					// 处理原语
@@ -140,13 +164,14 @@ public final class HttpDialogueHandler extends AbstractJSONHandler implements Ca
 
 				// 响应
 				// 携带回队列里的数据
-				JSONObject responseData = new JSONObject();
+				JSONStreamWriter writer = JSONStreamWriter.getThreadWriter();
+				writer.beginObject();
 
 				// 获取消息队列
 				Queue<Message> queue = session.getQueue();
 				if (!queue.isEmpty()) {
-					ArrayList<String> identifiers = new ArrayList<String>(queue.size());
-					ArrayList<Primitive> primitives = new ArrayList<Primitive>(queue.size());
+					// 写入原语数据
+					writer.key(Primitives).beginArray();
 					for (int i = 0, size = queue.size(); i < size; ++i) {
 						// 消息出队
 						Message message = queue.poll();
@@ -154,32 +179,30 @@ public final class HttpDialogueHandler extends AbstractJSONHandler implements Ca
 						Packet packet = Packet.unpack(message.get());
 						if (null != packet) {
 							// 获取 cellet identifier
-							byte[] identifier = packet.getSegment(1);
-
-							// 将包数据转为输入流进行反序列化
-							byte[] primData = packet.getSegment(0);
-							ByteArrayInputStream stream = new ByteArrayInputStream(primData);
+							String identifier = Utils.bytes2String(packet.getSegmentBuffer(1),
+									packet.getSegmentOffset(1), packet.getSegmentLength(1));
 
 							// 反序列化
 							Primitive prim = new Primitive(Nucleus.getInstance().getTagAsString());
-							prim.read(stream);
+							prim.readLazily(packet.getSegmentBuffer(0), packet.getSegmentOffset(0), packet.getSegmentLength(0));
 
-							// 添加到数组
-							identifiers.add(Utils.bytes2String(identifier));
-							primitives.add(prim);
+							writer.beginObject();
+							writer.key(Identifier).value(identifier);
+							writer.key(Primitive);
+							PrimitiveSerializer.write(writer, prim);
+							writer.endObject();
 						}
 					}
-
-					// 写入原语数据
-					JSONArray jsonPrimitives = this.convert(identifiers, primitives);
-					responseData.put(Primitives, jsonPrimitives);
+					writer.endArray();
 				}
 
 				// 返回队列大小
-				responseData.put(Queue, queue.size());
+				writer.key(Queue).value(queue.size());
+				writer.endObject();
 
 				// 返回数据
-				this.respondWithOk(response, responseData);
+				ByteArrayBuffer buf = writer.getBuffer();
+				this.respondWithOk(response, buf.array(), 0, buf.length());
 			} catch (JSONException e) {
 				Logger.log(HttpDialogueHandler.class, e, LogLevel.ERROR);
 				this.respond(response, HttpResponse.SC_BAD_REQUEST);
@@ -201,36 +224,4 @@ public final class HttpDialogueHandler extends AbstractJSONHandler implements Ca
 		response.setHeader("Access-Control-Allow-Origin", "*");
 	}
 
-	/**
-	 * 将原语队列转为 JSON 数组。
-	 * 
-	 * @param identifiers 指定目标 Cellet 的标识清单。
-	 * @param list 指定需转换的原语列表。
-	 * @return 返回转换后的 JSON 数组。
-	 */
-	private JSONArray convert(ArrayList<String> identifiers, ArrayList<Primitive> list) {
-		JSONArray ret = new JSONArray();
-
-		try {
-			for (int i = 0, size = identifiers.size(); i < size; ++i) {
-				String identifier = identifiers.get(i);
-				Primitive prim = list.get(i);
-
-				JSONObject primJson = new JSONObject();
-				PrimitiveSerializer.write(primJson, prim);
-
-				JSONObject json = new JSONObject();
-				json.put(Identifier, identifier);
-				json.put(Primitive, primJson);
-
-				// 写入数组
-				ret.put(json);
-			}
-		} catch (JSONException e) {
-			// Nothing
-		}
-
-		return ret;
-	}
-
 }
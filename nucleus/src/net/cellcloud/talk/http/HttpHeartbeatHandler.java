@@ -120,15 +120,16 @@ public final class HttpHeartbeatHandler extends AbstractJSONHandler implements C
 					Packet packet = Packet.unpack(message.get());
 					if (null != packet) {
 						// 将包数据转为输入流进行反序列化
-						byte[] primData = packet.getSegment(0);
-						ByteArrayInputStream stream = new ByteArrayInputStream(primData);
+						ByteArrayInputStream stream = new ByteArrayInputStream(packet.getSegmentBuffer(0),
+								packet.getSegmentOffset(0), packet.getSegmentLength(0));
 
 						// 反序列化
 						Primitive prim = new Primitive(Nucleus.getInstance().getTagAsString());
 						prim.read(stream);
 
 						// 添加到数组
-						identifiers.add(Utils.bytes2String(packet.getSegment(1)));
+						identifiers.add(Utils.bytes2String(packet.getSegmentBuffer(1),
+								packet.getSegmentOffset(1), packet.getSegmentLength(1)));
 						primitives.add(prim);
 					}
 				}
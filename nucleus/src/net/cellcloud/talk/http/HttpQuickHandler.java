@@ -45,6 +45,7 @@ import net.cellcloud.talk.TalkTracker;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 /**
  * 基于 HTTP 协议的快速握手处理器。
@@ -103,9 +104,9 @@ public class HttpQuickHandler extends AbstractJSONHandler implements CapsuleHold
 			TalkServiceKernel.Certificate cert = this.talkServiceKernel.getCertificate(session);
 			if (null != cert) {
 				// { "plaintext": plaintext, "tag": tag }
-				String data = new String(request.readRequestData(), Charset.forName("UTF-8"));
+				byte[] data = request.readRequestData();
 				try {
-					JSONObject json = new JSONObject(data);
+					JSONObject json = new JSONObject(new JSONTokener(data, 0, data.length));
 					// 获得明文码
 					String plaintext = json.getString(Plaintext);
 					// 获得 Tag
@@ -31,6 +31,7 @@ import java.nio.charset.Charset;
 
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 import net.cellcloud.common.LogLevel;
 import net.cellcloud.common.Logger;
@@ -99,9 +100,9 @@ public final class HttpRequestHandler extends AbstractJSONHandler implements Cap
 		HttpSession session = request.getSession();
 		if (null != session) {
 			// {"tag": tag, "identifier": identifier}
-			String data = new String(request.readRequestData(), Charset.forName("UTF-8"));
+			byte[] data = request.readRequestData();
 			try {
-				JSONObject json = new JSONObject(data);
+				JSONObject json = new JSONObject(new JSONTokener(data, 0, data.length));
 				String tag = json.getString(Tag);
 				String identifier = json.getString(Identifier);
 				// 请求 Cellet
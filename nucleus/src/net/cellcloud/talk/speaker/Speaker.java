@@ -26,8 +26,6 @@ THE SOFTWARE.
 
 package net.cellcloud.talk.speaker;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
@@ -53,7 +51,9 @@ import net.cellcloud.talk.TalkCapacity;
 import net.cellcloud.talk.TalkDefinition;
 import net.cellcloud.talk.TalkFailureCode;
 import net.cellcloud.talk.TalkServiceFailure;
+import net.cellcloud.talk.stuff.PrimitiveSerializer;
 import net.cellcloud.talk.stuff.StuffVersion;
+import net.cellcloud.util.ByteArrayBuffer;
 import net.cellcloud.util.Utils;
 
 import org.json.JSONException;
@@ -87,6 +87,9 @@ public class Speaker implements Speakable {
 	/** 对话者协商的能力描述。 */
 	public TalkCapacity capacity = null;
 
+	/** 与服务器协商的语素版本。 */
+	private volatile StuffVersion stuffVersion = null;
+
 	/** 从服务器获得密钥。 */
 	private byte[] secretKey = null;
 
@@ -197,7 +200,9 @@ public class Speaker implements Speakable {
 		}
 
 		if (null == this.connector) {
-			this.connector = new NonblockingConnector();
+			// 内核未创建时使用独立线程的连接器
+			Nucleus nucleus = Nucleus.getInstance();
+			this.connector = new NonblockingConnector((null != nucleus) ? nucleus.getConnectorGroup() : null);
 			this.connector.setBlockSize(this.block);
 
 			byte[] headMark = {0x20, 0x10, 0x11, 0x10};
@@ -255,6 +260,7 @@ public class Speaker implements Speakable {
 
 		this.lost = false;
 		this.authenticated = false;
+		this.stuffVersion = null;
 		this.identifierList.clear();
 	}
 
@@ -275,18 +281,22 @@ public class Speaker implements Speakable {
 //			primitive.setVersion(version);
 //		}
 
-		// 序列化原语
-		ByteArrayOutputStream stream = primitive.write();
+		// 双方都支持时使用二进制语素格式
+		if (StuffVersion.V4 == this.stuffVersion && StuffVersion.V4 != primitive.getVersion()) {
+			primitive.setVersion(StuffVersion.V4);
+		}
+
+		// 序列化原语，数据包在当前线程内打包完成，直接引用线程复用的缓存
+		ByteArrayBuffer stream = PrimitiveSerializer.write(primitive);
 
 		// 封装数据包
 		Packet packet = new Packet(TalkDefinition.TPT_DIALOGUE, 99, 2, 0);
-		packet.appendSegment(stream.toByteArray());
+		packet.appendSegment(stream.array(), 0, stream.length());
 		packet.appendSegment(this.nucleusTag);
 		packet.appendSegment(Utils.string2Bytes(identifier));
 
-		// 发送数据
-		byte[] data = Packet.pack(packet);
-		Message message = new Message(data);
+		// 发送数据，直接编码到连接器的输出帧缓存
+		Message message = Packet.pack(packet, this.connector);
 		try {
 			this.connector.write(message);
 		} catch (IOException e) {
@@ -661,6 +671,11 @@ public class Speaker implements Speakable {
 			this.capacity.retryDelay = newCapacity.retryDelay;
 		}
 
+		// 服务器应答的能力描述里包含双方都支持的语素版本
+		this.stuffVersion = CompatibilityHelper.match(newCapacity);
+		// 服务器应答里保留了分片传输描述时才分片发送大消息
+		session.setFragmentable(newCapacity.isFragmentable());
+
 		if (Logger.isDebugLevel() && null != this.capacity) {
 			StringBuilder buf = new StringBuilder();
 			buf.append("Update talk capacity from '");
@@ -735,18 +750,19 @@ public class Speaker implements Speakable {
 	protected void doDialogue(Packet packet, Session session) {
 		// 包格式：序列化的原语|Cellet
 
-		byte[] pridata = packet.getSegment(0);
-		ByteArrayInputStream stream = new ByteArrayInputStream(pridata);
-		String celletIdentifier = Utils.bytes2String(packet.getSegment(1));
+		// 直接在数据段视图上读取，不复制数据段
+		String celletIdentifier = Utils.bytes2String(packet.getSegmentBuffer(1),
+				packet.getSegmentOffset(1), packet.getSegmentLength(1));
 
-		// 反序列化原语
+		// 延迟反序列化原语，语素在访问时创建
 		Primitive primitive = new Primitive(this.remoteTag);
 		primitive.setCelletIdentifier(celletIdentifier);
-		primitive.read(stream);
+		primitive.readLazily(packet.getSegmentBuffer(0), packet.getSegmentOffset(0), packet.getSegmentLength(0));
 
 		if (packet.numSegments() == 3) {
 			// 来自代理的对话
-			String tag = Utils.bytes2String(packet.getSegment(2));
+			String tag = Utils.bytes2String(packet.getSegmentBuffer(2),
+					packet.getSegmentOffset(2), packet.getSegmentLength(2));
 			if (null != this.proxyListener) {
 				this.proxyListener.onProxyDialogue(tag, celletIdentifier, primitive);
 			}
@@ -835,6 +851,11 @@ public class Speaker implements Speakable {
 					this.capacity.retry = newCapacity.retry;
 					this.capacity.retryDelay = newCapacity.retryDelay;
 				}
+
+				// 服务器应答的能力描述里包含双方都支持的语素版本
+				this.stuffVersion = CompatibilityHelper.match(newCapacity);
+				// 服务器应答里保留了分片传输描述时才分片发送大消息
+				session.setFragmentable(newCapacity.isFragmentable());
 			}
 
 			// 变更状态
@@ -877,17 +898,17 @@ public class Speaker implements Speakable {
 	protected void doProxy(Packet packet, Session session) {
 		// 包格式：状态码|数据JSON
 
-		byte[] code = packet.getSegment(0);
-		if (code[0] == TalkDefinition.SC_SUCCESS[0]
-			&& code[1] == TalkDefinition.SC_SUCCESS[1]
-			&& code[2] == TalkDefinition.SC_SUCCESS[2]
-			&& code[3] == TalkDefinition.SC_SUCCESS[3]) {
-
-			byte[] data = packet.getSegment(1);
+		byte[] code = packet.getSegmentBuffer(0);
+		int offset = packet.getSegmentOffset(0);
+		if (code[offset] == TalkDefinition.SC_SUCCESS[0]
+			&& code[offset + 1] == TalkDefinition.SC_SUCCESS[1]
+			&& code[offset + 2] == TalkDefinition.SC_SUCCESS[2]
+			&& code[offset + 3] == TalkDefinition.SC_SUCCESS[3]) {
 
 			JSONObject json = null;
 			try {
-				json = new JSONObject(Utils.bytes2String(data));
+				json = new JSONObject(Utils.bytes2String(packet.getSegmentBuffer(1),
+						packet.getSegmentOffset(1), packet.getSegmentLength(1)));
 			} catch (JSONException e) {
 				Logger.log(this.getClass(), e, LogLevel.ERROR);
 			}
@@ -40,10 +40,14 @@ import net.cellcloud.talk.Primitive;
 import net.cellcloud.talk.dialect.Dialect;
 import net.cellcloud.talk.dialect.DialectEnumerator;
 import net.cellcloud.util.Base64;
+import net.cellcloud.util.ByteArrayBuffer;
+import net.cellcloud.util.JSONStreamReader;
+import net.cellcloud.util.JSONStreamWriter;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
 /**
  * 原语序列化器。
@@ -131,6 +135,30 @@ public final class PrimitiveSerializer {
 	private static final byte[] STUFFTYPE_ATTRIBUTIVE_BYTES = STUFFTYPE_ATTRIBUTIVE.getBytes();
 	private static final byte[] STUFFTYPE_COMPLEMENT_BYTES = STUFFTYPE_COMPLEMENT.getBytes();
 
+	/** 二进制格式的版本标识，文本格式的第一个字节总是 '[' 。 */
+	private static final byte BINARY_VERSION = 0x04;
+	/** 二进制格式的方言记录标识。 */
+	private static final byte BINARY_DIALECT = 0x00;
+
+	private static final byte BINARY_STUFFTYPE_SUBJECT = 0x01;
+	private static final byte BINARY_STUFFTYPE_PREDICATE = 0x02;
+	private static final byte BINARY_STUFFTYPE_OBJECTIVE = 0x03;
+	private static final byte BINARY_STUFFTYPE_ADVERBIAL = 0x04;
+	private static final byte BINARY_STUFFTYPE_ATTRIBUTIVE = 0x05;
+	private static final byte BINARY_STUFFTYPE_COMPLEMENT = 0x06;
+
+	private static final byte BINARY_LITERALBASE_STRING = 0x01;
+	private static final byte BINARY_LITERALBASE_INT = 0x02;
+	private static final byte BINARY_LITERALBASE_UINT = 0x03;
+	private static final byte BINARY_LITERALBASE_LONG = 0x04;
+	private static final byte BINARY_LITERALBASE_ULONG = 0x05;
+	private static final byte BINARY_LITERALBASE_FLOAT = 0x06;
+	private static final byte BINARY_LITERALBASE_DOUBLE = 0x07;
+	private static final byte BINARY_LITERALBASE_BOOL = 0x08;
+	private static final byte BINARY_LITERALBASE_JSON = 0x09;
+	private static final byte BINARY_LITERALBASE_BIN = 0x0A;
+	private static final byte BINARY_LITERALBASE_XML = 0x0B;
+
 	private static final String JSONKEY_VERSION = "version";
 	private static final String JSONKEY_STUFFS = "stuffs";
 	private static final String JSONKEY_STUFFTYPE = "type";
@@ -140,8 +168,25 @@ public final class PrimitiveSerializer {
 	private static final String JSONKEY_NAME = "name";
 	private static final String JSONKEY_TRACKER = "tracker";
 
-	/** 缓存区大小。 */
-	private static final int BLOCK = 65536;
+	static {
+		// 解析 JSON 时复用键字符串
+		JSONTokener.internKeys(JSONKEY_VERSION, JSONKEY_STUFFS, JSONKEY_STUFFTYPE, JSONKEY_STUFFVALUE,
+				JSONKEY_LITERALBASE, JSONKEY_DIALECT, JSONKEY_NAME, JSONKEY_TRACKER);
+	}
+
+	/** 线程复用的缓存在使用后保留的最大容量。 */
+	private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+	/** 线程复用的解析缓存。 */
+	private static final ThreadLocal<ByteArrayBuffer> readBuffer = new ThreadLocal<ByteArrayBuffer>();
+
+	/** 线程复用的序列化输出缓存。 */
+	private static final ThreadLocal<ByteArrayBuffer> writeBuffer = new ThreadLocal<ByteArrayBuffer>() {
+		@Override
+		protected ByteArrayBuffer initialValue() {
+			return new ByteArrayBuffer(1024);
+		}
+	};
 
 	private PrimitiveSerializer() {
 	}
@@ -159,11 +204,27 @@ public final class PrimitiveSerializer {
 		示例：
 		[01000]{sub=cloud:string}{pre=2013:int}[Action@Ambrose]
 		[03]{sub=cloud:s}{pre=2013:i}[Action@Ambrose]
+		V4 版本使用二进制格式，见 writeBinary 。
 		*/
 
 		try {
 			// 版本
 			StuffVersion sv = primitive.getVersion();
+
+			// 未被修改的延迟解析原语直接使用原始数据
+			StuffIndex index = primitive.getStuffIndex();
+			if (null != index && index.getVersion() == sv) {
+				stream.write(index.getData(), index.getOffset(), index.getLength());
+				stream.flush();
+				return;
+			}
+
+			if (StuffVersion.V4 == sv) {
+				writeBinary(stream, primitive);
+				stream.flush();
+				return;
+			}
+
 			stream.write((int)TOKEN_OPEN_BRACKET);
 			byte[] version = null;
 			if (StuffVersion.V3 == sv) {
@@ -178,9 +239,6 @@ public final class PrimitiveSerializer {
 			stream.write(version);
 			stream.write((int)TOKEN_CLOSE_BRACKET);
 
-			ByteBuffer buf = ByteBuffer.allocate(BLOCK);
-			int bufLength = 0;
-
 			// 语素
 			List<SubjectStuff> subjects = primitive.subjects();
 			if (null != subjects) {
@@ -191,12 +249,7 @@ public final class PrimitiveSerializer {
 					stream.write(STUFFTYPE_SUBJECT_BYTES);
 					stream.write((int)TOKEN_OPERATE_ASSIGN);
 
-					bufLength = reviseValue(buf, stuff.value);
-					buf.flip();
-					byte[] d = new byte[bufLength];
-					buf.get(d, 0, bufLength);
-					stream.write(d);
-					buf.clear();
+					writeRevisedValue(stream, stuff.value);
 
 					stream.write((int)TOKEN_OPERATE_DECLARE);
 					stream.write(parseLiteralBase(stuff.literalBase, sv));
@@ -212,12 +265,7 @@ public final class PrimitiveSerializer {
 					stream.write(STUFFTYPE_PREDICATE_BYTES);
 					stream.write((int)TOKEN_OPERATE_ASSIGN);
 
-					bufLength = reviseValue(buf, stuff.value);
-					buf.flip();
-					byte[] d = new byte[bufLength];
-					buf.get(d, 0, bufLength);
-					stream.write(d);
-					buf.clear();
+					writeRevisedValue(stream, stuff.value);
 
 					stream.write((int)TOKEN_OPERATE_DECLARE);
 					stream.write(parseLiteralBase(stuff.literalBase, sv));
@@ -233,12 +281,7 @@ public final class PrimitiveSerializer {
 					stream.write(STUFFTYPE_OBJECTIVE_BYTES);
 					stream.write((int)TOKEN_OPERATE_ASSIGN);
 
-					bufLength = reviseValue(buf, stuff.value);
-					buf.flip();
-					byte[] d = new byte[bufLength];
-					buf.get(d, 0, bufLength);
-					stream.write(d);
-					buf.clear();
+					writeRevisedValue(stream, stuff.value);
 
 					stream.write((int)TOKEN_OPERATE_DECLARE);
 					stream.write(parseLiteralBase(stuff.literalBase, sv));
@@ -254,12 +297,7 @@ public final class PrimitiveSerializer {
 					stream.write(STUFFTYPE_ADVERBIAL_BYTES);
 					stream.write((int)TOKEN_OPERATE_ASSIGN);
 
-					bufLength = reviseValue(buf, stuff.value);
-					buf.flip();
-					byte[] d = new byte[bufLength];
-					buf.get(d, 0, bufLength);
-					stream.write(d);
-					buf.clear();
+					writeRevisedValue(stream, stuff.value);
 
 					stream.write((int)TOKEN_OPERATE_DECLARE);
 					stream.write(parseLiteralBase(stuff.literalBase, sv));
@@ -275,12 +313,7 @@ public final class PrimitiveSerializer {
 					stream.write(STUFFTYPE_ATTRIBUTIVE_BYTES);
 					stream.write((int)TOKEN_OPERATE_ASSIGN);
 
-					bufLength = reviseValue(buf, stuff.value);
-					buf.flip();
-					byte[] d = new byte[bufLength];
-					buf.get(d, 0, bufLength);
-					stream.write(d);
-					buf.clear();
+					writeRevisedValue(stream, stuff.value);
 
 					stream.write((int)TOKEN_OPERATE_DECLARE);
 					stream.write(parseLiteralBase(stuff.literalBase, sv));
@@ -296,12 +329,7 @@ public final class PrimitiveSerializer {
 					stream.write(STUFFTYPE_COMPLEMENT_BYTES);
 					stream.write((int)TOKEN_OPERATE_ASSIGN);
 
-					bufLength = reviseValue(buf, stuff.value);
-					buf.flip();
-					byte[] d = new byte[bufLength];
-					buf.get(d, 0, bufLength);
-					stream.write(d);
-					buf.clear();
+					writeRevisedValue(stream, stuff.value);
 
 					stream.write((int)TOKEN_OPERATE_DECLARE);
 					stream.write(parseLiteralBase(stuff.literalBase, sv));
@@ -320,12 +348,55 @@ public final class PrimitiveSerializer {
 			}
 
 			stream.flush();
-			buf = null;
 		} catch (IOException e) {
 			Logger.log(PrimitiveSerializer.class, e, LogLevel.ERROR);
 		}
 	}
 
+	/**
+	 * 将原语写入当前线程复用的序列化缓存。
+	 * 
+	 * 返回的缓存在当前线程下一次调用该方法之前有效，通过 {@link ByteArrayBuffer#array()} 和
+	 * {@link ByteArrayBuffer#length()} 访问序列化数据不需要复制。需要长期持有数据时应复制数据。
+	 * 
+	 * @param primitive 指定待操作源原语。
+	 * @return 返回存储序列化数据的线程复用缓存。
+	 */
+	public static ByteArrayBuffer write(Primitive primitive) {
+		ByteArrayBuffer buf = writeBuffer.get();
+		buf.reset(MAX_RETAINED_CAPACITY);
+		write(buf, primitive);
+		return buf;
+	}
+
+	/**
+	 * 将原语直接写入指定的缓存。
+	 * 
+	 * 数据从缓存的当前位置开始写入，写入完成后缓存位置移动到数据末尾。
+	 * 
+	 * @param buffer 指定写入的缓存。
+	 * @param primitive 指定待操作源原语。
+	 * @return 返回写入的字节数。
+	 * @throws java.nio.BufferOverflowException 如果缓存剩余空间不足。
+	 */
+	public static int write(final ByteBuffer buffer, Primitive primitive) {
+		int position = buffer.position();
+
+		write(new OutputStream() {
+			@Override
+			public void write(int b) {
+				buffer.put((byte) b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				buffer.put(b, off, len);
+			}
+		}, primitive);
+
+		return buffer.position() - position;
+	}
+
 	/**
 	 * 从数据流中读取原语。
 	 * 
@@ -339,18 +410,28 @@ public final class PrimitiveSerializer {
 		示例：
 		[01000]{sub=cloud:string}{pre=2013:int}[Action@Ambrose]
 		[03]{sub=cloud:s}{pre=2013:i}[Action@Ambrose]
+		V4 版本使用二进制格式，见 readBinary 。
 		*/
 
 		try {
 			byte phase = PARSE_PHASE_UNKNOWN;
-			int read = 0;
+			int read = stream.read();
+			if (read == BINARY_VERSION) {
+				readBinary(primitive, stream);
+				return;
+			}
+			else if (read == TOKEN_OPEN_BRACKET) {
+				phase = PARSE_PHASE_VERSION;
+			}
+			else if (read == TOKEN_OPEN_BRACE) {
+				phase = PARSE_PHASE_TYPE;
+			}
 
-			ByteBuffer buf = ByteBuffer.allocate(BLOCK);
+			ByteArrayBuffer buf = borrowBuffer();
 			byte[] version = null;
 			byte[] type = new byte[3];
 			byte[] value = null;
 			byte[] literal = null;
-			int length = 0;
 
 			while ((read = stream.read()) >= 0) {
 
@@ -367,13 +448,11 @@ public final class PrimitiveSerializer {
 							|| next == TOKEN_OPERATE_ASSIGN
 							|| next == TOKEN_OPERATE_DECLARE
 							|| next == TOKEN_ESCAPE) {
-							buf.put((byte)next);
-							++length;
+							buf.write(next);
 						}
 						else {
-							buf.put((byte)read);
-							buf.put((byte)next);
-							length += 2;
+							buf.write(read);
+							buf.write(next);
 						}
 
 						// 继续下一个字节
@@ -382,69 +461,57 @@ public final class PrimitiveSerializer {
 
 					if (read == TOKEN_OPERATE_DECLARE) {
 						// 数值结束
-						buf.flip();
-						value = new byte[length];
-						buf.get(value, 0, length);
-						buf.clear();
+						value = buf.toByteArray();
+						buf.reset();
 
 						phase = PARSE_PHASE_LITERAL;
-						length = 0;
 						continue;
 					}
 
-					buf.put((byte)read);
-					++length;
+					buf.write(read);
 					break;
 
 				case PARSE_PHASE_TYPE:
 					if (read == TOKEN_OPERATE_ASSIGN) {
 						// 类型结束
-						buf.flip();
-						buf.get(type);
-						buf.clear();
+						System.arraycopy(buf.array(), 0, type, 0, Math.min(type.length, buf.length()));
+						buf.reset();
 
 						phase = PARSE_PHASE_VALUE;
-						length = 0;
 						continue;
 					}
 					// 写入语素类型
-					buf.put((byte)read);
+					buf.write(read);
 					break;
 
 				case PARSE_PHASE_LITERAL:
 					if (read == TOKEN_CLOSE_BRACE) {
 						// 字面义结束
-						buf.flip();
-						literal = new byte[length];
-						buf.get(literal, 0, length);
-						buf.clear();
+						literal = buf.toByteArray();
+						buf.reset();
 
 						// 注入语素
 						injectStuff(primitive, type, value, literal);
 
 						phase = PARSE_PHASE_DIALECT;
-						length = 0;
 						continue;
 					}
-					buf.put((byte)read);
-					++length;
+					buf.write(read);
 					break;
 
 				case PARSE_PHASE_STUFF:
 					if (read == TOKEN_OPEN_BRACE) {
 						// 进入解析语素阶段
 						phase = PARSE_PHASE_TYPE;
-						buf.clear();
+						buf.reset();
 					}
 					break;
 
 				case PARSE_PHASE_VERSION:
 					if (read == TOKEN_CLOSE_BRACKET) {
-						version = new byte[length];
 						// 解析版本结束
-						buf.flip();
-						buf.get(version, 0, length);
-						buf.clear();
+						version = buf.toByteArray();
+						buf.reset();
 
 						if (version.length > 2 && version[2] == '2') {
 							primitive.setVersion(StuffVersion.V2);
@@ -457,56 +524,590 @@ public final class PrimitiveSerializer {
 						}
 
 						phase = PARSE_PHASE_STUFF;
-						length = 0;
 						continue;
 					}
-					buf.put((byte)read);
-					++length;
+					buf.write(read);
 					break;
 
 				case PARSE_PHASE_DIALECT:
 					if (read == TOKEN_OPEN_BRACE) {
 						// 语素未解析完成，回到解析语素阶段
 						phase = PARSE_PHASE_TYPE;
-						buf.clear();
+						buf.reset();
 					}
 					else if (read == TOKEN_OPEN_BRACKET) {
 						// 解析方言开始
-						buf.clear();
+						buf.reset();
 					}
 					else if (read == TOKEN_CLOSE_BRACKET) {
 						// 解析方言结束
-						buf.flip();
-						deserializeDialect(primitive, new String(buf.array(), 0, length, Charset.forName("UTF-8")));
-						buf.clear();
+						deserializeDialect(primitive, new String(buf.array(), 0, buf.length(), Charset.forName("UTF-8")));
+						buf.reset();
 					}
 					else {
 						// 记录数据
-						buf.put((byte)read);
-						++length;
+						buf.write(read);
 					}
 					break;
 
 				default:
 					if (read == TOKEN_OPEN_BRACE) {
 						phase = PARSE_PHASE_TYPE;
-						buf.clear();
+						buf.reset();
 					}
 					else if (read == TOKEN_OPEN_BRACKET) {
 						phase = PARSE_PHASE_VERSION;
-						buf.clear();
+						buf.reset();
 					}
 					break;
 				}
 			}
 
-			buf.clear();
+			returnBuffer(buf);
 
 		} catch (IOException e) {
 			Logger.log(PrimitiveSerializer.class, e, LogLevel.ERROR);
 		}
 	}
 
+	/**
+	 * 为序列化数据建立语素索引，不创建语素对象。
+	 * 
+	 * 索引引用输入数据，调用者在索引使用期间不能修改数据。
+	 * 
+	 * @param data 指定序列化数据所在数组。
+	 * @param offset 指定数据起始位置。
+	 * @param length 指定数据长度。
+	 * @return 返回语素索引，如果数据不是规范格式返回 <code>null</code> 。
+	 */
+	public static StuffIndex index(byte[] data, int offset, int length) {
+		if (length <= 0) {
+			return null;
+		}
+
+		if (data[offset] == BINARY_VERSION) {
+			return indexBinary(data, offset, length);
+		}
+
+		if (data[offset] != TOKEN_OPEN_BRACKET) {
+			return null;
+		}
+
+		int end = offset + length;
+
+		// 版本
+		int close = indexOf(data, offset + 1, end, TOKEN_CLOSE_BRACKET);
+		if (close < 0) {
+			return null;
+		}
+
+		StuffVersion version = null;
+		int versionLength = close - offset - 1;
+		if (versionLength > 2 && data[offset + 3] == '2') {
+			version = StuffVersion.V2;
+		}
+		else if (versionLength == 2 && data[offset + 2] == '3') {
+			version = StuffVersion.V3;
+		}
+		else {
+			version = StuffVersion.V1;
+		}
+
+		StuffIndex index = new StuffIndex(data, offset, length, version);
+
+		int p = close + 1;
+		while (p < end) {
+			byte b = data[p];
+
+			if (b == TOKEN_OPEN_BRACE) {
+				// 类型
+				int assign = indexOf(data, p + 1, end, TOKEN_OPERATE_ASSIGN);
+				if (assign < 0) {
+					return null;
+				}
+
+				StuffType type = parseStuffType(data, p + 1, assign - p - 1);
+
+				// 数值
+				boolean escaped = false;
+				int i = assign + 1;
+				while (i < end) {
+					byte c = data[i];
+					if (c == TOKEN_ESCAPE) {
+						escaped = true;
+						i += 2;
+						continue;
+					}
+					else if (c == TOKEN_OPERATE_DECLARE) {
+						break;
+					}
+					++i;
+				}
+				if (i >= end) {
+					return null;
+				}
+
+				// 字面义
+				int closeBrace = indexOf(data, i + 1, end, TOKEN_CLOSE_BRACE);
+				if (closeBrace <= i + 1) {
+					return null;
+				}
+
+				LiteralBase lb = parseLiteralBase(data, i + 1, closeBrace - i - 1);
+				if (null != type && null != lb) {
+					index.add(type, lb, assign + 1, i - assign - 1, escaped);
+				}
+
+				p = closeBrace + 1;
+			}
+			else if (b == TOKEN_OPEN_BRACKET) {
+				// 方言
+				int closeBracket = indexOf(data, p + 1, end, TOKEN_CLOSE_BRACKET);
+				if (closeBracket < 0) {
+					return null;
+				}
+
+				String[] sections = new String(data, p + 1, closeBracket - p - 1, Charset.forName("UTF-8")).split(TOKEN_AT_STR);
+				if (sections.length == 2) {
+					index.setDialect(sections[0], sections[1]);
+				}
+
+				p = closeBracket + 1;
+			}
+			else {
+				++p;
+			}
+		}
+
+		return index;
+	}
+
+	/**
+	 * 为二进制格式的序列化数据建立语素索引。
+	 */
+	private static StuffIndex indexBinary(byte[] data, int offset, int length) {
+		StuffIndex index = new StuffIndex(data, offset, length, StuffVersion.V4);
+
+		int end = offset + length;
+		int p = offset + 1;
+		while (p < end) {
+			byte type = data[p++];
+
+			if (type == BINARY_DIALECT) {
+				int[] range = new int[2];
+				if (!readBinaryRange(data, p, end, range)) {
+					return null;
+				}
+				String name = new String(data, range[0], range[1], Charset.forName("UTF-8"));
+
+				if (!readBinaryRange(data, range[0] + range[1], end, range)) {
+					return null;
+				}
+				String tracker = new String(data, range[0], range[1], Charset.forName("UTF-8"));
+
+				index.setDialect(name, tracker);
+				break;
+			}
+
+			if (p >= end) {
+				return null;
+			}
+
+			LiteralBase lb = fromBinaryLiteralBase(data[p++]);
+
+			int[] range = new int[2];
+			if (!readBinaryRange(data, p, end, range)) {
+				return null;
+			}
+
+			StuffType st = fromBinaryStuffType(type);
+			if (null == lb) {
+				Logger.w(PrimitiveSerializer.class, "Unknown literal base in binary primitive");
+			}
+			else if (null == st) {
+				Logger.w(PrimitiveSerializer.class, "Unknown stuff type in binary primitive: " + type);
+			}
+			else {
+				index.add(st, lb, range[0], range[1], false);
+			}
+
+			p = range[0] + range[1];
+		}
+
+		return index;
+	}
+
+	/**
+	 * 在数组中读取 varint 长度前缀的数据区间。
+	 * 
+	 * @param data 指定数据。
+	 * @param position 指定长度前缀的位置。
+	 * @param end 指定数据结束位置。
+	 * @param range 用于返回数据的起始位置和长度。
+	 * @return 如果数据完整返回 <code>true</code> 。
+	 */
+	private static boolean readBinaryRange(byte[] data, int position, int end, int[] range) {
+		int value = 0;
+		int p = position;
+		for (int shift = 0; ; shift += 7) {
+			if (p >= end || shift >= 32) {
+				return false;
+			}
+
+			int b = data[p++] & 0xFF;
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				break;
+			}
+		}
+
+		if (value < 0 || value > end - p) {
+			return false;
+		}
+
+		range[0] = p;
+		range[1] = value;
+		return true;
+	}
+
+	/**
+	 * 查找指定字节的位置。
+	 */
+	private static int indexOf(byte[] data, int start, int end, byte b) {
+		for (int i = start; i < end; ++i) {
+			if (data[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 解析文本格式的语素类型。与 {@link #injectStuff(Primitive, byte[], byte[], byte[])} 一致，只比较前三个字节。
+	 */
+	private static StuffType parseStuffType(byte[] data, int offset, int length) {
+		if (length < 3) {
+			return null;
+		}
+
+		if (matches(data, offset, STUFFTYPE_SUBJECT_BYTES)) {
+			return StuffType.SUBJECT;
+		}
+		else if (matches(data, offset, STUFFTYPE_PREDICATE_BYTES)) {
+			return StuffType.PREDICATE;
+		}
+		else if (matches(data, offset, STUFFTYPE_OBJECTIVE_BYTES)) {
+			return StuffType.OBJECTIVE;
+		}
+		else if (matches(data, offset, STUFFTYPE_ADVERBIAL_BYTES)) {
+			return StuffType.ADVERBIAL;
+		}
+		else if (matches(data, offset, STUFFTYPE_ATTRIBUTIVE_BYTES)) {
+			return StuffType.ATTRIBUTIVE;
+		}
+		else if (matches(data, offset, STUFFTYPE_COMPLEMENT_BYTES)) {
+			return StuffType.COMPLEMENT;
+		}
+		else {
+			return null;
+		}
+	}
+
+	/**
+	 * 判断指定位置的数据是否与标记一致。
+	 */
+	private static boolean matches(byte[] data, int offset, byte[] token) {
+		for (int i = 0; i < token.length; ++i) {
+			if (data[offset + i] != token[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 解析语素类型的二进制标识。
+	 */
+	private static StuffType fromBinaryStuffType(byte type) {
+		switch (type) {
+		case BINARY_STUFFTYPE_SUBJECT:
+			return StuffType.SUBJECT;
+		case BINARY_STUFFTYPE_PREDICATE:
+			return StuffType.PREDICATE;
+		case BINARY_STUFFTYPE_OBJECTIVE:
+			return StuffType.OBJECTIVE;
+		case BINARY_STUFFTYPE_ADVERBIAL:
+			return StuffType.ADVERBIAL;
+		case BINARY_STUFFTYPE_ATTRIBUTIVE:
+			return StuffType.ATTRIBUTIVE;
+		case BINARY_STUFFTYPE_COMPLEMENT:
+			return StuffType.COMPLEMENT;
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * 借出当前线程的解析缓存。嵌套调用时分配新的缓存。
+	 */
+	private static ByteArrayBuffer borrowBuffer() {
+		ByteArrayBuffer buf = readBuffer.get();
+		if (null == buf) {
+			return new ByteArrayBuffer(256);
+		}
+
+		readBuffer.set(null);
+		return buf;
+	}
+
+	/**
+	 * 归还当前线程的解析缓存。
+	 */
+	private static void returnBuffer(ByteArrayBuffer buf) {
+		buf.reset(MAX_RETAINED_CAPACITY);
+		readBuffer.set(buf);
+	}
+
+	/**
+	 * 以二进制格式将原语写入数据流。
+	 * 
+	 * 格式：版本标识 0x04 ，然后依次是每个语素的记录：类型标识 1 字节、字面义标识 1 字节、
+	 * varint 编码的数值长度、原始数值。最后是可选的方言记录：0x00 、varint 长度前缀的方言名和追踪器。
+	 * 数值不进行转义。
+	 * 
+	 * @param stream 指定需写入数据的输出流。
+	 * @param primitive 指定待操作源原语。
+	 * @throws IOException
+	 */
+	private static void writeBinary(OutputStream stream, Primitive primitive) throws IOException {
+		stream.write(BINARY_VERSION);
+
+		writeBinaryStuffs(stream, BINARY_STUFFTYPE_SUBJECT, primitive.subjects());
+		writeBinaryStuffs(stream, BINARY_STUFFTYPE_PREDICATE, primitive.predicates());
+		writeBinaryStuffs(stream, BINARY_STUFFTYPE_OBJECTIVE, primitive.objectives());
+		writeBinaryStuffs(stream, BINARY_STUFFTYPE_ADVERBIAL, primitive.adverbials());
+		writeBinaryStuffs(stream, BINARY_STUFFTYPE_ATTRIBUTIVE, primitive.attributives());
+		writeBinaryStuffs(stream, BINARY_STUFFTYPE_COMPLEMENT, primitive.complements());
+
+		// 方言
+		Dialect dialect = primitive.getDialect();
+		if (null != dialect) {
+			byte[] name = dialect.getName().getBytes(Charset.forName("UTF-8"));
+			byte[] tracker = dialect.getTracker().getBytes(Charset.forName("UTF-8"));
+			stream.write(BINARY_DIALECT);
+			writeVarint(stream, name.length);
+			stream.write(name);
+			writeVarint(stream, tracker.length);
+			stream.write(tracker);
+		}
+	}
+
+	/**
+	 * 以二进制格式写入同一类型的语素。
+	 */
+	private static void writeBinaryStuffs(OutputStream stream, byte type, List<? extends Stuff> stuffs)
+			throws IOException {
+		if (null == stuffs) {
+			return;
+		}
+
+		for (int i = 0, size = stuffs.size(); i < size; ++i) {
+			Stuff stuff = stuffs.get(i);
+			byte[] value = stuff.value;
+			stream.write(type);
+			stream.write(toBinaryLiteralBase(stuff.literalBase));
+			writeVarint(stream, value.length);
+			stream.write(value);
+		}
+	}
+
+	/**
+	 * 从数据流中读取二进制格式的原语。版本标识已经被读取。
+	 * 
+	 * @param primitive 指定需写入数据的目标原语。
+	 * @param stream 指定数据源的输入流。
+	 * @throws IOException
+	 */
+	private static void readBinary(Primitive primitive, InputStream stream) throws IOException {
+		primitive.setVersion(StuffVersion.V4);
+
+		int type = 0;
+		while ((type = stream.read()) >= 0) {
+			if (type == BINARY_DIALECT) {
+				String name = new String(readBinaryValue(stream), Charset.forName("UTF-8"));
+				String tracker = new String(readBinaryValue(stream), Charset.forName("UTF-8"));
+				constructDialect(primitive, name, tracker);
+				return;
+			}
+
+			LiteralBase lb = fromBinaryLiteralBase(stream.read());
+			byte[] value = readBinaryValue(stream);
+			if (null == lb) {
+				Logger.w(PrimitiveSerializer.class, "Unknown literal base in binary primitive");
+				continue;
+			}
+
+			commitStuff(primitive, (byte) type, value, lb);
+		}
+	}
+
+	/**
+	 * 读取 varint 长度前缀的数据。
+	 */
+	private static byte[] readBinaryValue(InputStream stream) throws IOException {
+		int length = readVarint(stream);
+		if (length < 0 || length > stream.available()) {
+			throw new IOException("Illegal binary primitive value length: " + length);
+		}
+
+		byte[] value = new byte[length];
+		int offset = 0;
+		while (offset < length) {
+			int n = stream.read(value, offset, length - offset);
+			if (n < 0) {
+				throw new IOException("Unexpected end of binary primitive");
+			}
+			offset += n;
+		}
+		return value;
+	}
+
+	/**
+	 * 写入无符号 varint 整数。
+	 */
+	private static void writeVarint(OutputStream stream, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			stream.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		stream.write(value);
+	}
+
+	/**
+	 * 读取无符号 varint 整数。
+	 */
+	private static int readVarint(InputStream stream) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = stream.read();
+			if (b < 0) {
+				throw new IOException("Unexpected end of binary primitive");
+			}
+
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		throw new IOException("Malformed varint in binary primitive");
+	}
+
+	/**
+	 * 将二进制格式的语素注入原语。
+	 */
+	private static void commitStuff(Primitive primitive, byte type, byte[] value, LiteralBase lb) {
+		switch (type) {
+		case BINARY_STUFFTYPE_SUBJECT:
+			SubjectStuff subject = new SubjectStuff(value);
+			subject.literalBase = lb;
+			primitive.commit(subject);
+			break;
+		case BINARY_STUFFTYPE_PREDICATE:
+			PredicateStuff predicate = new PredicateStuff(value);
+			predicate.literalBase = lb;
+			primitive.commit(predicate);
+			break;
+		case BINARY_STUFFTYPE_OBJECTIVE:
+			ObjectiveStuff objective = new ObjectiveStuff(value);
+			objective.literalBase = lb;
+			primitive.commit(objective);
+			break;
+		case BINARY_STUFFTYPE_ADVERBIAL:
+			AdverbialStuff adverbial = new AdverbialStuff(value);
+			adverbial.literalBase = lb;
+			primitive.commit(adverbial);
+			break;
+		case BINARY_STUFFTYPE_ATTRIBUTIVE:
+			AttributiveStuff attributive = new AttributiveStuff(value);
+			attributive.literalBase = lb;
+			primitive.commit(attributive);
+			break;
+		case BINARY_STUFFTYPE_COMPLEMENT:
+			ComplementStuff complement = new ComplementStuff(value);
+			complement.literalBase = lb;
+			primitive.commit(complement);
+			break;
+		default:
+			Logger.w(PrimitiveSerializer.class, "Unknown stuff type in binary primitive: " + type);
+			break;
+		}
+	}
+
+	/**
+	 * 获得字面义的二进制标识。
+	 */
+	private static int toBinaryLiteralBase(LiteralBase literal) {
+		switch (literal) {
+		case STRING:
+			return BINARY_LITERALBASE_STRING;
+		case INT:
+			return BINARY_LITERALBASE_INT;
+		case UINT:
+			return BINARY_LITERALBASE_UINT;
+		case LONG:
+			return BINARY_LITERALBASE_LONG;
+		case ULONG:
+			return BINARY_LITERALBASE_ULONG;
+		case FLOAT:
+			return BINARY_LITERALBASE_FLOAT;
+		case DOUBLE:
+			return BINARY_LITERALBASE_DOUBLE;
+		case BOOL:
+			return BINARY_LITERALBASE_BOOL;
+		case JSON:
+			return BINARY_LITERALBASE_JSON;
+		case BIN:
+			return BINARY_LITERALBASE_BIN;
+		case XML:
+			return BINARY_LITERALBASE_XML;
+		default:
+			return 0;
+		}
+	}
+
+	/**
+	 * 解析字面义的二进制标识。
+	 */
+	private static LiteralBase fromBinaryLiteralBase(int code) {
+		switch (code) {
+		case BINARY_LITERALBASE_STRING:
+			return LiteralBase.STRING;
+		case BINARY_LITERALBASE_INT:
+			return LiteralBase.INT;
+		case BINARY_LITERALBASE_UINT:
+			return LiteralBase.UINT;
+		case BINARY_LITERALBASE_LONG:
+			return LiteralBase.LONG;
+		case BINARY_LITERALBASE_ULONG:
+			return LiteralBase.ULONG;
+		case BINARY_LITERALBASE_FLOAT:
+			return LiteralBase.FLOAT;
+		case BINARY_LITERALBASE_DOUBLE:
+			return LiteralBase.DOUBLE;
+		case BINARY_LITERALBASE_BOOL:
+			return LiteralBase.BOOL;
+		case BINARY_LITERALBASE_JSON:
+			return LiteralBase.JSON;
+		case BINARY_LITERALBASE_BIN:
+			return LiteralBase.BIN;
+		case BINARY_LITERALBASE_XML:
+			return LiteralBase.XML;
+		default:
+			return null;
+		}
+	}
+
 	/**
 	 * 将数据数组解析为语素，并注入原语。
 	 * 
@@ -558,14 +1159,16 @@ public final class PrimitiveSerializer {
 	}
 
 	/**
-	 * 进行数据内容转义。
+	 * 进行数据内容转义，并将转义后的数据写入输出流。
+	 * 
+	 * 不需要转义的连续数据整段写入，不使用中间缓存。
 	 * 
-	 * @param buf 指定完成转义处理的缓存。
+	 * @param stream 指定输出流。
 	 * @param input 指定输入数据。
-	 * @return
+	 * @throws IOException
 	 */
-	private static int reviseValue(ByteBuffer buf, byte[] input) {
-		int length = 0;
+	private static void writeRevisedValue(OutputStream stream, byte[] input) throws IOException {
+		int start = 0;
 		int inputLength = input.length;
 
 		for (int i = 0; i < inputLength; ++i) {
@@ -575,15 +1178,18 @@ public final class PrimitiveSerializer {
 				|| b == TOKEN_OPERATE_ASSIGN
 				|| b == TOKEN_OPERATE_DECLARE
 				|| b == TOKEN_ESCAPE) {
-				buf.put(TOKEN_ESCAPE);
-				++length;
-			}
+				if (i > start) {
+					stream.write(input, start, i - start);
+				}
 
-			buf.put(b);
-			++length;
+				stream.write(TOKEN_ESCAPE);
+				start = i;
+			}
 		}
 
-		return length;
+		if (inputLength > start) {
+			stream.write(input, start, inputLength - start);
+		}
 	}
 
 	/**
@@ -638,38 +1244,50 @@ public final class PrimitiveSerializer {
 	 * @return 返回转义后的字面义枚举对象。
 	 */
 	private static LiteralBase parseLiteralBase(byte[] literal) {
-		if (literal.length <= 2) {
-			if (literal[0] == LITERALBASE_STRING_M_BYTES[0]) {
+		return parseLiteralBase(literal, 0, literal.length);
+	}
+
+	/**
+	 * 解析字面义。将字面义反序列化。
+	 * 
+	 * @param literal 指定序列化形式的字面义所在数组。
+	 * @param offset 指定字面义的起始位置。
+	 * @param length 指定字面义的长度。
+	 * @return 返回转义后的字面义枚举对象。
+	 */
+	private static LiteralBase parseLiteralBase(byte[] literal, int offset, int length) {
+		if (length <= 2) {
+			if (literal[offset] == LITERALBASE_STRING_M_BYTES[0]) {
 				return LiteralBase.STRING;
 			}
-			else if (literal[0] == LITERALBASE_JSON_M_BYTES[0]) {
+			else if (literal[offset] == LITERALBASE_JSON_M_BYTES[0]) {
 				return LiteralBase.JSON;
 			}
-			else if (literal.length == 2 && literal[0] == LITERALBASE_BIN_M_BYTES[0] && literal[1] == LITERALBASE_BIN_M_BYTES[1]) {
+			else if (length == 2 && literal[offset] == LITERALBASE_BIN_M_BYTES[0] && literal[offset + 1] == LITERALBASE_BIN_M_BYTES[1]) {
 				return LiteralBase.BIN;
 			}
-			else if (literal[0] == LITERALBASE_INT_M_BYTES[0]) {
+			else if (literal[offset] == LITERALBASE_INT_M_BYTES[0]) {
 				return LiteralBase.INT;
 			}
-			else if (literal[0] == LITERALBASE_LONG_M_BYTES[0]) {
+			else if (literal[offset] == LITERALBASE_LONG_M_BYTES[0]) {
 				return LiteralBase.LONG;
 			}
-			else if (literal[0] == LITERALBASE_BOOL_M_BYTES[0]) {
+			else if (literal[offset] == LITERALBASE_BOOL_M_BYTES[0]) {
 				return LiteralBase.BOOL;
 			}
-			else if (literal[0] == LITERALBASE_FLOAT_M_BYTES[0]) {
+			else if (literal[offset] == LITERALBASE_FLOAT_M_BYTES[0]) {
 				return LiteralBase.FLOAT;
 			}
-			else if (literal[0] == LITERALBASE_DOUBLE_M_BYTES[0]) {
+			else if (literal[offset] == LITERALBASE_DOUBLE_M_BYTES[0]) {
 				return LiteralBase.DOUBLE;
 			}
-			else if (literal.length == 2 && literal[0] == LITERALBASE_UINT_M_BYTES[0] && literal[1] == LITERALBASE_UINT_M_BYTES[1]) {
+			else if (length == 2 && literal[offset] == LITERALBASE_UINT_M_BYTES[0] && literal[offset + 1] == LITERALBASE_UINT_M_BYTES[1]) {
 				return LiteralBase.UINT;
 			}
-			else if (literal.length == 2 && literal[0] == LITERALBASE_ULONG_M_BYTES[0] && literal[1] == LITERALBASE_ULONG_M_BYTES[1]) {
+			else if (length == 2 && literal[offset] == LITERALBASE_ULONG_M_BYTES[0] && literal[offset + 1] == LITERALBASE_ULONG_M_BYTES[1]) {
 				return LiteralBase.ULONG;
 			}
-			else if (literal[0] == LITERALBASE_XML_M_BYTES[0]) {
+			else if (literal[offset] == LITERALBASE_XML_M_BYTES[0]) {
 				return LiteralBase.XML;
 			}
 			else {
@@ -677,37 +1295,37 @@ public final class PrimitiveSerializer {
 			}
 		}
 		else {
-			if (literal[0] == LITERALBASE_STRING_BYTES[0] && literal[1] == LITERALBASE_STRING_BYTES[1]) {
+			if (literal[offset] == LITERALBASE_STRING_BYTES[0] && literal[offset + 1] == LITERALBASE_STRING_BYTES[1]) {
 				return LiteralBase.STRING;
 			}
-			else if (literal[0] == LITERALBASE_JSON_BYTES[0] && literal[1] == LITERALBASE_JSON_BYTES[1]) {
+			else if (literal[offset] == LITERALBASE_JSON_BYTES[0] && literal[offset + 1] == LITERALBASE_JSON_BYTES[1]) {
 				return LiteralBase.JSON;
 			}
-			else if (literal[0] == LITERALBASE_INT_BYTES[0] && literal[1] == LITERALBASE_INT_BYTES[1]) {
+			else if (literal[offset] == LITERALBASE_INT_BYTES[0] && literal[offset + 1] == LITERALBASE_INT_BYTES[1]) {
 				return LiteralBase.INT;
 			}
-			else if (literal[0] == LITERALBASE_LONG_BYTES[0] && literal[1] == LITERALBASE_LONG_BYTES[1]) {
+			else if (literal[offset] == LITERALBASE_LONG_BYTES[0] && literal[offset + 1] == LITERALBASE_LONG_BYTES[1]) {
 				return LiteralBase.LONG;
 			}
-			else if (literal[0] == LITERALBASE_BOOL_BYTES[0] && literal[1] == LITERALBASE_BOOL_BYTES[1]) {
+			else if (literal[offset] == LITERALBASE_BOOL_BYTES[0] && literal[offset + 1] == LITERALBASE_BOOL_BYTES[1]) {
 				return LiteralBase.BOOL;
 			}
-			else if (literal[0] == LITERALBASE_BIN_BYTES[0] && literal[1] == LITERALBASE_BIN_BYTES[1]) {
+			else if (literal[offset] == LITERALBASE_BIN_BYTES[0] && literal[offset + 1] == LITERALBASE_BIN_BYTES[1]) {
 				return LiteralBase.BIN;
 			}
-			else if (literal[0] == LITERALBASE_FLOAT_BYTES[0] && literal[1] == LITERALBASE_FLOAT_BYTES[1]) {
+			else if (literal[offset] == LITERALBASE_FLOAT_BYTES[0] && literal[offset + 1] == LITERALBASE_FLOAT_BYTES[1]) {
 				return LiteralBase.FLOAT;
 			}
-			else if (literal[0] == LITERALBASE_DOUBLE_BYTES[0] && literal[1] == LITERALBASE_DOUBLE_BYTES[1]) {
+			else if (literal[offset] == LITERALBASE_DOUBLE_BYTES[0] && literal[offset + 1] == LITERALBASE_DOUBLE_BYTES[1]) {
 				return LiteralBase.DOUBLE;
 			}
-			else if ((literal[0] == LITERALBASE_UINT_BYTES[0] && literal[1] == LITERALBASE_UINT_BYTES[1])) {
+			else if ((literal[offset] == LITERALBASE_UINT_BYTES[0] && literal[offset + 1] == LITERALBASE_UINT_BYTES[1])) {
 				return LiteralBase.UINT;
 			}
-			else if (literal[0] == LITERALBASE_ULONG_BYTES[0] && literal[1] == LITERALBASE_ULONG_BYTES[1]) {
+			else if (literal[offset] == LITERALBASE_ULONG_BYTES[0] && literal[offset + 1] == LITERALBASE_ULONG_BYTES[1]) {
 				return LiteralBase.ULONG;
 			}
-			else if (literal[0] == LITERALBASE_XML_BYTES[0] && literal[1] == LITERALBASE_XML_BYTES[1]) {
+			else if (literal[offset] == LITERALBASE_XML_BYTES[0] && literal[offset + 1] == LITERALBASE_XML_BYTES[1]) {
 				return LiteralBase.XML;
 			}
 			else {
@@ -728,9 +1346,17 @@ public final class PrimitiveSerializer {
 			return;
 		}
 
-		String dialectName = sections[0];
-		String tracker = sections[1];
+		constructDialect(primitive, sections[0], sections[1]);
+	}
 
+	/**
+	 * 创建方言，并使用原语数据构建方言。
+	 * 
+	 * @param primitive 指定结果原语。
+	 * @param dialectName 指定方言名。
+	 * @param tracker 指定方言追踪器。
+	 */
+	public static void constructDialect(Primitive primitive, String dialectName, String tracker) {
 		// 创建方言
 		Dialect dialect = DialectEnumerator.getInstance().createDialect(dialectName, tracker);
 		if (null == dialect) {
@@ -910,6 +1536,350 @@ public final class PrimitiveSerializer {
 		}
 	}
 
+	/**
+	 * 将原语以 JSON 格式写入流式写入器。
+	 * 
+	 * 输出的数据与 {@link #write(JSONObject, Primitive)} 等价，但不构建 JSON 对象树，
+	 * 数据直接以 UTF-8 编码写入写入器的缓存。
+	 * 
+	 * @param writer 指定写入器。
+	 * @param primitive 指定源原语。
+	 * @throws JSONException
+	 */
+	public static void write(JSONStreamWriter writer, Primitive primitive) throws JSONException {
+		writer.beginObject();
+
+		// 版本
+		writer.key(JSONKEY_VERSION).value("1.0");
+
+		// 所有语素
+		writer.key(JSONKEY_STUFFS).beginArray();
+		writeStuffs(writer, STUFFTYPE_SUBJECT, primitive.subjects());
+		writeStuffs(writer, STUFFTYPE_PREDICATE, primitive.predicates());
+		writeStuffs(writer, STUFFTYPE_OBJECTIVE, primitive.objectives());
+		writeStuffs(writer, STUFFTYPE_ADVERBIAL, primitive.adverbials());
+		writeStuffs(writer, STUFFTYPE_ATTRIBUTIVE, primitive.attributives());
+		writeStuffs(writer, STUFFTYPE_COMPLEMENT, primitive.complements());
+		writer.endArray();
+
+		// 方言
+		Dialect dialect = primitive.getDialect();
+		if (null != dialect) {
+			writer.key(JSONKEY_DIALECT).beginObject();
+			writer.key(JSONKEY_NAME).value(dialect.getName());
+			writer.key(JSONKEY_TRACKER).value(dialect.getTracker());
+			writer.endObject();
+		}
+
+		writer.endObject();
+	}
+
+	/**
+	 * 从流式读取器里反序列化原语。
+	 * 
+	 * 读取器的下一个值应当是原语的 JSON 对象，读取完成后读取器位于该对象之后。
+	 * 
+	 * @param output 指定目标原语。
+	 * @param reader 指定读取器。
+	 * @throws JSONException
+	 */
+	public static void read(Primitive output, JSONStreamReader reader) throws JSONException {
+		boolean hasStuffs = false;
+		String dialectName = null;
+		String tracker = null;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String key = reader.nextName();
+			if (key.equals(JSONKEY_STUFFS)) {
+				hasStuffs = true;
+
+				reader.beginArray();
+				while (reader.hasNext()) {
+					readStuff(output, reader);
+				}
+				reader.endArray();
+			}
+			else if (key.equals(JSONKEY_DIALECT)) {
+				reader.beginObject();
+				while (reader.hasNext()) {
+					String name = reader.nextName();
+					if (name.equals(JSONKEY_NAME)) {
+						dialectName = reader.nextString();
+					}
+					else if (name.equals(JSONKEY_TRACKER)) {
+						tracker = reader.nextString();
+					}
+					else {
+						reader.skipValue();
+					}
+				}
+				reader.endObject();
+
+				if (null == dialectName || null == tracker) {
+					throw new JSONException("Dialect name or tracker not found.");
+				}
+			}
+			else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if (!hasStuffs) {
+			throw new JSONException("JSONObject[\"" + JSONKEY_STUFFS + "\"] not found.");
+		}
+
+		// 方言在所有语素提交之后构建
+		if (null != dialectName) {
+			Dialect dialect = DialectEnumerator.getInstance().createDialect(dialectName, tracker);
+			if (null != dialect) {
+				// 关联
+				output.capture(dialect);
+
+				// 构建数据
+				dialect.construct(output);
+			}
+			else {
+				Logger.w(PrimitiveSerializer.class, "Can't create '" +  dialectName + "' dialect.");
+			}
+		}
+	}
+
+	/**
+	 * 将语素列表写入流式写入器。
+	 * 
+	 * @param writer 指定写入器。
+	 * @param type 指定语素类型。
+	 * @param stuffs 指定语素列表。
+	 * @throws JSONException
+	 */
+	private static void writeStuffs(JSONStreamWriter writer, String type, List<? extends Stuff> stuffs) throws JSONException {
+		if (null == stuffs) {
+			return;
+		}
+
+		for (int i = 0, size = stuffs.size(); i < size; ++i) {
+			Stuff stuff = stuffs.get(i);
+			writer.beginObject();
+			writer.key(JSONKEY_STUFFTYPE).value(type);
+			writeValue(writer, stuff);
+			writer.endObject();
+		}
+	}
+
+	/**
+	 * 将语素对应的数值写入流式写入器。
+	 * 
+	 * @param writer 指定写入器。
+	 * @param stuff 指定语素。
+	 * @throws JSONException
+	 */
+	private static void writeValue(JSONStreamWriter writer, Stuff stuff) throws JSONException {
+		if (stuff.literalBase == LiteralBase.STRING) {
+			writer.key(JSONKEY_STUFFVALUE).value(stuff.value, 0, stuff.value.length);
+			writer.key(JSONKEY_LITERALBASE).value(LITERALBASE_STRING);
+		}
+		else if (stuff.literalBase == LiteralBase.JSON) {
+			// 语素值已经是 JSON 格式的数据，校验结构后原样写入
+			JSONStreamReader reader = new JSONStreamReader(stuff.value);
+			if (reader.peek() != '{') {
+				throw new JSONException("A JSONObject text must begin with '{'");
+			}
+			reader.skipValue();
+
+			writer.key(JSONKEY_STUFFVALUE).rawValue(stuff.value, 0, reader.position());
+			writer.key(JSONKEY_LITERALBASE).value(LITERALBASE_JSON);
+		}
+		else if (stuff.literalBase == LiteralBase.INT) {
+			writer.key(JSONKEY_STUFFVALUE).value(stuff.getValueAsInt());
+			writer.key(JSONKEY_LITERALBASE).value(LITERALBASE_INT);
+		}
+		else if (stuff.literalBase == LiteralBase.LONG) {
+			writer.key(JSONKEY_STUFFVALUE).value(stuff.getValueAsLong());
+			writer.key(JSONKEY_LITERALBASE).value(LITERALBASE_LONG);
+		}
+		else if (stuff.literalBase == LiteralBase.BOOL) {
+			writer.key(JSONKEY_STUFFVALUE).value(stuff.getValueAsBool());
+			writer.key(JSONKEY_LITERALBASE).value(LITERALBASE_BOOL);
+		}
+		else if (stuff.literalBase == LiteralBase.BIN) {
+			writer.key(JSONKEY_STUFFVALUE).value(Base64.encodeBytes(stuff.getValue()));
+			writer.key(JSONKEY_LITERALBASE).value(LITERALBASE_BIN);
+		}
+		else if (stuff.literalBase == LiteralBase.FLOAT) {
+			writer.key(JSONKEY_STUFFVALUE).value((double) stuff.getValueAsFloat());
+			writer.key(JSONKEY_LITERALBASE).value(LITERALBASE_FLOAT);
+		}
+		else if (stuff.literalBase == LiteralBase.DOUBLE) {
+			writer.key(JSONKEY_STUFFVALUE).value(stuff.getValueAsDouble());
+			writer.key(JSONKEY_LITERALBASE).value(LITERALBASE_DOUBLE);
+		}
+		else if (stuff.literalBase == LiteralBase.UINT) {
+			writer.key(JSONKEY_STUFFVALUE).value(stuff.getValueAsInt());
+			writer.key(JSONKEY_LITERALBASE).value(LITERALBASE_UINT);
+		}
+		else if (stuff.literalBase == LiteralBase.ULONG) {
+			writer.key(JSONKEY_STUFFVALUE).value(stuff.getValueAsLong());
+			writer.key(JSONKEY_LITERALBASE).value(LITERALBASE_ULONG);
+		}
+		else if (stuff.literalBase == LiteralBase.XML) {
+			Logger.e(PrimitiveSerializer.class, "Don't support XML literal in JSON format.");
+		}
+	}
+
+	/**
+	 * 从流式读取器里读取一个语素并提交到原语。
+	 * 
+	 * 语素对象的键可以是任意顺序，因此先记录数值的位置，读取到字面义之后再回到该位置读取数值。
+	 * 
+	 * @param output 指定目标原语。
+	 * @param reader 指定读取器。
+	 * @throws JSONException
+	 */
+	private static void readStuff(Primitive output, JSONStreamReader reader) throws JSONException {
+		String type = null;
+		String literal = null;
+		int valuePosition = -1;
+
+		reader.beginObject();
+		while (reader.hasNext()) {
+			String key = reader.nextName();
+			if (key.equals(JSONKEY_STUFFTYPE)) {
+				type = reader.nextString();
+			}
+			else if (key.equals(JSONKEY_LITERALBASE)) {
+				literal = reader.nextString();
+			}
+			else if (key.equals(JSONKEY_STUFFVALUE)) {
+				valuePosition = reader.skipValue();
+			}
+			else {
+				reader.skipValue();
+			}
+		}
+		reader.endObject();
+
+		if (null == type) {
+			throw new JSONException("JSONObject[\"" + JSONKEY_STUFFTYPE + "\"] not found.");
+		}
+
+		Stuff stuff = null;
+		if (type.equals(STUFFTYPE_SUBJECT)) {
+			stuff = new SubjectStuff();
+		}
+		else if (type.equals(STUFFTYPE_PREDICATE)) {
+			stuff = new PredicateStuff();
+		}
+		else if (type.equals(STUFFTYPE_OBJECTIVE)) {
+			stuff = new ObjectiveStuff();
+		}
+		else if (type.equals(STUFFTYPE_ATTRIBUTIVE)) {
+			stuff = new AttributiveStuff();
+		}
+		else if (type.equals(STUFFTYPE_ADVERBIAL)) {
+			stuff = new AdverbialStuff();
+		}
+		else if (type.equals(STUFFTYPE_COMPLEMENT)) {
+			stuff = new ComplementStuff();
+		}
+		else {
+			return;
+		}
+
+		if (null == literal) {
+			throw new JSONException("JSONObject[\"" + JSONKEY_LITERALBASE + "\"] not found.");
+		}
+		if (valuePosition < 0 && !literal.equals(LITERALBASE_XML)) {
+			throw new JSONException("JSONObject[\"" + JSONKEY_STUFFVALUE + "\"] not found.");
+		}
+
+		// 回到数值位置读取数值
+		int position = reader.position();
+		if (valuePosition >= 0) {
+			reader.seek(valuePosition);
+		}
+
+		if (literal.equals(LITERALBASE_STRING)) {
+			stuff.setValue(reader.nextStringBytes());
+			stuff.setLiteralBase(LiteralBase.STRING);
+		}
+		else if (literal.equals(LITERALBASE_JSON)) {
+			if (reader.peek() != '{') {
+				throw new JSONException("JSONObject[\"" + JSONKEY_STUFFVALUE + "\"] is not a JSONObject.");
+			}
+			int start = reader.skipValue();
+			byte[] value = new byte[reader.position() - start];
+			System.arraycopy(reader.getData(), start, value, 0, value.length);
+			stuff.setValue(value);
+			stuff.setLiteralBase(LiteralBase.JSON);
+		}
+		else if (literal.equals(LITERALBASE_INT)) {
+			stuff.setValue(reader.nextInt());
+			stuff.setLiteralBase(LiteralBase.INT);
+		}
+		else if (literal.equals(LITERALBASE_LONG)) {
+			stuff.setValue(reader.nextLong());
+			stuff.setLiteralBase(LiteralBase.LONG);
+		}
+		else if (literal.equals(LITERALBASE_BOOL)) {
+			stuff.setValue(reader.nextBoolean());
+			stuff.setLiteralBase(LiteralBase.BOOL);
+		}
+		else if (literal.equals(LITERALBASE_BIN)) {
+			byte[] base64 = null;
+			try {
+				base64 = Base64.decode(reader.nextString());
+			} catch (IOException e) {
+				// Nothing
+			}
+			if (null != base64) {
+				stuff.setValue(base64);
+				stuff.setLiteralBase(LiteralBase.BIN);
+			}
+		}
+		else if (literal.equals(LITERALBASE_FLOAT)) {
+			stuff.setValue(reader.nextDouble());
+			stuff.setLiteralBase(LiteralBase.FLOAT);
+		}
+		else if (literal.equals(LITERALBASE_DOUBLE)) {
+			stuff.setValue(reader.nextDouble());
+			stuff.setLiteralBase(LiteralBase.DOUBLE);
+		}
+		else if (literal.equals(LITERALBASE_UINT)) {
+			stuff.setValue(reader.nextInt());
+			stuff.setLiteralBase(LiteralBase.UINT);
+		}
+		else if (literal.equals(LITERALBASE_ULONG)) {
+			stuff.setValue(reader.nextLong());
+			stuff.setLiteralBase(LiteralBase.ULONG);
+		}
+		else if (literal.equals(LITERALBASE_XML)) {
+			Logger.e(PrimitiveSerializer.class, "Don't support XML literal in JSON format.");
+		}
+
+		reader.seek(position);
+
+		if (stuff instanceof SubjectStuff) {
+			output.commit((SubjectStuff) stuff);
+		}
+		else if (stuff instanceof PredicateStuff) {
+			output.commit((PredicateStuff) stuff);
+		}
+		else if (stuff instanceof ObjectiveStuff) {
+			output.commit((ObjectiveStuff) stuff);
+		}
+		else if (stuff instanceof AttributiveStuff) {
+			output.commit((AttributiveStuff) stuff);
+		}
+		else if (stuff instanceof AdverbialStuff) {
+			output.commit((AdverbialStuff) stuff);
+		}
+		else {
+			output.commit((ComplementStuff) stuff);
+		}
+	}
+
 	/**
 	 * 写入语素对应的数值。
 	 * 
@@ -0,0 +1,301 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.talk.stuff;
+
+import java.util.ArrayList;
+
+/**
+ * 原语语素索引。
+ * 
+ * 索引只记录序列化数据中每个语素的类型、字面义和数值位置，不创建语素对象。
+ * 语素对象在访问时由 {@link #decode(StuffType, StuffVersion)} 按类型创建。
+ * 索引引用原始序列化数据，不复制数据。
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+public final class StuffIndex {
+
+	/** 序列化数据。 */
+	private final byte[] data;
+	/** 序列化数据的起始位置。 */
+	private final int offset;
+	/** 序列化数据的长度。 */
+	private final int length;
+
+	/** 语素版本。 */
+	private final StuffVersion version;
+
+	/** 已索引的语素数量。 */
+	private int size = 0;
+	/** 语素类型。 */
+	private StuffType[] types;
+	/** 语素字面义。 */
+	private LiteralBase[] literals;
+	/** 数值在序列化数据中的位置。 */
+	private int[] positions;
+	/** 数值在序列化数据中的长度。 */
+	private int[] lengths;
+	/** 数值是否包含转义字符。 */
+	private boolean[] escaped;
+
+	/** 方言名。 */
+	private String dialectName;
+	/** 方言追踪器。 */
+	private String dialectTracker;
+
+	/**
+	 * 构造函数。
+	 * 
+	 * @param data 指定序列化数据。
+	 * @param offset 指定数据起始位置。
+	 * @param length 指定数据长度。
+	 * @param version 指定语素版本。
+	 */
+	protected StuffIndex(byte[] data, int offset, int length, StuffVersion version) {
+		this.data = data;
+		this.offset = offset;
+		this.length = length;
+		this.version = version;
+		this.types = new StuffType[4];
+		this.literals = new LiteralBase[4];
+		this.positions = new int[4];
+		this.lengths = new int[4];
+		this.escaped = new boolean[4];
+	}
+
+	/**
+	 * 添加语素索引。
+	 * 
+	 * @param type 指定语素类型。
+	 * @param literal 指定语素字面义。
+	 * @param position 指定数值位置。
+	 * @param length 指定数值长度。
+	 * @param escaped 指定数值是否包含转义字符。
+	 */
+	protected void add(StuffType type, LiteralBase literal, int position, int length, boolean escaped) {
+		if (this.size == this.types.length) {
+			int capacity = this.size << 1;
+			StuffType[] types = new StuffType[capacity];
+			LiteralBase[] literals = new LiteralBase[capacity];
+			int[] positions = new int[capacity];
+			int[] lengths = new int[capacity];
+			boolean[] flags = new boolean[capacity];
+			System.arraycopy(this.types, 0, types, 0, this.size);
+			System.arraycopy(this.literals, 0, literals, 0, this.size);
+			System.arraycopy(this.positions, 0, positions, 0, this.size);
+			System.arraycopy(this.lengths, 0, lengths, 0, this.size);
+			System.arraycopy(this.escaped, 0, flags, 0, this.size);
+			this.types = types;
+			this.literals = literals;
+			this.positions = positions;
+			this.lengths = lengths;
+			this.escaped = flags;
+		}
+
+		this.types[this.size] = type;
+		this.literals[this.size] = literal;
+		this.positions[this.size] = position;
+		this.lengths[this.size] = length;
+		this.escaped[this.size] = escaped;
+		++this.size;
+	}
+
+	/**
+	 * 设置方言描述。
+	 * 
+	 * @param name 指定方言名。
+	 * @param tracker 指定方言追踪器。
+	 */
+	protected void setDialect(String name, String tracker) {
+		this.dialectName = name;
+		this.dialectTracker = tracker;
+	}
+
+	/**
+	 * 获得序列化数据。
+	 * 
+	 * @return 返回序列化数据所在的数组。
+	 */
+	public byte[] getData() {
+		return this.data;
+	}
+
+	/**
+	 * 获得序列化数据的起始位置。
+	 * 
+	 * @return 返回序列化数据的起始位置。
+	 */
+	public int getOffset() {
+		return this.offset;
+	}
+
+	/**
+	 * 获得序列化数据的长度。
+	 * 
+	 * @return 返回序列化数据的长度。
+	 */
+	public int getLength() {
+		return this.length;
+	}
+
+	/**
+	 * 获得语素版本。
+	 * 
+	 * @return 返回语素版本。
+	 */
+	public StuffVersion getVersion() {
+		return this.version;
+	}
+
+	/**
+	 * 获得方言名。
+	 * 
+	 * @return 返回方言名，没有方言时返回 <code>null</code> 。
+	 */
+	public String getDialectName() {
+		return this.dialectName;
+	}
+
+	/**
+	 * 获得方言追踪器。
+	 * 
+	 * @return 返回方言追踪器，没有方言时返回 <code>null</code> 。
+	 */
+	public String getDialectTracker() {
+		return this.dialectTracker;
+	}
+
+	/**
+	 * 获得指定类型的语素数量。
+	 * 
+	 * @param type 指定语素类型。
+	 * @return 返回指定类型的语素数量。
+	 */
+	public int count(StuffType type) {
+		int count = 0;
+		for (int i = 0; i < this.size; ++i) {
+			if (this.types[i] == type) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * 创建指定类型的全部语素。
+	 * 
+	 * 返回列表的元素类型由 <code>type</code> 决定，调用者需保证与接收列表的类型一致。
+	 * 语素先按索引的版本创建，再变更为目标版本。
+	 * 
+	 * @param type 指定语素类型。
+	 * @param version 指定语素的目标版本。
+	 * @return 返回语素列表，如果没有该类型的语素返回 <code>null</code> 。
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends Stuff> ArrayList<T> decode(StuffType type, StuffVersion version) {
+		ArrayList<T> list = null;
+
+		for (int i = 0; i < this.size; ++i) {
+			if (this.types[i] != type) {
+				continue;
+			}
+
+			Stuff stuff = null;
+			byte[] value = this.value(i);
+			switch (type) {
+			case SUBJECT:
+				stuff = new SubjectStuff(value);
+				break;
+			case PREDICATE:
+				stuff = new PredicateStuff(value);
+				break;
+			case OBJECTIVE:
+				stuff = new ObjectiveStuff(value);
+				break;
+			case ATTRIBUTIVE:
+				stuff = new AttributiveStuff(value);
+				break;
+			case ADVERBIAL:
+				stuff = new AdverbialStuff(value);
+				break;
+			case COMPLEMENT:
+				stuff = new ComplementStuff(value);
+				break;
+			default:
+				break;
+			}
+
+			stuff.literalBase = this.literals[i];
+			stuff.changeVersion(this.version);
+			stuff.changeVersion(version);
+
+			if (null == list) {
+				list = new ArrayList<T>();
+			}
+			list.add((T) stuff);
+		}
+
+		return list;
+	}
+
+	/**
+	 * 复制指定语素的数值，并还原转义字符。
+	 */
+	private byte[] value(int index) {
+		int position = this.positions[index];
+		int length = this.lengths[index];
+
+		if (!this.escaped[index]) {
+			byte[] value = new byte[length];
+			System.arraycopy(this.data, position, value, 0, length);
+			return value;
+		}
+
+		byte[] buf = new byte[length];
+		int n = 0;
+		int end = position + length;
+		for (int i = position; i < end; ++i) {
+			byte b = this.data[i];
+			if (b == '\\' && i + 1 < end) {
+				byte next = this.data[++i];
+				if (next != '{' && next != '}' && next != '=' && next != ':' && next != '\\') {
+					buf[n++] = b;
+				}
+				buf[n++] = next;
+			}
+			else {
+				buf[n++] = b;
+			}
+		}
+
+		byte[] value = new byte[n];
+		System.arraycopy(buf, 0, value, 0, n);
+		return value;
+	}
+
+}
@@ -47,7 +47,12 @@ public enum StuffVersion {
 	/**
 	 * 3.0 版本。
 	 */
-	V3(3);
+	V3(3),
+
+	/**
+	 * 4.0 版本。使用二进制长度前缀编码，需要通过能力协商启用。
+	 */
+	V4(4);
 
 	/**
 	 * 版本号。
@@ -0,0 +1,146 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * 可复用的字节数组输出流。
+ * 
+ * 与 {@link ByteArrayOutputStream} 不同，写入操作不进行同步，并且可以直接访问内部数组，
+ * 获取已写入的数据时不需要复制。适合在单个线程内反复使用。
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+public final class ByteArrayBuffer extends ByteArrayOutputStream {
+
+	/**
+	 * 构造函数。
+	 */
+	public ByteArrayBuffer() {
+		super(128);
+	}
+
+	/**
+	 * 构造函数。
+	 * 
+	 * @param size 指定初始容量。
+	 */
+	public ByteArrayBuffer(int size) {
+		super(size);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(int b) {
+		if (this.count == this.buf.length) {
+			this.grow(this.count + 1);
+		}
+
+		this.buf[this.count++] = (byte) b;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) {
+		if (this.count + len > this.buf.length) {
+			this.grow(this.count + len);
+		}
+
+		System.arraycopy(b, off, this.buf, this.count, len);
+		this.count += len;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void reset() {
+		this.count = 0;
+	}
+
+	/**
+	 * 清空数据。如果内部数组超过指定容量则释放该数组。
+	 * 
+	 * @param maxCapacity 指定清空后保留的最大容量。
+	 */
+	public void reset(int maxCapacity) {
+		this.count = 0;
+
+		if (this.buf.length > maxCapacity) {
+			this.buf = new byte[Math.min(128, maxCapacity)];
+		}
+	}
+
+	/**
+	 * 获得内部数组。有效数据从 <code>0</code> 开始，长度为 {@link #length()} 。
+	 * 该方法不复制数据，继续写入数据后返回的数组可能失效。
+	 * 
+	 * @return 返回内部数组。
+	 */
+	public byte[] array() {
+		return this.buf;
+	}
+
+	/**
+	 * 获得已写入的数据长度。
+	 * 
+	 * @return 返回已写入的数据长度。
+	 */
+	public int length() {
+		return this.count;
+	}
+
+	/**
+	 * 将已写入的数据包装为缓存，不复制数据。
+	 * 
+	 * @return 返回处于待读取状态的缓存。
+	 */
+	public ByteBuffer asByteBuffer() {
+		return ByteBuffer.wrap(this.buf, 0, this.count);
+	}
+
+	/**
+	 * 扩大内部数组。
+	 */
+	private void grow(int minCapacity) {
+		int capacity = this.buf.length << 1;
+		if (capacity < minCapacity) {
+			capacity = minCapacity;
+		}
+
+		this.buf = Arrays.copyOf(this.buf, capacity);
+	}
+
+}
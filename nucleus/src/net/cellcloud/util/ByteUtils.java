@@ -162,6 +162,17 @@ public final class ByteUtils {
 		return (short) ((0xff & bytes[0]) | (0xff00 & (bytes[1] << 8)));
 	}
 
+	/**
+	 * 从字节数组的指定位置读取 short 。
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @return
+	 */
+	public static short toShort(byte[] bytes, int offset) {
+		return (short) ((0xff & bytes[offset]) | (0xff00 & (bytes[offset + 1] << 8)));
+	}
+
 	/**
 	 * 字节数组转 char 。
 	 * 
@@ -185,6 +196,20 @@ public final class ByteUtils {
 				| (0xff000000 & (bytes[3] << 24));
 	}
 
+	/**
+	 * 从字节数组的指定位置读取 int 。
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @return
+	 */
+	public static int toInt(byte[] bytes, int offset) {
+		return (0xff & bytes[offset])
+				| (0xff00 & (bytes[offset + 1] << 8))
+				| (0xff0000 & (bytes[offset + 2] << 16))
+				| (0xff000000 & (bytes[offset + 3] << 24));
+	}
+
 	/**
 	 * 字节数组转 long 。
 	 * 
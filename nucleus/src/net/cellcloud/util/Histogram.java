@@ -0,0 +1,210 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 按 2 的幂划分区间的直方图。
+ * 
+ * 区间 0 记录数值 0 ，区间 i 记录 [2<sup>i-1</sup>, 2<sup>i</sup>) 范围内的数值，负数按 0 记录。
+ * 记录操作不加锁，可以在多个线程里并发执行。
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+public final class Histogram {
+
+	/** 区间数量。 */
+	private final static int NUM_BUCKETS = 64;
+
+	/** 每个区间的计数。 */
+	private final AtomicLongArray buckets;
+	/** 记录总数。 */
+	private final AtomicLong count;
+	/** 数值总和。 */
+	private final AtomicLong sum;
+	/** 最大值。 */
+	private final AtomicLong max;
+
+	/**
+	 * 构造函数。
+	 */
+	public Histogram() {
+		this.buckets = new AtomicLongArray(NUM_BUCKETS);
+		this.count = new AtomicLong(0);
+		this.sum = new AtomicLong(0);
+		this.max = new AtomicLong(0);
+	}
+
+	/**
+	 * 记录数值。
+	 * 
+	 * @param value 指定数值。
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+
+		this.buckets.incrementAndGet(NUM_BUCKETS - Long.numberOfLeadingZeros(value));
+		this.count.incrementAndGet();
+		this.sum.addAndGet(value);
+
+		long current = this.max.get();
+		while (value > current && !this.max.compareAndSet(current, value)) {
+			current = this.max.get();
+		}
+	}
+
+	/**
+	 * 获得记录总数。
+	 * 
+	 * @return 返回记录总数。
+	 */
+	public long getCount() {
+		return this.count.get();
+	}
+
+	/**
+	 * 获得数值总和。
+	 * 
+	 * @return 返回数值总和。
+	 */
+	public long getSum() {
+		return this.sum.get();
+	}
+
+	/**
+	 * 获得最大值。
+	 * 
+	 * @return 返回记录过的最大值。
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+	/**
+	 * 获得平均值。
+	 * 
+	 * @return 返回平均值，没有记录时返回 <code>0</code> 。
+	 */
+	public double getMean() {
+		long count = this.count.get();
+		return (count == 0) ? 0 : (double) this.sum.get() / (double) count;
+	}
+
+	/**
+	 * 获得指定百分位所在区间的上界。
+	 * 
+	 * @param percentile 指定百分位，取值范围 0 到 100 。
+	 * @return 返回百分位所在区间的上界，不超过记录过的最大值。没有记录时返回 <code>0</code> 。
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = this.getBuckets();
+		long total = 0;
+		for (int i = 0; i < counts.length; ++i) {
+			total += counts[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100.0);
+		if (rank < 1) {
+			rank = 1;
+		}
+
+		long seen = 0;
+		for (int i = 0; i < counts.length; ++i) {
+			seen += counts[i];
+			if (seen >= rank) {
+				long upper = (1L << i) - 1;
+				return Math.min(upper, this.max.get());
+			}
+		}
+
+		return this.max.get();
+	}
+
+	/**
+	 * 获得每个区间的计数。
+	 * 
+	 * @return 返回区间计数的副本。
+	 */
+	public long[] getBuckets() {
+		long[] result = new long[NUM_BUCKETS];
+		for (int i = 0; i < NUM_BUCKETS; ++i) {
+			result[i] = this.buckets.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * 生成当前数据的副本。
+	 * 
+	 * @return 返回直方图副本。
+	 */
+	public Histogram snapshot() {
+		Histogram copy = new Histogram();
+		for (int i = 0; i < NUM_BUCKETS; ++i) {
+			copy.buckets.set(i, this.buckets.get(i));
+		}
+		copy.count.set(this.count.get());
+		copy.sum.set(this.sum.get());
+		copy.max.set(this.max.get());
+		return copy;
+	}
+
+	/**
+	 * 清空所有记录。
+	 */
+	public void reset() {
+		for (int i = 0; i < NUM_BUCKETS; ++i) {
+			this.buckets.set(i, 0);
+		}
+		this.count.set(0);
+		this.sum.set(0);
+		this.max.set(0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		buf.append("count=").append(this.getCount());
+		buf.append(" mean=").append(String.format("%.1f", this.getMean()));
+		buf.append(" p50=").append(this.getPercentile(50));
+		buf.append(" p99=").append(this.getPercentile(99));
+		buf.append(" max=").append(this.getMax());
+		return buf.toString();
+	}
+
+}
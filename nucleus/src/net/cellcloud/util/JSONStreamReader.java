@@ -0,0 +1,670 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.util;
+
+import java.nio.charset.Charset;
+
+import org.json.JSONException;
+import org.json.JSONTokener;
+
+/**
+ * 流式 JSON 读取器。
+ * 
+ * 直接在 UTF-8 编码的字节数组上按顺序读取 JSON 数据，不构建 JSONObject 对象树。
+ * 读取器不复制源数据，读取期间源数据不能被修改。
+ * 
+ * 数值和布尔值的读取规则与 {@link org.json.JSONObject} 的 <code>getXxx</code> 方法一致，
+ * 字符串形式的数值和布尔值也可以被读取。
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+public final class JSONStreamReader {
+
+	/** UTF-8 字符集。 */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** 源数据。 */
+	private final byte[] data;
+	/** 数据结束位置。 */
+	private final int end;
+	/** 当前读取位置。 */
+	private int pos;
+
+	/** 下一个值之前是否需要逗号。 */
+	private boolean comma;
+
+	/**
+	 * 构造函数。
+	 * 
+	 * @param data 指定 UTF-8 编码的 JSON 数据。
+	 */
+	public JSONStreamReader(byte[] data) {
+		this(data, 0, data.length);
+	}
+
+	/**
+	 * 构造函数。
+	 * 
+	 * @param data 指定 UTF-8 编码的 JSON 数据。
+	 * @param offset 指定数据偏移。
+	 * @param length 指定数据长度。
+	 */
+	public JSONStreamReader(byte[] data, int offset, int length) {
+		this.data = data;
+		this.pos = offset;
+		this.end = offset + length;
+		this.comma = false;
+	}
+
+	/**
+	 * 获得源数据。
+	 * 
+	 * @return 返回源数据。
+	 */
+	public byte[] getData() {
+		return this.data;
+	}
+
+	/**
+	 * 获得当前读取位置。
+	 * 
+	 * @return 返回当前读取位置。
+	 */
+	public int position() {
+		return this.pos;
+	}
+
+	/**
+	 * 将读取位置移动到指定位置。通常与 {@link #skipValue()} 配合，回到之前跳过的值进行读取，
+	 * 读取完成后再回到原来的位置继续读取。
+	 * 
+	 * @param position 指定读取位置。
+	 */
+	public void seek(int position) {
+		this.pos = position;
+	}
+
+	/**
+	 * 开始读取对象。
+	 * 
+	 * @throws JSONException 如果下一个值不是对象。
+	 */
+	public void beginObject() throws JSONException {
+		this.expect('{');
+		this.comma = false;
+	}
+
+	/**
+	 * 结束读取对象。
+	 * 
+	 * @throws JSONException 如果对象没有结束。
+	 */
+	public void endObject() throws JSONException {
+		this.skipWhitespace();
+		this.expect('}');
+		this.comma = true;
+	}
+
+	/**
+	 * 开始读取数组。
+	 * 
+	 * @throws JSONException 如果下一个值不是数组。
+	 */
+	public void beginArray() throws JSONException {
+		this.expect('[');
+		this.comma = false;
+	}
+
+	/**
+	 * 结束读取数组。
+	 * 
+	 * @throws JSONException 如果数组没有结束。
+	 */
+	public void endArray() throws JSONException {
+		this.skipWhitespace();
+		this.expect(']');
+		this.comma = true;
+	}
+
+	/**
+	 * 判断当前对象或数组是否还有元素。
+	 * 
+	 * @return 如果还有元素返回 <code>true</code> 。
+	 * @throws JSONException 如果数据格式错误。
+	 */
+	public boolean hasNext() throws JSONException {
+		this.skipWhitespace();
+		if (this.pos >= this.end) {
+			throw this.syntaxError("Unterminated object or array");
+		}
+
+		byte c = this.data[this.pos];
+		if (c == '}' || c == ']') {
+			return false;
+		}
+
+		if (this.comma) {
+			if (c != ',') {
+				throw this.syntaxError("Expected a ','");
+			}
+			++this.pos;
+			this.skipWhitespace();
+			this.comma = false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * 读取对象的键。通过 {@link JSONTokener#internKeys(String...)} 登记的键直接返回缓存的字符串。
+	 * 
+	 * @return 返回键。
+	 * @throws JSONException 如果下一个值不是键。
+	 */
+	public String nextName() throws JSONException {
+		String name = null;
+		this.skipWhitespace();
+		if (this.pos < this.end && this.data[this.pos] == '"') {
+			for (int i = this.pos + 1; i < this.end; ++i) {
+				byte c = this.data[i];
+				if (c == '"') {
+					name = JSONTokener.internedKey(this.data, this.pos + 1, i - this.pos - 1);
+					if (null != name) {
+						this.pos = i + 1;
+					}
+					break;
+				}
+				else if (c == '\\') {
+					break;
+				}
+			}
+		}
+
+		if (null == name) {
+			name = this.readString();
+		}
+		this.skipWhitespace();
+		this.expect(':');
+		this.comma = false;
+		return name;
+	}
+
+	/**
+	 * 读取字符串值。
+	 * 
+	 * @return 返回字符串。
+	 * @throws JSONException 如果下一个值不是字符串。
+	 */
+	public String nextString() throws JSONException {
+		this.skipWhitespace();
+		String value = this.readString();
+		this.comma = true;
+		return value;
+	}
+
+	/**
+	 * 读取字符串值，返回 UTF-8 编码的数据。没有转义字符的字符串直接复制源数据，不需要解码。
+	 * 
+	 * @return 返回 UTF-8 编码的字符串数据。
+	 * @throws JSONException 如果下一个值不是字符串。
+	 */
+	public byte[] nextStringBytes() throws JSONException {
+		this.skipWhitespace();
+		if (this.peekByte() == '"') {
+			int start = this.pos + 1;
+			for (int i = start; i < this.end; ++i) {
+				byte c = this.data[i];
+				if (c == '"') {
+					byte[] value = new byte[i - start];
+					System.arraycopy(this.data, start, value, 0, value.length);
+					this.pos = i + 1;
+					this.comma = true;
+					return value;
+				}
+				else if (c == '\\') {
+					break;
+				}
+			}
+		}
+
+		return this.nextString().getBytes(UTF8);
+	}
+
+	/**
+	 * 读取整数值。
+	 * 
+	 * @return 返回整数。
+	 * @throws JSONException 如果下一个值不是数值。
+	 */
+	public int nextInt() throws JSONException {
+		return (int) this.nextLong();
+	}
+
+	/**
+	 * 读取长整数值。带小数部分或者指数部分的数值被截断为整数。
+	 * 
+	 * @return 返回长整数。
+	 * @throws JSONException 如果下一个值不是数值。
+	 */
+	public long nextLong() throws JSONException {
+		this.skipWhitespace();
+		if (this.peekByte() == '"') {
+			String string = this.readString();
+			this.comma = true;
+			try {
+				return Long.parseLong(string);
+			} catch (NumberFormatException e) {
+				throw new JSONException("Value is not a long: " + string);
+			}
+		}
+
+		int start = this.pos;
+		boolean negative = false;
+		if (this.data[this.pos] == '-') {
+			negative = true;
+			++this.pos;
+		}
+
+		long value = 0;
+		int digits = 0;
+		while (this.pos < this.end) {
+			int d = this.data[this.pos] - '0';
+			if (d < 0 || d > 9) {
+				break;
+			}
+			value = value * 10 + d;
+			++this.pos;
+			++digits;
+		}
+
+		if (digits == 0) {
+			throw this.syntaxError("Expected a number");
+		}
+
+		if (digits > 18 || this.isFractionOrExponent()) {
+			// 超出快速解析范围或者是浮点数
+			this.pos = start;
+			return (long) this.nextDouble();
+		}
+
+		this.comma = true;
+		return negative ? -value : value;
+	}
+
+	/**
+	 * 读取浮点数值。
+	 * 
+	 * @return 返回浮点数。
+	 * @throws JSONException 如果下一个值不是数值。
+	 */
+	public double nextDouble() throws JSONException {
+		this.skipWhitespace();
+		if (this.peekByte() == '"') {
+			String string = this.readString();
+			this.comma = true;
+			try {
+				return Double.parseDouble(string);
+			} catch (NumberFormatException e) {
+				throw new JSONException("Value is not a number: " + string);
+			}
+		}
+
+		int start = this.pos;
+		while (this.pos < this.end) {
+			byte c = this.data[this.pos];
+			if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+				++this.pos;
+			}
+			else {
+				break;
+			}
+		}
+
+		if (start == this.pos) {
+			throw this.syntaxError("Expected a number");
+		}
+
+		this.comma = true;
+		String string = new String(this.data, start, this.pos - start, UTF8);
+		try {
+			return Double.parseDouble(string);
+		} catch (NumberFormatException e) {
+			throw new JSONException("Value is not a number: " + string);
+		}
+	}
+
+	/**
+	 * 读取布尔值。
+	 * 
+	 * @return 返回布尔值。
+	 * @throws JSONException 如果下一个值不是布尔值。
+	 */
+	public boolean nextBoolean() throws JSONException {
+		this.skipWhitespace();
+		if (this.peekByte() == '"') {
+			String string = this.readString();
+			this.comma = true;
+			if (string.equalsIgnoreCase("true")) {
+				return true;
+			}
+			else if (string.equalsIgnoreCase("false")) {
+				return false;
+			}
+			throw new JSONException("Value is not a Boolean: " + string);
+		}
+
+		if (this.matchLiteral("true")) {
+			this.comma = true;
+			return true;
+		}
+		else if (this.matchLiteral("false")) {
+			this.comma = true;
+			return false;
+		}
+
+		throw this.syntaxError("Expected a Boolean");
+	}
+
+	/**
+	 * 判断下一个值是否是 <code>null</code> 。如果是则跳过该值。
+	 * 
+	 * @return 如果下一个值是 <code>null</code> 返回 <code>true</code> 。
+	 * @throws JSONException 如果数据已结束。
+	 */
+	public boolean nextNull() throws JSONException {
+		this.skipWhitespace();
+		if (this.peekByte() == 'n' && this.matchLiteral("null")) {
+			this.comma = true;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * 获得下一个值的首字符，不移动读取位置。
+	 * 
+	 * @return 返回下一个值的首字符。
+	 * @throws JSONException 如果数据已结束。
+	 */
+	public char peek() throws JSONException {
+		this.skipWhitespace();
+		return (char) this.peekByte();
+	}
+
+	/**
+	 * 跳过下一个值，包括嵌套的对象和数组。
+	 * 
+	 * @return 返回被跳过的值的起始位置，值的结束位置为调用后的 {@link #position()} 。
+	 * @throws JSONException 如果数据格式错误。
+	 */
+	public int skipValue() throws JSONException {
+		this.skipWhitespace();
+		int start = this.pos;
+
+		byte c = this.peekByte();
+		if (c == '{' || c == '[') {
+			int depth = 0;
+			while (this.pos < this.end) {
+				c = this.data[this.pos];
+				if (c == '"') {
+					this.skipString();
+					continue;
+				}
+
+				++this.pos;
+				if (c == '{' || c == '[') {
+					++depth;
+				}
+				else if (c == '}' || c == ']') {
+					if (--depth == 0) {
+						this.comma = true;
+						return start;
+					}
+				}
+			}
+
+			throw this.syntaxError("Unterminated object or array");
+		}
+		else if (c == '"') {
+			this.skipString();
+		}
+		else {
+			while (this.pos < this.end) {
+				c = this.data[this.pos];
+				if (c == ',' || c == '}' || c == ']' || c <= ' ') {
+					break;
+				}
+				++this.pos;
+			}
+
+			if (start == this.pos) {
+				throw this.syntaxError("Missing value");
+			}
+		}
+
+		this.comma = true;
+		return start;
+	}
+
+	/**
+	 * 读取带引号的字符串。
+	 */
+	private String readString() throws JSONException {
+		this.expect('"');
+
+		int start = this.pos;
+		byte[] buf = this.data;
+		while (this.pos < this.end) {
+			byte c = buf[this.pos];
+			if (c == '"') {
+				// 没有转义字符，直接解码
+				String value = new String(buf, start, this.pos - start, UTF8);
+				++this.pos;
+				return value;
+			}
+			else if (c == '\\') {
+				break;
+			}
+			++this.pos;
+		}
+
+		// 处理转义字符
+		StringBuilder sb = new StringBuilder(this.pos - start + 16);
+		sb.append(new String(buf, start, this.pos - start, UTF8));
+
+		int segment = this.pos;
+		while (this.pos < this.end) {
+			byte c = buf[this.pos];
+			if (c == '"') {
+				sb.append(new String(buf, segment, this.pos - segment, UTF8));
+				++this.pos;
+				return sb.toString();
+			}
+			else if (c == '\\') {
+				sb.append(new String(buf, segment, this.pos - segment, UTF8));
+				++this.pos;
+				if (this.pos >= this.end) {
+					break;
+				}
+
+				c = buf[this.pos++];
+				switch (c) {
+				case 'b':
+					sb.append('\b');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 'u':
+					if (this.pos + 4 > this.end) {
+						throw this.syntaxError("Illegal escape");
+					}
+					sb.append((char) this.parseHex(this.pos));
+					this.pos += 4;
+					break;
+				case '"':
+				case '\'':
+				case '\\':
+				case '/':
+					sb.append((char) c);
+					break;
+				default:
+					throw this.syntaxError("Illegal escape");
+				}
+
+				segment = this.pos;
+			}
+			else {
+				++this.pos;
+			}
+		}
+
+		throw this.syntaxError("Unterminated string");
+	}
+
+	/**
+	 * 跳过带引号的字符串。
+	 */
+	private void skipString() throws JSONException {
+		++this.pos;
+		while (this.pos < this.end) {
+			byte c = this.data[this.pos++];
+			if (c == '"') {
+				return;
+			}
+			else if (c == '\\') {
+				++this.pos;
+			}
+		}
+
+		throw this.syntaxError("Unterminated string");
+	}
+
+	/**
+	 * 解析四位十六进制数。
+	 */
+	private int parseHex(int index) throws JSONException {
+		int value = 0;
+		for (int i = index; i < index + 4; ++i) {
+			int c = this.data[i];
+			int d;
+			if (c >= '0' && c <= '9') {
+				d = c - '0';
+			}
+			else if (c >= 'a' && c <= 'f') {
+				d = c - 'a' + 10;
+			}
+			else if (c >= 'A' && c <= 'F') {
+				d = c - 'A' + 10;
+			}
+			else {
+				throw this.syntaxError("Illegal escape");
+			}
+			value = (value << 4) | d;
+		}
+		return value;
+	}
+
+	/**
+	 * 判断当前位置是否是小数部分或者指数部分。
+	 */
+	private boolean isFractionOrExponent() {
+		if (this.pos >= this.end) {
+			return false;
+		}
+
+		byte c = this.data[this.pos];
+		return (c == '.' || c == 'e' || c == 'E');
+	}
+
+	/**
+	 * 匹配字面量，匹配成功时移动读取位置。
+	 */
+	private boolean matchLiteral(String literal) {
+		int len = literal.length();
+		if (this.pos + len > this.end) {
+			return false;
+		}
+
+		for (int i = 0; i < len; ++i) {
+			if (this.data[this.pos + i] != literal.charAt(i)) {
+				return false;
+			}
+		}
+
+		this.pos += len;
+		return true;
+	}
+
+	/**
+	 * 跳过空白字符。
+	 */
+	private void skipWhitespace() {
+		while (this.pos < this.end && (this.data[this.pos] & 0xFF) <= ' ') {
+			++this.pos;
+		}
+	}
+
+	/**
+	 * 获得当前位置的字节。
+	 */
+	private byte peekByte() throws JSONException {
+		if (this.pos >= this.end) {
+			throw this.syntaxError("Unexpected end of data");
+		}
+		return this.data[this.pos];
+	}
+
+	/**
+	 * 跳过空白字符后读取指定字符。
+	 */
+	private void expect(char c) throws JSONException {
+		this.skipWhitespace();
+		if (this.pos >= this.end || this.data[this.pos] != c) {
+			throw this.syntaxError("Expected a '" + c + "'");
+		}
+		++this.pos;
+	}
+
+	/**
+	 * 生成语法错误异常。
+	 */
+	private JSONException syntaxError(String message) {
+		return new JSONException(message + " at " + this.pos);
+	}
+
+}
@@ -0,0 +1,476 @@
+/*
+-----------------------------------------------------------------------------
+This source file is part of Cell Cloud.
+
+Copyright (c) 2009-2017 Cell Cloud Team (www.cellcloud.net)
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in
+all copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+THE SOFTWARE.
+-----------------------------------------------------------------------------
+*/
+
+package net.cellcloud.util;
+
+import java.nio.charset.Charset;
+
+import org.json.JSONException;
+
+/**
+ * 流式 JSON 写入器。
+ * 
+ * 直接将 UTF-8 编码的 JSON 文本写入字节缓存，不需要构建 JSONObject 对象树，
+ * 也不需要生成中间字符串。写入器只负责格式，不检查键和值的配对是否完整。
+ * 
+ * 字符串的转义规则与 {@link org.json.JSONObject#quote(String)} 兼容，
+ * 另外转义 U+2028 和 U+2029 以便数据可以被 JavaScript 直接执行。
+ * 
+ * @author Ambrose Xu
+ * 
+ */
+public final class JSONStreamWriter {
+
+	/** 十六进制字符。 */
+	private static final byte[] HEX = "0123456789abcdef".getBytes(Charset.forName("UTF-8"));
+
+	/** 布尔值 true 。 */
+	private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+	/** 布尔值 false 。 */
+	private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+	/** 空值。 */
+	private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+
+	/** 线程复用的写入器。 */
+	private static final ThreadLocal<JSONStreamWriter> threadWriter = new ThreadLocal<JSONStreamWriter>() {
+		@Override
+		protected JSONStreamWriter initialValue() {
+			return new JSONStreamWriter(new ByteArrayBuffer(1024));
+		}
+	};
+
+	/** 复用的缓存最大保留容量。 */
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	/** 输出缓存。 */
+	private final ByteArrayBuffer buffer;
+
+	/** 下一个值之前是否需要写入逗号。 */
+	private boolean comma;
+
+	/** 整数转换使用的临时数组。 */
+	private final byte[] digits = new byte[20];
+
+	/**
+	 * 构造函数。
+	 * 
+	 * @param buffer 指定输出缓存。
+	 */
+	public JSONStreamWriter(ByteArrayBuffer buffer) {
+		this.buffer = buffer;
+		this.comma = false;
+	}
+
+	/**
+	 * 获得当前线程复用的写入器。写入器的缓存已被重置。
+	 * 
+	 * 返回的写入器在当前线程下一次调用该方法之前有效，需要长期持有数据时应复制数据。
+	 * 
+	 * @return 返回当前线程复用的写入器。
+	 */
+	public static JSONStreamWriter getThreadWriter() {
+		JSONStreamWriter writer = threadWriter.get();
+		writer.reset();
+		return writer;
+	}
+
+	/**
+	 * 重置写入器，清空已写入的数据。
+	 */
+	public void reset() {
+		this.buffer.reset(MAX_RETAINED_CAPACITY);
+		this.comma = false;
+	}
+
+	/**
+	 * 获得输出缓存。
+	 * 
+	 * @return 返回输出缓存。
+	 */
+	public ByteArrayBuffer getBuffer() {
+		return this.buffer;
+	}
+
+	/**
+	 * 复制已写入的数据。
+	 * 
+	 * @return 返回已写入数据的副本。
+	 */
+	public byte[] toByteArray() {
+		return this.buffer.toByteArray();
+	}
+
+	/**
+	 * 开始写入对象。
+	 * 
+	 * @return 返回写入器本身。
+	 */
+	public JSONStreamWriter beginObject() {
+		this.separate();
+		this.buffer.write('{');
+		this.comma = false;
+		return this;
+	}
+
+	/**
+	 * 结束写入对象。
+	 * 
+	 * @return 返回写入器本身。
+	 */
+	public JSONStreamWriter endObject() {
+		this.buffer.write('}');
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * 开始写入数组。
+	 * 
+	 * @return 返回写入器本身。
+	 */
+	public JSONStreamWriter beginArray() {
+		this.separate();
+		this.buffer.write('[');
+		this.comma = false;
+		return this;
+	}
+
+	/**
+	 * 结束写入数组。
+	 * 
+	 * @return 返回写入器本身。
+	 */
+	public JSONStreamWriter endArray() {
+		this.buffer.write(']');
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * 写入对象的键。
+	 * 
+	 * @param name 指定键。
+	 * @return 返回写入器本身。
+	 */
+	public JSONStreamWriter key(String name) {
+		this.separate();
+		this.writeString(name);
+		this.buffer.write(':');
+		this.comma = false;
+		return this;
+	}
+
+	/**
+	 * 写入字符串值。
+	 * 
+	 * @param value 指定字符串，为 <code>null</code> 时写入 <code>null</code> 。
+	 * @return 返回写入器本身。
+	 */
+	public JSONStreamWriter value(String value) {
+		this.separate();
+		if (null == value) {
+			this.buffer.write(NULL, 0, NULL.length);
+		}
+		else {
+			this.writeString(value);
+		}
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * 写入 UTF-8 编码的字符串值。数据不需要先解码为字符串。
+	 * 
+	 * @param utf8 指定 UTF-8 编码的字符串数据。
+	 * @param offset 指定数据偏移。
+	 * @param length 指定数据长度。
+	 * @return 返回写入器本身。
+	 */
+	public JSONStreamWriter value(byte[] utf8, int offset, int length) {
+		this.separate();
+		this.writeString(utf8, offset, length);
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * 写入整数值。
+	 * 
+	 * @param value 指定整数。
+	 * @return 返回写入器本身。
+	 */
+	public JSONStreamWriter value(long value) {
+		this.separate();
+		this.writeLong(value);
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * 写入浮点数值。数值格式与 {@link org.json.JSONObject#numberToString(Number)} 一致。
+	 * 
+	 * @param value 指定浮点数。
+	 * @return 返回写入器本身。
+	 * @throws JSONException 如果数值不是有限数。
+	 */
+	public JSONStreamWriter value(double value) throws JSONException {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			throw new JSONException("JSON does not allow non-finite numbers.");
+		}
+
+		this.separate();
+
+		String string = Double.toString(value);
+		int end = string.length();
+		if (string.indexOf('.') > 0 && string.indexOf('e') < 0 && string.indexOf('E') < 0) {
+			// 去掉末尾的 0 和小数点
+			while (string.charAt(end - 1) == '0') {
+				--end;
+			}
+			if (string.charAt(end - 1) == '.') {
+				--end;
+			}
+		}
+
+		for (int i = 0; i < end; ++i) {
+			this.buffer.write(string.charAt(i));
+		}
+
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * 写入布尔值。
+	 * 
+	 * @param value 指定布尔值。
+	 * @return 返回写入器本身。
+	 */
+	public JSONStreamWriter value(boolean value) {
+		this.separate();
+		if (value) {
+			this.buffer.write(TRUE, 0, TRUE.length);
+		}
+		else {
+			this.buffer.write(FALSE, 0, FALSE.length);
+		}
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * 写入已经是 JSON 格式的数据，数据原样写入。
+	 * 
+	 * @param json 指定 UTF-8 编码的 JSON 数据。
+	 * @param offset 指定数据偏移。
+	 * @param length 指定数据长度。
+	 * @return 返回写入器本身。
+	 */
+	public JSONStreamWriter rawValue(byte[] json, int offset, int length) {
+		this.separate();
+		this.buffer.write(json, offset, length);
+		this.comma = true;
+		return this;
+	}
+
+	/**
+	 * 按需写入分隔逗号。
+	 */
+	private void separate() {
+		if (this.comma) {
+			this.buffer.write(',');
+		}
+	}
+
+	/**
+	 * 写入整数。
+	 */
+	private void writeLong(long value) {
+		if (value == Long.MIN_VALUE) {
+			String string = Long.toString(value);
+			for (int i = 0, len = string.length(); i < len; ++i) {
+				this.buffer.write(string.charAt(i));
+			}
+			return;
+		}
+
+		if (value < 0) {
+			this.buffer.write('-');
+			value = -value;
+		}
+
+		int pos = this.digits.length;
+		do {
+			this.digits[--pos] = (byte) ('0' + (value % 10));
+			value /= 10;
+		} while (value != 0);
+
+		this.buffer.write(this.digits, pos, this.digits.length - pos);
+	}
+
+	/**
+	 * 将字符串编码为 UTF-8 并写入引号和转义字符。
+	 */
+	private void writeString(String string) {
+		ByteArrayBuffer buf = this.buffer;
+		buf.write('"');
+
+		char last = 0;
+		for (int i = 0, len = string.length(); i < len; ++i) {
+			char c = string.charAt(i);
+			if (c < 0x80) {
+				this.writeAscii(c, last);
+			}
+			else if (c < 0x800) {
+				buf.write(0xC0 | (c >> 6));
+				buf.write(0x80 | (c & 0x3F));
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(string.charAt(i + 1))) {
+				int cp = Character.toCodePoint(c, string.charAt(++i));
+				buf.write(0xF0 | (cp >> 18));
+				buf.write(0x80 | ((cp >> 12) & 0x3F));
+				buf.write(0x80 | ((cp >> 6) & 0x3F));
+				buf.write(0x80 | (cp & 0x3F));
+			}
+			else if (Character.isSurrogate(c) || c == '\u2028' || c == '\u2029') {
+				// 不成对的代理字符和行分隔符使用转义形式
+				this.writeUnicodeEscape(c);
+			}
+			else {
+				buf.write(0xE0 | (c >> 12));
+				buf.write(0x80 | ((c >> 6) & 0x3F));
+				buf.write(0x80 | (c & 0x3F));
+			}
+
+			last = c;
+		}
+
+		buf.write('"');
+	}
+
+	/**
+	 * 写入 UTF-8 编码的字符串数据，写入引号和转义字符。
+	 */
+	private void writeString(byte[] utf8, int offset, int length) {
+		ByteArrayBuffer buf = this.buffer;
+		buf.write('"');
+
+		int end = offset + length;
+		int start = offset;
+		char last = 0;
+		for (int i = offset; i < end; ++i) {
+			int b = utf8[i] & 0xFF;
+			if (b >= 0x80) {
+				// U+2028 和 U+2029 的编码为 E2 80 A8 和 E2 80 A9
+				if (b == 0xE2 && i + 2 < end && (utf8[i + 1] & 0xFF) == 0x80
+						&& ((utf8[i + 2] & 0xFF) == 0xA8 || (utf8[i + 2] & 0xFF) == 0xA9)) {
+					buf.write(utf8, start, i - start);
+					this.writeUnicodeEscape((utf8[i + 2] & 0xFF) == 0xA8 ? '\u2028' : '\u2029');
+					i += 2;
+					start = i + 1;
+				}
+				last = 0;
+				continue;
+			}
+
+			if (b >= 0x20 && b != '"' && b != '\\' && !(b == '/' && last == '<')) {
+				last = (char) b;
+				continue;
+			}
+
+			// 需要转义的字符
+			buf.write(utf8, start, i - start);
+			this.writeAscii((char) b, last);
+			start = i + 1;
+			last = (char) b;
+		}
+
+		buf.write(utf8, start, end - start);
+		buf.write('"');
+	}
+
+	/**
+	 * 写入 ASCII 字符，按需转义。
+	 */
+	private void writeAscii(char c, char last) {
+		ByteArrayBuffer buf = this.buffer;
+		switch (c) {
+		case '"':
+		case '\\':
+			buf.write('\\');
+			buf.write(c);
+			break;
+		case '/':
+			if (last == '<') {
+				buf.write('\\');
+			}
+			buf.write(c);
+			break;
+		case '\b':
+			buf.write('\\');
+			buf.write('b');
+			break;
+		case '\t':
+			buf.write('\\');
+			buf.write('t');
+			break;
+		case '\n':
+			buf.write('\\');
+			buf.write('n');
+			break;
+		case '\f':
+			buf.write('\\');
+			buf.write('f');
+			break;
+		case '\r':
+			buf.write('\\');
+			buf.write('r');
+			break;
+		default:
+			if (c < 0x20) {
+				this.writeUnicodeEscape(c);
+			}
+			else {
+				buf.write(c);
+			}
+			break;
+		}
+	}
+
+	/**
+	 * 写入 \\uXXXX 形式的转义字符。
+	 */
+	private void writeUnicodeEscape(char c) {
+		ByteArrayBuffer buf = this.buffer;
+		buf.write('\\');
+		buf.write('u');
+		buf.write(HEX[(c >> 12) & 0xF]);
+		buf.write(HEX[(c >> 8) & 0xF]);
+		buf.write(HEX[(c >> 4) & 0xF]);
+		buf.write(HEX[c & 0xF]);
+	}
+
+}
@@ -232,6 +232,18 @@ public final class Utils {
 		return new String(bytes, Charset.forName("UTF-8"));
 	}
 
+	/**
+	 * Byte 数组的指定区间转 UTF-8 字符串。
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public static String bytes2String(byte[] bytes, int offset, int length) {
+		return new String(bytes, offset, length, Charset.forName("UTF-8"));
+	}
+
 	/**
 	 * 字符串转 UTF-8 Byte 数组。 
 	 * 
@@ -5,7 +5,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
 
 /*
 Copyright (c) 2002 JSON.org
@@ -35,11 +37,27 @@ SOFTWARE.
  * A JSONTokener takes a source string and extracts characters and tokens from
  * it. It is used by the JSONObject and JSONArray constructors to parse
  * JSON source strings.
+ * <p>
+ * A tokener built from a String, a char array or UTF-8 bytes scans the
+ * characters in place. Strings without escapes are copied in one step, plain
+ * integers are parsed without going through a String, and object keys can be
+ * resolved against a cache of interned keys registered with
+ * {@link #internKeys(String...)}. Position details for error messages are
+ * only computed when an error is reported. A tokener built from a Reader
+ * reads one character at a time.
  * @author JSON.org
  * @version 2012-02-16
  */
 public class JSONTokener {
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /** Characters that end an unquoted value. */
+    private static final String UNQUOTED_DELIMITERS = ",:]}/\\\"[{;=#";
+
+    /** Open addressing table of interned keys, replaced on every update. */
+    private static volatile String[] keyTable = new String[0];
+
     private long    character;
     private boolean eof;
     private long    index;
@@ -48,6 +66,15 @@ public class JSONTokener {
     private Reader  reader;
     private boolean usePrevious;
 
+    /** Source characters when scanning in place, otherwise null. */
+    private char[]  buffer;
+    /** Offset of the first source character in the buffer. */
+    private int     start;
+    /** Offset of the next character; may pass the limit at the end. */
+    private int     position;
+    /** Offset after the last source character. */
+    private int     limit;
+
 
     /**
      * Construct a JSONTokener from a Reader.
@@ -81,7 +108,169 @@ public class JSONTokener {
      * @param s     A source string.
      */
     public JSONTokener(String s) {
-        this(new StringReader(s));
+        this(s.toCharArray(), 0, s.length());
+    }
+
+
+    /**
+     * Construct a JSONTokener that scans a range of a char array in place.
+     * The array must not be modified while the tokener is in use.
+     *
+     * @param chars     The source characters.
+     * @param offset    The offset of the first character.
+     * @param length    The number of characters.
+     */
+    public JSONTokener(char[] chars, int offset, int length) {
+        this.buffer = chars;
+        this.start = offset;
+        this.position = offset;
+        this.limit = offset + length;
+        this.eof = false;
+        this.usePrevious = false;
+        this.previous = 0;
+    }
+
+
+    /**
+     * Construct a JSONTokener from UTF-8 encoded bytes. The bytes are decoded
+     * once into a char array that is then scanned in place.
+     *
+     * @param utf8      The UTF-8 encoded source.
+     * @param offset    The offset of the first byte.
+     * @param length    The number of bytes.
+     */
+    public JSONTokener(byte[] utf8, int offset, int length) {
+        CharBuffer chars = UTF8.decode(ByteBuffer.wrap(utf8, offset, length));
+        this.buffer = chars.array();
+        this.start = chars.arrayOffset() + chars.position();
+        this.position = this.start;
+        this.limit = this.start + chars.remaining();
+        this.eof = false;
+        this.usePrevious = false;
+        this.previous = 0;
+    }
+
+
+    /**
+     * Register keys that JSONObject parsing should share instead of
+     * allocating a new String for every occurrence. This is meant for the
+     * small fixed set of keys of a protocol. Keys containing escapes are
+     * never resolved from the cache.
+     *
+     * @param keys     The keys to intern.
+     */
+    public static synchronized void internKeys(String... keys) {
+        String[] old = keyTable;
+        int count = keys.length;
+        for (int i = 0; i < old.length; i += 1) {
+            if (old[i] != null) {
+                count += 1;
+            }
+        }
+
+        int size = 16;
+        while (size < count * 2) {
+            size <<= 1;
+        }
+
+        String[] table = new String[size];
+        for (int i = 0; i < old.length; i += 1) {
+            if (old[i] != null) {
+                putKey(table, old[i]);
+            }
+        }
+        for (int i = 0; i < keys.length; i += 1) {
+            putKey(table, keys[i]);
+        }
+
+        keyTable = table;
+    }
+
+
+    /**
+     * Find an interned key matching a byte range. Only ASCII keys are
+     * resolved.
+     *
+     * @param data      The source bytes.
+     * @param offset    The offset of the key.
+     * @param length    The length of the key.
+     * @return The interned key, or null if the key is not interned.
+     */
+    public static String internedKey(byte[] data, int offset, int length) {
+        String[] table = keyTable;
+        if (table.length == 0) {
+            return null;
+        }
+
+        int hash = 0;
+        for (int i = offset, end = offset + length; i < end; i += 1) {
+            if (data[i] < 0) {
+                return null;
+            }
+            hash = 31 * hash + data[i];
+        }
+
+        int mask = table.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            String key = table[i];
+            if (key == null) {
+                return null;
+            }
+            if (key.hashCode() == hash && key.length() == length) {
+                boolean match = true;
+                for (int j = 0; j < length; j += 1) {
+                    if (key.charAt(j) != data[offset + j]) {
+                        match = false;
+                        break;
+                    }
+                }
+                if (match) {
+                    return key;
+                }
+            }
+        }
+    }
+
+
+    private static void putKey(String[] table, String key) {
+        int mask = table.length - 1;
+        for (int i = key.hashCode() & mask; ; i = (i + 1) & mask) {
+            if (table[i] == null) {
+                table[i] = key;
+                return;
+            }
+            if (table[i].equals(key)) {
+                return;
+            }
+        }
+    }
+
+
+    private static String internedKey(char[] chars, int offset, int length, int hash) {
+        String[] table = keyTable;
+        if (table.length == 0) {
+            return null;
+        }
+
+        int mask = table.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            String key = table[i];
+            if (key == null) {
+                return null;
+            }
+            if (key.hashCode() == hash && key.length() == length) {
+                boolean match = true;
+                for (int j = 0; j < length; j += 1) {
+                    if (key.charAt(j) != chars[offset + j]) {
+                        match = false;
+                        break;
+                    }
+                }
+                if (match) {
+                    return key;
+                }
+            }
+        }
     }
 
 
@@ -91,6 +280,15 @@ public class JSONTokener {
      * the next number or identifier.
      */
     public void back() throws JSONException {
+        if (this.buffer != null) {
+            if (this.usePrevious || this.position <= this.start) {
+                throw new JSONException("Stepping back two steps is not supported");
+            }
+            this.position -= 1;
+            this.usePrevious = true;
+            this.eof = false;
+            return;
+        }
         if (this.usePrevious || this.index <= 0) {
             throw new JSONException("Stepping back two steps is not supported");
         }
@@ -146,6 +344,16 @@ public class JSONTokener {
      * @return The next character, or 0 if past the end of the source string.
      */
     public char next() throws JSONException {
+        if (this.buffer != null) {
+            char c = this.position < this.limit ? this.buffer[this.position] : 0;
+            this.position += 1;
+            this.usePrevious = false;
+            if (c == 0) {
+                this.eof = true;
+            }
+            return c;
+        }
+
         int c;
         if (this.usePrevious) {
             this.usePrevious = false;
@@ -228,6 +436,25 @@ public class JSONTokener {
      * @return  A character, or 0 if there are no more characters.
      */
     public char nextClean() throws JSONException {
+        if (this.buffer != null) {
+            char[] buf = this.buffer;
+            int pos = this.position;
+            while (pos < this.limit) {
+                char c = buf[pos];
+                if (c > ' ') {
+                    this.position = pos + 1;
+                    this.usePrevious = false;
+                    return c;
+                }
+                if (c == 0) {
+                    break;
+                }
+                pos += 1;
+            }
+            this.position = pos;
+            return this.next();
+        }
+
         for (;;) {
             char c = this.next();
             if (c == 0 || c > ' ') {
@@ -249,8 +476,25 @@ public class JSONTokener {
      * @throws JSONException Unterminated string.
      */
     public String nextString(char quote) throws JSONException {
+        if (this.buffer != null) {
+            // Strings without escapes are copied in one step.
+            char[] buf = this.buffer;
+            for (int i = this.position; i < this.limit; i += 1) {
+                char c = buf[i];
+                if (c == quote) {
+                    String string = new String(buf, this.position, i - this.position);
+                    this.position = i + 1;
+                    this.usePrevious = false;
+                    return string;
+                }
+                if (c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                    break;
+                }
+            }
+        }
+
         char c;
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder();
         for (;;) {
             c = this.next();
             switch (c) {
@@ -299,6 +543,41 @@ public class JSONTokener {
     }
 
 
+    /**
+     * Get the next object key. Quoted keys without escapes are resolved
+     * against the interned keys first.
+     * @return The key.
+     * @throws JSONException If syntax error.
+     */
+    String nextKey() throws JSONException {
+        if (this.buffer != null) {
+            char quote = this.nextClean();
+            if (quote == '"' || quote == '\'') {
+                char[] buf = this.buffer;
+                int hash = 0;
+                for (int i = this.position; i < this.limit; i += 1) {
+                    char c = buf[i];
+                    if (c == quote) {
+                        String key = internedKey(buf, this.position, i - this.position, hash);
+                        if (key == null) {
+                            key = new String(buf, this.position, i - this.position);
+                        }
+                        this.position = i + 1;
+                        return key;
+                    }
+                    if (c == '\\' || c == '\n' || c == '\r' || c == 0) {
+                        break;
+                    }
+                    hash = 31 * hash + c;
+                }
+                return this.nextString(quote);
+            }
+            this.back();
+        }
+        return this.nextValue().toString();
+    }
+
+
     /**
      * Get the text up but not including the specified character or the
      * end of line, whichever comes first.
@@ -306,7 +585,7 @@ public class JSONTokener {
      * @return   A string.
      */
     public String nextTo(char delimiter) throws JSONException {
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder();
         for (;;) {
             char c = this.next();
             if (c == delimiter || c == 0 || c == '\n' || c == '\r') {
@@ -328,7 +607,7 @@ public class JSONTokener {
      */
     public String nextTo(String delimiters) throws JSONException {
         char c;
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder();
         for (;;) {
             c = this.next();
             if (delimiters.indexOf(c) >= 0 || c == 0 ||
@@ -366,6 +645,10 @@ public class JSONTokener {
                 return new JSONArray(this);
         }
 
+        if (this.buffer != null) {
+            return this.nextUnquoted();
+        }
+
         /*
          * Handle unquoted text. This could be the values true, false, or
          * null, or it can be a number. An implementation (such as this one)
@@ -375,8 +658,8 @@ public class JSONTokener {
          * formatting character.
          */
 
-        StringBuffer sb = new StringBuffer();
-        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+        StringBuilder sb = new StringBuilder();
+        while (c >= ' ' && UNQUOTED_DELIMITERS.indexOf(c) < 0) {
             sb.append(c);
             c = this.next();
         }
@@ -390,6 +673,82 @@ public class JSONTokener {
     }
 
 
+    /**
+     * Scan unquoted text in place. The first character has been consumed.
+     * Plain integers and the literals true, false and null are converted
+     * directly; everything else goes through JSONObject.stringToValue.
+     */
+    private Object nextUnquoted() throws JSONException {
+        char[] buf = this.buffer;
+        int begin = this.position - 1;
+        int end = begin;
+        while (end < this.limit) {
+            char c = buf[end];
+            if (c < ' ' || UNQUOTED_DELIMITERS.indexOf(c) >= 0) {
+                break;
+            }
+            end += 1;
+        }
+
+        // Leave the terminating character unread, like back() does.
+        this.position = end;
+        this.usePrevious = true;
+        this.eof = false;
+
+        while (begin < end && buf[begin] <= ' ') {
+            begin += 1;
+        }
+        while (end > begin && buf[end - 1] <= ' ') {
+            end -= 1;
+        }
+
+        int length = end - begin;
+        if (length == 0) {
+            throw this.syntaxError("Missing value");
+        }
+
+        // Integers of up to 18 digits cannot overflow a long.
+        boolean negative = buf[begin] == '-';
+        int digits = negative ? begin + 1 : begin;
+        if (digits < end && end - digits <= 18) {
+            long value = 0;
+            int i = digits;
+            while (i < end) {
+                int d = buf[i] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                value = value * 10 + d;
+                i += 1;
+            }
+            if (i == end) {
+                if (negative) {
+                    value = -value;
+                }
+                if (value == (int) value) {
+                    return Integer.valueOf((int) value);
+                }
+                return Long.valueOf(value);
+            }
+        }
+
+        if (length == 4 && buf[begin] == 't' && buf[begin + 1] == 'r'
+                && buf[begin + 2] == 'u' && buf[begin + 3] == 'e') {
+            return Boolean.TRUE;
+        }
+        if (length == 5 && buf[begin] == 'f' && buf[begin + 1] == 'a'
+                && buf[begin + 2] == 'l' && buf[begin + 3] == 's' && buf[begin + 4] == 'e') {
+            return Boolean.FALSE;
+        }
+        if (length == 4 && buf[begin] == 'n' && buf[begin + 1] == 'u'
+                && buf[begin + 2] == 'l' && buf[begin + 3] == 'l') {
+            return JSONObject.NULL;
+        }
+
+        return JSONObject.stringToValue(new String(buf, begin, length));
+    }
+
+
     /**
      * Skip characters until the next character is the requested character.
      * If the requested character is not found, no characters are skipped.
@@ -399,6 +758,22 @@ public class JSONTokener {
      */
     public char skipTo(char to) throws JSONException {
         char c;
+        if (this.buffer != null) {
+            for (int i = this.position; i < this.limit; i += 1) {
+                c = this.buffer[i];
+                if (c == 0) {
+                    break;
+                }
+                if (c == to) {
+                    this.position = i;
+                    this.usePrevious = true;
+                    this.eof = false;
+                    return c;
+                }
+            }
+            return 0;
+        }
+
         try {
             long startIndex = this.index;
             long startCharacter = this.character;
@@ -440,6 +815,31 @@ public class JSONTokener {
      * @return " at {index} [character {character} line {line}]"
      */
     public String toString() {
+        if (this.buffer != null) {
+            // Count lines and characters the same way next() does.
+            long character = 1;
+            long line = 1;
+            char previous = 0;
+            int end = this.usePrevious ? this.position + 1 : this.position;
+            for (int i = this.start; i < end; i += 1) {
+                char c = i < this.limit ? this.buffer[i] : 0;
+                if (previous == '\r') {
+                    line += 1;
+                    character = c == '\n' ? 0 : 1;
+                } else if (c == '\n') {
+                    line += 1;
+                    character = 0;
+                } else {
+                    character += 1;
+                }
+                previous = c;
+            }
+            if (this.usePrevious) {
+                character -= 1;
+            }
+            return " at " + (this.position - this.start) + " [character " + character + " line " +
+                line + "]";
+        }
         return " at " + this.index + " [character " + this.character + " line " +
             this.line + "]";
     }